@@ -0,0 +1,41 @@
+package dynfs.benchmarks;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Runs the selected benchmarks once per thread count listed in the dynfs.benchmark.threads
+// system property (default "1,4"), passing all other arguments through to JMH
+public final class BenchmarkMain {
+
+    //
+    // Constant: Default Thread Counts
+
+    private static final String DEFAULT_THREAD_COUNTS = "1,4";
+
+    //
+    // Construction
+
+    private BenchmarkMain() {}
+
+    //
+    // Entry Point
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+
+        // An explicit -t overrides the configured thread counts
+        if (commandLineOptions.getThreads().hasValue()) {
+            new Runner(commandLineOptions).run();
+            return;
+        }
+
+        for (String threads : System.getProperty("dynfs.benchmark.threads", DEFAULT_THREAD_COUNTS).split(",")) {
+            new Runner(new OptionsBuilder()
+                    .parent(commandLineOptions)
+                    .threads(Integer.parseInt(threads.trim()))
+                    .build()).run();
+        }
+    }
+
+}
@@ -0,0 +1,51 @@
+package dynfs.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import dynfs.core.DynFileSystem;
+import dynfs.core.DynFileSystemProvider;
+import dynfs.dynlm.LMSpace;
+import dynfs.dynlm.LMSpaceOptions;
+
+final class BenchmarkSystems {
+
+    //
+    // Construction
+
+    private BenchmarkSystems() {}
+
+    //
+    // DynFileSystemProvider Provision
+
+    static DynFileSystemProvider provider() {
+        for (FileSystemProvider fsp : FileSystemProvider.installedProviders()) {
+            if (fsp instanceof DynFileSystemProvider)
+                return (DynFileSystemProvider) fsp;
+        }
+
+        throw new IllegalStateException("No DynFileSystemProvider instance was found");
+    }
+
+    //
+    // DynFileSystem Creation
+
+    // Each trial uses a fresh domain, so that forked and unforked runs never collide
+    private static final AtomicInteger nextDomain = new AtomicInteger();
+
+    static DynFileSystem<LMSpace> openSystem(long totalSpace, LMSpaceOptions options) throws IOException {
+        String domain = "benchmark-domain-" + nextDomain.getAndIncrement();
+        String fsName = String.format("[DynFileSystem: %s (Benchmark)]", domain);
+
+        return provider().newFileSystem(domain, env -> new LMSpace(fsName, totalSpace, options), null);
+    }
+
+    static LMSpaceOptions concurrentOptions() {
+        // Benchmarks may be run with several threads sharing one system
+        LMSpaceOptions options = LMSpaceOptions.newInstance();
+        options.concurrent = true;
+        return options;
+    }
+
+}
@@ -0,0 +1,81 @@
+package dynfs.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import dynfs.dynlm.Block;
+import dynfs.dynlm.BlockMemory;
+import dynfs.dynlm.BlockMemory.PoolType;
+import dynfs.dynlm.BlockMemory.StorageType;
+import dynfs.dynlm.LMSpaceOptions;
+
+// Allocation and release of blocks directly against BlockMemory
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BlockMemoryBenchmark {
+
+    //
+    // State: Memory
+
+    @State(Scope.Benchmark)
+    public static class MemoryState {
+        @Param({ "LINKED", "BITMAP" })
+        public PoolType poolType;
+
+        @Param({ "HEAP", "DIRECT" })
+        public StorageType storageType;
+
+        @Param({ "false", "true" })
+        public boolean releaseOnFree;
+
+        @Param({ "1", "16", "256" })
+        public int blocksPerAllocation;
+
+        BlockMemory<Object> memory;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            LMSpaceOptions options = BenchmarkSystems.concurrentOptions();
+            options.poolType = poolType;
+            options.storageType = storageType;
+            options.releaseOnFree = releaseOnFree;
+
+            // Room for up to 64 threads, each holding one allocation
+            memory = new BlockMemory<>(s -> {}, Block.sizeOfNBlocks((long) blocksPerAllocation * 64), options);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            memory.close();
+        }
+    }
+
+    //
+    // State: Owner
+
+    @State(Scope.Thread)
+    public static class OwnerState {
+        final Object owner = new Object();
+    }
+
+    //
+    // Benchmark: Allocate / Free
+
+    @Benchmark
+    public void allocateFree(MemoryState state, OwnerState owner) throws IOException {
+        BlockMemory<Object> memory = state.memory;
+        memory.free(owner.owner, memory.allocate(owner.owner, state.blocksPerAllocation));
+    }
+
+}
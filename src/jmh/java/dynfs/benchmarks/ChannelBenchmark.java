@@ -0,0 +1,164 @@
+package dynfs.benchmarks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import dynfs.core.DynFileSystem;
+import dynfs.dynlm.Block;
+import dynfs.dynlm.BlockMemory.StorageType;
+import dynfs.dynlm.LMSpace;
+import dynfs.dynlm.LMSpaceOptions;
+
+// Sequential and random I/O through Files.newByteChannel; each thread works on its own file
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ChannelBenchmark {
+
+    //
+    // State: System
+
+    @State(Scope.Benchmark)
+    public static class SystemState {
+        @Param({ "65536", "16777216" })
+        public int fileSize;
+
+        @Param({ "4096", "65536" })
+        public int ioSize;
+
+        @Param({ "HEAP", "DIRECT", "MAPPED" })
+        public StorageType storageType;
+
+        DynFileSystem<LMSpace> fs;
+
+        private final AtomicInteger nextFile = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            LMSpaceOptions options = BenchmarkSystems.concurrentOptions();
+            options.storageType = storageType;
+
+            // Room for up to 64 threads, each with its own file
+            long totalSpace = Block.sizeOfNBlocks((long) Block.numBlocks(fileSize) * 64);
+            fs = BenchmarkSystems.openSystem(totalSpace, options);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            fs.close();
+        }
+
+        Path newFilePath() {
+            return fs.getPath("/file-" + nextFile.getAndIncrement() + ".bin");
+        }
+    }
+
+    //
+    // State: Channel
+
+    @State(Scope.Thread)
+    public static class ChannelState {
+        SeekableByteChannel channel;
+        ByteBuffer buffer;
+        Random random;
+
+        int fileSize;
+        long position;
+
+        @Setup(Level.Trial)
+        public void setUp(SystemState system) throws IOException {
+            channel = Files.newByteChannel(system.newFilePath(), StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = ByteBuffer.allocate(system.ioSize);
+            random = new Random(system.fileSize);
+
+            fileSize = system.fileSize;
+            position = 0;
+
+            // Fill the file, so that reads and overwrites never extend it
+            ByteBuffer fill = ByteBuffer.allocate(fileSize);
+            random.nextBytes(fill.array());
+            while (fill.hasRemaining()) {
+                channel.write(fill);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            channel.close();
+        }
+
+        long nextSequentialPosition() {
+            if (position + buffer.capacity() > fileSize) {
+                position = 0;
+            }
+
+            long result = position;
+            position += buffer.capacity();
+            return result;
+        }
+
+        long nextRandomPosition() {
+            return random.nextInt(fileSize - buffer.capacity() + 1);
+        }
+    }
+
+    //
+    // Support: I/O
+
+    private static int readAt(ChannelState state, long position) throws IOException {
+        state.buffer.clear();
+        state.channel.position(position);
+        return state.channel.read(state.buffer);
+    }
+
+    private static int writeAt(ChannelState state, long position) throws IOException {
+        state.buffer.clear();
+        state.channel.position(position);
+        return state.channel.write(state.buffer);
+    }
+
+    //
+    // Benchmark: Read
+
+    @Benchmark
+    public int sequentialRead(ChannelState state) throws IOException {
+        return readAt(state, state.nextSequentialPosition());
+    }
+
+    @Benchmark
+    public int randomRead(ChannelState state) throws IOException {
+        return readAt(state, state.nextRandomPosition());
+    }
+
+    //
+    // Benchmark: Write
+
+    @Benchmark
+    public int sequentialWrite(ChannelState state) throws IOException {
+        return writeAt(state, state.nextSequentialPosition());
+    }
+
+    @Benchmark
+    public int randomWrite(ChannelState state) throws IOException {
+        return writeAt(state, state.nextRandomPosition());
+    }
+
+}
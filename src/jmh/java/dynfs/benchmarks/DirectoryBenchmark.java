@@ -0,0 +1,120 @@
+package dynfs.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import dynfs.core.DynFileSystem;
+import dynfs.dynlm.Block;
+import dynfs.dynlm.LMSpace;
+import dynfs.dynlm.LMSpaceOptions;
+
+// Listing of, and create / delete churn within, a large directory
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DirectoryBenchmark {
+
+    //
+    // State: System
+
+    @State(Scope.Benchmark)
+    public static class SystemState {
+        @Param({ "100", "10000", "100000" })
+        public int numEntries;
+
+        @Param({ "false", "true" })
+        public boolean sortedDirectories;
+
+        DynFileSystem<LMSpace> fs;
+        Path dir;
+
+        private final AtomicInteger nextThread = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            LMSpaceOptions options = BenchmarkSystems.concurrentOptions();
+            options.sortedDirectories = sortedDirectories;
+
+            fs = BenchmarkSystems.openSystem(Block.sizeOfNBlocks(16), options);
+
+            dir = fs.getPath("/dir");
+            Files.createDirectory(dir);
+            for (int i = 0; i < numEntries; i++) {
+                Files.createFile(dir.resolve(String.format("entry-%06d", i)));
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            fs.close();
+        }
+    }
+
+    //
+    // State: Churn
+
+    @State(Scope.Thread)
+    public static class ChurnState {
+        Path path;
+
+        @Setup(Level.Trial)
+        public void setUp(SystemState system) {
+            path = system.dir.resolve("churn-" + system.nextThread.getAndIncrement());
+        }
+    }
+
+    //
+    // Benchmark: Listing
+
+    @Benchmark
+    public int list(SystemState system) throws IOException {
+        int count = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(system.dir)) {
+            Iterator<Path> it = stream.iterator();
+            while (it.hasNext()) {
+                it.next();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Lists the (at most 10) entries sharing a prefix, through glob pushdown
+    @Benchmark
+    public int listPrefix(SystemState system) throws IOException {
+        int count = 0;
+        try (DirectoryStream<Path> stream = system.fs.provider().newDirectoryStream(system.dir, "entry-00004*")) {
+            Iterator<Path> it = stream.iterator();
+            while (it.hasNext()) {
+                it.next();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    //
+    // Benchmark: Create / Delete Churn
+
+    @Benchmark
+    public void createDelete(ChurnState state) throws IOException {
+        Files.createFile(state.path);
+        Files.delete(state.path);
+    }
+
+}
@@ -0,0 +1,83 @@
+package dynfs.benchmarks;
+
+import java.io.IOException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import dynfs.core.DynFileSystem;
+import dynfs.dynlm.Block;
+import dynfs.dynlm.LMSpace;
+
+// Resolution of a file at the bottom of a chain of nested directories, measured by
+// opening it for reading
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ResolutionBenchmark {
+
+    //
+    // Parameters
+
+    @Param({ "1", "4", "16", "64" })
+    public int depth;
+
+    //
+    // State: System
+
+    private DynFileSystem<LMSpace> fs;
+
+    private String leafPathString;
+    private Path leafPath;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fs = BenchmarkSystems.openSystem(Block.sizeOfNBlocks(16), BenchmarkSystems.concurrentOptions());
+
+        StringBuilder sb = new StringBuilder();
+        for (int d = 0; d < depth; d++) {
+            sb.append("/dir-").append(d);
+            Files.createDirectory(fs.getPath(sb.toString()));
+        }
+        sb.append("/leaf.bin");
+
+        leafPathString = sb.toString();
+        leafPath = fs.getPath(leafPathString);
+        Files.createFile(leafPath);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fs.close();
+    }
+
+    //
+    // Benchmark: Resolution
+
+    @Benchmark
+    public long parseAndResolve() throws IOException {
+        try (SeekableByteChannel ch = Files.newByteChannel(fs.getPath(leafPathString))) {
+            return ch.size();
+        }
+    }
+
+    @Benchmark
+    public long resolve() throws IOException {
+        try (SeekableByteChannel ch = Files.newByteChannel(leafPath)) {
+            return ch.size();
+        }
+    }
+
+}
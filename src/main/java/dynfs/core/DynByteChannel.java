@@ -4,7 +4,6 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SeekableByteChannel;
-import java.util.Arrays;
 
 import dynfs.core.options.OpenOptions;
 
@@ -13,9 +12,8 @@ final class DynByteChannel implements SeekableByteChannel {
     // TODO: Atomic I/O + Buffered I/O - Add desynchronization (via flushUpdates()
     // interface?)
     // Base desynchronization off LMFile? (potentially very viable)
-    // -> OpenOptions.DSYNC is currently ignored; all data updates are synchronous
-    // -> OpenOptions.SYNC is ignored; all (data + metadata) updates are synchronous
-    // (metadata is not written currently)
+    // -> With OpenOptions.DSYNC or OpenOptions.SYNC, every update waits for
+    // DynFile.force (metadata is not written currently)
 
     //
     // Configuration: DynFile
@@ -67,12 +65,12 @@ final class DynByteChannel implements SeekableByteChannel {
     }
 
     @Override
-    public long position() throws IOException {
+    public synchronized long position() throws IOException {
         return position;
     }
 
     @Override
-    public SeekableByteChannel position(long newPosition) throws IOException {
+    public synchronized SeekableByteChannel position(long newPosition) throws IOException {
         throwIfClosed();
         position = validatePosition(newPosition, "newPosition");
         return this;
@@ -115,6 +113,13 @@ final class DynByteChannel implements SeekableByteChannel {
             throw new UnsupportedOperationException("This DynByteChannel is read-only");
     }
 
+    // Channels opened with SYNC or DSYNC wait for every update to become durable
+    private void syncUpdate() throws IOException {
+        if (syncData) {
+            file.force(syncMetadata);
+        }
+    }
+
     //
     // Interface: I/O, File Size
 
@@ -125,7 +130,7 @@ final class DynByteChannel implements SeekableByteChannel {
     }
 
     @Override
-    public SeekableByteChannel truncate(long size) throws IOException {
+    public synchronized SeekableByteChannel truncate(long size) throws IOException {
         // Should throw if closed or read-only even if no truncation is made
         size = Math.min(size(), size);
         setSize(size);
@@ -135,7 +140,12 @@ final class DynByteChannel implements SeekableByteChannel {
     private void setSize(long size) throws IOException {
         throwIfClosed();
         throwIfReadOnly();
-        file().setSize(validatePosition(size, "size"));
+        DynFileIO io = file();
+        if (validatePosition(size, "size") != io.size()) {
+            io.setSize(size);
+            file.notifyModified();
+            syncUpdate();
+        }
         if (position > size) {
             position = size;
         }
@@ -144,10 +154,9 @@ final class DynByteChannel implements SeekableByteChannel {
     //
     // Interface Implementation: I/O, Read / Write
 
-    // FUTURE: OpenOption to cleanse buffer after every read/write?
-    // Design Consideration - Option to *not* cleanse buffer? (i.e. default is to
-    // cleanse buffer?)
-    private final byte[] buf = new byte[512];
+    // Source of zeroes for filling the gap when writing beyond the end of a file that
+    // is not sparse
+    private static final byte[] ZEROES = new byte[8192];
 
     private static int truncateLongToInt(long v) {
         if (v > Integer.MAX_VALUE)
@@ -159,24 +168,29 @@ final class DynByteChannel implements SeekableByteChannel {
     }
 
     @Override
-    public int read(ByteBuffer dst) throws IOException {
+    public synchronized int read(ByteBuffer dst) throws IOException {
         throwIfClosed();
         // TODO: Mechanism (flag?) for interrupting read on close? (requires
         // synchronization w/ throwIfClosed)
 
-        long fileSize = file().size();
+        DynFileIO io = file();
+
+        long fileSize = io.size();
         int bytesToRead;
 
         int remainderOfFile = truncateLongToInt(fileSize - position);
         if (remainderOfFile > 0) {
             bytesToRead = Math.min(dst.remaining(), remainderOfFile);
-            for (int rem = bytesToRead; rem > 0;) {
-                int bytesRead = Math.min(rem, buf.length);
-                file().uncheckedRead(position, buf, 0, bytesRead);
-                dst.put(buf, 0, bytesRead);
-                position += bytesRead;
-                rem -= bytesRead;
+
+            // Data is copied directly into dst, limited to the remainder of the file
+            int limit = dst.limit();
+            dst.limit(dst.position() + bytesToRead);
+            try {
+                io.uncheckedRead(position, dst);
+            } finally {
+                dst.limit(limit);
             }
+            position += bytesToRead;
         } else {
             bytesToRead = -1;
             position = fileSize;
@@ -188,36 +202,31 @@ final class DynByteChannel implements SeekableByteChannel {
     }
 
     @Override
-    public int write(ByteBuffer src) throws IOException {
+    public synchronized int write(ByteBuffer src) throws IOException {
         throwIfClosed();
         throwIfReadOnly();
         // TODO: Mechanism for interrupting write on close? (requires synchronization w/
         // throwIfClosed)
 
-        long fileSize = file().size();
-        int bytesToWrite = src.remaining();
+        DynFileIO io = file();
 
-        long requireMinimumFileSize = position + bytesToWrite;
-        if (requireMinimumFileSize > fileSize) {
-            file().setSize(requireMinimumFileSize);
-        }
+        int bytesToWrite = src.remaining();
+        long fileSize = io.extendSize(position + bytesToWrite);
 
-        if (position > fileSize) {
-            Arrays.fill(buf, (byte) 0);
+        if (position > fileSize && !io.isSparse()) {
             for (long off = fileSize; off < position;) {
-                int bytesCleared = truncateLongToInt(Math.min(buf.length, position - off));
-                file().uncheckedWrite(off, buf, 0, bytesCleared);
+                int bytesCleared = truncateLongToInt(Math.min(ZEROES.length, position - off));
+                io.uncheckedWrite(off, ZEROES, 0, bytesCleared);
                 off += bytesCleared;
             }
         }
 
-        for (int rem = bytesToWrite; rem > 0;) {
-            int bytesWritten = Math.min(buf.length, rem);
-            src.get(buf, 0, bytesWritten);
-            file().uncheckedWrite(position, buf, 0, bytesWritten);
-            position += bytesWritten;
-            rem -= bytesWritten;
-        }
+        // Data is copied directly from src
+        io.uncheckedWrite(position, src);
+        position += bytesToWrite;
+
+        file.notifyModified();
+        syncUpdate();
 
         // TODO: Attribute I/O - Update metadata
 
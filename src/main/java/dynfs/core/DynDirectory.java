@@ -2,18 +2,25 @@ package dynfs.core;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.CopyOption;
 import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
 import java.nio.file.attribute.FileAttribute;
 import java.nio.file.spi.FileSystemProvider;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
+import com.google.common.collect.Iterators;
+
 import dynfs.core.ResolutionResult.Result;
 import dynfs.core.options.CopyOptions;
 
@@ -64,7 +71,10 @@ public abstract class DynDirectory<Space extends DynSpace<Space>, Node extends D
     public final DynFile<Space, ?> createFile(String name, FileAttribute<?>... attrs)
             throws IOException {
         // FUTURE: Access Control - Check access control
-        return createFileImpl(name, attrs);
+        DynFile<Space, ?> file = createFileImpl(name, attrs);
+        invalidateChildResolutions(name);
+        notifyWatchers(StandardWatchEventKinds.ENTRY_CREATE, name);
+        return file;
     }
 
     /**
@@ -79,7 +89,10 @@ public abstract class DynDirectory<Space extends DynSpace<Space>, Node extends D
     public final DynFile<Space, ?> createSparseFile(String name, FileAttribute<?>... attrs)
             throws IOException {
         // FUTURE: Access Control - Check access control
-        return createSparseFileImpl(name, attrs);
+        DynFile<Space, ?> file = createSparseFileImpl(name, attrs);
+        invalidateChildResolutions(name);
+        notifyWatchers(StandardWatchEventKinds.ENTRY_CREATE, name);
+        return file;
     }
 
     /**
@@ -96,7 +109,10 @@ public abstract class DynDirectory<Space extends DynSpace<Space>, Node extends D
     public final DynDirectory<Space, ?> createDirectory(String name, FileAttribute<?>... attrs)
             throws IOException {
         // FUTURE: Access Control - Check access control
-        return createDirectoryImpl(name, attrs);
+        DynDirectory<Space, ?> dir = createDirectoryImpl(name, attrs);
+        invalidateChildResolutions(name);
+        notifyWatchers(StandardWatchEventKinds.ENTRY_CREATE, name);
+        return dir;
     }
 
     /**
@@ -116,13 +132,78 @@ public abstract class DynDirectory<Space extends DynSpace<Space>, Node extends D
         node.preDelete();
 
         deleteChildImpl(name, node);
+        invalidateChildResolutions(name);
         node.deleteImpl();
 
+        if (node instanceof DynDirectory) {
+            ((DynDirectory<Space, ?>) node).invalidateWatchKeys();
+        }
+        notifyWatchers(StandardWatchEventKinds.ENTRY_DELETE, name);
+
         node.postDeleteImpl();
     }
 
     protected abstract void deleteChildImpl(String name, DynNode<Space, ?> node) throws IOException;
 
+    //
+    // Support: Resolution Cache Invalidation
+
+    private void invalidateChildResolutions(String name) {
+        getStore().invalidateResolutions(getRoute().resolve(name));
+    }
+
+    //
+    // State: Watch Keys
+
+    private static final DynWatchKey[] NO_WATCH_KEYS = new DynWatchKey[0];
+
+    // Replaced on every change, so that events are posted without locking
+    private volatile DynWatchKey[] watchKeys = NO_WATCH_KEYS;
+
+    // Returns the key of watcher for this directory, registering one if none is valid
+    final synchronized DynWatchKey watch(DynWatchService watcher, DynPath dir, Set<WatchEvent.Kind<?>> kinds) {
+        for (DynWatchKey key : watchKeys) {
+            if (key.watcher() == watcher) {
+                key.setKinds(kinds);
+                return key;
+            }
+        }
+
+        DynWatchKey key = new DynWatchKey(watcher, dir, this, kinds);
+
+        DynWatchKey[] keys = Arrays.copyOf(watchKeys, watchKeys.length + 1);
+        keys[keys.length - 1] = key;
+        watchKeys = keys;
+
+        return key;
+    }
+
+    final synchronized void removeWatchKey(DynWatchKey key) {
+        DynWatchKey[] keys = watchKeys;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == key) {
+                DynWatchKey[] newKeys = Arrays.copyOf(keys, keys.length - 1);
+                System.arraycopy(keys, i + 1, newKeys, i, keys.length - i - 1);
+                watchKeys = newKeys.length == 0 ? NO_WATCH_KEYS : newKeys;
+                return;
+            }
+        }
+    }
+
+    private void invalidateWatchKeys() {
+        for (DynWatchKey key : watchKeys) {
+            key.invalidate();
+        }
+    }
+
+    // Posts an event for the child name to every key watching this directory
+    final void notifyWatchers(WatchEvent.Kind<Path> kind, String name) {
+        DynWatchKey[] keys = watchKeys;
+        for (int i = 0; i < keys.length; i++) {
+            keys[i].post(kind, name);
+        }
+    }
+
     //
     // Interface: DynFileSystemProvider I/O, Copy / Move
 
@@ -137,7 +218,94 @@ public abstract class DynDirectory<Space extends DynSpace<Space>, Node extends D
     void unifiedCopyMove(DynNode<Space, ?> src, String dstName, CopyOptions copyOptions, boolean deleteSrc)
             throws IOException {
         // FUTURE: Access Control - Check access control
-        copyImpl(src, dstName, copyOptions, deleteSrc);
+        if (deleteSrc) {
+            if (isMoveSupported()) {
+                relink(src, dstName, copyOptions);
+                return;
+            }
+            if (copyOptions.atomicMove)
+                throw new AtomicMoveNotSupportedException(src.getRouteString(), getRoute().resolve(dstName).toString(),
+                        "Nodes are moved by copying them");
+        }
+
+        try {
+            copyImpl(src, dstName, copyOptions, deleteSrc);
+        } finally {
+            // copyImpl may create the destination through the unchecked creation methods
+            invalidateChildResolutions(dstName);
+        }
+
+        notifyWatchers(StandardWatchEventKinds.ENTRY_CREATE, dstName);
+    }
+
+    //
+    // Support: Move by Relinking
+
+    // Moves src, with its whole subtree, to be the child dstName of this directory
+    // without copying anything
+    private void relink(DynNode<Space, ?> src, String dstName, CopyOptions copyOptions) throws IOException {
+        DynDirectory<Space, ?> srcParent;
+        String srcName;
+
+        synchronized (getStore().getMoveLock()) {
+            if (src.isRoot())
+                throw new FileSystemException(src.getRouteString(), null, "The root directory cannot be moved");
+
+            for (DynDirectory<Space, ?> dir = this; dir != null; dir = dir.getParent()) {
+                if (dir == src)
+                    throw new FileSystemException(src.getRouteString(), getRoute().resolve(dstName).toString(),
+                            "A directory cannot be moved beneath itself");
+            }
+
+            srcParent = src.getParent();
+            srcName = src.getName();
+
+            DynNode<Space, ?> dstNode = resolveChildImpl(dstName);
+            if (dstNode == src)
+                return;
+
+            if (dstNode != null) {
+                if (!copyOptions.replaceExisting)
+                    throw new FileAlreadyExistsException(dstNode.getRouteString());
+                if (dstNode instanceof DynDirectory && !((DynDirectory<Space, ?>) dstNode).isEmpty())
+                    throw new DirectoryNotEmptyException(dstNode.getRouteString());
+
+                dstNode.delete();
+            }
+
+            try {
+                moveImpl(src, dstName);
+            } finally {
+                srcParent.invalidateChildResolutions(srcName);
+                invalidateChildResolutions(dstName);
+            }
+        }
+
+        srcParent.notifyWatchers(StandardWatchEventKinds.ENTRY_DELETE, srcName);
+        notifyWatchers(StandardWatchEventKinds.ENTRY_CREATE, dstName);
+    }
+
+    // Must be invoked by moveImpl once node has been relinked as the child name of this
+    // directory, before any other thread can reach it there
+    protected final void relinked(DynNode<Space, ?> node, String name) {
+        node.relocate(this, name);
+        getStore().invalidateRoutes();
+    }
+
+    //
+    // Implementation Default: DynFileSystemProvider I/O, Move
+
+    // Spaces that can move a node by relinking it into another directory override
+    // isMoveSupported and moveImpl; otherwise, a node is moved by copying it, and then
+    // deleting it
+    protected boolean isMoveSupported() {
+        return false;
+    }
+
+    // Relinks srcNode, a node of the space that is not an ancestor of this directory,
+    // as the child dstName of this directory, which has no such child
+    protected void moveImpl(DynNode<Space, ?> srcNode, String dstName) throws IOException {
+        throw new UnsupportedOperationException("Nodes of this space cannot be moved by relinking them");
     }
 
     //
@@ -211,6 +379,29 @@ public abstract class DynDirectory<Space extends DynSpace<Space>, Node extends D
         return !iterator().hasNext();
     }
 
+    //
+    // Implementation Default: Ordered / Prefix / Range Iteration
+
+    // Whether iteration visits children in ascending order of name
+    public boolean isOrdered() {
+        return false;
+    }
+
+    // Iterates over the children whose names begin with namePrefix
+    public Iterator<DynNode<Space, ?>> iterator(String namePrefix) {
+        if (namePrefix == null)
+            throw new NullPointerException("namePrefix is null");
+
+        return Iterators.filter(iterator(), node -> node.getName().startsWith(namePrefix));
+    }
+
+    // Iterates over the children whose names lie in [fromName, toName); a null bound
+    // is unbounded
+    public Iterator<DynNode<Space, ?>> iterator(String fromName, String toName) {
+        return Iterators.filter(iterator(), node -> (fromName == null || node.getName().compareTo(fromName) >= 0)
+                && (toName == null || node.getName().compareTo(toName) < 0));
+    }
+
     //
     // Interface Implementation Stub: Child Resolution
 
@@ -296,6 +487,7 @@ public abstract class DynDirectory<Space extends DynSpace<Space>, Node extends D
 
         DynDirectory<Space, ?> lastParent = this;
         DynNode<Space, ?> lastNode = this;
+        boolean followedLinks = false;
 
         while (index < endIndex) {
             try {
@@ -307,7 +499,7 @@ public abstract class DynDirectory<Space extends DynSpace<Space>, Node extends D
 
             if (lastNode == null) {
                 return new ResolutionResult<>(lastParent, lastParent, route, index, endIndex,
-                        Result.FAIL_NAME_NOT_FOUND);
+                        Result.FAIL_NAME_NOT_FOUND, null, followedLinks);
             }
 
             lastParent = lastNode.getParent();
@@ -315,6 +507,8 @@ public abstract class DynDirectory<Space extends DynSpace<Space>, Node extends D
 
             if (index < endIndex || followIfLinkNode) {
                 if (followLinks && lastNode instanceof DynLink) {
+                    followedLinks = true;
+
                     Set<DynLink<Space, ?>> visitedLinks = new HashSet<>();
                     while (lastNode instanceof DynLink) {
                         DynLink<Space, ?> link = (DynLink<Space, ?>) lastNode;
@@ -337,7 +531,7 @@ public abstract class DynDirectory<Space extends DynSpace<Space>, Node extends D
 
                 if (!(lastNode instanceof DynDirectory)) {
                     return new ResolutionResult<>(lastParent, lastNode, route, index, endIndex,
-                            Result.FAIL_NON_DIRECTORY_ENCOUNTERED);
+                            Result.FAIL_NON_DIRECTORY_ENCOUNTERED, null, followedLinks);
                 }
 
                 lastParent = (DynDirectory<Space, ?>) lastNode;
@@ -345,7 +539,7 @@ public abstract class DynDirectory<Space extends DynSpace<Space>, Node extends D
         }
 
         return new ResolutionResult<>(lastParent, lastNode, route, index, endIndex,
-                Result.SUCCESS_END_INDEX_REACHED);
+                Result.SUCCESS_END_INDEX_REACHED, null, followedLinks);
     }
 
 }
@@ -7,6 +7,7 @@ import java.nio.file.DirectoryStream;
 import java.nio.file.Path;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.function.Predicate;
 
 final class DynDirectoryStream<Space extends DynSpace<Space>>
         implements DirectoryStream<Path> {
@@ -26,6 +27,16 @@ final class DynDirectoryStream<Space extends DynSpace<Space>>
 
     private final Filter<? super Path> filter;
 
+    //
+    // Configuration: Name Pushdown
+
+    // If non-null, only the children whose names begin with namePrefix are visited,
+    // through the directory's prefix iteration
+    private final String namePrefix;
+
+    // Tested against each child's name before its path is constructed
+    private final Predicate<String> nameFilter;
+
     //
     // State: Status
 
@@ -69,15 +80,35 @@ final class DynDirectoryStream<Space extends DynSpace<Space>>
     }
 
     DynDirectoryStream(DynFileSystem<Space> fs, DynDirectory<Space, ?> dir, Filter<? super Path> filter) {
+        this(fs, dir, null, name -> true, filter);
+    }
+
+    DynDirectoryStream(DynFileSystem<Space> fs, DynDirectory<Space, ?> dir, String namePrefix,
+            Predicate<String> nameFilter, Filter<? super Path> filter) {
         this.fs = fs;
         this.dir = dir;
         this.filter = filter;
 
+        this.namePrefix = namePrefix;
+        this.nameFilter = nameFilter;
+
         this.isClosed = false;
 
         this.iter = null;
     }
 
+    //
+    // Static Support: Matcher Pushdown
+
+    // Opens a stream over the children of dir whose names match matcher. The literal
+    // prefix of a glob is pushed down into the directory's prefix iteration.
+    static <Space extends DynSpace<Space>> DynDirectoryStream<Space> newMatcherStream(DynFileSystem<Space> fs,
+            DynDirectory<Space, ?> dir, DynPathMatcher matcher) {
+        String prefix = matcher.namePrefix();
+        return new DynDirectoryStream<>(fs, dir, prefix == null || prefix.isEmpty() ? null : prefix,
+                matcher::matchesName, p -> true);
+    }
+
     //
     // Support Structure: Iterator
 
@@ -97,7 +128,7 @@ final class DynDirectoryStream<Space extends DynSpace<Space>>
         // Construction
 
         private DynDirectoryStreamIterator() {
-            dirIter = dir.iterator();
+            dirIter = namePrefix == null ? dir.iterator() : dir.iterator(namePrefix);
             nextPath = null;
         }
 
@@ -118,6 +149,9 @@ final class DynDirectoryStream<Space extends DynSpace<Space>>
 
             while (dirIter.hasNext()) {
                 DynNode<Space, ?> node = dirIter.next();
+                if (!nameFilter.test(node.getName()))
+                    continue;
+
                 DynPath path = DynPath.newPath(fs, node.getRoute());
 
                 boolean isPathAccepted = false;
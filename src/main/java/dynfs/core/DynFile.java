@@ -1,6 +1,7 @@
 package dynfs.core;
 
 import java.io.IOException;
+import java.nio.file.StandardWatchEventKinds;
 
 public abstract class DynFile<Space extends DynSpace<Space>, Node extends DynFile<Space, Node>>
         extends DynNode<Space, Node> {
@@ -36,6 +37,85 @@ public abstract class DynFile<Space extends DynSpace<Space>, Node extends DynFil
         validateName(name);
     }
 
+    //
+    // Implementation Default: DynFile Size Extension
+
+    // Extends the file to at least minSize, returning the size beforehand; files
+    // shared between threads must perform this atomically
+    protected long extendSize(long minSize) throws IOException {
+        long size = readSize();
+        if (minSize > size) {
+            writeSize(minSize);
+        }
+        return size;
+    }
+
+    // Extends the file by len bytes, returning the size beforehand; files shared
+    // between threads must perform this atomically
+    protected long appendSize(long len) throws IOException {
+        long size = readSize();
+        writeSize(size + len);
+        return size;
+    }
+
+    //
+    // Implementation Default: DynFile Durability
+
+    // Makes the updates to the file durable, together with the updates to the
+    // structure of the space if metaData; invoked by FileChannel.force, and after
+    // every update by channels opened with SYNC or DSYNC. Spaces without durable
+    // storage have nothing to do.
+    protected void force(boolean metaData) throws IOException {}
+
+    //
+    // Constant: Zero Fill Size
+
+    private static final int ZEROES_SIZE = 8192;
+
+    //
+    // Implementation Default: Sparse Files
+
+    // True iff the file is extended with holes, which read as zeroes without taking
+    // any storage; channels then leave the gap before a write beyond the end of the
+    // file to the file, rather than filling it with zeroes
+    protected boolean isSparse() {
+        return false;
+    }
+
+    // Makes the len bytes at off, limited to the end of the file, read as zeroes,
+    // releasing the storage that held them where the file can
+    public final void punchHole(long off, long len) throws IOException {
+        if (off < 0 || len < 0)
+            throw new IllegalArgumentException("off and len must be nonnegative");
+
+        len = Math.min(len, readSize() - off);
+        if (len <= 0)
+            return;
+
+        punchHoleImpl(off, len);
+        notifyModified();
+    }
+
+    // NOTE: Javadoc Note - Default implementation overwrites the range with zeroes
+    protected void punchHoleImpl(long off, long len) throws IOException {
+        DynFileIO io = getIOInterface();
+        byte[] zeroes = new byte[(int) Math.min(len, ZEROES_SIZE)];
+        for (long done = 0; done < len;) {
+            int n = (int) Math.min(len - done, zeroes.length);
+            io.uncheckedWrite(off + done, zeroes, 0, n);
+            done += n;
+        }
+    }
+
+    //
+    // Package Support: Watch Service Notification
+
+    // Posts ENTRY_MODIFY to the watchers of the parent directory; invoked by channels
+    // after every change to the content or size of the file
+    final void notifyModified() {
+        getParent().notifyWatchers(StandardWatchEventKinds.ENTRY_MODIFY, getName());
+    }
+
     //
     // Implementation Stub: DynFile I/O
 
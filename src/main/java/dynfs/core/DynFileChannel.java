@@ -0,0 +1,502 @@
+package dynfs.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.NonReadableChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import dynfs.core.options.OpenOptions;
+
+// Operations that use or update the channel position are synchronized on the
+// channel; positional operations are not
+final class DynFileChannel extends FileChannel {
+
+    //
+    // Constant: Transfer Buffer Size
+
+    // Used only when transferring to or from a channel outside of dynfs
+    private static final int TRANSFER_BUFFER_SIZE = 65_536;
+
+    //
+    // Constant: Zero Fill Source
+
+    private static final byte[] ZEROES = new byte[8192];
+
+    //
+    // Configuration: DynFile
+
+    private final DynFile<?, ?> file;
+
+    //
+    // Configuration: Persistent Channel Settings
+
+    private final boolean isReadable;
+    private final boolean isWritable;
+    private final boolean isAppend;
+    private final boolean deleteOnClose;
+
+    private final boolean syncData;
+    private final boolean syncMetadata;
+
+    //
+    // State: Position
+
+    private long position;
+
+    private static long validatePosition(long size, String label) {
+        if (size < 0)
+            throw new IllegalArgumentException(label + " must be nonnegative");
+
+        return size;
+    }
+
+    @Override
+    public synchronized long position() throws IOException {
+        throwIfClosed();
+        return position;
+    }
+
+    @Override
+    public synchronized FileChannel position(long newPosition) throws IOException {
+        throwIfClosed();
+        position = validatePosition(newPosition, "newPosition");
+        return this;
+    }
+
+    //
+    // Construction
+
+    DynFileChannel(DynFile<?, ?> file, OpenOptions options) throws IOException {
+        if (file == null)
+            throw new NullPointerException("file must be non-null");
+
+        this.file = file;
+
+        this.isWritable = options.write || options.append;
+        this.isReadable = options.read || !isWritable;
+        this.isAppend = options.append;
+        this.deleteOnClose = options.deleteOnClose;
+
+        this.syncData = options.dsync || options.sync;
+        this.syncMetadata = options.sync;
+
+        this.position = 0;
+
+        if (options.truncateExisting && isWritable) {
+            file().setSize(0);
+            updated();
+        }
+    }
+
+    //
+    // Implementation: Close
+
+    @Override
+    protected void implCloseChannel() throws IOException {
+        if (deleteOnClose) {
+            file.delete();
+        }
+    }
+
+    private void throwIfClosed() throws IOException {
+        if (!isOpen())
+            throw new ClosedChannelException();
+    }
+
+    //
+    // Support: I/O, File Access
+
+    private DynFileIO file() throws IOException {
+        return file.getIOInterface();
+    }
+
+    private void throwIfNotReadable() throws IOException {
+        throwIfClosed();
+        if (!isReadable)
+            throw new NonReadableChannelException();
+    }
+
+    private void throwIfNotWritable() throws IOException {
+        throwIfClosed();
+        if (!isWritable)
+            throw new NonWritableChannelException();
+    }
+
+    // Notifies watchers of an update, and waits for it to become durable if the
+    // channel was opened with SYNC or DSYNC
+    private void updated() throws IOException {
+        file.notifyModified();
+        if (syncData) {
+            file.force(syncMetadata);
+        }
+    }
+
+    //
+    // Interface: I/O, File Size
+
+    @Override
+    public long size() throws IOException {
+        throwIfClosed();
+        return file().size();
+    }
+
+    @Override
+    public synchronized FileChannel truncate(long size) throws IOException {
+        validatePosition(size, "size");
+        throwIfNotWritable();
+
+        DynFileIO io = file();
+        if (size < io.size()) {
+            io.setSize(size);
+            updated();
+        }
+        if (position > size) {
+            position = size;
+        }
+
+        return this;
+    }
+
+    @Override
+    public void force(boolean metaData) throws IOException {
+        throwIfClosed();
+        file.force(metaData);
+    }
+
+    //
+    // Support: Positional I/O
+
+    private static int truncateLongToInt(long v) {
+        return v > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) v;
+    }
+
+    // Reads from off into dst, returning the number of bytes read, or -1 at end of file
+    private static int readAt(DynFileIO io, long off, ByteBuffer dst) throws IOException {
+        long fileSize = io.size();
+        if (off >= fileSize)
+            return -1;
+
+        int bytesToRead = Math.min(dst.remaining(), truncateLongToInt(fileSize - off));
+
+        int limit = dst.limit();
+        dst.limit(dst.position() + bytesToRead);
+        try {
+            io.uncheckedRead(off, dst);
+        } finally {
+            dst.limit(limit);
+        }
+
+        return bytesToRead;
+    }
+
+    // Ensures that the file extends to at least minSize, zero-filling the gap between
+    // its former end and gapEnd unless the file is sparse
+    private static void extendTo(DynFileIO io, long minSize, long gapEnd) throws IOException {
+        long fileSize = io.extendSize(minSize);
+        if (io.isSparse())
+            return;
+
+        for (long off = fileSize; off < gapEnd;) {
+            int bytesCleared = (int) Math.min(ZEROES.length, gapEnd - off);
+            io.uncheckedWrite(off, ZEROES, 0, bytesCleared);
+            off += bytesCleared;
+        }
+    }
+
+    // Writes the contents of src at off, returning the number of bytes written
+    private static int writeAt(DynFileIO io, long off, ByteBuffer src) throws IOException {
+        int bytesToWrite = src.remaining();
+
+        extendTo(io, off + bytesToWrite, off);
+        io.uncheckedWrite(off, src);
+
+        return bytesToWrite;
+    }
+
+    //
+    // Interface Implementation: I/O, Read / Write
+
+    @Override
+    public synchronized int read(ByteBuffer dst) throws IOException {
+        throwIfNotReadable();
+
+        int bytesRead = readAt(file(), position, dst);
+        if (bytesRead > 0) {
+            position += bytesRead;
+        }
+
+        return bytesRead;
+    }
+
+    @Override
+    public int read(ByteBuffer dst, long position) throws IOException {
+        validatePosition(position, "position");
+        throwIfNotReadable();
+
+        return readAt(file(), position, dst);
+    }
+
+    @Override
+    public synchronized long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+        throwIfNotReadable();
+
+        DynFileIO io = file();
+
+        long totalRead = 0;
+        for (int i = offset; i < offset + length; i++) {
+            if (!dsts[i].hasRemaining())
+                continue;
+
+            int bytesRead = readAt(io, position, dsts[i]);
+            if (bytesRead < 0)
+                return totalRead == 0 ? -1 : totalRead;
+
+            position += bytesRead;
+            totalRead += bytesRead;
+        }
+
+        return totalRead;
+    }
+
+    @Override
+    public synchronized int write(ByteBuffer src) throws IOException {
+        throwIfNotWritable();
+
+        DynFileIO io = file();
+
+        int bytesWritten;
+        if (isAppend) {
+            // The region is reserved atomically, so that concurrent appends do not overlap
+            bytesWritten = src.remaining();
+            position = io.appendSize(bytesWritten);
+            io.uncheckedWrite(position, src);
+        } else {
+            bytesWritten = writeAt(io, position, src);
+        }
+        position += bytesWritten;
+
+        updated();
+        return bytesWritten;
+    }
+
+    @Override
+    public int write(ByteBuffer src, long position) throws IOException {
+        validatePosition(position, "position");
+        throwIfNotWritable();
+
+        int bytesWritten = writeAt(file(), position, src);
+
+        updated();
+        return bytesWritten;
+    }
+
+    @Override
+    public synchronized long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        throwIfNotWritable();
+
+        DynFileIO io = file();
+
+        long remaining = 0;
+        for (int i = offset; i < offset + length; i++) {
+            remaining += srcs[i].remaining();
+        }
+
+        // The file is extended once for the whole gathering write
+        if (isAppend) {
+            position = io.appendSize(remaining);
+        } else {
+            extendTo(io, position + remaining, position);
+        }
+
+        long totalWritten = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int bytesWritten = srcs[i].remaining();
+            io.uncheckedWrite(position, srcs[i]);
+            position += bytesWritten;
+            totalWritten += bytesWritten;
+        }
+
+        updated();
+        return totalWritten;
+    }
+
+    //
+    // Support: Transfer Between DynFiles
+
+    // Copies up to count bytes at srcOff directly from block storage to block
+    // storage, returning the number of bytes copied
+    private static long transferBetween(DynFileIO srcIO, long srcOff, long count, DynFileIO dstIO, long dstOff)
+            throws IOException {
+        count = Math.min(count, Math.max(0, srcIO.size() - srcOff));
+        if (count == 0)
+            return 0;
+
+        extendTo(dstIO, dstOff + count, dstOff);
+        srcIO.uncheckedTransferTo(srcOff, count, dstIO, dstOff);
+
+        return count;
+    }
+
+    //
+    // Interface Implementation: I/O, Transfer
+
+    @Override
+    public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        validatePosition(position, "position");
+        validatePosition(count, "count");
+        throwIfNotReadable();
+
+        DynFileIO io = file();
+        count = Math.min(count, Math.max(0, io.size() - position));
+        if (count == 0)
+            return 0;
+
+        if (target instanceof DynFileChannel) {
+            DynFileChannel dynTarget = (DynFileChannel) target;
+            dynTarget.throwIfNotWritable();
+
+            DynFileIO targetIO = dynTarget.file();
+            synchronized (dynTarget) {
+                if (dynTarget.isAppend) {
+                    dynTarget.position = targetIO.appendSize(count);
+                }
+
+                long transferred = transferBetween(io, position, count, targetIO, dynTarget.position);
+                dynTarget.position += transferred;
+
+                dynTarget.updated();
+                return transferred;
+            }
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate((int) Math.min(count, TRANSFER_BUFFER_SIZE));
+        long totalTransferred = 0;
+        while (totalTransferred < count) {
+            buf.clear();
+            buf.limit((int) Math.min(buf.capacity(), count - totalTransferred));
+            readAt(io, position + totalTransferred, buf);
+            buf.flip();
+
+            int bytesWritten = target.write(buf);
+            totalTransferred += bytesWritten;
+            if (buf.hasRemaining())
+                break;
+        }
+
+        return totalTransferred;
+    }
+
+    @Override
+    public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+        validatePosition(position, "position");
+        validatePosition(count, "count");
+        throwIfNotWritable();
+
+        DynFileIO io = file();
+        if (position > io.size())
+            return 0;
+
+        if (src instanceof DynFileChannel) {
+            DynFileChannel dynSrc = (DynFileChannel) src;
+            dynSrc.throwIfNotReadable();
+
+            synchronized (dynSrc) {
+                long transferred = transferBetween(dynSrc.file(), dynSrc.position, count, io, position);
+                dynSrc.position += transferred;
+
+                if (transferred > 0) {
+                    updated();
+                }
+                return transferred;
+            }
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate((int) Math.min(count, TRANSFER_BUFFER_SIZE));
+        long totalTransferred = 0;
+        while (totalTransferred < count) {
+            buf.clear();
+            buf.limit((int) Math.min(buf.capacity(), count - totalTransferred));
+
+            int bytesRead = src.read(buf);
+            if (bytesRead <= 0)
+                break;
+
+            buf.flip();
+            writeAt(io, position + totalTransferred, buf);
+            totalTransferred += bytesRead;
+        }
+
+        if (totalTransferred > 0) {
+            updated();
+        }
+        return totalTransferred;
+    }
+
+    //
+    // Interface Implementation: Mapping
+
+    @Override
+    public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+        validatePosition(position, "position");
+        validatePosition(size, "size");
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("size must not exceed Integer.MAX_VALUE");
+
+        throwIfNotReadable();
+        if (mode == MapMode.READ_WRITE) {
+            throwIfNotWritable();
+        }
+
+        DynFileIO io = file();
+        if (position + size > io.size()) {
+            if (mode != MapMode.READ_WRITE)
+                throw new IllegalArgumentException("The region extends beyond the end of the file");
+
+            extendTo(io, position + size, position + size);
+        }
+
+        // NOTE: The buffer shares the file's storage, which is kept from other files for
+        // as long as the buffer itself is reachable; once the region has been truncated, writes
+        // through the buffer no longer reach the file. Writes through the buffer are not
+        // reported to watch services.
+        ByteBuffer mapping = io.uncheckedMap(position, (int) size, mode != MapMode.READ_WRITE);
+
+        if (mode == MapMode.PRIVATE) {
+            ByteBuffer copy = ByteBuffer.allocateDirect((int) size);
+            copy.put(mapping);
+            copy.clear();
+            return asMapping(copy);
+        } else {
+            return asMapping(mapping);
+        }
+    }
+
+    // Direct buffers are presented as mappings; they are MappedByteBuffers in the JDK,
+    // though not by specification, and mapping is unsupported where they are not
+    private static MappedByteBuffer asMapping(ByteBuffer buf) {
+        if (!(buf instanceof MappedByteBuffer))
+            throw new UnsupportedOperationException("Direct buffers cannot be presented as mappings by this runtime");
+
+        return (MappedByteBuffer) buf;
+    }
+
+    //
+    // Interface Implementation: Locking
+
+    @Override
+    public FileLock lock(long position, long size, boolean shared) throws IOException {
+        throw new UnsupportedOperationException("File locking is not supported");
+    }
+
+    @Override
+    public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+        throw new UnsupportedOperationException("File locking is not supported");
+    }
+
+}
@@ -1,6 +1,7 @@
 package dynfs.core;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import dynfs.template.BufferLike;
 
@@ -30,6 +31,23 @@ public abstract class DynFileIO extends BufferLike {
         file.writeSize(newSize);
     }
 
+    long extendSize(long minSize) throws IOException {
+        return file.extendSize(minSize);
+    }
+
+    long appendSize(long len) throws IOException {
+        return file.appendSize(len);
+    }
+
+    boolean isSparse() {
+        return file.isSparse();
+    }
+
+    //
+    // Constant: Transfer Buffer Size
+
+    private static final int TRANSFER_BUFFER_SIZE = 65_536;
+
     //
     // Implementation Stub Exposure: Unchecked I/O
 
@@ -39,10 +57,45 @@ public abstract class DynFileIO extends BufferLike {
     @Override
     protected abstract void uncheckedWrite(long off, byte[] src, int srcOff, int len) throws IOException;
 
+    @Override
+    protected abstract void uncheckedRead(long off, ByteBuffer dst) throws IOException;
+
+    @Override
+    protected abstract void uncheckedWrite(long off, ByteBuffer src) throws IOException;
+
     @Override
     protected abstract byte uncheckedReadByte(long off) throws IOException;
 
     @Override
     protected abstract void uncheckedWriteByte(long off, byte val) throws IOException;
 
+    //
+    // Implementation Default: Bulk Transfer
+
+    // Copies len bytes at off into target at targetOff
+    // NOTE: Callers must ensure that both intervals lie within their files
+    protected void uncheckedTransferTo(long off, long len, DynFileIO target, long targetOff) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate((int) Math.min(len, TRANSFER_BUFFER_SIZE));
+        for (long done = 0; done < len;) {
+            buf.clear();
+            buf.limit((int) Math.min(buf.capacity(), len - done));
+            uncheckedRead(off + done, buf);
+            buf.flip();
+
+            int n = buf.remaining();
+            target.uncheckedWrite(targetOff + done, buf);
+            done += n;
+        }
+    }
+
+    //
+    // Implementation Default: Mapping
+
+    // Returns a direct buffer, read-only if readOnly is set, sharing the storage of the
+    // len bytes at off
+    // NOTE: Callers must ensure that the interval lies within the file
+    protected ByteBuffer uncheckedMap(long off, int len, boolean readOnly) throws IOException {
+        throw new UnsupportedOperationException("This DynFile does not support mapping");
+    }
+
 }
@@ -3,8 +3,9 @@ package dynfs.core;
 import java.io.IOException;
 import java.nio.file.FileStore;
 import java.nio.file.FileSystem;
+import java.nio.file.NotDirectoryException;
 import java.nio.file.Path;
-import java.nio.file.PathMatcher;
+import java.nio.file.ProviderMismatchException;
 import java.nio.file.WatchEvent.Kind;
 import java.nio.file.WatchEvent.Modifier;
 import java.nio.file.WatchKey;
@@ -104,7 +105,7 @@ public final class DynFileSystem<Space extends DynSpace<Space>> extends FileSyst
     }
 
     @Override
-    public PathMatcher getPathMatcher(String syntaxAndPattern) {
+    public DynPathMatcher getPathMatcher(String syntaxAndPattern) {
         return DynPath.getPathMatcher(syntaxAndPattern);
     }
 
@@ -146,27 +147,36 @@ public final class DynFileSystem<Space extends DynSpace<Space>> extends FileSyst
     }
 
     //
-    // Interface: WatchService Support (Unsupported)
+    // Interface: WatchService Support
 
     // FUTURE: Access Control - Check permissions
 
     @Override
     public WatchService newWatchService() throws IOException {
-        // FUTURE: WatchService Support
-        throw new UnsupportedOperationException("Watch services are not supported");
+        return new DynWatchService(this);
     }
 
     public WatchKey register(WatchService watcher, DynRoute route, Kind<?>[] events) throws IOException {
-        // FUTURE: WatchService Support
-        // NOTE: Delegate to WatchService implementation
-        throw new UnsupportedOperationException("Watch services are not supported");
+        return register(watcher, route, events, new Modifier[0]);
     }
 
     public WatchKey register(WatchService watcher, DynRoute route, Kind<?>[] events, Modifier[] modifiers)
             throws IOException {
-        // FUTURE: WatchService Support
-        // NOTE: Delegate to WatchService implementation
-        throw new UnsupportedOperationException("Watch services are not supported");
+        if (watcher == null)
+            throw new NullPointerException("watcher is null");
+        if (events == null)
+            throw new NullPointerException("events is null");
+        if (modifiers == null)
+            throw new NullPointerException("modifiers is null");
+        if (!(watcher instanceof DynWatchService) || ((DynWatchService) watcher).getFileSystem() != this)
+            throw new ProviderMismatchException("The watch service does not belong to this DynFileSystem");
+
+        DynNode<Space, ?> node = resolve(route).testExistence();
+        if (!(node instanceof DynDirectory))
+            throw new NotDirectoryException(route.toString());
+
+        return ((DynWatchService) watcher).register((DynDirectory<Space, ?>) node, DynPath.newPath(this, route),
+                events, modifiers);
     }
 
     //
@@ -1,8 +1,7 @@
 package dynfs.core;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.channels.ByteChannel;
+import java.nio.channels.FileChannel;
 import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.StandardOpenOption;
@@ -15,11 +14,6 @@ import dynfs.core.options.OpenOptions;
 
 final class DynFileSystemGeneralCopier {
 
-    //
-    // Constant: Buffer Size
-
-    private static final int BUFFER_SIZE = 4096;
-
     //
     // Construction: Disabled
 
@@ -33,7 +27,7 @@ final class DynFileSystemGeneralCopier {
             CopyOptions copyOptions) throws IOException {
         // FUTURE: Access Control - Check access control
 
-        ResolutionResult<S1> srcResolution = fsSrc.resolve(src, !copyOptions.nofollowLinks, true);
+        ResolutionResult<S1> srcResolution = fsSrc.resolve(src, !copyOptions.nofollowLinks);
         DynNode<S1, ?> srcNode = srcResolution.testExistence();
 
         ResolutionResult<S2> dstResolution = fsDst.resolve(dst);
@@ -53,7 +47,7 @@ final class DynFileSystemGeneralCopier {
         }
 
         if (srcNode.isDirectory()) {
-            dstResolution.lastParent().createDirectoryImpl(dst.getFileName());
+            dstResolution.lastParent().createDirectory(dst.getFileName());
         } else {
             OpenOptions readOptions = OpenOptions.parse(ImmutableList.of(StandardOpenOption.READ));
             OpenOptions writeOptions = OpenOptions
@@ -62,14 +56,16 @@ final class DynFileSystemGeneralCopier {
                 readOptions.nofollowLinks = true;
             }
 
-            try (ByteChannel in = DynFileSystemProviderIO.newByteChannel(fsSrc, src, readOptions);
-                    ByteChannel out = DynFileSystemProviderIO.newByteChannel(fsDst, dst, writeOptions)) {
-                ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
-
-                while (in.read(buf) != -1) {
-                    buf.flip();
-                    out.write(buf);
-                    buf.flip();
+            // Between DynFileChannels, content is transferred directly from the storage of
+            // the source file rather than through an intermediate buffer
+            try (FileChannel in = DynFileSystemProviderIO.newFileChannel(fsSrc, src, readOptions);
+                    FileChannel out = DynFileSystemProviderIO.newFileChannel(fsDst, dst, writeOptions)) {
+                long size = in.size();
+                for (long position = 0; position < size;) {
+                    long transferred = in.transferTo(position, size - position, out);
+                    if (transferred == 0)
+                        break;
+                    position += transferred;
                 }
             }
         }
@@ -2,6 +2,7 @@ package dynfs.core;
 
 import java.io.IOException;
 import java.net.URI;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.AccessMode;
 import java.nio.file.CopyOption;
@@ -285,11 +286,26 @@ public final class DynFileSystemProvider extends FileSystemProvider {
                 attrs);
     }
 
+    @Override
+    public FileChannel newFileChannel(Path path, Set<? extends OpenOption> options, FileAttribute<?>... attrs)
+            throws IOException {
+        return DynFileSystemProviderIO.newFileChannel(getFileSystemFromPath(path), getDynRoute(path),
+                OpenOptions.parse(options),
+                attrs);
+    }
+
     @Override
     public DirectoryStream<Path> newDirectoryStream(Path dir, Filter<? super Path> filter) throws IOException {
         return DynFileSystemProviderIO.newDirectoryStream(getFileSystemFromPath(dir), getDynRoute(dir), filter);
     }
 
+    // Unlike Files.newDirectoryStream(Path, String), pushes the literal prefix of glob
+    // down into the directory rather than testing every entry; the same holds for
+    // streams filtered by a matcher from DynFileSystem.getPathMatcher
+    public DirectoryStream<Path> newDirectoryStream(Path dir, String glob) throws IOException {
+        return DynFileSystemProviderIO.newDirectoryStream(getFileSystemFromPath(dir), getDynRoute(dir), glob);
+    }
+
     @Override
     public void createDirectory(Path dir, FileAttribute<?>... attrs) throws IOException {
         DynFileSystemProviderIO.createDirectory(getFileSystemFromPath(dir), getDynRoute(dir), attrs);
@@ -2,6 +2,7 @@ package dynfs.core;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.DirectoryStream;
 import java.nio.file.DirectoryStream.Filter;
@@ -30,6 +31,16 @@ public final class DynFileSystemProviderIO {
 
     public static <Space extends DynSpace<Space>> SeekableByteChannel newByteChannel(DynFileSystem<Space> fs,
             DynRoute route, OpenOptions openOptions, FileAttribute<?>... attrs) throws IOException {
+        return new DynByteChannel(openFile(fs, route, openOptions, attrs), openOptions);
+    }
+
+    public static <Space extends DynSpace<Space>> FileChannel newFileChannel(DynFileSystem<Space> fs,
+            DynRoute route, OpenOptions openOptions, FileAttribute<?>... attrs) throws IOException {
+        return new DynFileChannel(openFile(fs, route, openOptions, attrs), openOptions);
+    }
+
+    private static <Space extends DynSpace<Space>> DynFile<Space, ?> openFile(DynFileSystem<Space> fs,
+            DynRoute route, OpenOptions openOptions, FileAttribute<?>... attrs) throws IOException {
         ResolutionResult<Space> resolution = fs.resolve(route);
         DynNode<Space, ?> node = resolution.testExistenceForCreation();
 
@@ -46,16 +57,23 @@ public final class DynFileSystemProviderIO {
 
         if (file == null) {
             DynDirectory<Space, ?> parentDirectory = resolution.lastParent();
-            if (openOptions.sparse) {
-                file = parentDirectory.createSparseFile(route.getFileName(), attrs);
-            } else {
-                file = parentDirectory.createFile(route.getFileName(), attrs);
+            try {
+                if (openOptions.sparse) {
+                    file = parentDirectory.createSparseFile(route.getFileName(), attrs);
+                } else {
+                    file = parentDirectory.createFile(route.getFileName(), attrs);
+                }
+            } catch (FileAlreadyExistsException ex) {
+                // Created concurrently by another thread; open it instead unless CREATE_NEW
+                if (openOptions.createNew)
+                    throw ex;
+                return openFile(fs, route, openOptions, attrs);
             }
         }
 
         // FUTURE: Access Control - Check access control
 
-        return new DynByteChannel(file, openOptions);
+        return file;
     }
 
     public static <Space extends DynSpace<Space>> DirectoryStream<Path> newDirectoryStream(DynFileSystem<Space> fs,
@@ -67,9 +85,25 @@ public final class DynFileSystemProviderIO {
 
         // FUTURE: Access Control - Check access control
 
+        if (filter instanceof DynPathMatcher)
+            return DynDirectoryStream.newMatcherStream(fs, (DynDirectory<Space, ?>) node, (DynPathMatcher) filter);
+
         return new DynDirectoryStream<>(fs, (DynDirectory<Space, ?>) node, filter);
     }
 
+    public static <Space extends DynSpace<Space>> DirectoryStream<Path> newDirectoryStream(DynFileSystem<Space> fs,
+            DynRoute dir, String glob) throws IOException {
+        DynNode<Space, ?> node = fs.resolve(dir).testExistence();
+
+        if (!(node instanceof DynDirectory))
+            throw new NotDirectoryException(dir.toString());
+
+        // FUTURE: Access Control - Check access control
+
+        DynPathMatcher matcher = DynPathMatcher.compile(DynPathMatcher.SYNTAX_GLOB + ":" + glob);
+        return DynDirectoryStream.newMatcherStream(fs, (DynDirectory<Space, ?>) node, matcher);
+    }
+
     public static <Space extends DynSpace<Space>> void createDirectory(DynFileSystem<Space> fs, DynRoute dir,
             FileAttribute<?>... attrs)
             throws IOException {
@@ -79,9 +113,7 @@ public final class DynFileSystemProviderIO {
         if (node != null)
             throw new FileAlreadyExistsException(dir.toString());
 
-        // FUTURE: Access Control - Check access control
-
-        resolution.lastParent().createDirectoryImpl(dir.getFileName(), attrs);
+        resolution.lastParent().createDirectory(dir.getFileName(), attrs);
     }
 
     public static <Space extends DynSpace<Space>> void delete(DynFileSystem<Space> fs, DynRoute route)
@@ -8,9 +8,7 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
 import java.nio.file.spi.FileSystemProvider;
 import java.time.Instant;
-import java.util.Deque;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
@@ -34,23 +32,25 @@ public abstract class DynNode<Space extends DynSpace<Space>, Node extends DynNod
     }
 
     //
-    // Configuration: Parent
+    // State: Parent, Name
 
-    private final DynDirectory<Space, ?> parent;
+    // Changed only when the node is moved; see DynDirectory.relinked
+    private volatile DynDirectory<Space, ?> parent;
+    private volatile String name;
 
     public final DynDirectory<Space, ?> getParent() {
         return parent;
     }
 
-    //
-    // Configuration: Name
-
-    private final String name;
-
     public final String getName() {
         return name;
     }
 
+    final void relocate(DynDirectory<Space, ?> parent, String name) {
+        this.parent = parent;
+        this.name = DynRoute.internName(name);
+    }
+
     //
     // State: Status
 
@@ -76,7 +76,7 @@ public abstract class DynNode<Space extends DynSpace<Space>, Node extends DynNod
     <DirNode extends DynDirectory<Space, DirNode>> DynNode(Space store, DirNode parent, String name) {
         this.store = store;
         this.parent = parent;
-        this.name = name;
+        this.name = name == null ? null : DynRoute.internName(name);
     }
 
     //
@@ -115,29 +115,62 @@ public abstract class DynNode<Space extends DynSpace<Space>, Node extends DynNod
     }
 
     //
-    // Interface Implementation: Canonical Route
+    // State: Cached Canonical Route
+
+    private static final class CachedRoute {
+        private final DynRoute route;
+        private final long generation;
 
-    private final void constructRoutePath(Deque<String> routeNames) {
-        if (parent != null) {
-            ((DynNode<Space, ?>) parent).constructRoutePath(routeNames);
+        // Materialized on first request
+        private String routeString;
+
+        private CachedRoute(DynRoute route, long generation) {
+            this.route = route;
+            this.generation = generation;
         }
+    }
 
-        if (getName() != null) {
-            routeNames.add(getName());
+    // Valid while its generation matches the route generation of the store
+    private volatile CachedRoute cachedRoute;
+
+    private CachedRoute cachedRoute() {
+        // The generation is read first, so that a route computed during a concurrent
+        // move is recomputed on the next request
+        long generation = store.getRouteGeneration();
+
+        CachedRoute cached = cachedRoute;
+        if (cached == null || cached.generation != generation) {
+            DynDirectory<Space, ?> parent = this.parent;
+            DynRoute route = parent == null ? DynRoute.fromInternedNames(new String[0])
+                    : parent.getRoute().resolveInternedName(name);
+
+            cached = new CachedRoute(route, generation);
+            cachedRoute = cached;
         }
+
+        return cached;
     }
 
+    //
+    // Interface Implementation: Canonical Route
+
     public final DynRoute getRoute() {
-        LinkedList<String> routeNames = new LinkedList<>();
-        constructRoutePath(routeNames);
-        return DynRoute.fromRouteNameList(true, routeNames);
+        return cachedRoute().route;
     }
 
     //
     // Interface: Route String
 
     public final String getRouteString() {
-        return getRoute().toString();
+        CachedRoute cached = cachedRoute();
+
+        String routeString = cached.routeString;
+        if (routeString == null) {
+            routeString = cached.route.toString();
+            cached.routeString = routeString;
+        }
+
+        return routeString;
     }
 
     //
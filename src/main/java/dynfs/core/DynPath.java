@@ -6,7 +6,6 @@ import java.net.URI;
 import java.nio.file.ClosedFileSystemException;
 import java.nio.file.LinkOption;
 import java.nio.file.Path;
-import java.nio.file.PathMatcher;
 import java.nio.file.WatchEvent.Kind;
 import java.nio.file.WatchEvent.Modifier;
 import java.nio.file.WatchKey;
@@ -102,6 +101,11 @@ public final class DynPath implements Path {
         return route.equals(p.route);
     }
 
+    @Override
+    public int hashCode() {
+        return 31 * domain.hashCode() + route.hashCode();
+    }
+
     //
     // Core Support: Comparable<Path>
 
@@ -336,14 +340,10 @@ public final class DynPath implements Path {
     }
 
     //
-    // Implementation: Path Matching (Future)
-
-    public static PathMatcher getPathMatcher(String syntaxAndPattern) {
-        if (syntaxAndPattern == null)
-            throw new NullPointerException("syntaxAndPattern is null");
+    // Implementation: Path Matching
 
-        // FUTURE: Path Matching
-        throw new UnsupportedOperationException("PathMatchers are unavailable for DynFileSystemPaths");
+    public static DynPathMatcher getPathMatcher(String syntaxAndPattern) {
+        return DynPathMatcher.compile(syntaxAndPattern);
     }
 
 }
@@ -0,0 +1,235 @@
+package dynfs.core;
+
+import java.nio.file.DirectoryStream.Filter;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+// A compiled glob: or regex: matcher. As a directory stream filter, it accepts the
+// entries whose file names match, as Files.newDirectoryStream(Path, String) does;
+// directory streams given a DynPathMatcher test children by name before their paths
+// are constructed.
+public final class DynPathMatcher implements PathMatcher, Filter<Path> {
+
+    //
+    // Constant: Syntax Names
+
+    public static final String SYNTAX_GLOB = "glob";
+    public static final String SYNTAX_REGEX = "regex";
+
+    //
+    // Configuration: Pattern
+
+    private final Pattern pattern;
+
+    // Set if the pattern can match only a single name, or the empty route; such
+    // patterns are tested against route names directly
+    private final boolean isSingleName;
+
+    // The literal text every match begins with, if isSingleName; otherwise null
+    private final String namePrefix;
+
+    //
+    // Construction
+
+    private DynPathMatcher(Pattern pattern, boolean isSingleName, String namePrefix) {
+        this.pattern = pattern;
+        this.isSingleName = isSingleName;
+        this.namePrefix = namePrefix;
+    }
+
+    public static DynPathMatcher compile(String syntaxAndPattern) {
+        if (syntaxAndPattern == null)
+            throw new NullPointerException("syntaxAndPattern is null");
+
+        int colon = syntaxAndPattern.indexOf(':');
+        if (colon <= 0)
+            throw new IllegalArgumentException("syntaxAndPattern must take the form syntax:pattern");
+
+        String syntax = syntaxAndPattern.substring(0, colon);
+        String pattern = syntaxAndPattern.substring(colon + 1);
+
+        if (syntax.equalsIgnoreCase(SYNTAX_GLOB))
+            return compileGlob(pattern);
+        if (syntax.equalsIgnoreCase(SYNTAX_REGEX))
+            return new DynPathMatcher(Pattern.compile(pattern), false, null);
+
+        throw new UnsupportedOperationException("Syntax '" + syntax + "' is not recognized");
+    }
+
+    //
+    // Support: Glob Translation
+
+    private static final String REGEX_META_CHARS = "\\^$.|?*+()[]{}";
+
+    private static final char EOL = 0;
+
+    private static char charAt(String glob, int i) {
+        return i < glob.length() ? glob.charAt(i) : EOL;
+    }
+
+    private static void appendLiteral(StringBuilder regex, char c) {
+        if (REGEX_META_CHARS.indexOf(c) >= 0) {
+            regex.append('\\');
+        }
+        regex.append(c);
+    }
+
+    private static DynPathMatcher compileGlob(String glob) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literalPrefix = new StringBuilder();
+
+        // A glob matches within a single name unless it names a separator or uses '**'
+        boolean isSingleName = true;
+        boolean isPrefixOpen = true;
+        boolean inGroup = false;
+
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            boolean isLiteral = false;
+
+            switch (c) {
+                case '\\':
+                    if (++i == glob.length())
+                        throw new PatternSyntaxException("No character to escape", glob, i - 1);
+                    c = glob.charAt(i);
+                    appendLiteral(regex, c);
+                    isLiteral = true;
+                    break;
+                case '*':
+                    if (charAt(glob, i + 1) == '*') {
+                        regex.append(".*");
+                        isSingleName = false;
+                        i++;
+                    } else {
+                        regex.append("[^/]*");
+                    }
+                    break;
+                case '?':
+                    regex.append("[^/]");
+                    break;
+                case '[':
+                    i = appendBracketExpression(regex, glob, i);
+                    break;
+                case '{':
+                    if (inGroup)
+                        throw new PatternSyntaxException("Cannot nest groups", glob, i);
+                    regex.append("(?:");
+                    inGroup = true;
+                    break;
+                case '}':
+                    if (inGroup) {
+                        regex.append(')');
+                        inGroup = false;
+                    } else {
+                        appendLiteral(regex, c);
+                        isLiteral = true;
+                    }
+                    break;
+                case ',':
+                    if (inGroup) {
+                        regex.append('|');
+                    } else {
+                        appendLiteral(regex, c);
+                        isLiteral = true;
+                    }
+                    break;
+                default:
+                    if (c == '/') {
+                        isSingleName = false;
+                    }
+                    appendLiteral(regex, c);
+                    isLiteral = true;
+                    break;
+            }
+
+            if (isPrefixOpen && isLiteral && !inGroup) {
+                literalPrefix.append(c);
+            } else {
+                isPrefixOpen = false;
+            }
+        }
+
+        if (inGroup)
+            throw new PatternSyntaxException("Missing '}'", glob, glob.length() - 1);
+
+        return new DynPathMatcher(Pattern.compile(regex.toString()), isSingleName,
+                isSingleName ? literalPrefix.toString() : null);
+    }
+
+    // Appends the bracket expression beginning at glob[begin], returning the index of
+    // its closing ']'
+    private static int appendBracketExpression(StringBuilder regex, String glob, int begin) {
+        regex.append("[[^/]&&[");
+
+        int i = begin + 1;
+        if (charAt(glob, i) == '!') {
+            regex.append('^');
+            i++;
+        } else if (charAt(glob, i) == '^') {
+            regex.append("\\^");
+            i++;
+        }
+
+        for (; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == ']') {
+                regex.append("]]");
+                return i;
+            }
+            if (c == '/')
+                throw new PatternSyntaxException("Explicit name separator in class", glob, i);
+
+            if (c == '\\' || c == '[' || (c == '&' && charAt(glob, i + 1) == '&')) {
+                regex.append('\\');
+            }
+            regex.append(c);
+        }
+
+        throw new PatternSyntaxException("Missing ']'", glob, glob.length() - 1);
+    }
+
+    //
+    // Interface: Name Pushdown
+
+    // Tests whether the relative route consisting of name alone matches
+    public boolean matchesName(String name) {
+        return pattern.matcher(name).matches();
+    }
+
+    // Returns the literal text every matching name begins with, or null if the
+    // matcher cannot be pushed down by prefix
+    public String namePrefix() {
+        return namePrefix;
+    }
+
+    //
+    // Interface Implementation: PathMatcher
+
+    @Override
+    public boolean matches(Path path) {
+        if (!(path instanceof DynPath))
+            return pattern.matcher(path.toString()).matches();
+
+        DynRoute route = ((DynPath) path).route();
+        if (isSingleName) {
+            if (route.isAbsolute() || route.getNameCount() > 1)
+                return false;
+
+            return matchesName(route.getNameCount() == 0 ? "" : route.getName(0));
+        }
+
+        return pattern.matcher(route.toString()).matches();
+    }
+
+    //
+    // Interface Implementation: DirectoryStream.Filter
+
+    @Override
+    public boolean accept(Path entry) {
+        Path fileName = entry.getFileName();
+        return fileName != null && matches(fileName);
+    }
+
+}
@@ -11,10 +11,10 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Objects;
 
-import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 
 import dynfs.core.options.LinkOptions;
 import dynfs.debug.Dumpable;
@@ -31,6 +31,8 @@ public final class DynRoute implements Iterable<String>, Comparable<DynRoute>, D
 
     public static final String PATH_SEPARATOR = "/";
 
+    static final char PATH_SEPARATOR_CHAR = '/';
+
     //
     // Constant: Special Path Names
 
@@ -46,17 +48,44 @@ public final class DynRoute implements Iterable<String>, Comparable<DynRoute>, D
         return isAbsolute;
     }
 
+    //
+    // Support: Name Interning
+
+    // Names are interned in a shared table, so that equal names from different
+    // routes are usually the same instance and compare by reference
+    private static final Interner<String> NAME_TABLE = Interners.newWeakInterner();
+
+    static String internName(String name) {
+        return NAME_TABLE.intern(name);
+    }
+
     //
     // Configuration: Route Names
 
-    private final List<String> names;
+    private static final String[] NO_NAMES = new String[0];
+
+    // The names of the route are the first nameCount elements of names. The array
+    // is never modified, and is shared by routes derived as prefixes of this route.
+    private final String[] names;
+    private final int nameCount;
+
+    // Materialized on first request
+    private List<String> nameList;
 
     public List<String> names() {
-        return names;
+        List<String> list = nameList;
+        if (list == null) {
+            list = Collections.unmodifiableList(Arrays.asList(names).subList(0, nameCount));
+            nameList = list;
+        }
+        return list;
     }
 
     public String getName(int index) {
-        return names.get(index);
+        if (index < 0 || index >= nameCount)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Name Count: " + nameCount);
+
+        return names[index];
     }
 
     public String getFileName() {
@@ -86,42 +115,41 @@ public final class DynRoute implements Iterable<String>, Comparable<DynRoute>, D
     }
 
     //
-    // Construction: Factory
+    // State: Hash Code
 
-    private DynRoute(List<String> names) {
-        this(true, names);
-    }
+    // Computed on first request; zero if not yet computed
+    private int hash;
 
-    private DynRoute(boolean isAbsolute, List<String> names) {
-        this(isAbsolute, names, null);
-    }
-
-    private DynRoute(boolean isAbsolute, List<String> names, String query) {
-        this(isAbsolute, names, query, null);
-    }
-
-    private DynRoute(boolean isAbsolute, List<String> names, String query, String fragment) {
-        if (names == null) {
-            names = ImmutableList.of();
-        }
+    //
+    // Construction: Factory
 
+    // NOTE: The names should already be interned; equality remains correct if not
+    private DynRoute(boolean isAbsolute, String[] names, int nameCount, String query, String fragment) {
         this.isAbsolute = isAbsolute;
-        this.names = Collections.unmodifiableList(names);
+        this.names = names;
+        this.nameCount = nameCount;
         this.query = query;
         this.fragment = fragment;
     }
 
-    private static List<String> decomposePathString(String first, String... more) {
-        Stream<String> pathStream = Stream.concat(
-                Stream.<String>builder()
-                        .add(first)
-                        .build(),
-                Arrays.stream(more));
-        List<String> pathComponents = pathStream
-                .flatMap(ps -> Arrays.stream(ps.split(PATH_SEPARATOR)))
-                .filter(n -> !n.isEmpty())
-                .collect(Collectors.toCollection(ArrayList<String>::new));
-        return pathComponents;
+    // Appends the interned, non-empty names of path to routeNames
+    private static void decomposePathString(List<String> routeNames, String path) {
+        int len = path.length();
+        for (int begin = 0; begin < len;) {
+            int end = path.indexOf(PATH_SEPARATOR_CHAR, begin);
+            if (end < 0) {
+                end = len;
+            }
+
+            if (end > begin) {
+                routeNames.add(internName(path.substring(begin, end)));
+            }
+            begin = end + 1;
+        }
+    }
+
+    private static String[] toNameArray(List<String> routeNames) {
+        return routeNames.isEmpty() ? NO_NAMES : routeNames.toArray(new String[routeNames.size()]);
     }
 
     public static DynRoute fromRouteNames(String first, String... more) {
@@ -135,39 +163,72 @@ public final class DynRoute implements Iterable<String>, Comparable<DynRoute>, D
 
     static DynRoute fromRouteNamesImpl(String first, String... more) {
         boolean isAbsolute = first.startsWith(PATH_SEPARATOR);
-        if (isAbsolute) {
-            first = first.substring(1);
+
+        List<String> routeNames = new ArrayList<>();
+        decomposePathString(routeNames, first);
+        for (String path : more) {
+            decomposePathString(routeNames, path);
         }
 
-        List<String> routeNames = decomposePathString(first, more);
-        return new DynRoute(isAbsolute, routeNames);
+        return new DynRoute(isAbsolute, toNameArray(routeNames), routeNames.size(), null, null);
     }
 
     static DynRoute fromRouteNameList(boolean isAbsolute, List<String> routeNames) {
-        return new DynRoute(isAbsolute, new ArrayList<>(routeNames));
+        String[] names = new String[routeNames.size()];
+        int i = 0;
+        for (String name : routeNames) {
+            names[i++] = internName(name);
+        }
+
+        return new DynRoute(isAbsolute, names, names.length, null, null);
+    }
+
+    // NOTE: The names must already be interned, and the array must not be modified
+    static DynRoute fromInternedNames(String[] names) {
+        return new DynRoute(true, names, names.length, null, null);
     }
 
     static DynRoute fromUri(URI uri) {
-        List<String> routeNames = decomposePathString(uri.getPath());
-        return new DynRoute(true, routeNames, uri.getQuery(), uri.getFragment());
+        List<String> routeNames = new ArrayList<>();
+        decomposePathString(routeNames, uri.getPath());
+        return new DynRoute(true, toNameArray(routeNames), routeNames.size(), uri.getQuery(), uri.getFragment());
     }
 
     //
     // Core Support: Equality Check
 
+    // Compares the first count names of this and other
+    private boolean namesEqual(DynRoute other, int thisBegin, int otherBegin, int count) {
+        for (int i = 0; i < count; i++) {
+            String a = names[thisBegin + i];
+            String b = other.names[otherBegin + i];
+            if (a != b && !a.equals(b))
+                return false;
+        }
+        return true;
+    }
+
     @Override
     public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
         if (!(o instanceof DynRoute)) {
             return false;
         }
 
         DynRoute r = (DynRoute) o;
 
-        if (isAbsolute != r.isAbsolute) {
+        if (isAbsolute != r.isAbsolute || nameCount != r.nameCount) {
+            return false;
+        }
+
+        if (hash != 0 && r.hash != 0 && hash != r.hash) {
             return false;
         }
 
-        if (!names.equals(r.names)) {
+        if (!namesEqual(r, 0, 0, nameCount)) {
             return false;
         }
 
@@ -190,6 +251,25 @@ public final class DynRoute implements Iterable<String>, Comparable<DynRoute>, D
         }
     }
 
+    //
+    // Core Support: Hash Code
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = isAbsolute ? 1 : 0;
+            for (int i = 0; i < nameCount; i++) {
+                h = 31 * h + names[i].hashCode();
+            }
+            h = 31 * h + Objects.hashCode(query);
+            h = 31 * h + Objects.hashCode(fragment);
+
+            hash = h;
+        }
+        return h;
+    }
+
     //
     // Core Support: Comparable<DynRoute>
 
@@ -201,15 +281,14 @@ public final class DynRoute implements Iterable<String>, Comparable<DynRoute>, D
         if (isAbsolute() != other.isAbsolute())
             return isAbsolute() ? -1 : 1;
 
-        List<String> tp = names;
-        List<String> op = other.names;
-
-        for (int i = 0; i < tp.size() && i < op.size(); i++) {
-            if (!tp.get(i).equals(op.get(i)))
-                return tp.get(i).compareTo(op.get(i));
+        for (int i = 0; i < nameCount && i < other.nameCount; i++) {
+            String a = names[i];
+            String b = other.names[i];
+            if (a != b && !a.equals(b))
+                return a.compareTo(b);
         }
 
-        return tp.size() - op.size();
+        return nameCount - other.nameCount;
     }
 
     //
@@ -217,21 +296,31 @@ public final class DynRoute implements Iterable<String>, Comparable<DynRoute>, D
 
     @Override
     public String toString() {
-        return names.stream().collect(Collectors.joining(isAbsolute ? ROOT_PATH_STRING : "", PATH_SEPARATOR, ""));
+        if (nameCount == 0)
+            return isAbsolute ? ROOT_PATH_STRING : "";
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < nameCount; i++) {
+            if (i > 0 || isAbsolute) {
+                sb.append(PATH_SEPARATOR_CHAR);
+            }
+            sb.append(names[i]);
+        }
+        return sb.toString();
     }
 
     //
     // Interface: Name Count
 
     public int getNameCount() {
-        return names.size();
+        return nameCount;
     }
 
     //
     // Support: Route Derivation
 
-    private DynRoute deriveRoute(boolean isAbsolute, List<String> routeNames) {
-        return new DynRoute(isAbsolute, routeNames, query(), fragment());
+    private DynRoute deriveRoute(boolean isAbsolute, String[] routeNames, int routeNameCount) {
+        return new DynRoute(isAbsolute, routeNames, routeNameCount, query(), fragment());
     }
 
     //
@@ -254,7 +343,12 @@ public final class DynRoute implements Iterable<String>, Comparable<DynRoute>, D
     }
 
     private DynRoute subrouteImpl(int beginIndex, int endIndex, boolean isAbsolute) {
-        return deriveRoute(isAbsolute, names.subList(beginIndex, endIndex));
+        if (beginIndex == 0) {
+            // Prefixes share the names of this route
+            return deriveRoute(isAbsolute, names, endIndex);
+        }
+
+        return deriveRoute(isAbsolute, Arrays.copyOfRange(names, beginIndex, endIndex), endIndex - beginIndex);
     }
 
     //
@@ -262,7 +356,7 @@ public final class DynRoute implements Iterable<String>, Comparable<DynRoute>, D
 
     public DynRoute getRoot() {
         if (isAbsolute()) {
-            return deriveRoute(true, null);
+            return deriveRoute(true, NO_NAMES, 0);
         } else {
             return null;
         }
@@ -319,10 +413,7 @@ public final class DynRoute implements Iterable<String>, Comparable<DynRoute>, D
         if (getNameCount() < other.getNameCount())
             return false;
 
-        List<String> tp = names.subList(0, other.getNameCount());
-        List<String> op = other.names;
-
-        return tp.equals(op);
+        return namesEqual(other, 0, 0, other.nameCount);
     }
 
     public boolean startsWith(String other) {
@@ -349,10 +440,7 @@ public final class DynRoute implements Iterable<String>, Comparable<DynRoute>, D
                 return false;
         }
 
-        List<String> tp = names.subList(getNameCount() - other.getNameCount(), getNameCount());
-        List<String> op = other.names;
-
-        return tp.equals(op);
+        return namesEqual(other, nameCount - other.nameCount, 0, other.nameCount);
     }
 
     public boolean endsWith(String other) {
@@ -365,8 +453,19 @@ public final class DynRoute implements Iterable<String>, Comparable<DynRoute>, D
     //
     // Implementation: Route Normalization
 
+    boolean hasSpecialNames() {
+        for (int i = 0; i < nameCount; i++) {
+            if (PATH_CURDIR.equals(names[i]) || PATH_PARENT.equals(names[i]))
+                return true;
+        }
+        return false;
+    }
+
     public DynRoute normalize() {
-        LinkedList<String> newRoute = new LinkedList<>(names);
+        if (!hasSpecialNames())
+            return this;
+
+        LinkedList<String> newRoute = new LinkedList<>(names());
 
         ListIterator<String> iter = newRoute.listIterator();
         while (iter.hasNext()) {
@@ -393,7 +492,7 @@ public final class DynRoute implements Iterable<String>, Comparable<DynRoute>, D
             }
         }
 
-        return deriveRoute(isAbsolute(), new ArrayList<>(newRoute));
+        return deriveRoute(isAbsolute(), toNameArray(newRoute), newRoute.size());
     }
 
     //
@@ -404,17 +503,24 @@ public final class DynRoute implements Iterable<String>, Comparable<DynRoute>, D
             return other;
         }
 
-        List<String> newRoute = new ArrayList<>(names.size() + other.getNameCount());
-        newRoute.addAll(names);
-        newRoute.addAll(other.names);
+        String[] newRoute = Arrays.copyOf(names, nameCount + other.nameCount);
+        System.arraycopy(other.names, 0, newRoute, nameCount, other.nameCount);
 
-        return deriveRoute(isAbsolute(), newRoute);
+        return deriveRoute(isAbsolute(), newRoute, newRoute.length);
     }
 
     public DynRoute resolve(String other) {
         return resolve(DynRoute.fromRouteNamesImpl(other));
     }
 
+    // NOTE: name must be a single interned name
+    DynRoute resolveInternedName(String name) {
+        String[] newRoute = Arrays.copyOf(names, nameCount + 1);
+        newRoute[nameCount] = name;
+
+        return deriveRoute(isAbsolute(), newRoute, newRoute.length);
+    }
+
     //
     // Implementation: Route Sibling Resolution
 
@@ -449,14 +555,14 @@ public final class DynRoute implements Iterable<String>, Comparable<DynRoute>, D
             throw new IllegalArgumentException("Cannot return to . from this");
 
         int commonNames = 0;
-        while (commonNames < src.getNameCount() && commonNames < dst.getNameCount()) {
-            if (src.getNameRoute(commonNames).equals(dst.getNameRoute(commonNames)))
-                commonNames++;
+        while (commonNames < src.getNameCount() && commonNames < dst.getNameCount()
+                && src.namesEqual(dst, commonNames, commonNames, 1)) {
+            commonNames++;
         }
 
         int numBacktracks = src.getNameCount() - commonNames;
 
-        List<String> relativeRoute = new LinkedList<>();
+        List<String> relativeRoute = new ArrayList<>(numBacktracks + dst.getNameCount() - commonNames);
         for (int i = 0; i < numBacktracks; i++) {
             relativeRoute.add(PATH_PARENT);
         }
@@ -464,7 +570,7 @@ public final class DynRoute implements Iterable<String>, Comparable<DynRoute>, D
             relativeRoute.add(dst.getName(i));
         }
 
-        return DynRoute.fromRouteNameList(false, relativeRoute);
+        return new DynRoute(false, toNameArray(relativeRoute), relativeRoute.size(), null, null);
     }
 
     public DynRoute relativize(String other) {
@@ -475,10 +581,16 @@ public final class DynRoute implements Iterable<String>, Comparable<DynRoute>, D
     // Implementation: Conversion to URI
 
     public URI toUri(String domain) {
+        StringBuilder path = new StringBuilder(ROOT_PATH_STRING);
+        for (int i = 0; i < nameCount; i++) {
+            if (i > 0) {
+                path.append(PATH_SEPARATOR_CHAR);
+            }
+            path.append(names[i]);
+        }
+
         try {
-            return new URI(DynFileSystemProvider.URI_SCHEME, domain,
-                    names().stream().collect(Collectors.joining(PATH_SEPARATOR, PATH_SEPARATOR, null)), query(),
-                    fragment());
+            return new URI(DynFileSystemProvider.URI_SCHEME, domain, path.toString(), query(), fragment());
         } catch (URISyntaxException ex) {
             throw new IllegalStateException(ex);
         }
@@ -491,10 +603,32 @@ public final class DynRoute implements Iterable<String>, Comparable<DynRoute>, D
         if (isAbsolute()) {
             return this;
         } else {
-            return deriveRoute(true, names);
+            return deriveRoute(true, names, nameCount);
         }
     }
 
+    //
+    // Package Support: Route Ranges
+
+    // Returns this route as an absolute route without a query or fragment
+    DynRoute toBareAbsoluteRoute() {
+        if (isAbsolute && query == null && fragment == null)
+            return this;
+
+        return new DynRoute(true, names, nameCount, null, null);
+    }
+
+    // Returns the least route ordered after this route and every route beginning
+    // with it
+    DynRoute descendantsUpperBound() {
+        if (nameCount == 0)
+            throw new IllegalStateException("The empty route has no upper bound");
+
+        String[] bound = Arrays.copyOf(names, nameCount);
+        bound[nameCount - 1] = bound[nameCount - 1] + '\u0000';
+        return new DynRoute(isAbsolute, bound, nameCount, null, null);
+    }
+
     //
     // Implementation: Route Resolution by File System
 
@@ -526,7 +660,7 @@ public final class DynRoute implements Iterable<String>, Comparable<DynRoute>, D
 
     @Override
     public Iterator<String> iterator() {
-        return names.iterator();
+        return names().iterator();
     }
 
     //
@@ -534,7 +668,7 @@ public final class DynRoute implements Iterable<String>, Comparable<DynRoute>, D
 
     @Override
     public void __dump(DumpBuilder db) {
-        db.writeLine("names: " + names);
+        db.writeLine("names: " + names());
         db.writeLine("query: " + query);
         db.writeLine("fragment: " + fragment);
         db.writeLine("isAbsolute: " + isAbsolute);
@@ -8,6 +8,7 @@ import java.nio.file.attribute.BasicFileAttributeView;
 import java.nio.file.attribute.FileAttributeView;
 import java.nio.file.attribute.FileStoreAttributeView;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -213,11 +214,26 @@ public abstract class DynSpace<Space extends DynSpace<Space>> extends FileStore
         switch (attribute) {
             case "name":
                 return name();
+            case "resolutionCacheHits":
+                return getResolutionCacheHits();
+            case "resolutionCacheMisses":
+                return getResolutionCacheMisses();
+            case "dedupRatio":
+                return getDedupRatio();
         }
 
         throw new UnsupportedOperationException(attribute + " is not a DynSpace attribute");
     }
 
+    //
+    // Interface Default: Deduplication Ratio
+
+    // The ratio of the content held by files to the storage holding it, which exceeds
+    // 1 where files share storage
+    public double getDedupRatio() throws IOException {
+        return 1.0;
+    }
+
     //
     // Interface Implementation: Supported File Attribute Views
 
@@ -262,20 +278,76 @@ public abstract class DynSpace<Space extends DynSpace<Space>> extends FileStore
 
     public abstract <DirNode extends DynDirectory<Space, DirNode>> DirNode getRootDirectory();
 
+    //
+    // State: Resolution Cache
+
+    private final ResolutionCache<Space> resolutionCache = new ResolutionCache<>();
+
+    public final long getResolutionCacheHits() {
+        return resolutionCache.getHits();
+    }
+
+    public final long getResolutionCacheMisses() {
+        return resolutionCache.getMisses();
+    }
+
+    //
+    // State: Route Generation
+
+    // Advanced whenever a node is moved or renamed in place, which invalidates the
+    // canonical routes cached by every node
+    private final AtomicLong routeGeneration = new AtomicLong();
+
+    final long getRouteGeneration() {
+        return routeGeneration.get();
+    }
+
+    final void invalidateRoutes() {
+        routeGeneration.incrementAndGet();
+    }
+
+    //
+    // State: Move Lock
+
+    // Held while a node is moved, so that no concurrent move can place the new parent
+    // of a directory beneath the directory itself
+    private final Object moveLock = new Object();
+
+    final Object getMoveLock() {
+        return moveLock;
+    }
+
     //
     // Package Support: Route Resolution
 
     final ResolutionResult<Space> resolve(DynRoute route) throws IOException {
-        return getRootDirectory().resolve(route);
+        return resolve(route, true, false);
     }
 
     final ResolutionResult<Space> resolve(DynRoute route, boolean followLinks) throws IOException {
-        return getRootDirectory().resolve(route, followLinks);
+        return resolve(route, followLinks, false);
     }
 
     final ResolutionResult<Space> resolve(DynRoute route, boolean followLinks, boolean followIfLinkNode)
             throws IOException {
-        return getRootDirectory().resolve(route, followLinks, followIfLinkNode);
+        if (!ResolutionCache.isCacheable(route))
+            return getRootDirectory().resolve(route, followLinks, followIfLinkNode);
+
+        throwIfClosed();
+
+        ResolutionResult<Space> resolution = resolutionCache.get(route, followLinks, followIfLinkNode);
+        if (resolution == null) {
+            long epoch = resolutionCache.currentEpoch();
+            resolution = getRootDirectory().resolve(route, followLinks, followIfLinkNode);
+            resolutionCache.put(route, followLinks, followIfLinkNode, resolution, epoch);
+        }
+
+        return resolution;
+    }
+
+    // Must be invoked whenever the node at route is created or deleted
+    final void invalidateResolutions(DynRoute route) {
+        resolutionCache.invalidate(route);
     }
 
     // TODO: Atomic I/O - Route Exclusivity Lock?
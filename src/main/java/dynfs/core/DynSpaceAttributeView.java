@@ -1,5 +1,6 @@
 package dynfs.core;
 
+import java.io.IOException;
 import java.nio.file.attribute.FileStoreAttributeView;
 
 public class DynSpaceAttributeView implements FileStoreAttributeView {
@@ -24,4 +25,22 @@ public class DynSpaceAttributeView implements FileStoreAttributeView {
         return store.name();
     }
 
+    //
+    // Interface: Attribute Access, Resolution Cache Statistics
+
+    public long resolutionCacheHits() {
+        return store.getResolutionCacheHits();
+    }
+
+    public long resolutionCacheMisses() {
+        return store.getResolutionCacheMisses();
+    }
+
+    //
+    // Interface: Attribute Access, Deduplication Ratio
+
+    public double dedupRatio() throws IOException {
+        return store.getDedupRatio();
+    }
+
 }
@@ -0,0 +1,239 @@
+package dynfs.core;
+
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// A directory's registration with a DynWatchService. Events are posted directly by
+// the mutating operations of the directory and its files.
+//
+// At most MAX_EVENTS events are retained between calls to pollEvents; beyond that a
+// single OVERFLOW event counts those dropped. Repeated ENTRY_MODIFY events for a name
+// are coalesced into the pending event for that name, whose count is incremented.
+final class DynWatchKey implements WatchKey {
+
+    //
+    // Constant: Event Queue Bound
+
+    static final int MAX_EVENTS = 512;
+
+    //
+    // Support Structure: Watch Event
+
+    private static final class Event<T> implements WatchEvent<T> {
+        private final Kind<T> kind;
+        private final T context;
+        private int count;
+
+        private Event(Kind<T> kind, T context) {
+            this.kind = kind;
+            this.context = context;
+            this.count = 1;
+        }
+
+        @Override
+        public Kind<T> kind() {
+            return kind;
+        }
+
+        @Override
+        public int count() {
+            return count;
+        }
+
+        @Override
+        public T context() {
+            return context;
+        }
+
+        @Override
+        public String toString() {
+            return kind.name() + "(" + context + ", " + count + ")";
+        }
+    }
+
+    //
+    // Configuration: Watcher / Watchable
+
+    private final DynWatchService watcher;
+    private final DynPath dir;
+    private final DynDirectory<?, ?> node;
+
+    DynWatchService watcher() {
+        return watcher;
+    }
+
+    DynDirectory<?, ?> node() {
+        return node;
+    }
+
+    @Override
+    public DynPath watchable() {
+        return dir;
+    }
+
+    //
+    // State: Event Kinds
+
+    private volatile boolean watchCreate;
+    private volatile boolean watchDelete;
+    private volatile boolean watchModify;
+
+    void setKinds(Set<WatchEvent.Kind<?>> kinds) {
+        watchCreate = kinds.contains(StandardWatchEventKinds.ENTRY_CREATE);
+        watchDelete = kinds.contains(StandardWatchEventKinds.ENTRY_DELETE);
+        watchModify = kinds.contains(StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    private boolean isWatched(WatchEvent.Kind<Path> kind) {
+        if (kind == StandardWatchEventKinds.ENTRY_CREATE)
+            return watchCreate;
+        if (kind == StandardWatchEventKinds.ENTRY_DELETE)
+            return watchDelete;
+        if (kind == StandardWatchEventKinds.ENTRY_MODIFY)
+            return watchModify;
+
+        return false;
+    }
+
+    //
+    // State: Validity
+
+    private volatile boolean isValid;
+
+    @Override
+    public boolean isValid() {
+        return isValid;
+    }
+
+    //
+    // State: Pending Events (guarded by this)
+
+    private List<WatchEvent<?>> events = new ArrayList<>();
+
+    // The pending ENTRY_MODIFY event for each name, for coalescing
+    private final Map<String, Event<Path>> pendingModifies = new HashMap<>();
+
+    private Event<Object> overflow;
+
+    // Set while the key is queued with the watcher or held by a consumer
+    private boolean isSignalled;
+
+    //
+    // Construction
+
+    DynWatchKey(DynWatchService watcher, DynPath dir, DynDirectory<?, ?> node, Set<WatchEvent.Kind<?>> kinds) {
+        this.watcher = watcher;
+        this.dir = dir;
+        this.node = node;
+        this.isValid = true;
+        setKinds(kinds);
+    }
+
+    //
+    // Package Support: Event Posting
+
+    void post(WatchEvent.Kind<Path> kind, String name) {
+        if (!isValid || !isWatched(kind))
+            return;
+
+        synchronized (this) {
+            if (overflow != null) {
+                overflow.count++;
+                return;
+            }
+
+            if (kind == StandardWatchEventKinds.ENTRY_MODIFY) {
+                Event<Path> pending = pendingModifies.get(name);
+                if (pending != null) {
+                    pending.count++;
+                    return;
+                }
+            } else {
+                // Later modifications must be reported after this event
+                pendingModifies.remove(name);
+            }
+
+            if (events.size() >= MAX_EVENTS - 1) {
+                overflow = new Event<>(StandardWatchEventKinds.OVERFLOW, null);
+                events.add(overflow);
+            } else {
+                Event<Path> event = new Event<>(kind, DynPath.newPath(dir.getFileSystem(),
+                        DynRoute.fromRouteNames(name)));
+                events.add(event);
+                if (kind == StandardWatchEventKinds.ENTRY_MODIFY) {
+                    pendingModifies.put(name, event);
+                }
+            }
+
+            signal();
+        }
+    }
+
+    // NOTE: Must be invoked while holding the lock on this key
+    private void signal() {
+        if (!isSignalled) {
+            isSignalled = true;
+            watcher.enqueue(this);
+        }
+    }
+
+    //
+    // Interface Implementation: WatchKey
+
+    @Override
+    public synchronized List<WatchEvent<?>> pollEvents() {
+        List<WatchEvent<?>> result = events;
+
+        events = new ArrayList<>();
+        pendingModifies.clear();
+        overflow = null;
+
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public synchronized boolean reset() {
+        if (!isValid)
+            return false;
+
+        if (isSignalled) {
+            if (events.isEmpty()) {
+                isSignalled = false;
+            } else {
+                watcher.enqueue(this);
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public void cancel() {
+        if (isValid) {
+            isValid = false;
+            node.removeWatchKey(this);
+            watcher.removeKey(this);
+        }
+    }
+
+    //
+    // Package Support: Invalidation
+
+    // Cancels the key because its directory no longer exists, queueing it so that its
+    // consumer observes the cancellation
+    void invalidate() {
+        cancel();
+        synchronized (this) {
+            signal();
+        }
+    }
+
+}
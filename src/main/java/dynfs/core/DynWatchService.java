@@ -0,0 +1,153 @@
+package dynfs.core;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// An in-process WatchService. Events are delivered by the operations that cause them,
+// so no polling thread is involved.
+final class DynWatchService implements WatchService {
+
+    //
+    // Configuration: DynFileSystem
+
+    private final DynFileSystem<?> fs;
+
+    DynFileSystem<?> getFileSystem() {
+        return fs;
+    }
+
+    //
+    // State: Keys
+
+    private final Set<DynWatchKey> keys = ConcurrentHashMap.newKeySet();
+
+    // Signalled keys, followed by CLOSE_SIGNAL once the service is closed
+    private final BlockingQueue<Object> signalledKeys = new LinkedBlockingQueue<>();
+
+    private static final Object CLOSE_SIGNAL = new Object();
+
+    //
+    // State: Status
+
+    private volatile boolean isClosed;
+
+    private void throwIfClosed() {
+        if (isClosed)
+            throw new ClosedWatchServiceException();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (isClosed)
+            return;
+
+        isClosed = true;
+        for (DynWatchKey key : keys) {
+            key.cancel();
+        }
+
+        signalledKeys.clear();
+        signalledKeys.offer(CLOSE_SIGNAL);
+    }
+
+    //
+    // Construction
+
+    DynWatchService(DynFileSystem<?> fs) {
+        this.fs = fs;
+    }
+
+    //
+    // Package Support: Registration
+
+    DynWatchKey register(DynDirectory<?, ?> node, DynPath dir, WatchEvent.Kind<?>[] events,
+            WatchEvent.Modifier[] modifiers) {
+        if (modifiers.length > 0)
+            throw new UnsupportedOperationException("Watch event modifiers are not supported");
+
+        Set<WatchEvent.Kind<?>> kinds = new HashSet<>();
+        for (WatchEvent.Kind<?> kind : events) {
+            if (kind == null)
+                throw new NullPointerException("events contains null");
+
+            if (kind == StandardWatchEventKinds.ENTRY_CREATE || kind == StandardWatchEventKinds.ENTRY_DELETE
+                    || kind == StandardWatchEventKinds.ENTRY_MODIFY) {
+                kinds.add(kind);
+            } else if (kind != StandardWatchEventKinds.OVERFLOW) {
+                throw new UnsupportedOperationException("Watch event kind " + kind.name() + " is not supported");
+            }
+        }
+
+        if (kinds.isEmpty())
+            throw new IllegalArgumentException("No watch event kinds are specified");
+
+        throwIfClosed();
+
+        DynWatchKey key = node.watch(this, dir, kinds);
+        keys.add(key);
+
+        // A key registered concurrently with close is cancelled here
+        if (isClosed) {
+            key.cancel();
+            throw new ClosedWatchServiceException();
+        }
+
+        return key;
+    }
+
+    void removeKey(DynWatchKey key) {
+        keys.remove(key);
+    }
+
+    void enqueue(DynWatchKey key) {
+        if (!isClosed) {
+            signalledKeys.offer(key);
+        }
+    }
+
+    //
+    // Interface Implementation: Retrieval
+
+    private WatchKey checkKey(Object key) {
+        if (key == CLOSE_SIGNAL) {
+            // Leaves the signal for other consumers
+            signalledKeys.offer(CLOSE_SIGNAL);
+            throw new ClosedWatchServiceException();
+        }
+
+        return (WatchKey) key;
+    }
+
+    @Override
+    public WatchKey poll() {
+        throwIfClosed();
+
+        Object key = signalledKeys.poll();
+        return key == null ? null : checkKey(key);
+    }
+
+    @Override
+    public WatchKey poll(long timeout, TimeUnit unit) throws InterruptedException {
+        throwIfClosed();
+
+        Object key = signalledKeys.poll(timeout, unit);
+        return key == null ? null : checkKey(key);
+    }
+
+    @Override
+    public WatchKey take() throws InterruptedException {
+        throwIfClosed();
+        return checkKey(signalledKeys.take());
+    }
+
+}
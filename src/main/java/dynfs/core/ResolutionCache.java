@@ -0,0 +1,170 @@
+package dynfs.core;
+
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import dynfs.core.ResolutionResult.Result;
+
+// Caches the results of resolving routes from the root directory of a DynSpace,
+// including failed resolutions (negative entries).
+//
+// Only resolutions that follow no links and whose routes contain no special names
+// are cached, so that a cached result for a route depends only on the nodes named
+// by the prefixes of that route. Creating or deleting the node at a route then
+// invalidates exactly the entries for that route and the routes beneath it.
+final class ResolutionCache<Space extends DynSpace<Space>> {
+
+    //
+    // Constant: Capacity
+
+    // The cache is cleared when it grows beyond this many entries
+    static final int MAX_ENTRIES = 1 << 16;
+
+    //
+    // Support: Cache Key
+
+    private static final class Key implements Comparable<Key> {
+        private final DynRoute route;
+        private final int flags;
+
+        // NOTE: route must be absolute, without a query or fragment
+        private Key(DynRoute route, int flags) {
+            this.route = route;
+            this.flags = flags;
+        }
+
+        private static int flags(boolean followLinks, boolean followIfLinkNode) {
+            return (followLinks ? 1 : 0) | (followIfLinkNode ? 2 : 0);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * route.hashCode() + flags;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+
+            Key k = (Key) o;
+            return flags == k.flags && route.equals(k.route);
+        }
+
+        // Orders keys name by name, so that the keys for all routes beginning with a
+        // given route are contiguous
+        @Override
+        public int compareTo(Key other) {
+            int c = route.compareTo(other.route);
+            return c != 0 ? c : flags - other.flags;
+        }
+    }
+
+    //
+    // State: Entries
+
+    private final Map<Key, ResolutionResult<Space>> entries = new ConcurrentHashMap<>();
+
+    // Sorted index of the keys in entries, for invalidation by route prefix
+    private final NavigableSet<Key> index = new ConcurrentSkipListSet<>();
+
+    // Incremented on every invalidation; a resolution that raced with an invalidation
+    // is not retained
+    private final AtomicLong epoch = new AtomicLong();
+
+    //
+    // State: Statistics
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    //
+    // Interface: Lookup
+
+    static boolean isCacheable(DynRoute route) {
+        return !route.hasSpecialNames();
+    }
+
+    ResolutionResult<Space> get(DynRoute route, boolean followLinks, boolean followIfLinkNode) {
+        Key key = new Key(route.toBareAbsoluteRoute(), Key.flags(followLinks, followIfLinkNode));
+
+        ResolutionResult<Space> result = entries.get(key);
+        if (result == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+
+        return result;
+    }
+
+    long currentEpoch() {
+        return epoch.get();
+    }
+
+    // NOTE: startEpoch must have been read before the resolution began
+    void put(DynRoute route, boolean followLinks, boolean followIfLinkNode, ResolutionResult<Space> result,
+            long startEpoch) {
+        if (result.followedLinks())
+            return;
+
+        Result status = result.status();
+        if (status != Result.SUCCESS_END_INDEX_REACHED && status != Result.FAIL_NAME_NOT_FOUND
+                && status != Result.FAIL_NON_DIRECTORY_ENCOUNTERED)
+            return;
+
+        if (entries.size() >= MAX_ENTRIES) {
+            clear();
+        }
+
+        Key key = new Key(route.toBareAbsoluteRoute(), Key.flags(followLinks, followIfLinkNode));
+        entries.put(key, result);
+        index.add(key);
+
+        if (epoch.get() != startEpoch) {
+            remove(key);
+        }
+    }
+
+    //
+    // Interface: Invalidation
+
+    // Invalidates the entries for route and for every route beneath it
+    void invalidate(DynRoute route) {
+        epoch.incrementAndGet();
+
+        route = route.toBareAbsoluteRoute();
+        if (route.getNameCount() == 0) {
+            clear();
+            return;
+        }
+
+        DynRoute bound = route.descendantsUpperBound();
+        for (Key key : index.subSet(new Key(route, 0), true, new Key(bound, 0), false)) {
+            remove(key);
+        }
+    }
+
+    void clear() {
+        index.clear();
+        entries.clear();
+    }
+
+    private void remove(Key key) {
+        index.remove(key);
+        entries.remove(key);
+    }
+
+}
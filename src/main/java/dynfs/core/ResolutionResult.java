@@ -21,6 +21,9 @@ public final class ResolutionResult<Space extends DynSpace<Space>> {
 
     private final Object cause;
 
+    // Set if any link was followed during resolution
+    private final boolean followedLinks;
+
     //
     // Configuration: Cached Exception
 
@@ -36,6 +39,11 @@ public final class ResolutionResult<Space extends DynSpace<Space>> {
 
     ResolutionResult(DynDirectory<Space, ?> lastParent, DynNode<Space, ?> node, DynRoute route, int lastIndex,
             int endIndex, Result status, Object cause) {
+        this(lastParent, node, route, lastIndex, endIndex, status, cause, false);
+    }
+
+    ResolutionResult(DynDirectory<Space, ?> lastParent, DynNode<Space, ?> node, DynRoute route, int lastIndex,
+            int endIndex, Result status, Object cause, boolean followedLinks) {
         this.lastParent = lastParent;
         this.node = node;
 
@@ -46,6 +54,7 @@ public final class ResolutionResult<Space extends DynSpace<Space>> {
         this.status = status;
 
         this.cause = cause;
+        this.followedLinks = followedLinks;
 
         this.ex = constructException();
     }
@@ -128,6 +137,10 @@ public final class ResolutionResult<Space extends DynSpace<Space>> {
         return ex;
     }
 
+    boolean followedLinks() {
+        return followedLinks;
+    }
+
     //
     // Implementation: Exception Generation
 
@@ -0,0 +1,224 @@
+package dynfs.dynlm;
+
+import java.util.Arrays;
+
+final class BitmapBlockPool<Owner> implements BlockPool<Owner> {
+
+    //
+    // Configuration: Pool Size
+
+    private final int size;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    //
+    // State: Reservation Bitmap
+
+    // Bit (i & 63) of word (i >>> 6) is set iff block index i is reserved.
+    // Padding bits beyond size are permanently set.
+    private final long[] reservedBits;
+    private int numReserved;
+
+    // Word index at which the next free-block scan begins
+    private int scanHint;
+
+    @Override
+    public int numReserved() {
+        return numReserved;
+    }
+
+    //
+    // State: Owner Table
+
+    // Owner ids are kept in chunks of OWNER_CHUNK indices, allocated on first reservation
+    private static final int OWNER_CHUNK_BITS = 12;
+    private static final int OWNER_CHUNK = 1 << OWNER_CHUNK_BITS;
+
+    private final OwnerTable<Owner> ownerTable;
+    private final int[][] owners;
+
+    //
+    // Construction
+
+    BitmapBlockPool(int size) {
+        this.size = size;
+
+        this.reservedBits = new long[(size + 63) >>> 6];
+        if ((size & 63) != 0) {
+            reservedBits[reservedBits.length - 1] = -1L << (size & 63);
+        }
+        this.numReserved = 0;
+        this.scanHint = 0;
+
+        this.ownerTable = new OwnerTable<>();
+        this.owners = new int[(size + OWNER_CHUNK - 1) >>> OWNER_CHUNK_BITS][];
+    }
+
+    //
+    // Support: Owner Table Chunks
+
+    private int ownerIdOf(int index) {
+        int[] chunk = owners[index >>> OWNER_CHUNK_BITS];
+        return chunk == null ? OwnerTable.NO_OWNER : chunk[index & (OWNER_CHUNK - 1)];
+    }
+
+    private void setOwnerIds(int start, int end, int id) {
+        for (int i = start; i < end;) {
+            int c = i >>> OWNER_CHUNK_BITS;
+            if (owners[c] == null) {
+                owners[c] = new int[OWNER_CHUNK];
+            }
+
+            int n = Math.min(end - i, OWNER_CHUNK - (i & (OWNER_CHUNK - 1)));
+            Arrays.fill(owners[c], i & (OWNER_CHUNK - 1), (i & (OWNER_CHUNK - 1)) + n, id);
+            i += n;
+        }
+    }
+
+    //
+    // Support: Bitmap Scan
+
+    // Index of the first free block at or after from, or size if there is none
+    private int nextFree(int from) {
+        int w = from >>> 6;
+        if (w >= reservedBits.length)
+            return size;
+
+        long word = ~reservedBits[w] & (-1L << from);
+        while (word == 0) {
+            if (++w == reservedBits.length)
+                return size;
+            word = ~reservedBits[w];
+        }
+
+        return Math.min(size, (w << 6) + Long.numberOfTrailingZeros(word));
+    }
+
+    // Index of the first reserved block at or after from, or size if there is none
+    private int nextReserved(int from) {
+        int w = from >>> 6;
+        if (w >= reservedBits.length)
+            return size;
+
+        long word = reservedBits[w] & (-1L << from);
+        while (word == 0) {
+            if (++w == reservedBits.length)
+                return size;
+            word = reservedBits[w];
+        }
+
+        return Math.min(size, (w << 6) + Long.numberOfTrailingZeros(word));
+    }
+
+    private void setReserved(int start, int end) {
+        for (int i = start; i < end;) {
+            int w = i >>> 6;
+            int n = Math.min(end - i, 64 - (i & 63));
+            long mask = (n == 64 ? -1L : ((1L << n) - 1)) << i;
+            reservedBits[w] |= mask;
+            i += n;
+        }
+    }
+
+    // The first free run from the hint, wrapping around once, cut to at most length
+    // blocks; successive calls continue from the end of the last run, so that
+    // reserving n blocks scans each word of the bitmap about once
+    private long findRun(int length) {
+        int start = nextFree(Math.min(size, scanHint << 6));
+        if (start == size) {
+            start = nextFree(0);
+        }
+        if (start == size)
+            throw new IllegalStateException("No free blocks remain");
+
+        int end = nextReserved(start);
+        return BlockPool.run(start, Math.min(length, end - start));
+    }
+
+    //
+    // Support: Free Block Scan
+
+    private int nextFreeIndex() {
+        int numWords = reservedBits.length;
+        for (int i = 0, w = scanHint; i < numWords; i++, w = (w + 1 == numWords ? 0 : w + 1)) {
+            long word = reservedBits[w];
+            if (word != -1L) {
+                scanHint = w;
+                return (w << 6) + Long.numberOfTrailingZeros(~word);
+            }
+        }
+
+        throw new IllegalStateException("No free blocks remain");
+    }
+
+    //
+    // Implementation: Block Index Reservation
+
+    @Override
+    public int reserve(Owner owner) {
+        int index = nextFreeIndex();
+
+        reservedBits[index >>> 6] |= 1L << index;
+        setOwnerIds(index, index + 1, ownerTable.acquire(owner));
+        numReserved++;
+
+        return index;
+    }
+
+    @Override
+    public long reserveRun(Owner owner, int maxLength) {
+        long run = findRun(maxLength);
+        int start = BlockPool.runStart(run);
+        int length = BlockPool.runLength(run);
+
+        setReserved(start, start + length);
+        setOwnerIds(start, start + length, ownerTable.acquire(owner, length));
+        numReserved += length;
+
+        scanHint = (start + length - 1) >>> 6;
+
+        return run;
+    }
+
+    @Override
+    public void release(Owner owner, int index) {
+        reservedBits[index >>> 6] &= ~(1L << index);
+        ownerTable.release(ownerIdOf(index));
+        owners[index >>> OWNER_CHUNK_BITS][index & (OWNER_CHUNK - 1)] = OwnerTable.NO_OWNER;
+        numReserved--;
+
+        if ((index >>> 6) < scanHint) {
+            scanHint = index >>> 6;
+        }
+    }
+
+    @Override
+    public void reserveAt(Owner owner, int index) {
+        reservedBits[index >>> 6] |= 1L << index;
+        setOwnerIds(index, index + 1, ownerTable.acquire(owner));
+        numReserved++;
+    }
+
+    //
+    // Implementation: Query, Block Index Ownership
+
+    @Override
+    public Owner getOwner(int index) {
+        return ownerTable.ownerOf(ownerIdOf(index));
+    }
+
+    @Override
+    public boolean isReserved(int index) {
+        return (reservedBits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    @Override
+    public boolean isReservedBy(int index, Owner owner) {
+        int id = ownerTable.idOf(owner);
+        return id != OwnerTable.NO_OWNER && ownerIdOf(index) == id;
+    }
+
+}
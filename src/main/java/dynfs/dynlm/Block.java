@@ -1,6 +1,7 @@
 package dynfs.dynlm;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import dynfs.debug.Dumpable;
 
@@ -16,9 +17,17 @@ public class Block<Owner> extends BlockLike<Owner> implements Dumpable {
         return numBlocks * BLOCK_SIZE;
     }
 
+    public static final long sizeOfNBlocks(long numBlocks) {
+        return numBlocks * BLOCK_SIZE;
+    }
+
     // Block Quantity Calculation
-    public static final int numBlocks(int size) {
-        return (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    public static final int numBlocks(long size) {
+        long numBlocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        if (numBlocks > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("size exceeds the maximum number of addressable blocks");
+
+        return (int) numBlocks;
     }
 
     //
@@ -27,18 +36,20 @@ public class Block<Owner> extends BlockLike<Owner> implements Dumpable {
     private int index;
 
     //
-    // State: Block Data
+    // State: Block Data, View onto Slab
 
-    private final byte[] data;
+    private final BlockSlab slab;
+    private final int base;
 
     //
     // Construction
 
-    Block(int index) throws IOException {
+    Block(int index, BlockSlab slab, int base) throws IOException {
         super(BLOCK_SIZE);
 
         this.index = index;
-        this.data = new byte[BLOCK_SIZE];
+        this.slab = slab;
+        this.base = base;
     }
 
     //
@@ -58,7 +69,7 @@ public class Block<Owner> extends BlockLike<Owner> implements Dumpable {
     // Implementation: Capacity
 
     @Override
-    protected int ensureCapacityImpl(int minCapacity) {
+    protected long ensureCapacityImpl(long minCapacity) {
         if (minCapacity > BLOCK_SIZE)
             throw new UnsupportedOperationException("Blocks cannot be resized");
 
@@ -66,31 +77,83 @@ public class Block<Owner> extends BlockLike<Owner> implements Dumpable {
     }
 
     @Override
-    protected int trimCapacityImpl(int minCapacity) {
+    protected long trimCapacityImpl(long minCapacity) {
         return BLOCK_SIZE;
     }
 
     //
     // Implementation: I/O
 
+    // Offsets are within [0, BLOCK_SIZE) and so are narrowed to int without loss
+
     @Override
-    protected void uncheckedRead(int off, byte[] dst, int dstOff, int len) {
-        System.arraycopy(data, off, dst, dstOff, len);
+    protected void uncheckedRead(long off, byte[] dst, int dstOff, int len) {
+        slab.read(base + (int) off, dst, dstOff, len);
     }
 
     @Override
-    protected void uncheckedWrite(int off, byte[] src, int srcOff, int len) {
-        System.arraycopy(src, srcOff, data, off, len);
+    protected void uncheckedWrite(long off, byte[] src, int srcOff, int len) {
+        slab.write(base + (int) off, src, srcOff, len);
     }
 
     @Override
-    protected byte uncheckedReadByte(int off) {
-        return data[off];
+    protected void uncheckedRead(long off, ByteBuffer dst) {
+        slab.read(base + (int) off, dst, dst.remaining());
     }
 
     @Override
-    protected void uncheckedWriteByte(int off, byte val) {
-        data[off] = val;
+    protected void uncheckedWrite(long off, ByteBuffer src) {
+        slab.write(base + (int) off, src, src.remaining());
+    }
+
+    @Override
+    protected byte uncheckedReadByte(long off) {
+        return slab.readByte(base + (int) off);
+    }
+
+    @Override
+    protected void uncheckedWriteByte(long off, byte val) {
+        slab.writeByte(base + (int) off, val);
+    }
+
+    //
+    // Package Support: Extent I/O
+
+    // Transfers runLen bytes starting at runOff within runHead; done is the number
+    // of bytes of the enclosing transfer that precede this run
+    @FunctionalInterface
+    interface RunTransfer<Owner> {
+        void transfer(Block<Owner> runHead, int runOff, int runLen, int done);
+    }
+
+    // True iff next immediately follows this block within the same slab, so that a
+    // transfer may run from the end of this block into next
+    boolean precedes(Block<Owner> next) {
+        return next.slab == slab && next.base == base + BLOCK_SIZE;
+    }
+
+    // NOTE: len may exceed the remainder of this block; the caller must ensure that
+    // the blocks spanned by the transfer form a run (see precedes)
+    void uncheckedTransferRun(int off, byte[] other, int otherOff, int len, boolean read) {
+        if (read) {
+            slab.read(base + off, other, otherOff, len);
+        } else {
+            slab.write(base + off, other, otherOff, len);
+        }
+    }
+
+    void uncheckedTransferRun(int off, ByteBuffer other, int len, boolean read) {
+        if (read) {
+            slab.read(base + off, other, len);
+        } else {
+            slab.write(base + off, other, len);
+        }
+    }
+
+    // NOTE: As for uncheckedTransferRun, len may extend into the blocks following
+    // this one in a run
+    ByteBuffer runView(int off, int len) {
+        return slab.view(base + off, len);
     }
 
     //
@@ -122,7 +185,7 @@ public class Block<Owner> extends BlockLike<Owner> implements Dumpable {
                 db.write(' ');
             }
 
-            db.write(byteToHexString(data[off]));
+            db.write(byteToHexString(slab.readByte(base + off)));
 
             if (NUM_BYTES_PER_LINE == ++lineOffset)
                 lineOffset = 0;
@@ -0,0 +1,150 @@
+package dynfs.dynlm;
+
+import java.util.Arrays;
+
+// A fast LZ77 codec for single blocks, in the manner of LZ4. The compressed form is a
+// sequence of (token, literals, match) triples: the high nibble of the token is the
+// number of literals and the low nibble the length of the match less MIN_MATCH, each
+// continued in following bytes of 255 and a remainder when it reaches 15; the literals
+// follow, and then the offset of the match back from the current position (2 bytes,
+// little-endian). The last triple has literals only.
+//
+// NOTE: Compression is not thread-safe, as each codec keeps its own match table
+final class BlockCodec {
+
+    //
+    // Constant: Format
+
+    private static final int MIN_MATCH = 4;
+    private static final int MAX_OFFSET = 0xFFFF;
+    private static final int NIBBLE_MAX = 15;
+
+    private static final int HASH_BITS = 12;
+
+    //
+    // State: Compression
+
+    private final int[] matchTable = new int[1 << HASH_BITS];
+    private final byte[] scratch = new byte[2 * Block.BLOCK_SIZE];
+
+    //
+    // Interface: Compression
+
+    // Returns the compressed form of the block in src, or null if it would take more
+    // than maxLen bytes
+    byte[] compress(byte[] src, int maxLen) {
+        int n = Block.BLOCK_SIZE;
+        Arrays.fill(matchTable, -1);
+
+        int o = 0;
+        int anchor = 0;
+        for (int i = 0; i <= n - MIN_MATCH;) {
+            int seq = getInt(src, i);
+            int h = (seq * 0x9E3779B1) >>> (Integer.SIZE - HASH_BITS);
+            int ref = matchTable[h];
+            matchTable[h] = i;
+
+            if (ref < 0 || i - ref > MAX_OFFSET || getInt(src, ref) != seq) {
+                i++;
+                continue;
+            }
+
+            int len = MIN_MATCH;
+            while (i + len < n && src[ref + len] == src[i + len]) {
+                len++;
+            }
+
+            o = putSequence(src, anchor, i - anchor, i - ref, len, o);
+            if (o > maxLen)
+                return null;
+
+            i += len;
+            anchor = i;
+        }
+
+        o = putSequence(src, anchor, n - anchor, 0, 0, o);
+        return o > maxLen ? null : Arrays.copyOf(scratch, o);
+    }
+
+    private int putSequence(byte[] src, int litOff, int litLen, int offset, int matchLen, int o) {
+        int matchCode = matchLen == 0 ? 0 : matchLen - MIN_MATCH;
+        scratch[o++] = (byte) ((Math.min(litLen, NIBBLE_MAX) << 4) | Math.min(matchCode, NIBBLE_MAX));
+        if (litLen >= NIBBLE_MAX) {
+            o = putLength(litLen, o);
+        }
+
+        System.arraycopy(src, litOff, scratch, o, litLen);
+        o += litLen;
+
+        if (matchLen != 0) {
+            scratch[o++] = (byte) offset;
+            scratch[o++] = (byte) (offset >>> 8);
+            if (matchCode >= NIBBLE_MAX) {
+                o = putLength(matchCode, o);
+            }
+        }
+        return o;
+    }
+
+    private int putLength(int len, int o) {
+        for (len -= NIBBLE_MAX; len >= 255; len -= 255) {
+            scratch[o++] = (byte) 255;
+        }
+        scratch[o++] = (byte) len;
+        return o;
+    }
+
+    private static int getInt(byte[] b, int off) {
+        return (b[off] & 0xFF) | (b[off + 1] & 0xFF) << 8 | (b[off + 2] & 0xFF) << 16 | (b[off + 3] & 0xFF) << 24;
+    }
+
+    //
+    // Interface: Decompression
+
+    // Decompresses a block compressed by compress into dst, which must hold BLOCK_SIZE
+    // bytes
+    static void decompress(byte[] src, byte[] dst) {
+        int ip = 0;
+        int op = 0;
+        while (true) {
+            int token = src[ip++] & 0xFF;
+
+            int litLen = token >>> 4;
+            if (litLen == NIBBLE_MAX) {
+                int b;
+                do {
+                    b = src[ip++] & 0xFF;
+                    litLen += b;
+                } while (b == 255);
+            }
+
+            System.arraycopy(src, ip, dst, op, litLen);
+            ip += litLen;
+            op += litLen;
+            if (ip == src.length)
+                break;
+
+            int offset = (src[ip] & 0xFF) | (src[ip + 1] & 0xFF) << 8;
+            ip += 2;
+
+            int matchLen = token & NIBBLE_MAX;
+            if (matchLen == NIBBLE_MAX) {
+                int b;
+                do {
+                    b = src[ip++] & 0xFF;
+                    matchLen += b;
+                } while (b == 255);
+            }
+            matchLen += MIN_MATCH;
+
+            // Matches may overlap the bytes they produce, so are copied byte by byte
+            for (int end = op + matchLen; op < end; op++) {
+                dst[op] = dst[op - offset];
+            }
+        }
+
+        if (op != Block.BLOCK_SIZE)
+            throw new IllegalStateException("Corrupt compressed block");
+    }
+
+}
@@ -0,0 +1,64 @@
+package dynfs.dynlm;
+
+import java.nio.ByteBuffer;
+
+import gnu.trove.map.TIntLongMap;
+import gnu.trove.map.TLongIntMap;
+import gnu.trove.map.hash.TIntLongHashMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+
+// An index of blocks by the fingerprint of their content, for BlockMemory to share
+// identical blocks between tables. Membership holds no reference to a block: a table
+// removes its block from the index before writing to it in place, so that equal
+// fingerprints are verified against content that cannot have changed since.
+//
+// NOTE: Not thread-safe; BlockMemory synchronizes on the index
+final class BlockDedupIndex {
+
+    //
+    // Constant: Missing Entry
+
+    private static final int NO_BLOCK = -1;
+
+    //
+    // State: Index
+
+    private final TLongIntMap blocksByFingerprint = new TLongIntHashMap(64, 0.5f, 0, NO_BLOCK);
+    private final TIntLongMap fingerprintsByBlock = new TIntLongHashMap();
+
+    //
+    // Package Support: Fingerprints
+
+    // A 64-bit hash of the BLOCK_SIZE bytes of view from its position, a word at a time
+    static long fingerprint(ByteBuffer view) {
+        int base = view.position();
+        long h = 0x9E3779B97F4A7C15L;
+        for (int off = 0; off < Block.BLOCK_SIZE; off += Long.BYTES) {
+            h = (h ^ view.getLong(base + off)) * 0xBF58476D1CE4E5B9L;
+            h ^= h >>> 31;
+        }
+        return h ^ (h >>> 29);
+    }
+
+    //
+    // Package Support: Index
+
+    // The index of the block with the given fingerprint, or -1 if there is none
+    int lookup(long fingerprint) {
+        return blocksByFingerprint.get(fingerprint);
+    }
+
+    void put(long fingerprint, int index) {
+        remove(index);
+        blocksByFingerprint.put(fingerprint, index);
+        fingerprintsByBlock.put(index, fingerprint);
+    }
+
+    // No-op unless the block at index is indexed
+    void remove(int index) {
+        if (fingerprintsByBlock.containsKey(index)) {
+            blocksByFingerprint.remove(fingerprintsByBlock.remove(index));
+        }
+    }
+
+}
@@ -1,6 +1,7 @@
 package dynfs.dynlm;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import dynfs.template.BufferLike;
 
@@ -9,9 +10,9 @@ abstract class BlockLike<Owner> extends BufferLike {
     //
     // State: Capacity
 
-    private int capacity;
+    private long capacity;
 
-    public final int capacity() {
+    public final long capacity() {
         return capacity;
     }
 
@@ -33,11 +34,11 @@ abstract class BlockLike<Owner> extends BufferLike {
     //
     // Construction
 
-    protected BlockLike(int initialCapacity) throws IOException {
+    protected BlockLike(long initialCapacity) throws IOException {
         this(initialCapacity, null);
     }
 
-    protected BlockLike(int initialCapacity, Owner initialOwner) throws IOException {
+    protected BlockLike(long initialCapacity, Owner initialOwner) throws IOException {
         checkLength("initialCapacity", initialCapacity);
         this.capacity = initialCapacity;
         this.owner = initialOwner;
@@ -54,78 +55,69 @@ abstract class BlockLike<Owner> extends BufferLike {
     //
     // Implementation Stub: Capacity
 
-    public final void ensureCapacity(int minCapacity) throws IOException {
+    public final void ensureCapacity(long minCapacity) throws IOException {
         if (minCapacity <= capacity) {
             return;
         }
 
-        int newCapacity = ensureCapacityImpl(minCapacity);
+        long newCapacity = ensureCapacityImpl(minCapacity);
         if (newCapacity < minCapacity)
             throw new AssertionError("The new capacity must be at least minCapacity if ensureCapacityImpl returns");
 
         capacity = newCapacity;
     }
 
-    protected abstract int ensureCapacityImpl(int minCapacity) throws IOException;
+    protected abstract long ensureCapacityImpl(long minCapacity) throws IOException;
 
-    public final void trimCapacity(int minCapacity) throws IOException {
+    public final void trimCapacity(long minCapacity) throws IOException {
         if (minCapacity > capacity)
             throw new IllegalArgumentException("minCapacity is greater than current capacity");
         if (minCapacity == capacity)
             return;
 
-        int newCapacity = trimCapacityImpl(minCapacity);
+        long newCapacity = trimCapacityImpl(minCapacity);
         if (newCapacity < minCapacity)
             throw new AssertionError("The new capacity must be at least minCapacity");
         if (newCapacity < 0)
             throw new AssertionError("The new capacity must be nonnegative");
 
+        capacity = newCapacity;
     }
 
-    protected abstract int trimCapacityImpl(int minCapacity) throws IOException;
-
-    //
-    // Implementation Stub Redefinition: Integer Offsets in I/O
-
-    protected static int getIntValue(long v) {
-        if (v > Integer.MAX_VALUE || v < Integer.MIN_VALUE)
-            throw new UnsupportedOperationException("Long values are not supported");
+    protected abstract long trimCapacityImpl(long minCapacity) throws IOException;
 
-        return (int) v;
+    // Sets the capacity of storage restored directly, rather than through
+    // ensureCapacity
+    final void restoreCapacity(long capacity) {
+        checkLength("capacity", capacity);
+        this.capacity = capacity;
     }
 
-    protected abstract void uncheckedRead(int off, byte[] dst, int dstOff, int len);
-
-    protected abstract void uncheckedWrite(int off, byte[] src, int srcOff, int len);
+    //
+    // Implementation Stub Redefinition: Unchecked I/O
 
-    protected abstract byte uncheckedReadByte(int off);
+    @Override
+    protected abstract void uncheckedRead(long off, byte[] dst, int dstOff, int len);
 
-    protected abstract void uncheckedWriteByte(int off, byte val);
+    @Override
+    protected abstract void uncheckedWrite(long off, byte[] src, int srcOff, int len);
 
     @Override
-    protected final void uncheckedRead(long off, byte[] dst, int dstOff, int len) {
-        uncheckedRead(getIntValue(off), dst, dstOff, len);
-    }
+    protected abstract void uncheckedRead(long off, ByteBuffer dst);
 
     @Override
-    protected final void uncheckedWrite(long off, byte[] src, int srcOff, int len) {
-        uncheckedWrite(getIntValue(off), src, srcOff, len);
-    }
+    protected abstract void uncheckedWrite(long off, ByteBuffer src);
 
     @Override
-    protected final byte uncheckedReadByte(long off) {
-        return uncheckedReadByte(getIntValue(off));
-    }
+    protected abstract byte uncheckedReadByte(long off);
 
     @Override
-    protected final void uncheckedWriteByte(long off, byte val) {
-        uncheckedWriteByte(getIntValue(off), val);
-    }
+    protected abstract void uncheckedWriteByte(long off, byte val);
 
     //
     // Package Support: Unified Bulk Transfer I/O
 
-    final void uncheckedTransfer(int off, byte[] other, int otherOff, int len, boolean read) {
+    final void uncheckedTransfer(long off, byte[] other, int otherOff, int len, boolean read) {
         if (read) {
             uncheckedRead(off, other, otherOff, len);
         } else {
@@ -1,6 +1,7 @@
 package dynfs.dynlm;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -21,7 +22,7 @@ public final class BlockList<Owner> extends BlockLike<Owner> {
     //
     // State: Nested Blocks
 
-    private final NavigableMap<Integer, Block<Owner>> nested;
+    private final NavigableMap<Long, Block<Owner>> nested;
 
     //
     // Construction
@@ -33,7 +34,7 @@ public final class BlockList<Owner> extends BlockLike<Owner> {
         this.allocator = allocator;
         this.nested = new TreeMap<>();
 
-        int offset = 0;
+        long offset = 0;
         for (Block<Owner> b : nested) {
             this.nested.put(offset, b);
             offset += b.capacity();
@@ -56,9 +57,9 @@ public final class BlockList<Owner> extends BlockLike<Owner> {
     // Implementation: Capacity
 
     @Override
-    protected int ensureCapacityImpl(int minCapacity) throws IOException {
+    protected long ensureCapacityImpl(long minCapacity) throws IOException {
         int numNewBlocks = Block.numBlocks(minCapacity - capacity());
-        int offset = capacity();
+        long offset = capacity();
 
         Iterable<Block<Owner>> allocatedBlocks = allocator.allocate(getOwner(), numNewBlocks);
         for (Block<Owner> b : allocatedBlocks) {
@@ -70,7 +71,7 @@ public final class BlockList<Owner> extends BlockLike<Owner> {
     }
 
     @Override
-    protected int trimCapacityImpl(int minCapacity) throws IOException {
+    protected long trimCapacityImpl(long minCapacity) throws IOException {
         Collection<Block<Owner>> toBeFreed = nested.tailMap(minCapacity).values();
         List<Block<Owner>> freedBlocks = new ArrayList<>(toBeFreed);
 
@@ -80,8 +81,8 @@ public final class BlockList<Owner> extends BlockLike<Owner> {
         return calculateTrueCapacity();
     }
 
-    private int calculateTrueCapacity() {
-        Map.Entry<Integer, Block<Owner>> lastBlock = nested.lastEntry();
+    private long calculateTrueCapacity() {
+        Map.Entry<Long, Block<Owner>> lastBlock = nested.lastEntry();
         return lastBlock == null ? 0 : lastBlock.getKey() + lastBlock.getValue().capacity();
     }
 
@@ -89,71 +90,79 @@ public final class BlockList<Owner> extends BlockLike<Owner> {
     // Implementation: I/O
 
     @Override
-    public void uncheckedRead(int off, byte[] dst, int dstOff, int len) {
-        __uncheckedTransfer(off, dst, dstOff, len, true);
+    public void uncheckedRead(long off, byte[] dst, int dstOff, int len) {
+        __uncheckedTransfer(off, len, (b, bOff, n, done) -> b.uncheckedTransferRun(bOff, dst, dstOff + done, n, true));
     }
 
     @Override
-    public void uncheckedWrite(int off, byte[] src, int srcOff, int len) {
-        __uncheckedTransfer(off, src, srcOff, len, false);
+    public void uncheckedWrite(long off, byte[] src, int srcOff, int len) {
+        __uncheckedTransfer(off, len, (b, bOff, n, done) -> b.uncheckedTransferRun(bOff, src, srcOff + done, n, false));
     }
 
     @Override
-    public byte uncheckedReadByte(int off) {
-        Map.Entry<Integer, Block<Owner>> block = uncheckedGetChildBlock(off);
-        int offsetWithinBlock = off - block.getKey();
+    public void uncheckedRead(long off, ByteBuffer dst) {
+        __uncheckedTransfer(off, dst.remaining(), (b, bOff, n, done) -> b.uncheckedTransferRun(bOff, dst, n, true));
+    }
+
+    @Override
+    public void uncheckedWrite(long off, ByteBuffer src) {
+        __uncheckedTransfer(off, src.remaining(), (b, bOff, n, done) -> b.uncheckedTransferRun(bOff, src, n, false));
+    }
+
+    @Override
+    public byte uncheckedReadByte(long off) {
+        Map.Entry<Long, Block<Owner>> block = uncheckedGetChildBlock(off);
+        long offsetWithinBlock = off - block.getKey();
 
         return block.getValue().uncheckedReadByte(offsetWithinBlock);
     }
 
     @Override
-    public void uncheckedWriteByte(int off, byte val) {
-        Map.Entry<Integer, Block<Owner>> block = uncheckedGetChildBlock(off);
-        int offsetWithinBlock = off - block.getKey();
+    public void uncheckedWriteByte(long off, byte val) {
+        Map.Entry<Long, Block<Owner>> block = uncheckedGetChildBlock(off);
+        long offsetWithinBlock = off - block.getKey();
 
         block.getValue().uncheckedWriteByte(offsetWithinBlock, val);
     }
 
-    private Map.Entry<Integer, Block<Owner>> uncheckedGetChildBlock(int off) {
+    private Map.Entry<Long, Block<Owner>> uncheckedGetChildBlock(long off) {
         return nested.floorEntry(off);
     }
 
-    private void __uncheckedTransfer(int off, byte[] other, int otherOff, int len, boolean read) {
+    private void __uncheckedTransfer(long off, int len, Block.RunTransfer<Owner> transfer) {
         if (len == 0)
             return;
 
-        Map.Entry<Integer, Block<Owner>> start = uncheckedGetChildBlock(off);
-        Map.Entry<Integer, Block<Owner>> end = uncheckedGetChildBlock(off + len - 1);
-
-        if (start.getValue() == end.getValue()) {
-            // start and end are both in same child Block
-            int offsetWithinBlock = off - start.getKey();
-            start.getValue().uncheckedTransfer(offsetWithinBlock, other, otherOff, len, read);
-        } else {
-            // start and end are in distinct child Blocks
-            NavigableMap<Integer, Block<Owner>> tail = nested.subMap(start.getKey(), false, end.getKey(), true);
-            {
-                // Copy start block
-                Block<Owner> startBlock = start.getValue();
-                int offsetWithinStart = off - start.getKey();
-                int sizeWithinStart = startBlock.capacity() - offsetWithinStart;
-                startBlock.uncheckedTransfer(offsetWithinStart, other, otherOff, sizeWithinStart, read);
-                otherOff += sizeWithinStart;
-                len -= sizeWithinStart;
-            }
-            for (Block<Owner> b : tail.values()) {
-                // Copy remaining blocks
-                if (len > b.capacity()) {
-                    b.uncheckedTransfer(0, other, otherOff, b.capacity(), read);
-                    otherOff += b.capacity();
-                    len -= b.capacity();
+        Map.Entry<Long, Block<Owner>> start = uncheckedGetChildBlock(off);
+
+        // Current run of adjacent blocks, transferred in a single copy
+        Block<Owner> runHead = start.getValue();
+        Block<Owner> runTail = runHead;
+        int runOff = (int) (off - start.getKey());
+        int runLen = (int) Math.min(len, runHead.capacity() - runOff);
+        int done = 0;
+
+        int rem = len - runLen;
+        if (rem > 0) {
+            for (Block<Owner> b : nested.subMap(start.getKey(), false, off + len - 1, true).values()) {
+                int n = (int) Math.min(rem, b.capacity());
+                if (runTail.precedes(b)) {
+                    runLen += n;
                 } else {
-                    b.uncheckedTransfer(0, other, otherOff, len, read);
-                    otherOff += len;
-                    len = -1;
+                    transfer.transfer(runHead, runOff, runLen, done);
+                    done += runLen;
+
+                    runHead = b;
+                    runOff = 0;
+                    runLen = n;
                 }
+
+                runTail = b;
+                rem -= n;
             }
         }
+
+        transfer.transfer(runHead, runOff, runLen, done);
     }
 
 }
@@ -1,95 +1,618 @@
 package dynfs.dynlm;
 
 import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.FileSystemException;
-import java.util.Deque;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.function.IntConsumer;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongConsumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
+
 import dynfs.debug.Dumpable;
 import dynfs.template.Allocator;
+import dynfs.template.ClosedAllocatorException;
 
 public final class BlockMemory<BlockOwner> implements Allocator<BlockOwner, Block<BlockOwner>> {
 
+    //
+    // Enumerable: Block Pool Type
+
+    public static enum PoolType {
+        // Boxed free list and ownership map
+        LINKED,
+        // Primitive reservation bitmap and owner table
+        BITMAP;
+    }
+
+    //
+    // Enumerable: Block Storage Type
+
+    public static enum StorageType {
+        // Slabs of on-heap byte arrays
+        HEAP(HeapBlockSlab.SLAB_BLOCKS),
+        // Slabs of off-heap direct ByteBuffers
+        DIRECT(DirectBlockSlab.SLAB_BLOCKS),
+        // Slabs mapped onto consecutive segments of a backing file
+        MAPPED(DirectBlockSlab.MAPPED_SLAB_BLOCKS);
+
+        private final int slabBlocks;
+
+        private StorageType(int slabBlocks) {
+            this.slabBlocks = slabBlocks;
+        }
+    }
+
     //
     // Configuration: Callback, Set Allocated Space
 
-    private final IntConsumer setAllocatedSpace;
+    private final LongConsumer setAllocatedSpace;
+
+    //
+    // Configuration: Storage
+
+    private final StorageType storageType;
+    private final int slabBlocks;
+
+    // If set, blocks are dematerialized on free and slabs with no reserved blocks
+    // are returned to the system
+    private final boolean releaseOnFree;
+
+    // Null unless the storage type is MAPPED; block i is held at backingOffset +
+    // i * BLOCK_SIZE in the backing file
+    private final FileChannel backing;
+    private final long backingOffset;
+
+    //
+    // Configuration: Concurrency
+
+    // Number of locks guarding slab materialization in concurrent mode
+    private static final int SLAB_LOCK_STRIPES = 64;
+
+    // Null unless the memory may be used from multiple threads at once
+    private final Object[] slabLocks;
 
     //
     // State: Blocks
 
-    private Block<BlockOwner>[] blocks;
+    // Slabs and their Block views are materialized on first allocation
+    private BlockSlab[] slabs;
+    private Block<BlockOwner>[][] blocks;
+    private int[] slabReservations;
 
-    private final Map<Integer, BlockOwner> reservedBlocks;
-    private final Deque<Integer> freeBlocks;
+    private final int numBlocks;
+    private final BlockPool<BlockOwner> pool;
+
+    //
+    // State: Block Sharing
+
+    // Blocks shared between tables by cloning are reference counted. The count of a
+    // block is 0 while it is held by the table of its owner alone, and otherwise the
+    // number of tables holding it; a block is released when its last table frees it.
+    // Counts are held in chunks, allocated when a block in the chunk is first shared.
+    private static final int SHARE_CHUNK_BITS = 12;
+    private static final int SHARE_CHUNK = 1 << SHARE_CHUNK_BITS;
+
+    private final AtomicReferenceArray<AtomicIntegerArray> shareCounts;
+
+    // The number of references to blocks beyond the first, for the dedup ratio
+    private final AtomicLong extraReferences = new AtomicLong();
+
+    //
+    // State: Deduplication
+
+    // Null unless wholly written blocks are deduplicated
+    private final BlockDedupIndex dedupIndex;
+
+    //
+    // State: Compression
+
+    // Null unless cold blocks are compressed
+    private final CompressedBlockArena compressedArena;
+
+    //
+    // State: Pinned Blocks
+
+    // Blocks whose storage is presented through a view, such as a mapping of a file,
+    // are pinned for as long as the view is reachable. A pinned block freed by its last
+    // table stays reserved, as an unheld block, until its last pin is dropped, so that
+    // writes through the view never reach a block since given to another table.
+    // Guarded by pinCounts.
+    private final TIntIntMap pinCounts = new TIntIntHashMap();
+    private final TIntSet unheldBlocks = new TIntHashSet();
+    private final Set<Pin> pins = new HashSet<>();
+    private final ReferenceQueue<ByteBuffer> unreachableViews = new ReferenceQueue<>();
+
+    private static final class Pin extends WeakReference<ByteBuffer> {
+        private final int[] indices;
+
+        private Pin(ByteBuffer view, int[] indices, ReferenceQueue<ByteBuffer> queue) {
+            super(view, queue);
+            this.indices = indices;
+        }
+    }
 
     //
     // Construction
 
-    @SuppressWarnings("unchecked")
-    public BlockMemory(IntConsumer setAllocatedSpace, int totalSpace) throws IOException {
+    public BlockMemory(LongConsumer setAllocatedSpace, long totalSpace) throws IOException {
+        this(setAllocatedSpace, totalSpace, LMSpaceOptions.newInstance());
+    }
+
+    public BlockMemory(LongConsumer setAllocatedSpace, long totalSpace, PoolType poolType) throws IOException {
+        this(setAllocatedSpace, totalSpace, withPoolType(poolType));
+    }
+
+    public BlockMemory(LongConsumer setAllocatedSpace, long totalSpace, LMSpaceOptions options) throws IOException {
+        this(setAllocatedSpace, totalSpace, options, null, 0);
+    }
+
+    public BlockMemory(LongConsumer setAllocatedSpace, long totalSpace, LMSpaceOptions options, FileChannel backing,
+            long backingOffset) throws IOException {
         this.setAllocatedSpace = setAllocatedSpace;
 
-        this.blocks = new Block[Block.numBlocks(totalSpace)];
-        for (int i = 0; i < blocks.length; i++) {
-            this.blocks[i] = new Block<>(i);
+        this.storageType = options.storageType;
+        this.slabBlocks = storageType.slabBlocks;
+        this.releaseOnFree = options.releaseOnFree;
+
+        if ((storageType == StorageType.MAPPED) != (backing != null))
+            throw new IllegalArgumentException("A backing file is required by, and only by, StorageType.MAPPED");
+        this.backing = backing;
+        this.backingOffset = backingOffset;
+
+        this.numBlocks = Block.numBlocks(totalSpace);
+
+        int numSlabs = BlockSlab.numSlabs(numBlocks, slabBlocks);
+        this.slabs = new BlockSlab[numSlabs];
+        this.blocks = newBlockArrays(numSlabs);
+        this.slabReservations = new int[numSlabs];
+
+        this.shareCounts = new AtomicReferenceArray<>((numBlocks + SHARE_CHUNK - 1) >>> SHARE_CHUNK_BITS);
+        this.dedupIndex = options.deduplicate ? new BlockDedupIndex() : null;
+
+        if (options.compressColdBlocks && storageType == StorageType.MAPPED)
+            throw new IllegalArgumentException("The blocks of StorageType.MAPPED are paged by the operating system, "
+                    + "and cannot be compressed");
+        this.compressedArena = options.compressColdBlocks ? new CompressedBlockArena() : null;
+
+        if (options.concurrent) {
+            this.slabLocks = new Object[SLAB_LOCK_STRIPES];
+            for (int i = 0; i < slabLocks.length; i++) {
+                slabLocks[i] = new Object();
+            }
+
+            int maxStripes = Runtime.getRuntime().availableProcessors();
+            this.pool = new StripedBlockPool<>(numBlocks, maxStripes, n -> newBlockPool(options.poolType, n));
+        } else {
+            this.slabLocks = null;
+            this.pool = newBlockPool(options.poolType, numBlocks);
         }
+    }
+
+    private static LMSpaceOptions withPoolType(PoolType poolType) {
+        LMSpaceOptions options = LMSpaceOptions.newInstance();
+        options.poolType = poolType;
+        return options;
+    }
 
-        this.reservedBlocks = new HashMap<>();
-        this.freeBlocks = IntStream.range(0, blocks.length).boxed().collect(Collectors.toCollection(LinkedList::new));
+    private static <BlockOwner> BlockPool<BlockOwner> newBlockPool(PoolType poolType, int numBlocks) {
+        switch (poolType) {
+            case LINKED:
+                return new LinkedBlockPool<>(numBlocks);
+            case BITMAP:
+                return new BitmapBlockPool<>(numBlocks);
+            default:
+                throw new IllegalArgumentException("Unknown PoolType: " + poolType);
+        }
+    }
+
+    //
+    // Support: Lazy Materialization
+
+    // Arrays of a generic type are created raw, here alone
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static <BlockOwner> Block<BlockOwner>[] newBlockArray(int length) {
+        return new Block[length];
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static <BlockOwner> Block<BlockOwner>[][] newBlockArrays(int length) {
+        return new Block[length][];
+    }
+
+    private int numSlabBlocks(int s) {
+        return Math.min(slabBlocks, numBlocks - s * slabBlocks);
+    }
+
+    private BlockSlab newSlab(int s) throws IOException {
+        switch (storageType) {
+            case HEAP:
+                return new HeapBlockSlab(numSlabBlocks(s));
+            case DIRECT:
+                return new DirectBlockSlab(numSlabBlocks(s));
+            case MAPPED:
+                long position = backingOffset + Block.sizeOfNBlocks((long) s * slabBlocks);
+                return new DirectBlockSlab(backing, position, numSlabBlocks(s));
+            default:
+                throw new IllegalStateException("Unknown StorageType: " + storageType);
+        }
+    }
+
+    private Block<BlockOwner> materializeBlock(int index) throws IOException {
+        if (slabLocks == null)
+            return uncheckedMaterializeBlock(index);
+
+        synchronized (slabLocks[(index / slabBlocks) % SLAB_LOCK_STRIPES]) {
+            return uncheckedMaterializeBlock(index);
+        }
+    }
+
+    private void dematerializeBlock(int index) {
+        if (slabLocks == null) {
+            uncheckedDematerializeBlock(index);
+            return;
+        }
+
+        synchronized (slabLocks[(index / slabBlocks) % SLAB_LOCK_STRIPES]) {
+            uncheckedDematerializeBlock(index);
+        }
+    }
+
+    private Block<BlockOwner> uncheckedMaterializeBlock(int index) throws IOException {
+        int s = index / slabBlocks;
+        int i = index % slabBlocks;
+
+        if (slabs[s] == null) {
+            slabs[s] = newSlab(s);
+            blocks[s] = newBlockArray(numSlabBlocks(s));
+        }
+
+        Block<BlockOwner> block = blocks[s][i];
+        if (block == null) {
+            block = new Block<>(index, slabs[s], Block.sizeOfNBlocks(i));
+            blocks[s][i] = block;
+        }
+
+        slabReservations[s]++;
+        return block;
+    }
+
+    private void uncheckedDematerializeBlock(int index) {
+        int s = index / slabBlocks;
+
+        slabReservations[s]--;
+        if (releaseOnFree) {
+            if (slabReservations[s] == 0) {
+                slabs[s] = null;
+                blocks[s] = null;
+            } else {
+                blocks[s][index % slabBlocks] = null;
+            }
+        }
     }
 
     //
     // Implementation: Memory Management
 
     private void updateUsedSpace() {
-        setAllocatedSpace.accept(Block.sizeOfNBlocks(reservedBlocks.size()));
+        setAllocatedSpace.accept(getAllocatedSpace());
+    }
+
+    public long getAllocatedSpace() {
+        return Block.sizeOfNBlocks((long) pool.numReserved());
     }
 
     @Override
     public Iterable<Block<BlockOwner>> allocate(BlockOwner owner, int nblocks) throws IOException {
-        if (nblocks > freeBlocks.size())
+        dropUnreachablePins();
+        if (!pool.tryClaim(nblocks))
             throw new FileSystemException(owner.toString(), null, "Out of memory");
 
-        List<Block<BlockOwner>> allocated = new LinkedList<>();
-        for (int i = 0; i < nblocks; i++) {
-            Integer index = freeBlocks.removeFirst();
+        // Blocks are reserved in runs of consecutive indices where possible; adjacent
+        // blocks in a run share a slab and are transferred across in a single copy
+        Block<BlockOwner>[] allocated = newBlockArray(nblocks);
+        for (int i = 0; i < nblocks;) {
+            long run = pool.reserveRun(owner, nblocks - i);
 
-            Block<BlockOwner> block = blocks[index];
-            allocated.add(block);
+            int end = BlockPool.runStart(run) + BlockPool.runLength(run);
+            for (int index = BlockPool.runStart(run); index < end; index++) {
+                Block<BlockOwner> block = materializeBlock(index);
+                allocated[i++] = block;
 
-            block.setOwner(owner);
-            reservedBlocks.put(index, owner);
+                block.setOwner(owner);
+            }
         }
 
         updateUsedSpace();
 
-        return allocated;
+        return Arrays.asList(allocated);
     }
 
+    // Shared blocks may be freed by any of the owners of the tables holding them; a
+    // shared block is released only once every table has freed it
     @Override
     public void free(BlockOwner owner, Iterable<Block<BlockOwner>> blocks) {
         for (Block<BlockOwner> block : blocks) {
-            if (reservedBlocks.get(block.getIndex()) != owner)
+            if (shareCount(block.getIndex()) == 0 && !pool.isReservedBy(block.getIndex(), owner))
                 throw new IllegalArgumentException("Attempt to free wrongly associated block");
         }
 
         for (Block<BlockOwner> block : blocks) {
-            Integer index = block.getIndex();
+            int index = block.getIndex();
+            if (!dropLastReference(index) || keepIfPinned(index))
+                continue;
 
-            reservedBlocks.remove(index);
-            block.setOwner(null);
+            release(block);
+        }
 
-            freeBlocks.add(index);
+        dropUnreachablePins();
+        updateUsedSpace();
+    }
+
+    // The block is dematerialized before its index is returned to the pool; once
+    // returned, the index may be reserved and materialized again by another thread
+    private void release(Block<BlockOwner> block) {
+        int index = block.getIndex();
+        BlockOwner owner = pool.getOwner(index);
+        block.setOwner(null);
+
+        dematerializeBlock(index);
+        pool.release(owner, index);
+    }
+
+    //
+    // Package Support: Pinned Blocks
+
+    // Pins the reserved blocks at indices for as long as view, which presents their
+    // storage, is reachable
+    void pin(ByteBuffer view, int[] indices) {
+        synchronized (pinCounts) {
+            for (int index : indices) {
+                pinCounts.adjustOrPutValue(index, 1, 1);
+            }
+            pins.add(new Pin(view, indices, unreachableViews));
+        }
+    }
+
+    // Keeps the block at index reserved as an unheld block if it is pinned, returning
+    // true if it is
+    private boolean keepIfPinned(int index) {
+        synchronized (pinCounts) {
+            if (!pinCounts.containsKey(index))
+                return false;
+
+            unheldBlocks.add(index);
+            return true;
+        }
+    }
+
+    // Drops the pins of views no longer reachable, and releases the unheld blocks left
+    // with no pin
+    private void dropUnreachablePins() {
+        TIntList released = new TIntArrayList(0);
+        for (Reference<? extends ByteBuffer> ref; (ref = unreachableViews.poll()) != null;) {
+            Pin pin = (Pin) ref;
+            synchronized (pinCounts) {
+                pins.remove(pin);
+                for (int index : pin.indices) {
+                    if (pinCounts.adjustOrPutValue(index, -1, 0) > 0)
+                        continue;
+
+                    pinCounts.remove(index);
+                    if (unheldBlocks.remove(index)) {
+                        released.add(index);
+                    }
+                }
+            }
+        }
+
+        for (int k = 0; k < released.size(); k++) {
+            release(getBlock(released.get(k)));
+        }
+    }
+
+    //
+    // Package Support: Block Sharing
+
+    // Adds a reference to each of the reserved blocks at indices, for a table taking
+    // them as a clone of another
+    void share(int[] indices) {
+        for (int index : indices) {
+            addReference(index);
+        }
+    }
+
+    // True iff the block at index is held by more than one table, so that a table
+    // must take a copy of its own before writing to it
+    boolean isShared(int index) {
+        return shareCount(index) > 1;
+    }
+
+    private int shareCount(int index) {
+        AtomicIntegerArray chunk = shareCounts.get(index >>> SHARE_CHUNK_BITS);
+        return chunk == null ? 0 : chunk.get(index & (SHARE_CHUNK - 1));
+    }
+
+    private void addReference(int index) {
+        int c = index >>> SHARE_CHUNK_BITS;
+        AtomicIntegerArray chunk = shareCounts.get(c);
+        if (chunk == null) {
+            shareCounts.compareAndSet(c, null, new AtomicIntegerArray(SHARE_CHUNK));
+            chunk = shareCounts.get(c);
+        }
+
+        // A block held by one table gains its second
+        chunk.getAndUpdate(index & (SHARE_CHUNK - 1), count -> count == 0 ? 2 : count + 1);
+        extraReferences.incrementAndGet();
+    }
+
+    // Drops a reference to the block at index, returning true if it was the last
+    private boolean dropReference(int index) {
+        AtomicIntegerArray chunk = shareCounts.get(index >>> SHARE_CHUNK_BITS);
+        if (chunk == null)
+            return true;
+
+        int count = chunk.getAndUpdate(index & (SHARE_CHUNK - 1), c -> c == 0 ? 0 : c - 1);
+        if (count > 1) {
+            extraReferences.decrementAndGet();
+        }
+        return count <= 1;
+    }
+
+    // As dropReference, but the block is removed from the dedup index once its last
+    // reference is dropped
+    private boolean dropLastReference(int index) {
+        if (dedupIndex == null)
+            return dropReference(index);
+
+        synchronized (dedupIndex) {
+            if (!dropReference(index))
+                return false;
+
+            dedupIndex.remove(index);
+            return true;
+        }
+    }
+
+    //
+    // Package Support: Deduplication
+
+    boolean isDeduplicating() {
+        return dedupIndex != null;
+    }
+
+    // True iff the block at index may be written in place by the one table holding it;
+    // the block is then removed from the dedup index, so that no other table comes to
+    // share it while it is written
+    boolean claimForWrite(int index) {
+        if (dedupIndex == null)
+            return !isShared(index);
+
+        synchronized (dedupIndex) {
+            if (isShared(index))
+                return false;
+
+            dedupIndex.remove(index);
+            return true;
+        }
+    }
+
+    // Returns a block with the same content as block, which must be held by one table
+    // alone: an indexed block, to which a reference is added, or else block itself,
+    // which is then indexed if no other block has its fingerprint. If another block is
+    // returned, the caller must take it in place of block, and free block. Indexing
+    // adds no reference, so an indexed block held by one table is not shared.
+    Block<BlockOwner> dedup(Block<BlockOwner> block) {
+        ByteBuffer content = block.runView(0, Block.BLOCK_SIZE);
+        long fingerprint = BlockDedupIndex.fingerprint(content);
+
+        synchronized (dedupIndex) {
+            int index = dedupIndex.lookup(fingerprint);
+            if (index < 0) {
+                dedupIndex.put(fingerprint, block.getIndex());
+                return block;
+            }
+
+            // Equal fingerprints are verified by content; a block whose fingerprint
+            // collides with that of an indexed block is left as it is
+            Block<BlockOwner> indexed = getBlock(index);
+            if (index == block.getIndex() || !indexed.runView(0, Block.BLOCK_SIZE).equals(content))
+                return block;
+
+            addReference(index);
+            return indexed;
+        }
+    }
+
+    // The ratio of the blocks held by tables, counting a shared block once per table,
+    // to the blocks reserved; 1 if no block is shared, whether by cloning or by
+    // deduplication
+    public double getDedupRatio() {
+        long reserved = pool.numReserved();
+        if (reserved == 0)
+            return 1.0;
+
+        return (double) (reserved + extraReferences.get()) / reserved;
+    }
+
+    //
+    // Package Support: Compression
+
+    // Null unless cold blocks are compressed
+    CompressedBlockArena getCompressedArena() {
+        return compressedArena;
+    }
+
+    //
+    // Interface: Query, Compressed Space
+
+    // The bytes held by the compressed forms of cold blocks, outside the blocks of the
+    // memory
+    public long getCompressedSpace() {
+        return compressedArena == null ? 0 : compressedArena.getStoredBytes();
+    }
+
+    //
+    // Package Support: Restoration
+
+    // Reserves the blocks at indices for owner, restoring the blocks of a backing file
+    // as they were when it was last closed; restored() must be invoked once the blocks
+    // of every owner are restored, before any allocation. A block restored for more
+    // than one owner is shared between them.
+    List<Block<BlockOwner>> restore(BlockOwner owner, int[] indices) throws IOException {
+        List<Block<BlockOwner>> restored = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            if (index < 0 || index >= numBlocks)
+                throw new IllegalArgumentException("Block " + index + " cannot be restored");
+
+            if (pool.isReserved(index)) {
+                addReference(index);
+                restored.add(getBlock(index));
+                continue;
+            }
+
+            pool.reserveAt(owner, index);
+            Block<BlockOwner> block = materializeBlock(index);
+            block.setOwner(owner);
+            restored.add(block);
         }
 
         updateUsedSpace();
+
+        return restored;
+    }
+
+    void restored() {
+        pool.restored();
+    }
+
+    //
+    // Package Support: Durability
+
+    // Writes the blocks held in a backing file to it
+    void force() {
+        for (BlockSlab slab : slabs) {
+            if (slab != null) {
+                slab.force();
+            }
+        }
     }
 
     //
@@ -97,44 +620,76 @@ public final class BlockMemory<BlockOwner> implements Allocator<BlockOwner, Bloc
 
     @Override
     public void close() {
+        slabs = null;
         blocks = null;
+        slabReservations = null;
     }
 
     @Override
     public boolean isClosed() {
-        return blocks == null;
+        return slabs == null;
+    }
+
+    //
+    // Package Support: Block Lookup
+
+    // NOTE: Callers must ensure that the block at index is reserved
+    Block<BlockOwner> getBlock(int index) throws ClosedAllocatorException {
+        if (isClosed())
+            throw new ClosedAllocatorException(this);
+
+        return blocks[index / slabBlocks][index % slabBlocks];
+    }
+
+    //
+    // Interface: Query, Materialized Slabs
+
+    // 0 once the memory is closed
+    public long getMaterializedSpace() {
+        BlockSlab[] slabs = this.slabs;
+        if (slabs == null)
+            return 0;
+
+        long space = 0;
+        for (BlockSlab slab : slabs) {
+            if (slab != null) {
+                space += slab.capacity();
+            }
+        }
+        return space;
     }
 
     //
     // Debug: Core Dump
 
     public CoreDump<BlockOwner> getCoreDump() {
-        return new CoreDump<BlockOwner>(blocks, reservedBlocks, freeBlocks);
+        return new CoreDump<BlockOwner>(pool);
     }
 
     public static final class CoreDump<BlockOwner> {
-        private final Block<BlockOwner>[] blocks;
-        private final Map<Integer, BlockOwner> reservedBlocks;
-        private final Deque<Integer> freeBlocks;
+        private final BlockPool<BlockOwner> pool;
 
         private String lastDump;
 
-        private CoreDump(Block<BlockOwner>[] blocks, Map<Integer, BlockOwner> reservedBlocks,
-                Deque<Integer> freeBlocks) {
-            this.blocks = blocks;
-            this.reservedBlocks = reservedBlocks;
-            this.freeBlocks = freeBlocks;
+        private CoreDump(BlockPool<BlockOwner> pool) {
+            this.pool = pool;
             this.lastDump = null;
         }
 
         public CoreDump<BlockOwner> build() {
             StringBuilder sb = new StringBuilder();
 
-            sb.append("       # Blocks: " + blocks.length + "\n");
-            sb.append("Reserved Blocks:\n");
-            reservedBlocks.entrySet().stream().map(e -> e.getKey() + " -> " + e.getValue())
-                    .collect(Collectors.joining(" | "));
-            sb.append("    Free Blocks: " + freeBlocks + "\n");
+            sb.append("       # Blocks: " + pool.size() + "\n");
+            sb.append("Reserved Blocks: ");
+            sb.append(IntStream.range(0, pool.size()).filter(pool::isReserved)
+                    .mapToObj(i -> i + " -> " + pool.getOwner(i))
+                    .collect(Collectors.joining(" | ")));
+            sb.append("\n");
+            sb.append("    Free Blocks: ");
+            sb.append(IntStream.range(0, pool.size()).filter(i -> !pool.isReserved(i))
+                    .mapToObj(String::valueOf)
+                    .collect(Collectors.joining(", ", "[", "]")));
+            sb.append("\n");
 
             lastDump = sb.substring(0, sb.length() - 1);
 
@@ -151,7 +706,12 @@ public final class BlockMemory<BlockOwner> implements Allocator<BlockOwner, Bloc
     // Debug: Block Dump
 
     public Dumpable dumpBlock(int i) {
-        return blocks[i];
+        Block<BlockOwner>[] slabBlocks = blocks[i / this.slabBlocks];
+        Block<BlockOwner> block = slabBlocks == null ? null : slabBlocks[i % this.slabBlocks];
+        if (block == null)
+            return db -> db.writeLine("index: " + i + " (not materialized)");
+
+        return block;
     }
 
 }
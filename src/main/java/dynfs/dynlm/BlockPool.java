@@ -0,0 +1,79 @@
+package dynfs.dynlm;
+
+interface BlockPool<Owner> {
+
+    //
+    // Static Support: Run Encoding
+
+    // A run of consecutive block indices is encoded as (start << 32) | length
+
+    public static long run(int start, int length) {
+        return ((long) start << 32) | length;
+    }
+
+    public static int runStart(long run) {
+        return (int) (run >>> 32);
+    }
+
+    public static int runLength(long run) {
+        return (int) run;
+    }
+
+    //
+    // Interface: Pool Size
+
+    public int size();
+
+    public int numReserved();
+
+    public default int numFree() {
+        return size() - numReserved();
+    }
+
+    //
+    // Interface: Block Index Reservation
+
+    // Claims count blocks ahead of their reservation, returning false if fewer than
+    // count blocks are free; pools shared between threads claim atomically
+    public default boolean tryClaim(int count) {
+        return count <= numFree();
+    }
+
+    // NOTE: Callers must ensure that numFree() > 0
+    public int reserve(Owner owner);
+
+    // Reserves a run of at most maxLength consecutive block indices; at least one
+    // index is reserved
+    // NOTE: Callers must ensure that numFree() > 0
+    public default long reserveRun(Owner owner, int maxLength) {
+        return run(reserve(owner), 1);
+    }
+
+    // NOTE: Callers must ensure that isReservedBy(index, owner)
+    public void release(Owner owner, int index);
+
+    //
+    // Interface: Reservation Restoration
+
+    // Reserves index for owner, restoring a reservation made before the memory was
+    // last closed; restored() must be invoked once every reservation is restored,
+    // before any other reservation is made
+    // NOTE: Callers must ensure that !isReserved(index)
+    public void reserveAt(Owner owner, int index);
+
+    public default void restored() {}
+
+    //
+    // Interface: Query, Block Index Ownership
+
+    public Owner getOwner(int index);
+
+    public default boolean isReserved(int index) {
+        return getOwner(index) != null;
+    }
+
+    public default boolean isReservedBy(int index, Owner owner) {
+        return getOwner(index) == owner;
+    }
+
+}
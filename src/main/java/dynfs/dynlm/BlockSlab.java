@@ -0,0 +1,45 @@
+package dynfs.dynlm;
+
+import java.nio.ByteBuffer;
+
+abstract class BlockSlab {
+
+    //
+    // Static Support: Slab Quantity Calculation
+
+    static int numSlabs(int numBlocks, int slabBlocks) {
+        return (numBlocks + slabBlocks - 1) / slabBlocks;
+    }
+
+    //
+    // Interface: Capacity
+
+    abstract int capacity();
+
+    //
+    // Interface: I/O
+
+    abstract void read(int off, byte[] dst, int dstOff, int len);
+
+    abstract void write(int off, byte[] src, int srcOff, int len);
+
+    // Transfers len bytes between the slab and the buffer's position, advancing it
+    abstract void read(int off, ByteBuffer dst, int len);
+
+    abstract void write(int off, ByteBuffer src, int len);
+
+    // A buffer onto len bytes of the slab at off, sharing its storage; the view's
+    // position and limit delimit the region
+    abstract ByteBuffer view(int off, int len);
+
+    abstract byte readByte(int off);
+
+    abstract void writeByte(int off, byte val);
+
+    //
+    // Interface: Durability
+
+    // Writes any changes to the slab to its backing storage, if it has any
+    void force() {}
+
+}
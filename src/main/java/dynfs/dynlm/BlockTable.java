@@ -0,0 +1,587 @@
+package dynfs.dynlm;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
+
+public final class BlockTable<Owner> extends BlockLike<Owner> {
+
+    //
+    // Constant: Table Page Size
+
+    // Block indices are held in a two-level table of pages of PAGE_SIZE entries;
+    // the block holding file offset off is entry (off / BLOCK_SIZE) of the table
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    //
+    // Constant: Holes
+
+    // The index of an entry of the table that holds no block; a hole reads as zeroes,
+    // and is given a block of its own before it is written. A null page holds only holes.
+    static final int HOLE = -1;
+
+    private static final Block<?> HOLE_BLOCK = newReadOnlyBlock(HOLE, new byte[Block.BLOCK_SIZE]);
+
+    private static <Owner> Block<Owner> newReadOnlyBlock(int index, byte[] data) {
+        try {
+            return new Block<>(index, new ReadOnlyBlockSlab(data), 0);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    //
+    // Constant: Compressed Blocks
+
+    // Entries below HOLE hold the compressed form of a block, in slot (-2 - entry) of
+    // the compressed arena of the memory; a compressed block is read through a
+    // decompressed copy, and is given a block of its own before it is written
+    private static boolean isCompressed(int index) {
+        return index < HOLE;
+    }
+
+    private static int toArenaSlot(int index) {
+        return -2 - index;
+    }
+
+    private static int fromArenaSlot(int slot) {
+        return -2 - slot;
+    }
+
+    // Blocks compressed to more than this are left as they are
+    private static final int MAX_COMPRESSED_SIZE = Block.BLOCK_SIZE * 3 / 4;
+
+    // The number of decompressed copies each table keeps, so that a run of small reads
+    // of a compressed block decompresses it once
+    private static final int NUM_DECOMPRESSED_BLOCKS = 8;
+
+    //
+    // Configuration: Memory
+
+    private final BlockMemory<Owner> memory;
+
+    //
+    // State: Block Index Table
+
+    private int[][] pages;
+    private int numBlocks;
+
+    //
+    // State: Decompressed Blocks
+
+    // Null unless the memory compresses cold blocks
+    private final DecompressedBlocks<Owner> decompressed;
+
+    // The copies last decompressed, by entry, replaced round-robin; an entry is evicted
+    // when its compressed block is freed, which excludes readers of the table
+    private static final class DecompressedBlocks<Owner> {
+        private final int[] entries = new int[NUM_DECOMPRESSED_BLOCKS];
+        private final List<Block<Owner>> blocks = new ArrayList<>(
+                Collections.nCopies(NUM_DECOMPRESSED_BLOCKS, null));
+        private int next = 0;
+
+        DecompressedBlocks() {
+            Arrays.fill(entries, HOLE);
+        }
+
+        synchronized Block<Owner> get(int entry) {
+            for (int k = 0; k < entries.length; k++) {
+                if (entries[k] == entry)
+                    return blocks.get(k);
+            }
+            return null;
+        }
+
+        synchronized void put(int entry, Block<Owner> block) {
+            entries[next] = entry;
+            blocks.set(next, block);
+            next = (next + 1) % entries.length;
+        }
+
+        synchronized void evict(int entry) {
+            for (int k = 0; k < entries.length; k++) {
+                if (entries[k] == entry) {
+                    entries[k] = HOLE;
+                    blocks.set(k, null);
+                }
+            }
+        }
+    }
+
+    //
+    // Construction
+
+    BlockTable(BlockMemory<Owner> memory, Owner owner) throws IOException {
+        super(0, owner);
+
+        this.memory = memory;
+
+        this.pages = new int[1][];
+        this.numBlocks = 0;
+
+        this.decompressed = memory.getCompressedArena() != null ? new DecompressedBlocks<>() : null;
+    }
+
+    //
+    // Core Support: Conversion to String
+
+    List<Integer> getBlockIndices() {
+        List<Integer> indices = new ArrayList<>(numBlocks);
+        for (int i = 0; i < numBlocks; i++) {
+            indices.add(getBlockIndex(i));
+        }
+        return indices;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[BlockTable: %s]", getBlockIndices());
+    }
+
+    //
+    // Support: Block Index Table
+
+    private int getBlockIndex(int i) {
+        int[] page = pages[i >>> PAGE_BITS];
+        return page == null ? HOLE : page[i & PAGE_MASK];
+    }
+
+    private void appendBlockIndex(int index) {
+        int p = numBlocks >>> PAGE_BITS;
+        if (p == pages.length) {
+            pages = Arrays.copyOf(pages, pages.length * 2);
+        }
+
+        if (pages[p] != null) {
+            pages[p][numBlocks & PAGE_MASK] = index;
+        } else if (index != HOLE) {
+            pages[p] = newPage();
+            pages[p][numBlocks & PAGE_MASK] = index;
+        }
+        numBlocks++;
+    }
+
+    private void setBlockIndex(int i, int index) {
+        int p = i >>> PAGE_BITS;
+        if (pages[p] == null) {
+            if (index == HOLE)
+                return;
+            pages[p] = newPage();
+        }
+        pages[p][i & PAGE_MASK] = index;
+    }
+
+    private static int[] newPage() {
+        int[] page = new int[PAGE_SIZE];
+        Arrays.fill(page, HOLE);
+        return page;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Block<Owner> getBlockAt(int i) {
+        int index = getBlockIndex(i);
+        if (index == HOLE)
+            return (Block<Owner>) HOLE_BLOCK;
+        if (isCompressed(index))
+            return getDecompressedBlock(index);
+        return memory.getBlock(index);
+    }
+
+    // Concurrent readers missing the same entry may each decompress it; either copy
+    // serves
+    private Block<Owner> getDecompressedBlock(int index) {
+        Block<Owner> block = decompressed.get(index);
+        if (block == null) {
+            byte[] content = new byte[Block.BLOCK_SIZE];
+            BlockCodec.decompress(memory.getCompressedArena().get(toArenaSlot(index)), content);
+            block = newReadOnlyBlock(index, content);
+            decompressed.put(index, block);
+        }
+        return block;
+    }
+
+    // Frees the block or compressed block of each entry; holes are skipped
+    // NOTE: Readers decompress entries without synchronization, and a freed slot may be
+    // taken by another table at once; callers must exclude the readers of the table
+    private void freeEntries(TIntList indices) {
+        List<Block<Owner>> freed = new ArrayList<>(indices.size());
+        for (int k = 0; k < indices.size(); k++) {
+            int index = indices.get(k);
+            if (isCompressed(index)) {
+                decompressed.evict(index);
+                memory.getCompressedArena().free(toArenaSlot(index));
+            } else if (index != HOLE) {
+                freed.add(memory.getBlock(index));
+            }
+        }
+        memory.free(getOwner(), freed);
+    }
+
+    private Block<Owner> getChildBlock(long off) {
+        return getBlockAt((int) (off / Block.BLOCK_SIZE));
+    }
+
+    //
+    // Package Support: Persistence
+
+    int[] getBlockIndexArray() {
+        int[] indices = new int[numBlocks];
+        for (int i = 0; i < numBlocks; i++) {
+            indices[i] = getBlockIndex(i);
+        }
+        return indices;
+    }
+
+    // Takes the blocks at indices as the whole of the table, which must be empty
+    void restore(int[] indices) throws IOException {
+        if (numBlocks != 0)
+            throw new IllegalStateException("Only an empty BlockTable can be restored");
+
+        memory.restore(getOwner(), withoutHoles(indices));
+        for (int index : indices) {
+            appendBlockIndex(index);
+        }
+        restoreCapacity(Block.sizeOfNBlocks((long) numBlocks));
+    }
+
+    //
+    // Package Support: Cloning
+
+    // Takes the blocks of src as the whole of the table, which must be empty; the
+    // blocks are shared by both tables until either writes to them
+    void cloneFrom(BlockTable<Owner> src) {
+        if (numBlocks != 0)
+            throw new IllegalStateException("Only an empty BlockTable can be cloned into");
+
+        // Compressed blocks are not shared, but copied in their compressed form
+        int[] indices = src.getBlockIndexArray();
+        memory.share(withoutHoles(indices));
+        for (int index : indices) {
+            if (isCompressed(index)) {
+                CompressedBlockArena arena = memory.getCompressedArena();
+                index = fromArenaSlot(arena.store(arena.get(toArenaSlot(index))));
+            }
+            appendBlockIndex(index);
+        }
+        restoreCapacity(Block.sizeOfNBlocks((long) numBlocks));
+    }
+
+    private static int[] withoutHoles(int[] indices) {
+        return Arrays.stream(indices).filter(index -> index >= 0).toArray();
+    }
+
+    // Returns the runs of blocks other than holes from first up to end, each a pair of
+    // (first block, number of blocks); pages that hold only holes are skipped whole
+    TIntArrayList dataRuns(int first, int end) {
+        TIntArrayList runs = new TIntArrayList();
+        end = Math.min(end, numBlocks);
+        for (int i = first; i < end; i++) {
+            if (pages[i >>> PAGE_BITS] == null) {
+                i |= PAGE_MASK;
+                continue;
+            }
+            if (getBlockIndex(i) == HOLE)
+                continue;
+
+            int last = runs.size() - 2;
+            if (last >= 0 && runs.get(last) + runs.get(last + 1) == i) {
+                runs.set(last + 1, runs.get(last + 1) + 1);
+            } else {
+                runs.add(i);
+                runs.add(1);
+            }
+        }
+        return runs;
+    }
+
+    //
+    // Package Support: Writes
+
+    // True iff the len bytes at off must be prepared before they are written; bytes
+    // beyond the end of the table need no preparation
+    // NOTE: The blocks found to need no preparation are claimed for the write, which
+    // must follow under the same hold of the lock of the table's file
+    boolean needsPrepareWrite(long off, long len) {
+        int first = (int) (off / Block.BLOCK_SIZE);
+        int end = Math.min(Block.numBlocks(off + len), numBlocks);
+        for (int i = first; i < end; i++) {
+            if (needsReplacement(getBlockIndex(i)))
+                return true;
+        }
+        return false;
+    }
+
+    // Gives each hole holding the len bytes at off a zeroed block of its own, and
+    // replaces each shared block with a copy held by this table alone; callers must
+    // prepare the bytes they are about to write
+    // NOTE: Replacing entries frees the blocks they held, which concurrent readers of
+    // the table may be reading; callers must exclude readers unless needsPrepareWrite
+    // is false
+    void prepareWrite(long off, long len) throws IOException {
+        if (len == 0)
+            return;
+
+        int first = (int) (off / Block.BLOCK_SIZE);
+        int end = Block.numBlocks(off + len);
+        synchronized (this) {
+            // The positions are recorded rather than evaluated again, since a sharer
+            // holding another file's lock may drop its reference in the meantime
+            TIntList positions = new TIntArrayList();
+            for (int i = first; i < end; i++) {
+                if (needsReplacement(getBlockIndex(i))) {
+                    positions.add(i);
+                }
+            }
+            if (positions.isEmpty())
+                return;
+
+            Iterator<Block<Owner>> replacements = memory.allocate(getOwner(), positions.size()).iterator();
+            TIntList replaced = new TIntArrayList(positions.size());
+            for (int j = 0; j < positions.size(); j++) {
+                int i = positions.get(j);
+                Block<Owner> old = getBlockAt(i);
+                Block<Owner> copy = replacements.next();
+                copy.uncheckedTransferRun(0, old.runView(0, Block.BLOCK_SIZE), Block.BLOCK_SIZE, false);
+
+                replaced.add(getBlockIndex(i));
+                setBlockIndex(i, copy.getIndex());
+            }
+            freeEntries(replaced);
+        }
+    }
+
+    boolean isHole(long off) {
+        return getBlockIndex((int) (off / Block.BLOCK_SIZE)) == HOLE;
+    }
+
+    // Holes, compressed blocks and shared blocks are replaced; any other block is
+    // claimed for writing in place
+    private boolean needsReplacement(int index) {
+        return index < 0 || !memory.claimForWrite(index);
+    }
+
+    // Writes zeroes to the len bytes at off, which must have been prepared
+    void uncheckedZero(long off, long len) {
+        for (long done = 0; done < len;) {
+            int n = (int) Math.min(len - done, Block.BLOCK_SIZE);
+            uncheckedWrite(off + done, HOLE_BLOCK.runView(0, n));
+            done += n;
+        }
+    }
+
+    // Frees the blocks from first up to end, leaving holes in their place
+    void punchBlocks(int first, int end) {
+        TIntList freed = new TIntArrayList();
+        synchronized (this) {
+            for (int i = first; i < end; i++) {
+                int index = getBlockIndex(i);
+                if (index != HOLE) {
+                    freed.add(index);
+                    setBlockIndex(i, HOLE);
+                }
+            }
+
+            // Pages that hold only holes are dropped
+            for (int p = first >>> PAGE_BITS; p <= (end - 1) >>> PAGE_BITS && p < pages.length; p++) {
+                if (pages[p] != null && Arrays.stream(pages[p]).allMatch(index -> index == HOLE)) {
+                    pages[p] = null;
+                }
+            }
+        }
+        freeEntries(freed);
+    }
+
+    //
+    // Package Support: Deduplication
+
+    // Replaces each block wholly within the len bytes at off with an identical block
+    // of the memory where there is one; the memory must deduplicate blocks
+    void dedup(long off, long len) {
+        int first = Block.numBlocks(off);
+        int end = (int) ((off + len) / Block.BLOCK_SIZE);
+        synchronized (this) {
+            for (int i = first; i < end; i++) {
+                int index = getBlockIndex(i);
+                if (index < 0 || memory.isShared(index))
+                    continue;
+
+                Block<Owner> block = memory.getBlock(index);
+                Block<Owner> shared = memory.dedup(block);
+                if (shared != block) {
+                    setBlockIndex(i, shared.getIndex());
+                    memory.free(getOwner(), Collections.singletonList(block));
+                }
+            }
+        }
+    }
+
+    //
+    // Package Support: Compression
+
+    // Compresses each of the first numBlocks blocks that is held by this table alone
+    // and lies outside the touched runs, given in order as pairs of (first block,
+    // number of blocks); returns the number of blocks compressed. The memory must
+    // compress cold blocks.
+    int compressUntouched(int numBlocks, TIntList touchedRuns, BlockCodec codec) {
+        CompressedBlockArena arena = memory.getCompressedArena();
+        byte[] content = new byte[Block.BLOCK_SIZE];
+
+        TIntList freed = new TIntArrayList();
+        synchronized (this) {
+            int r = 0;
+            for (int i = 0; i < Math.min(numBlocks, this.numBlocks); i++) {
+                while (r < touchedRuns.size() && i >= touchedRuns.get(r) + touchedRuns.get(r + 1)) {
+                    r += 2;
+                }
+                if (r < touchedRuns.size() && i >= touchedRuns.get(r))
+                    continue;
+
+                int index = getBlockIndex(i);
+                if (index < 0 || memory.isShared(index))
+                    continue;
+
+                memory.getBlock(index).uncheckedRead(0, content, 0, Block.BLOCK_SIZE);
+                byte[] compressed = codec.compress(content, MAX_COMPRESSED_SIZE);
+                if (compressed == null)
+                    continue;
+
+                setBlockIndex(i, fromArenaSlot(arena.store(compressed)));
+                freed.add(index);
+            }
+            freeEntries(freed);
+        }
+        return freed.size();
+    }
+
+    //
+    // Implementation: Capacity
+
+    @Override
+    protected long ensureCapacityImpl(long minCapacity) throws IOException {
+        int numNewBlocks = Block.numBlocks(minCapacity - capacity());
+
+        // The table grows with holes, which are given blocks as they are written
+        for (int i = 0; i < numNewBlocks; i++) {
+            appendBlockIndex(HOLE);
+        }
+
+        return Block.sizeOfNBlocks((long) numBlocks);
+    }
+
+    @Override
+    protected long trimCapacityImpl(long minCapacity) throws IOException {
+        int newNumBlocks = Block.numBlocks(minCapacity);
+
+        TIntList freed = new TIntArrayList(numBlocks - newNumBlocks);
+        for (int i = newNumBlocks; i < numBlocks; i++) {
+            freed.add(getBlockIndex(i));
+        }
+
+        // Pages wholly beyond the new end of the table are dropped
+        for (int p = (newNumBlocks + PAGE_MASK) >>> PAGE_BITS; p < pages.length; p++) {
+            pages[p] = null;
+        }
+        numBlocks = newNumBlocks;
+
+        freeEntries(freed);
+
+        return Block.sizeOfNBlocks((long) numBlocks);
+    }
+
+    //
+    // Implementation: I/O
+
+    @Override
+    public void uncheckedRead(long off, byte[] dst, int dstOff, int len) {
+        __uncheckedTransfer(off, len, (b, bOff, n, done) -> b.uncheckedTransferRun(bOff, dst, dstOff + done, n, true));
+    }
+
+    @Override
+    public void uncheckedWrite(long off, byte[] src, int srcOff, int len) {
+        __uncheckedTransfer(off, len, (b, bOff, n, done) -> b.uncheckedTransferRun(bOff, src, srcOff + done, n, false));
+    }
+
+    @Override
+    public void uncheckedRead(long off, ByteBuffer dst) {
+        __uncheckedTransfer(off, dst.remaining(), (b, bOff, n, done) -> b.uncheckedTransferRun(bOff, dst, n, true));
+    }
+
+    @Override
+    public void uncheckedWrite(long off, ByteBuffer src) {
+        __uncheckedTransfer(off, src.remaining(), (b, bOff, n, done) -> b.uncheckedTransferRun(bOff, src, n, false));
+    }
+
+    @Override
+    public byte uncheckedReadByte(long off) {
+        return getChildBlock(off).uncheckedReadByte(off % Block.BLOCK_SIZE);
+    }
+
+    @Override
+    public void uncheckedWriteByte(long off, byte val) {
+        getChildBlock(off).uncheckedWriteByte(off % Block.BLOCK_SIZE, val);
+    }
+
+    // Views onto the storage of the len bytes at off, one per run of adjacent blocks
+    List<ByteBuffer> uncheckedViews(long off, int len) {
+        List<ByteBuffer> views = new ArrayList<>();
+        __uncheckedTransfer(off, len, (b, bOff, n, done) -> views.add(b.runView(bOff, n)));
+        return views;
+    }
+
+    // Pins the blocks holding the len bytes at off, which must be prepared, for as long
+    // as view, which presents their storage, is reachable
+    void pin(long off, long len, ByteBuffer view) {
+        int first = (int) (off / Block.BLOCK_SIZE);
+        int[] indices = new int[Block.numBlocks(off + len) - first];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = getBlockIndex(first + i);
+        }
+        memory.pin(view, indices);
+    }
+
+    private void __uncheckedTransfer(long off, int len, Block.RunTransfer<Owner> transfer) {
+        if (len == 0)
+            return;
+
+        int i = (int) (off / Block.BLOCK_SIZE);
+
+        // Current run of adjacent blocks, transferred in a single copy
+        Block<Owner> runHead = getBlockAt(i);
+        Block<Owner> runTail = runHead;
+        int runOff = (int) (off % Block.BLOCK_SIZE);
+        int runLen = Math.min(len, Block.BLOCK_SIZE - runOff);
+        int done = 0;
+
+        for (int rem = len - runLen; rem > 0;) {
+            Block<Owner> b = getBlockAt(++i);
+
+            int n = Math.min(rem, Block.BLOCK_SIZE);
+            if (runTail.precedes(b)) {
+                runLen += n;
+            } else {
+                transfer.transfer(runHead, runOff, runLen, done);
+                done += runLen;
+
+                runHead = b;
+                runOff = 0;
+                runLen = n;
+            }
+
+            runTail = b;
+            rem -= n;
+        }
+
+        transfer.transfer(runHead, runOff, runLen, done);
+    }
+
+}
@@ -0,0 +1,57 @@
+package dynfs.dynlm;
+
+import java.util.Arrays;
+
+import gnu.trove.list.array.TIntArrayList;
+
+// The compressed forms of the cold blocks of an LMSpace, each held in a slot of its
+// own, outside the blocks of the space. Slots are numbered densely and reused once
+// freed.
+final class CompressedBlockArena {
+
+    //
+    // State: Slots
+
+    private byte[][] slots = new byte[64][];
+    private int numSlots;
+    private final TIntArrayList freeSlots = new TIntArrayList();
+
+    private long storedBytes;
+
+    //
+    // Package Support: Slots
+
+    synchronized int store(byte[] compressed) {
+        int slot;
+        if (!freeSlots.isEmpty()) {
+            slot = freeSlots.removeAt(freeSlots.size() - 1);
+        } else {
+            if (numSlots == slots.length) {
+                slots = Arrays.copyOf(slots, slots.length * 2);
+            }
+            slot = numSlots++;
+        }
+
+        slots[slot] = compressed;
+        storedBytes += compressed.length;
+        return slot;
+    }
+
+    synchronized byte[] get(int slot) {
+        return slots[slot];
+    }
+
+    synchronized void free(int slot) {
+        storedBytes -= slots[slot].length;
+        slots[slot] = null;
+        freeSlots.add(slot);
+    }
+
+    //
+    // Package Support: Stored Space
+
+    synchronized long getStoredBytes() {
+        return storedBytes;
+    }
+
+}
@@ -0,0 +1,104 @@
+package dynfs.dynlm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+final class DirectBlockSlab extends BlockSlab {
+
+    //
+    // Constant: Slab Size
+
+    // Direct slabs are few and large; their memory lives outside of the Java heap
+    static final int SLAB_BLOCKS = 4096;
+
+    // Mapped slabs are segments of a file; larger segments need fewer mappings
+    static final int MAPPED_SLAB_BLOCKS = 65536;
+
+    //
+    // State: Slab Data
+
+    private final ByteBuffer data;
+
+    //
+    // Construction
+
+    DirectBlockSlab(int numBlocks) {
+        this.data = ByteBuffer.allocateDirect(Block.sizeOfNBlocks(numBlocks));
+    }
+
+    // A slab onto numBlocks blocks of channel at position, which is grown as needed
+    DirectBlockSlab(FileChannel channel, long position, int numBlocks) throws IOException {
+        this.data = channel.map(MapMode.READ_WRITE, position, Block.sizeOfNBlocks(numBlocks));
+    }
+
+    //
+    // Implementation: Capacity
+
+    @Override
+    int capacity() {
+        return data.capacity();
+    }
+
+    //
+    // Implementation: Positioned View
+
+    // Bulk transfers use a private view so that concurrent transfers against the
+    // same slab do not contend for its position
+    @Override
+    ByteBuffer view(int off, int len) {
+        ByteBuffer view = data.duplicate();
+        view.limit(off + len);
+        view.position(off);
+        return view;
+    }
+
+    //
+    // Implementation: I/O
+
+    @Override
+    void read(int off, byte[] dst, int dstOff, int len) {
+        view(off, len).get(dst, dstOff, len);
+    }
+
+    @Override
+    void write(int off, byte[] src, int srcOff, int len) {
+        view(off, len).put(src, srcOff, len);
+    }
+
+    @Override
+    void read(int off, ByteBuffer dst, int len) {
+        dst.put(view(off, len));
+    }
+
+    @Override
+    void write(int off, ByteBuffer src, int len) {
+        int limit = src.limit();
+        src.limit(src.position() + len);
+        view(off, len).put(src);
+        src.limit(limit);
+    }
+
+    @Override
+    byte readByte(int off) {
+        return data.get(off);
+    }
+
+    @Override
+    void writeByte(int off, byte val) {
+        data.put(off, val);
+    }
+
+    //
+    // Implementation: Durability
+
+    @Override
+    void force() {
+        if (data instanceof MappedByteBuffer) {
+            ((MappedByteBuffer) data).force();
+        }
+    }
+
+}
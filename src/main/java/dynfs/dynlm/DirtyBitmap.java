@@ -0,0 +1,88 @@
+package dynfs.dynlm;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import gnu.trove.list.array.TIntArrayList;
+
+// The blocks of a file written since they were last drained, by position within the
+// file. Blocks may be marked and drained concurrently; the bitmap may only be grown
+// while no other thread is using it.
+final class DirtyBitmap {
+
+    //
+    // State: Words
+
+    private volatile AtomicLongArray words = new AtomicLongArray(1);
+
+    //
+    // Interface: Capacity
+
+    // NOTE: Requires exclusive access to the bitmap
+    void ensureCapacity(int numBits) {
+        int numWords = (numBits + 63) >>> 6;
+        AtomicLongArray current = words;
+        if (numWords <= current.length())
+            return;
+
+        AtomicLongArray grown = new AtomicLongArray(Math.max(numWords, current.length() * 2));
+        for (int i = 0; i < current.length(); i++) {
+            grown.set(i, current.get(i));
+        }
+        words = grown;
+    }
+
+    //
+    // Interface: Marking
+
+    // Marks the blocks [from, to), which must lie within the capacity of the bitmap
+    void mark(int from, int to) {
+        AtomicLongArray words = this.words;
+        for (int i = from; i < to;) {
+            int w = i >>> 6;
+            int end = Math.min(to, (w + 1) << 6);
+
+            long bits = (end - i == 64 ? -1L : ((1L << (end - i)) - 1)) << (i & 63);
+            long current = words.get(w);
+            while ((current & bits) != bits && !words.compareAndSet(w, current, current | bits)) {
+                current = words.get(w);
+            }
+
+            i = end;
+        }
+    }
+
+    //
+    // Interface: Draining
+
+    // Clears the bitmap, returning the runs of marked blocks below limit as pairs of
+    // (first block, number of blocks)
+    TIntArrayList drainRuns(int limit) {
+        AtomicLongArray words = this.words;
+        TIntArrayList runs = new TIntArrayList();
+
+        int runStart = -1;
+        for (int w = 0; w < words.length(); w++) {
+            long bits = words.get(w) == 0 ? 0 : words.getAndSet(w, 0);
+            for (int b = 0; b < 64; b++) {
+                int i = (w << 6) + b;
+                boolean marked = (bits & (1L << b)) != 0 && i < limit;
+                if (marked && runStart < 0) {
+                    runStart = i;
+                } else if (!marked && runStart >= 0) {
+                    runs.add(runStart);
+                    runs.add(i - runStart);
+                    runStart = -1;
+                }
+            }
+        }
+
+        if (runStart >= 0) {
+            int end = Math.min(limit, words.length() << 6);
+            runs.add(runStart);
+            runs.add(end - runStart);
+        }
+
+        return runs;
+    }
+
+}
@@ -0,0 +1,70 @@
+package dynfs.dynlm;
+
+import java.nio.ByteBuffer;
+
+final class HeapBlockSlab extends BlockSlab {
+
+    //
+    // Constant: Slab Size
+
+    static final int SLAB_BLOCKS = 256;
+
+    //
+    // State: Slab Data
+
+    private final byte[] data;
+
+    //
+    // Construction
+
+    HeapBlockSlab(int numBlocks) {
+        this.data = new byte[Block.sizeOfNBlocks(numBlocks)];
+    }
+
+    //
+    // Implementation: Capacity
+
+    @Override
+    int capacity() {
+        return data.length;
+    }
+
+    //
+    // Implementation: I/O
+
+    @Override
+    void read(int off, byte[] dst, int dstOff, int len) {
+        System.arraycopy(data, off, dst, dstOff, len);
+    }
+
+    @Override
+    void write(int off, byte[] src, int srcOff, int len) {
+        System.arraycopy(src, srcOff, data, off, len);
+    }
+
+    @Override
+    void read(int off, ByteBuffer dst, int len) {
+        dst.put(data, off, len);
+    }
+
+    @Override
+    void write(int off, ByteBuffer src, int len) {
+        src.get(data, off, len);
+    }
+
+    @Override
+    ByteBuffer view(int off, int len) {
+        return ByteBuffer.wrap(data, off, len);
+    }
+
+    @Override
+    byte readByte(int off) {
+        return data[off];
+    }
+
+    @Override
+    void writeByte(int off, byte val) {
+        data[off] = val;
+    }
+
+}
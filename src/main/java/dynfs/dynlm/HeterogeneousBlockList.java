@@ -10,14 +10,14 @@ public class HeterogeneousBlockList<Owner> {
     //
     // State: Nested Blocks
 
-    // private final NavigableMap<Integer, BlockLike> nested;
+    // private final NavigableMap<Long, BlockLike> nested;
 
     //
     // Static Support: Block Size Calculation
 
     @SuppressWarnings("unused")
-    private static int calculateTotalSize(BlockLike<?>[] args) {
-        return Arrays.stream(args).mapToInt(BlockLike::capacity).sum();
+    private static long calculateTotalSize(BlockLike<?>[] args) {
+        return Arrays.stream(args).mapToLong(BlockLike::capacity).sum();
     }
 
 }
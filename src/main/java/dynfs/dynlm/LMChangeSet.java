@@ -0,0 +1,50 @@
+package dynfs.dynlm;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// The files and directories of an LMSpace changed since the last checkpoint. Each node
+// keeps a flag recording its membership, so that repeated changes to a node between
+// checkpoints add it only once.
+final class LMChangeSet {
+
+    //
+    // State: Changed Nodes
+
+    private final Set<LMFile> files = ConcurrentHashMap.newKeySet();
+    private final Set<LMDirectory> directories = ConcurrentHashMap.newKeySet();
+
+    void add(LMFile file) {
+        files.add(file);
+    }
+
+    void add(LMDirectory dir) {
+        directories.add(dir);
+    }
+
+    //
+    // Interface: Draining
+
+    // Each node is removed before it is returned; a node changed again after it is
+    // removed is added again
+    List<LMFile> drainFiles() {
+        return drain(files);
+    }
+
+    List<LMDirectory> drainDirectories() {
+        return drain(directories);
+    }
+
+    private static <T> List<T> drain(Set<T> nodes) {
+        List<T> drained = new ArrayList<>();
+        for (Iterator<T> it = nodes.iterator(); it.hasNext();) {
+            drained.add(it.next());
+            it.remove();
+        }
+        return drained;
+    }
+
+}
@@ -3,26 +3,35 @@ package dynfs.dynlm;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.attribute.FileAttribute;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import org.apache.commons.lang3.NotImplementedException;
 
+import com.google.common.collect.AbstractIterator;
+
 import dynfs.core.DynDirectory;
 import dynfs.core.DynFile;
 import dynfs.core.DynNode;
 import dynfs.core.DynNodeAttribute;
-import dynfs.core.options.CopyOptions;
 
 public class LMDirectory extends DynDirectory<LMSpace, LMDirectory> {
 
     //
     // State: Children
 
-    private final Map<String, DynNode<LMSpace, ?>> children = new HashMap<>();
+    private final Map<String, DynNode<LMSpace, ?>> children;
+
+    // The same map as children if the space keeps directories sorted; otherwise null
+    private final NavigableMap<String, DynNode<LMSpace, ?>> sortedChildren;
 
     //
     // Construction
@@ -30,11 +39,64 @@ public class LMDirectory extends DynDirectory<LMSpace, LMDirectory> {
     // Root Directory
     protected LMDirectory(LMSpace store) {
         super(store);
+        this.children = newChildren(store);
+        this.sortedChildren = sortedView(children);
+        markChanged();
     }
 
     // Non-Root Directory
     protected LMDirectory(LMSpace store, LMDirectory parent, String name) {
         super(store, parent, name);
+        this.children = newChildren(store);
+        this.sortedChildren = sortedView(children);
+        markChanged();
+    }
+
+    private static Map<String, DynNode<LMSpace, ?>> newChildren(LMSpace store) {
+        if (store.hasSortedDirectories())
+            return store.isConcurrent() ? new ConcurrentSkipListMap<>() : new TreeMap<>();
+
+        return store.isConcurrent() ? new ConcurrentHashMap<>() : new HashMap<>();
+    }
+
+    private static NavigableMap<String, DynNode<LMSpace, ?>> sortedView(Map<String, DynNode<LMSpace, ?>> children) {
+        return children instanceof NavigableMap ? (NavigableMap<String, DynNode<LMSpace, ?>>) children : null;
+    }
+
+    //
+    // State: Change Tracking
+
+    // Set while the directory is in the change set of the space
+    private volatile boolean isChanged;
+
+    private void markChanged() {
+        LMChangeSet changes = getStore().getChanges();
+        if (changes != null && !isChanged) {
+            isChanged = true;
+            changes.add(this);
+        }
+    }
+
+    // Discards the changes to the directory, which are included in a new base snapshot
+    void clearChanged() {
+        isChanged = false;
+    }
+
+    //
+    // Package Support: Checkpoint I/O
+
+    // Writes the type and name of every child, terminated by TAG_END
+    void writeCheckpointListing(LMSpaceSnapshot.Output out) throws IOException {
+        // Cleared before the children are listed, so that later changes add the
+        // directory to the change set again
+        isChanged = false;
+
+        for (DynNode<LMSpace, ?> child : children.values()) {
+            out.putByte(child instanceof LMDirectory ? LMSpaceSnapshot.TAG_DIRECTORY
+                    : LMSpaceSnapshot.fileTag((LMFile) child));
+            out.putName(child.getName());
+        }
+        out.putByte(LMSpaceSnapshot.TAG_END);
     }
 
     //
@@ -73,34 +135,140 @@ public class LMDirectory extends DynDirectory<LMSpace, LMDirectory> {
     @Override
     protected DynFile<LMSpace, ?> createFileImpl(String name, FileAttribute<?>... attrs) throws IOException {
         LMFile file = new LMFile(getStore(), this, name);
-        children.put(name, file);
+        putNewChild(name, file);
+        return file;
+    }
+
+    @Override
+    protected DynFile<LMSpace, ?> createSparseFileImpl(String name, FileAttribute<?>... attrs) throws IOException {
+        LMFile file = new LMFile(getStore(), this, name, true);
+        putNewChild(name, file);
         return file;
     }
 
     @Override
     protected DynDirectory<LMSpace, ?> createDirectoryImpl(String name, FileAttribute<?>... attrs) throws IOException {
         LMDirectory file = new LMDirectory(getStore(), this, name);
-        children.put(name, file);
+        putNewChild(name, file);
         return file;
     }
 
+    // Another thread may have created a child of the same name since the caller
+    // checked for its existence
+    private void putNewChild(String name, DynNode<LMSpace, ?> node) throws IOException {
+        getStore().getUpdateLock().lock();
+        try {
+            LMSpaceWriteAheadLog log = getStore().getWriteAheadLog();
+            if (log == null) {
+                putNewChildImpl(name, node);
+            } else {
+                synchronized (log) {
+                    putNewChildImpl(name, node);
+                    log.logCreate(this, name, node);
+                }
+            }
+        } finally {
+            getStore().getUpdateLock().unlock();
+        }
+
+        markChanged();
+    }
+
+    private void putNewChildImpl(String name, DynNode<LMSpace, ?> node) throws IOException {
+        if (children.putIfAbsent(name, node) != null)
+            throw new FileAlreadyExistsException(node.getRouteString());
+    }
+
     @Override
     protected void deleteChildImpl(String name, DynNode<LMSpace, ?> node) throws IOException {
+        getStore().getUpdateLock().lock();
+        try {
+            LMSpaceWriteAheadLog log = getStore().getWriteAheadLog();
+            if (log == null) {
+                removeChild(name, node);
+            } else {
+                synchronized (log) {
+                    removeChild(name, node);
+                    log.logDelete(this, name);
+                }
+            }
+        } finally {
+            getStore().getUpdateLock().unlock();
+        }
+
+        markChanged();
+    }
+
+    private void removeChild(String name, DynNode<LMSpace, ?> node) throws IOException {
         if (!children.remove(name, node))
             throw new FileNotFoundException(node.getRouteString());
     }
 
     @Override
-    protected void copyImpl(DynNode<LMSpace, ?> srcNode, String dstName, CopyOptions copyOptions, boolean deleteSrc)
+    protected boolean isMoveSupported() {
+        return true;
+    }
+
+    @Override
+    protected void moveImpl(DynNode<LMSpace, ?> srcNode, String dstName) throws IOException {
+        LMDirectory srcParent = (LMDirectory) srcNode.getParent();
+        String srcName = srcNode.getName();
+
+        getStore().getUpdateLock().lock();
+        try {
+            LMSpaceWriteAheadLog log = getStore().getWriteAheadLog();
+            if (log == null) {
+                relinkChild(srcParent, srcName, srcNode, dstName);
+            } else {
+                synchronized (log) {
+                    relinkChild(srcParent, srcName, srcNode, dstName);
+                    log.logMove(srcParent, srcName, this, dstName);
+                }
+            }
+        } finally {
+            getStore().getUpdateLock().unlock();
+        }
+
+        srcParent.markChanged();
+        markChanged();
+
+        // Checkpoints identify nodes by route, so the moved subtree is checkpointed anew
+        if (getStore().getChanges() != null) {
+            markReset(srcNode);
+        }
+    }
+
+    private void relinkChild(LMDirectory srcParent, String srcName, DynNode<LMSpace, ?> node, String dstName)
             throws IOException {
-        // TODO: IntraSystem Copy - Implementation
-        throw new NotImplementedException("Method stub");
+        putNewChildImpl(dstName, node);
+        if (!srcParent.children.remove(srcName, node)) {
+            children.remove(dstName, node);
+            throw new FileNotFoundException(node.getRouteString());
+        }
+
+        relinked(node, dstName);
     }
 
+    private static void markReset(DynNode<LMSpace, ?> node) {
+        if (node instanceof LMDirectory) {
+            ((LMDirectory) node).markChanged();
+            for (DynNode<LMSpace, ?> child : (LMDirectory) node) {
+                markReset(child);
+            }
+        } else if (node instanceof LMFile) {
+            ((LMFile) node).markReset();
+        }
+    }
+
+    // Copies within the space clone the source file, sharing its blocks
     @Override
     protected void copySimpleImpl(DynNode<LMSpace, ?> srcNode, String dstName) throws IOException {
-        // TODO: IntraSystem Copy - Test default implementation.
-        // No-op.
+        if (!(srcNode instanceof LMFile))
+            throw new UnsupportedOperationException("Copies of " + srcNode.getClass().getSimpleName()
+                    + " nodes are not supported: " + srcNode.getRouteString());
+
+        LMFile file = (LMFile) createFileImpl(dstName);
+        file.cloneFrom((LMFile) srcNode);
     }
 
     //
@@ -111,6 +279,47 @@ public class LMDirectory extends DynDirectory<LMSpace, LMDirectory> {
         return children.values().iterator();
     }
 
+    @Override
+    public boolean isOrdered() {
+        return sortedChildren != null;
+    }
+
+    @Override
+    public Iterator<DynNode<LMSpace, ?>> iterator(String namePrefix) {
+        if (sortedChildren == null)
+            return super.iterator(namePrefix);
+
+        // The children beginning with namePrefix are contiguous, and begin at namePrefix
+        Iterator<Map.Entry<String, DynNode<LMSpace, ?>>> tail = sortedChildren.tailMap(namePrefix, true).entrySet()
+                .iterator();
+        return new AbstractIterator<DynNode<LMSpace, ?>>() {
+            @Override
+            protected DynNode<LMSpace, ?> computeNext() {
+                if (tail.hasNext()) {
+                    Map.Entry<String, DynNode<LMSpace, ?>> entry = tail.next();
+                    if (entry.getKey().startsWith(namePrefix))
+                        return entry.getValue();
+                }
+                return endOfData();
+            }
+        };
+    }
+
+    @Override
+    public Iterator<DynNode<LMSpace, ?>> iterator(String fromName, String toName) {
+        if (sortedChildren == null)
+            return super.iterator(fromName, toName);
+
+        NavigableMap<String, DynNode<LMSpace, ?>> range = sortedChildren;
+        if (fromName != null) {
+            range = range.tailMap(fromName, true);
+        }
+        if (toName != null) {
+            range = range.headMap(toName, false);
+        }
+        return range.values().iterator();
+    }
+
     //
     // Implementation: Child Resolution
 
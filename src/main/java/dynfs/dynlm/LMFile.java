@@ -1,11 +1,19 @@
 package dynfs.dynlm;
 
 import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.commons.lang3.NotImplementedException;
 
+import gnu.trove.list.array.TIntArrayList;
+
 import dynfs.core.DynFile;
 import dynfs.core.DynFileIO;
 import dynfs.core.DynNode;
@@ -13,15 +21,101 @@ import dynfs.core.DynNodeAttribute;
 
 public class LMFile extends DynFile<LMSpace, LMFile> {
 
+    //
+    // Constant: Transfer Chunk Size
+
+    private static final int TRANSFER_CHUNK_SIZE = 1 << 24;
+
     //
     // State: Data
 
-    private BlockWeakReferenceList<LMFile> data;
+    private BlockTable<LMFile> data;
+
+    // Set if the file was created sparse; every file is extended with holes, but the
+    // gap before a write beyond the end of a sparse file is left as holes
+    private final boolean sparse;
+
+    //
+    // State: I/O Interface
+
+    private final DynFileIO io;
+
+    //
+    // State: Locks
+
+    // In concurrent mode, I/O within the file holds the read lock and resizing
+    // holds the write lock; otherwise both are no-ops
+    private final Lock readLock;
+    private final Lock writeLock;
+
+    // The update lock of the space, held by updates to the file outside of its own lock
+    private final Lock updateLock;
+
+    //
+    // State: Change Tracking
+
+    // Null unless the space tracks changes for checkpoints
+    private final DirtyBitmap dirtyBlocks;
+
+    // Null unless the space compresses cold blocks; the blocks read or written since
+    // the last pass of LMSpaceColdTier
+    private final DirtyBitmap touchedBlocks;
+
+    // Set while the file is in the change set of the space
+    private volatile boolean isChanged;
+
+    // Set if the whole content of the file must be checkpointed: the file was created
+    // since the last checkpoint, or has been mapped, so that writes escape tracking
+    private volatile boolean isReset;
+
+    // Set once the file has been mapped; as writes through mapped buffers escape both
+    // change tracking and copy-on-write, the blocks of the file are no longer shared
+    private volatile boolean isMapped;
+
+    // NOTE: The blocks must be marked before the file is added to the change set
+    private void markWritten(long off, long len) {
+        if (dirtyBlocks == null || len == 0)
+            return;
+
+        dirtyBlocks.mark((int) (off / Block.BLOCK_SIZE), Block.numBlocks(off + len));
+        markChanged();
+    }
+
+    private void markChanged() {
+        if (dirtyBlocks != null && !isChanged) {
+            isChanged = true;
+            getStore().getChanges().add(this);
+        }
+    }
+
+    // Marks the whole content of the file for the next checkpoint
+    void markReset() {
+        if (dirtyBlocks != null) {
+            isReset = true;
+            markChanged();
+        }
+    }
+
+    private void markTouched(long off, long len) {
+        if (touchedBlocks != null && len != 0) {
+            touchedBlocks.mark((int) (off / Block.BLOCK_SIZE), Block.numBlocks(off + len));
+        }
+    }
+
+    // NOTE: Requires the write lock
+    private void ensureTrackingCapacity(int numBlocks) {
+        if (dirtyBlocks != null) {
+            dirtyBlocks.ensureCapacity(numBlocks);
+        }
+        if (touchedBlocks != null) {
+            touchedBlocks.ensureCapacity(numBlocks);
+        }
+    }
 
     //
     // State: Size
 
-    private long size;
+    private volatile long size;
 
     @Override
     public long readSize() {
@@ -30,24 +124,123 @@ public class LMFile extends DynFile<LMSpace, LMFile> {
 
     @Override
     protected void writeSize(long size) throws IOException {
-        int minCapacity = BlockLike.getIntValue(size);
-        if (size > this.size) {
-            this.data.ensureCapacity(minCapacity);
-        } else {
-            this.data.trimCapacity(minCapacity);
+        updateLock.lock();
+        writeLock.lock();
+        try {
+            if (size > this.size) {
+                // The bytes of the former last block beyond the former end of the file
+                // may hold stale content, unless the block is a hole
+                long tailEnd = Math.min(size, Block.sizeOfNBlocks((long) Block.numBlocks(this.size)));
+                if (tailEnd > this.size && !data.isHole(this.size)) {
+                    data.prepareWrite(this.size, tailEnd - this.size);
+                    data.uncheckedZero(this.size, tailEnd - this.size);
+                    markWritten(this.size, tailEnd - this.size);
+                }
+                this.data.ensureCapacity(size);
+            } else {
+                this.data.trimCapacity(size);
+            }
+
+            this.size = size;
+
+            ensureTrackingCapacity(Block.numBlocks(size));
+            markChanged();
+
+            LMSpaceWriteAheadLog log = getStore().getWriteAheadLog();
+            if (log != null) {
+                log.logSize(this, size);
+            }
+        } finally {
+            writeLock.unlock();
+            updateLock.unlock();
+        }
+    }
+
+    @Override
+    protected long extendSize(long minSize) throws IOException {
+        updateLock.lock();
+        writeLock.lock();
+        try {
+            long size = this.size;
+            if (minSize > size) {
+                writeSize(minSize);
+            }
+            return size;
+        } finally {
+            writeLock.unlock();
+            updateLock.unlock();
         }
+    }
 
-        this.size = size;
+    @Override
+    protected long appendSize(long len) throws IOException {
+        updateLock.lock();
+        writeLock.lock();
+        try {
+            long size = this.size;
+            writeSize(size + len);
+            return size;
+        } finally {
+            writeLock.unlock();
+            updateLock.unlock();
+        }
+    }
+
+    // Writes hold the read lock, unless the bytes written must first be prepared:
+    // giving holes blocks of their own and replacing shared blocks change the block
+    // table, and free blocks that readers holding the read lock may be reading
+    private Lock lockForWrite(long off, long len) {
+        readLock.lock();
+        if (!data.needsPrepareWrite(off, len))
+            return readLock;
+
+        readLock.unlock();
+        writeLock.lock();
+        return writeLock;
+    }
+
+    // Callers check bounds before I/O, but in concurrent mode the file may have
+    // been truncated since
+    private void checkNotTruncated(long off, long len) throws IOException {
+        if (off + len > size)
+            throw new IOException("The file was truncated during I/O: " + getRouteString());
     }
 
     //
     // Construction
 
     protected LMFile(LMSpace store, LMDirectory parent, String name) throws IOException {
+        this(store, parent, name, false);
+    }
+
+    protected LMFile(LMSpace store, LMDirectory parent, String name, boolean sparse) throws IOException {
         super(store, parent, name);
 
+        this.sparse = sparse;
+
+        if (store.isConcurrent()) {
+            ReadWriteLock lock = new ReentrantReadWriteLock();
+            readLock = lock.readLock();
+            writeLock = lock.writeLock();
+        } else {
+            readLock = NullLock.INSTANCE;
+            writeLock = NullLock.INSTANCE;
+        }
+        updateLock = store.getUpdateLock();
+
         size = 0;
-        data = new BlockWeakReferenceList<>(store.getMemory(), this);
+        data = new BlockTable<>(store.getMemory(), this);
+        io = newIOInterface();
+
+        if (store.getChanges() != null) {
+            dirtyBlocks = new DirtyBitmap();
+            isReset = true;
+            markChanged();
+        } else {
+            dirtyBlocks = null;
+        }
+
+        touchedBlocks = store.getMemory().getCompressedArena() != null ? new DirtyBitmap() : null;
     }
 
     //
@@ -63,29 +256,574 @@ public class LMFile extends DynFile<LMSpace, LMFile> {
 
     @Override
     protected DynFileIO getIOInterface() throws IOException {
+        return io;
+    }
+
+    private DynFileIO newIOInterface() {
         return new DynFileIO(this) {
             @Override
-            protected void uncheckedWriteByte(long off, byte val) {
-                data.uncheckedWriteByte(off, val);
+            protected void uncheckedWriteByte(long off, byte val) throws IOException {
+                updateLock.lock();
+                Lock lock = lockForWrite(off, 1);
+                try {
+                    checkNotTruncated(off, 1);
+                    markTouched(off, 1);
+                    data.prepareWrite(off, 1);
+                    data.uncheckedWriteByte(off, val);
+                    markWritten(off, 1);
+
+                    LMSpaceWriteAheadLog log = getStore().getWriteAheadLog();
+                    if (log != null) {
+                        log.logWrite(LMFile.this, off, ByteBuffer.wrap(new byte[] { val }));
+                    }
+                } finally {
+                    lock.unlock();
+                    updateLock.unlock();
+                }
+            }
+
+            @Override
+            protected void uncheckedWrite(long off, byte[] src, int srcOff, int len) throws IOException {
+                updateLock.lock();
+                Lock lock = lockForWrite(off, len);
+                try {
+                    checkNotTruncated(off, len);
+                    markTouched(off, len);
+                    data.prepareWrite(off, len);
+                    data.uncheckedWrite(off, src, srcOff, len);
+                    markWritten(off, len);
+
+                    LMSpaceWriteAheadLog log = getStore().getWriteAheadLog();
+                    if (log != null) {
+                        log.logWrite(LMFile.this, off, ByteBuffer.wrap(src, srcOff, len));
+                    }
+                } finally {
+                    lock.unlock();
+                    updateLock.unlock();
+                }
+                dedupWritten(off, len);
+            }
+
+            @Override
+            protected byte uncheckedReadByte(long off) throws IOException {
+                readLock.lock();
+                try {
+                    checkNotTruncated(off, 1);
+                    markTouched(off, 1);
+                    return data.uncheckedReadByte(off);
+                } finally {
+                    readLock.unlock();
+                }
+            }
+
+            @Override
+            protected void uncheckedRead(long off, byte[] dst, int dstOff, int len) throws IOException {
+                readLock.lock();
+                try {
+                    checkNotTruncated(off, len);
+                    markTouched(off, len);
+                    data.uncheckedRead(off, dst, dstOff, len);
+                } finally {
+                    readLock.unlock();
+                }
+            }
+
+            @Override
+            protected void uncheckedWrite(long off, ByteBuffer src) throws IOException {
+                int len = src.remaining();
+                updateLock.lock();
+                Lock lock = lockForWrite(off, len);
+                try {
+                    checkNotTruncated(off, len);
+                    markTouched(off, len);
+
+                    LMSpaceWriteAheadLog log = getStore().getWriteAheadLog();
+                    ByteBuffer logged = log != null ? src.duplicate() : null;
+
+                    data.prepareWrite(off, len);
+                    data.uncheckedWrite(off, src);
+                    markWritten(off, len);
+
+                    if (log != null) {
+                        log.logWrite(LMFile.this, off, logged);
+                    }
+                } finally {
+                    lock.unlock();
+                    updateLock.unlock();
+                }
+                dedupWritten(off, len);
             }
 
             @Override
-            protected void uncheckedWrite(long off, byte[] src, int srcOff, int len) {
-                data.uncheckedWrite(off, src, srcOff, len);
+            protected void uncheckedRead(long off, ByteBuffer dst) throws IOException {
+                readLock.lock();
+                try {
+                    checkNotTruncated(off, dst.remaining());
+                    markTouched(off, dst.remaining());
+                    data.uncheckedRead(off, dst);
+                } finally {
+                    readLock.unlock();
+                }
             }
 
             @Override
-            protected byte uncheckedReadByte(long off) {
-                return data.uncheckedReadByte(off);
+            protected void uncheckedTransferTo(long off, long len, DynFileIO target, long targetOff)
+                    throws IOException {
+                // A write to the file may need its write lock, which cannot be taken while
+                // the read lock is held; a transfer within the file is staged through a
+                // buffer instead
+                if (target == this) {
+                    super.uncheckedTransferTo(off, len, target, targetOff);
+                    return;
+                }
+
+                // The writes to target take the update lock again, which must not be
+                // awaited while the read lock is held; it is taken first, and held for the
+                // whole transfer
+                updateLock.lock();
+                readLock.lock();
+                try {
+                    checkNotTruncated(off, len);
+                    markTouched(off, len);
+
+                    // Each run of source blocks is written straight from its storage
+                    for (long done = 0; done < len;) {
+                        int n = (int) Math.min(len - done, TRANSFER_CHUNK_SIZE);
+                        for (ByteBuffer run : data.uncheckedViews(off + done, n)) {
+                            int runLen = run.remaining();
+                            target.write(targetOff + done, run);
+                            done += runLen;
+                        }
+                    }
+                } finally {
+                    readLock.unlock();
+                    updateLock.unlock();
+                }
             }
 
             @Override
-            protected void uncheckedRead(long off, byte[] dst, int dstOff, int len) {
-                data.uncheckedRead(off, dst, dstOff, len);
+            protected ByteBuffer uncheckedMap(long off, int len, boolean readOnly) throws IOException {
+                Lock lock = lockForWrite(off, len);
+                try {
+                    checkNotTruncated(off, len);
+                    markTouched(off, len);
+                    return mapData(off, len, readOnly);
+                } finally {
+                    lock.unlock();
+                }
             }
         };
     }
 
+    //
+    // Support: Mapping
+
+    // Only a region held in a single run of blocks within one direct slab can be
+    // presented as one buffer. The blocks are pinned while the buffer is reachable, so
+    // that blocks freed by truncation or deletion are not given to another file; only
+    // the buffer returned pins them, and so it is made read-only here rather than by
+    // callers.
+    private ByteBuffer mapData(long off, int len, boolean readOnly) throws IOException {
+        if (len == 0)
+            return readOnly ? ByteBuffer.allocateDirect(0).asReadOnlyBuffer() : ByteBuffer.allocateDirect(0);
+
+        // Writes through the buffer must not reach holes, or other files sharing the blocks
+        data.prepareWrite(off, len);
+
+        List<ByteBuffer> views = data.uncheckedViews(off, len);
+        if (!views.get(0).isDirect())
+            throw new UnsupportedOperationException("Mapping requires an LMSpace with StorageType.DIRECT");
+        if (views.size() != 1)
+            throw new IOException("The region is not held in contiguous storage");
+
+        isMapped = true;
+        markChanged();
+
+        ByteBuffer mapping = readOnly ? views.get(0).asReadOnlyBuffer().slice() : views.get(0).slice();
+        data.pin(off, len, mapping);
+        return mapping;
+    }
+
+    //
+    // Support: Deduplication
+
+    // Shares the blocks wholly within the len bytes written at off with identical
+    // blocks of other files. The write lock keeps the blocks from being written
+    // meanwhile; the blocks of a mapped file may be written through its buffers, and
+    // are never shared.
+    private void dedupWritten(long off, long len) throws IOException {
+        if (len < Block.BLOCK_SIZE || !getStore().getMemory().isDeduplicating())
+            return;
+
+        writeLock.lock();
+        try {
+            long end = Math.min(off + len, size);
+            if (end > off && !isMapped) {
+                data.dedup(off, end - off);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    //
+    // Package Support: Snapshot I/O
+
+    // Writes the size and content of the file, holding its size fixed meanwhile
+    void writeSnapshotContent(LMSpaceSnapshot.Output out) throws IOException {
+        readLock.lock();
+        try {
+            long size = this.size;
+            out.putLong(size);
+            writeRuns(out, new TIntArrayList(new int[] { 0, Block.numBlocks(size) }), size, false);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    // Restores the content of a file of size bytes directly into the blocks of the
+    // file; holes are left as holes
+    void readSnapshotContent(LMSpaceSnapshot.Input in, long size) throws IOException {
+        writeSize(size);
+
+        writeLock.lock();
+        try {
+            readRuns(in, size);
+        } finally {
+            writeLock.unlock();
+        }
+        dedupWritten(0, size);
+    }
+
+    // Writes the blocks of runs, each a pair of (first block, number of blocks), below
+    // size: each run of blocks other than holes as its first block, its number of
+    // blocks and its content, and, if writeHoles is set, each run of holes as its first
+    // block and its number of blocks negated; terminated by a first block of -1
+    private void writeRuns(LMSpaceSnapshot.Output out, TIntArrayList runs, long size, boolean writeHoles)
+            throws IOException {
+        int numBlocks = Block.numBlocks(size);
+        for (int r = 0; r < runs.size(); r += 2) {
+            int first = runs.get(r);
+            int end = Math.min(numBlocks, first + runs.get(r + 1));
+
+            // Holes are the gaps between the runs of data
+            int next = first;
+            TIntArrayList dataRuns = data.dataRuns(first, end);
+            for (int d = 0; d < dataRuns.size(); d += 2) {
+                int dataFirst = dataRuns.get(d);
+                int dataEnd = dataFirst + dataRuns.get(d + 1);
+                if (writeHoles && dataFirst > next) {
+                    out.putInt(next);
+                    out.putInt(next - dataFirst);
+                }
+
+                out.putInt(dataFirst);
+                out.putInt(dataEnd - dataFirst);
+                long begin = Block.sizeOfNBlocks((long) dataFirst);
+                long stop = Math.min(size, Block.sizeOfNBlocks((long) dataEnd));
+                for (long done = begin; done < stop;) {
+                    int n = (int) Math.min(stop - done, TRANSFER_CHUNK_SIZE);
+                    out.putContent(data.uncheckedViews(done, n));
+                    done += n;
+                }
+                next = dataEnd;
+            }
+            if (writeHoles && end > next) {
+                out.putInt(next);
+                out.putInt(next - end);
+            }
+        }
+        out.putInt(-1);
+    }
+
+    // Applies runs written by writeRuns to the file, which is already of size bytes;
+    // runs of holes free the blocks they cover
+    // NOTE: The caller must hold the write lock
+    private void readRuns(LMSpaceSnapshot.Input in, long size) throws IOException {
+        int numBlocks = Block.numBlocks(size);
+        for (int first = in.getInt(); first >= 0; first = in.getInt()) {
+            int count = in.getInt();
+            if (count < 0) {
+                int end = (int) Math.min(numBlocks, (long) first - count);
+                if (first < end) {
+                    data.punchBlocks(first, end);
+                }
+                continue;
+            }
+
+            long begin = Block.sizeOfNBlocks((long) first);
+            long end = Math.min(size, Block.sizeOfNBlocks((long) first + count));
+            if (begin < end) {
+                data.prepareWrite(begin, end - begin);
+            }
+            for (long done = begin; done < end;) {
+                int n = (int) Math.min(end - done, TRANSFER_CHUNK_SIZE);
+                in.getContent(data.uncheckedViews(done, n));
+                done += n;
+            }
+        }
+    }
+
+    //
+    // Package Support: Backing File I/O
+
+    // Writes the size of the file and the indices of its blocks
+    void writeBlockIndices(LMSpaceSnapshot.Output out) throws IOException {
+        readLock.lock();
+        try {
+            out.putLong(size);
+            int[] indices = data.getBlockIndexArray();
+            out.putInt(indices.length);
+            for (int index : indices) {
+                out.putInt(index);
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    // Takes the blocks at indices, as written by writeBlockIndices, as the content of
+    // the file
+    void restoreBlocks(long size, int[] indices) throws IOException {
+        if (size < 0 || Block.numBlocks(size) > indices.length)
+            throw new StreamCorruptedException("Too few blocks for the size of the file: " + getRouteString());
+
+        writeLock.lock();
+        try {
+            data.restore(indices);
+            this.size = size;
+
+            ensureTrackingCapacity(indices.length);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    //
+    // Package Support: Cloning
+
+    // Replaces the content of the file with that of src, sharing the blocks of src
+    // until either file writes to them; the content of a mapped file is copied
+    void cloneFrom(LMFile src) throws IOException {
+        updateLock.lock();
+        writeLock.lock();
+        try {
+            src.writeLock.lock();
+            try {
+                long size = src.size;
+
+                data.trimCapacity(0);
+                if (src.isMapped) {
+                    data.ensureCapacity(size);
+                    data.prepareWrite(0, size);
+                    for (long done = 0; done < size;) {
+                        int n = (int) Math.min(size - done, TRANSFER_CHUNK_SIZE);
+                        for (ByteBuffer run : src.data.uncheckedViews(done, n)) {
+                            int runLen = run.remaining();
+                            data.uncheckedWrite(done, run);
+                            done += runLen;
+                        }
+                    }
+                } else {
+                    data.cloneFrom(src.data);
+                }
+                this.size = size;
+
+                ensureTrackingCapacity(Block.numBlocks(size));
+                if (dirtyBlocks != null) {
+                    isReset = true;
+                    markChanged();
+                }
+
+                LMSpaceWriteAheadLog log = getStore().getWriteAheadLog();
+                if (log != null && !log.logClone(this, src)) {
+                    logContent(log);
+                }
+            } finally {
+                src.writeLock.unlock();
+            }
+        } finally {
+            writeLock.unlock();
+            updateLock.unlock();
+        }
+    }
+
+    // The file is logged as emptied and extended with holes, and then the blocks other
+    // than holes are written
+    private void logContent(LMSpaceWriteAheadLog log) throws IOException {
+        log.logSize(this, 0);
+        log.logSize(this, size);
+        TIntArrayList runs = data.dataRuns(0, Block.numBlocks(size));
+        for (int r = 0; r < runs.size(); r += 2) {
+            long begin = Block.sizeOfNBlocks((long) runs.get(r));
+            long end = Math.min(size, Block.sizeOfNBlocks((long) runs.get(r) + runs.get(r + 1)));
+            for (long done = begin; done < end;) {
+                int n = (int) Math.min(end - done, TRANSFER_CHUNK_SIZE);
+                for (ByteBuffer run : data.uncheckedViews(done, n)) {
+                    int runLen = run.remaining();
+                    log.logWrite(this, done, run);
+                    done += runLen;
+                }
+            }
+        }
+    }
+
+    //
+    // Package Support: Checkpoint I/O
+
+    // Discards the changes to the file, which are included in a new base snapshot
+    void clearChanged() {
+        readLock.lock();
+        try {
+            isChanged = false;
+            isReset = false;
+            dirtyBlocks.drainRuns(0);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    // Writes the changes to the file since the last checkpoint: whether the file is
+    // reset, its size, and its changed blocks, as runs written by writeRuns. A reset
+    // file is restored from holes, so only its blocks other than holes are written.
+    void writeCheckpointContent(LMSpaceSnapshot.Output out) throws IOException {
+        readLock.lock();
+        try {
+            // Cleared before the blocks are drained, so that later writes add the file
+            // to the change set again
+            isChanged = false;
+            boolean reset = isReset || isMapped;
+            isReset = false;
+
+            long size = this.size;
+            int numBlocks = Block.numBlocks(size);
+
+            TIntArrayList runs = dirtyBlocks.drainRuns(numBlocks);
+            if (reset) {
+                runs = new TIntArrayList(new int[] { 0, numBlocks });
+            }
+
+            out.putByte((byte) (reset ? 1 : 0));
+            out.putLong(size);
+            writeRuns(out, runs, size, !reset);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    // Applies changes written by writeCheckpointContent
+    void readCheckpointContent(LMSpaceSnapshot.Input in) throws IOException {
+        boolean reset = in.getByte() != 0;
+        long size = in.getLong();
+
+        if (reset) {
+            writeSize(0);
+        }
+        writeSize(size);
+
+        writeLock.lock();
+        try {
+            readRuns(in, size);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    //
+    // Package Support: Write-Ahead Log Replay
+
+    void replayWrite(long off, ByteBuffer src) throws IOException {
+        int len = src.remaining();
+        writeLock.lock();
+        try {
+            checkNotTruncated(off, len);
+            data.prepareWrite(off, len);
+            data.uncheckedWrite(off, src);
+            markWritten(off, len);
+        } finally {
+            writeLock.unlock();
+        }
+        dedupWritten(off, len);
+    }
+
+    //
+    // Package Support: Compression
+
+    // Compresses the blocks of the file left untouched since the last pass, returning
+    // the number compressed; the blocks of a mapped file may be written through its
+    // buffers, and are never compressed
+    int compressColdBlocks(BlockCodec codec) {
+        writeLock.lock();
+        try {
+            TIntArrayList touched = touchedBlocks.drainRuns(Block.numBlocks(size));
+            return isMapped ? 0 : data.compressUntouched(Block.numBlocks(size), touched, codec);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    //
+    // Implementation: Sparse Files
+
+    @Override
+    protected boolean isSparse() {
+        return sparse;
+    }
+
+    // Zeroes the partial blocks at either edge of the range, and frees the blocks
+    // wholly within it; a range reaching the end of the file frees its last block too
+    @Override
+    protected void punchHoleImpl(long off, long len) throws IOException {
+        updateLock.lock();
+        writeLock.lock();
+        try {
+            long end = Math.min(off + len, size);
+            if (end <= off)
+                return;
+
+            int first = Block.numBlocks(off);
+            int last = end == size ? Block.numBlocks(end) : (int) (end / Block.BLOCK_SIZE);
+            if (first >= last) {
+                data.prepareWrite(off, end - off);
+                data.uncheckedZero(off, end - off);
+            } else {
+                long head = Block.sizeOfNBlocks((long) first);
+                long tail = Block.sizeOfNBlocks((long) last);
+                if (head > off) {
+                    data.prepareWrite(off, head - off);
+                    data.uncheckedZero(off, head - off);
+                }
+                if (end > tail) {
+                    data.prepareWrite(tail, end - tail);
+                    data.uncheckedZero(tail, end - tail);
+                }
+                data.punchBlocks(first, last);
+            }
+            markWritten(off, end - off);
+
+            LMSpaceWriteAheadLog log = getStore().getWriteAheadLog();
+            if (log != null) {
+                log.logPunch(this, off, end - off);
+            }
+        } finally {
+            writeLock.unlock();
+            updateLock.unlock();
+        }
+    }
+
+    //
+    // Implementation: Durability
+
+    // Updates to the structure of the space share the log with updates to content, so
+    // metaData makes no difference
+    @Override
+    protected void force(boolean metaData) throws IOException {
+        LMSpaceWriteAheadLog log = getStore().getWriteAheadLog();
+        if (log != null) {
+            log.sync();
+        }
+    }
+
     //
     // Implementation: I/O, Equality Check
 
@@ -1,11 +1,16 @@
 package dynfs.dynlm;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import dynfs.core.DynSpace;
 import dynfs.core.DynSpaceType;
 import dynfs.core.DynSpaceType.Locality;
 import dynfs.core.DynSpaceType.Storage;
+import dynfs.dynlm.BlockMemory.StorageType;
 
 public final class LMSpace extends DynSpace<LMSpace> {
 
@@ -13,10 +18,11 @@ public final class LMSpace extends DynSpace<LMSpace> {
     // Constant: DynSpace Type
 
     private static final DynSpaceType DS_TYPE = new DynSpaceType(Locality.LOCAL, Storage.MEMORY);
+    private static final DynSpaceType DS_TYPE_MAPPED = new DynSpaceType(Locality.LOCAL, Storage.FILE_SYSTEM);
 
     @Override
     public DynSpaceType getType() {
-        return DS_TYPE;
+        return backing == null ? DS_TYPE : DS_TYPE_MAPPED;
     }
 
     //
@@ -39,6 +45,72 @@ public final class LMSpace extends DynSpace<LMSpace> {
         return isReadOnly;
     }
 
+    //
+    // Configuration: Concurrency
+
+    private final boolean isConcurrent;
+
+    boolean isConcurrent() {
+        return isConcurrent;
+    }
+
+    //
+    // Configuration: Directory Index
+
+    private final boolean hasSortedDirectories;
+
+    boolean hasSortedDirectories() {
+        return hasSortedDirectories;
+    }
+
+    //
+    // State: Change Tracking
+
+    // Null unless the space tracks changes for checkpoints
+    private final LMChangeSet changes;
+
+    LMChangeSet getChanges() {
+        return changes;
+    }
+
+    //
+    // State: Write-Ahead Log
+
+    // Null unless a write-ahead log is attached
+    private volatile LMSpaceWriteAheadLog writeAheadLog;
+
+    public LMSpaceWriteAheadLog getWriteAheadLog() {
+        return writeAheadLog;
+    }
+
+    void setWriteAheadLog(LMSpaceWriteAheadLog writeAheadLog) {
+        this.writeAheadLog = writeAheadLog;
+    }
+
+    //
+    // State: Update Locks
+
+    // In concurrent mode, each update to the space holds the update lock from before it
+    // is applied until after it is logged, and the write-ahead log saves its base
+    // snapshot holding the snapshot lock, so that no update straddles the snapshot;
+    // otherwise both are no-ops. The update lock is taken before the lock of any file.
+    private final Lock updateLock;
+    private final Lock snapshotLock;
+
+    Lock getUpdateLock() {
+        return updateLock;
+    }
+
+    Lock getSnapshotLock() {
+        return snapshotLock;
+    }
+
+    //
+    // State: Backing File
+
+    // Null unless the storage type is MAPPED
+    private final LMSpaceBackingFile backing;
+
     //
     // State: Memory
 
@@ -63,23 +135,103 @@ public final class LMSpace extends DynSpace<LMSpace> {
     //
     // Construction
 
-    public LMSpace(String name, int totalSpace) throws IOException {
+    public LMSpace(String name, long totalSpace) throws IOException {
+        this(name, totalSpace, LMSpaceOptions.newInstance());
+    }
+
+    // With StorageType.MAPPED, the blocks are held in a temporary file; spaces that
+    // persist across restarts are made by LMSpaceBackingFile
+    public LMSpace(String name, long totalSpace, LMSpaceOptions options) throws IOException {
+        this(name, totalSpace, options,
+                options.storageType == StorageType.MAPPED ? LMSpaceBackingFile.createTemporary() : null);
+    }
+
+    LMSpace(String name, long totalSpace, LMSpaceOptions options, LMSpaceBackingFile backing) throws IOException {
         super(totalSpace);
 
         this.name = name;
-
-        this.memory = new BlockMemory<>(this::setAllocatedSpace, totalSpace);
+        this.isConcurrent = options.concurrent;
+        if (isConcurrent) {
+            ReadWriteLock lock = new ReentrantReadWriteLock();
+            this.updateLock = lock.readLock();
+            this.snapshotLock = lock.writeLock();
+        } else {
+            this.updateLock = NullLock.INSTANCE;
+            this.snapshotLock = NullLock.INSTANCE;
+        }
+        this.hasSortedDirectories = options.sortedDirectories;
+        this.changes = options.trackChanges ? new LMChangeSet() : null;
+
+        // Concurrently allocated space is read back from the memory on demand
+        this.backing = backing;
+        this.memory = new BlockMemory<>(isConcurrent ? s -> {} : this::setAllocatedSpace, totalSpace, options,
+                backing == null ? null : backing.channel(), LMSpaceBackingFile.DATA_OFFSET);
         this.root = new LMDirectory(this);
     }
 
-    // FUTURE: Loading / Saving - Load from file, save to file
+    //
+    // Implementation: Allocated Space
+
+    @Override
+    protected boolean isAllocatedSpaceSizeStale() {
+        return isConcurrent;
+    }
+
+    @Override
+    protected void refreshAllocatedSpaceSize() {
+        setAllocatedSpace(memory.getAllocatedSpace());
+    }
+
+    //
+    // Implementation: Deduplication Ratio
+
+    @Override
+    public double getDedupRatio() {
+        return memory.getDedupRatio();
+    }
+
+    //
+    // Interface: Compressed Space
+
+    // The bytes held by the compressed forms of cold blocks, outside the blocks of the
+    // space; see LMSpaceColdTier
+    public long getCompressedSpace() {
+        return memory.getCompressedSpace();
+    }
+
+    //
+    // Interface: Snapshots
+
+    // Restored by LMSpaceSnapshot.load or LMSpaceSnapshot.loader
+    public void saveSnapshot(Path file) throws IOException {
+        LMSpaceSnapshot.save(this, file);
+    }
+
+    //
+    // Interface: Write-Ahead Log
+
+    // Saves a base snapshot to snapshotFile and logs every later update to logFile;
+    // recovered by LMSpaceWriteAheadLog.recover or LMSpaceWriteAheadLog.loader
+    public LMSpaceWriteAheadLog attachWriteAheadLog(Path snapshotFile, Path logFile) throws IOException {
+        return LMSpaceWriteAheadLog.attach(this, snapshotFile, logFile);
+    }
 
     //
     // Implementation: Close
 
     @Override
     public void closeImpl() throws IOException {
-        memory.close();
+        try {
+            LMSpaceWriteAheadLog writeAheadLog = this.writeAheadLog;
+            if (writeAheadLog != null) {
+                writeAheadLog.close();
+            }
+            if (backing != null) {
+                backing.close(this);
+            }
+        } finally {
+            memory.close();
+        }
         root = null;
     }
 
@@ -0,0 +1,285 @@
+package dynfs.dynlm;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import dynfs.core.DynNode;
+import dynfs.core.store.DynSpaceLoader;
+import dynfs.dynlm.BlockMemory.StorageType;
+
+// The file holding the blocks of an LMSpace with StorageType.MAPPED. The blocks are
+// mapped into memory in large segments and paged in and out by the operating system,
+// so that a space may be larger than the Java heap or physical memory.
+//
+// A space made by create persists in its file: close writes the directory tree, with
+// the blocks of every file, after the blocks, and open restores it without copying
+// any content. A space that was not closed cleanly cannot be reopened.
+//
+// Format (big-endian):
+// - a header block: MAGIC, VERSION, total space (long), option flags (int), the offset
+// and length of the tree (long, long) and the space name; a tree length of 0 marks a
+// space that is open, or was not closed cleanly
+// - the blocks
+// - the tree, in preorder as in LMSpaceSnapshot, with the size (long), number of
+// blocks (int) and block indices of each file in place of its content
+public final class LMSpaceBackingFile {
+
+    //
+    // Constant: Format
+
+    static final int MAGIC = 0x444E464D;
+    static final int VERSION = 2;
+
+    // The blocks follow a header of one block
+    static final long DATA_OFFSET = Block.BLOCK_SIZE;
+
+    //
+    // Configuration: File
+
+    private final Path file;
+    private final FileChannel channel;
+
+    // Set for the file of a space not made by create; it is deleted on close
+    private final boolean isTemporary;
+
+    FileChannel channel() {
+        return channel;
+    }
+
+    //
+    // State: Persistence
+
+    // Set once the tree of the space is restored, or if the space is new; the tree is
+    // written on close only if set
+    private boolean isRestored;
+
+    //
+    // Construction
+
+    private LMSpaceBackingFile(Path file, FileChannel channel, boolean isTemporary) {
+        this.file = file;
+        this.channel = channel;
+        this.isTemporary = isTemporary;
+    }
+
+    static LMSpaceBackingFile createTemporary() throws IOException {
+        Path file = Files.createTempFile("dynfs-lmspace", ".blocks");
+        try {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new LMSpaceBackingFile(file, channel, true);
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(file);
+            throw ex;
+        }
+    }
+
+    //
+    // Interface: Create
+
+    // Creates an empty space in file, replacing any existing file; if options is null,
+    // the default options are used
+    public static LMSpace create(String name, Path file, long totalSpace, LMSpaceOptions options)
+            throws IOException {
+        options = checkOptions(options);
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            LMSpaceBackingFile backing = new LMSpaceBackingFile(file, channel, false);
+            LMSpace space = new LMSpace(name, totalSpace, options, backing);
+            backing.writeHeader(space, 0, 0);
+            backing.isRestored = true;
+            return space;
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    private static LMSpaceOptions checkOptions(LMSpaceOptions options) {
+        if (options == null) {
+            options = LMSpaceOptions.newInstance();
+            options.storageType = StorageType.MAPPED;
+        } else if (options.storageType != StorageType.MAPPED) {
+            throw new IllegalArgumentException("A backing file requires StorageType.MAPPED");
+        }
+        return options;
+    }
+
+    //
+    // Interface: Open
+
+    // Reopens the space with the concurrency and directory options it was created with
+    public static LMSpace open(Path file) throws IOException {
+        return open(file, null);
+    }
+
+    // If options is null, the concurrency and directory options recorded in the file
+    // are used, with the default pool options
+    public static LMSpace open(Path file, LMSpaceOptions options) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(Block.BLOCK_SIZE);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0)
+                    throw new StreamCorruptedException("Not an LMSpace backing file: " + file);
+            }
+            header.flip();
+
+            if (header.getInt() != MAGIC)
+                throw new StreamCorruptedException("Not an LMSpace backing file: " + file);
+            int version = header.getInt();
+            if (version != VERSION)
+                throw new StreamCorruptedException("Unsupported LMSpace backing file version: " + version);
+
+            long totalSpace = header.getLong();
+            int flags = header.getInt();
+            long treeOffset = header.getLong();
+            long treeLength = header.getLong();
+            byte[] name = new byte[header.getInt()];
+            header.get(name);
+
+            if (treeLength == 0)
+                throw new StreamCorruptedException("The LMSpace backing file was not closed cleanly: " + file);
+
+            if (options == null) {
+                options = checkOptions(null);
+                options.concurrent = (flags & LMSpaceSnapshot.FLAG_CONCURRENT) != 0;
+                options.sortedDirectories = (flags & LMSpaceSnapshot.FLAG_SORTED_DIRECTORIES) != 0;
+            } else {
+                checkOptions(options);
+            }
+
+            LMSpaceBackingFile backing = new LMSpaceBackingFile(file, channel, false);
+            LMSpace space = new LMSpace(new String(name, StandardCharsets.UTF_8), totalSpace, options, backing);
+            try {
+                channel.position(treeOffset);
+                restoreChildren(space.getRootDirectory(), new LMSpaceSnapshot.Input(channel));
+                space.getMemory().restored();
+
+                // Marked open before any change, so that a crash is detected on open
+                backing.writeHeader(space, 0, 0);
+                channel.truncate(treeOffset);
+                backing.isRestored = true;
+            } catch (IOException | RuntimeException ex) {
+                space.close();
+                throw ex;
+            }
+
+            return space;
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    public static DynSpaceLoader<LMSpace> loader(Path file) {
+        return () -> open(file);
+    }
+
+    public static DynSpaceLoader<LMSpace> loader(Path file, LMSpaceOptions options) {
+        return () -> open(file, options);
+    }
+
+    private static void restoreChildren(LMDirectory dir, LMSpaceSnapshot.Input in) throws IOException {
+        for (byte tag = in.getByte(); tag != LMSpaceSnapshot.TAG_END; tag = in.getByte()) {
+            String name = in.getName();
+            switch (tag) {
+                case LMSpaceSnapshot.TAG_FILE:
+                case LMSpaceSnapshot.TAG_SPARSE_FILE:
+                    LMFile file = LMSpaceSnapshot.createFile(dir, name, tag);
+                    long size = in.getLong();
+                    int[] indices = new int[in.getInt()];
+                    for (int i = 0; i < indices.length; i++) {
+                        indices[i] = in.getInt();
+                    }
+                    file.restoreBlocks(size, indices);
+                    break;
+                case LMSpaceSnapshot.TAG_DIRECTORY:
+                    restoreChildren((LMDirectory) dir.createDirectoryImpl(name), in);
+                    break;
+                default:
+                    throw new StreamCorruptedException("Unrecognized node tag in LMSpace backing file: " + tag);
+            }
+        }
+    }
+
+    //
+    // Package Support: Close
+
+    // Writes the blocks and tree of the space to the file, and then marks it closed
+    void close(LMSpace space) throws IOException {
+        try {
+            if (isTemporary || !isRestored)
+                return;
+
+            space.getMemory().force();
+
+            long treeOffset = DATA_OFFSET + Block.sizeOfNBlocks((long) Block.numBlocks(space.getTotalSpace()));
+            channel.position(treeOffset);
+            LMSpaceSnapshot.Output out = new LMSpaceSnapshot.Output(channel);
+            saveChildren(space.getRootDirectory(), out);
+            out.flush();
+
+            long treeEnd = channel.position();
+            channel.truncate(treeEnd);
+            channel.force(true);
+
+            writeHeader(space, treeOffset, treeEnd - treeOffset);
+        } finally {
+            channel.close();
+            if (isTemporary) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static void saveChildren(LMDirectory dir, LMSpaceSnapshot.Output out) throws IOException {
+        for (DynNode<LMSpace, ?> child : dir) {
+            if (child instanceof LMFile) {
+                out.putByte(LMSpaceSnapshot.fileTag((LMFile) child));
+                out.putName(child.getName());
+                ((LMFile) child).writeBlockIndices(out);
+            } else if (child instanceof LMDirectory) {
+                out.putByte(LMSpaceSnapshot.TAG_DIRECTORY);
+                out.putName(child.getName());
+                saveChildren((LMDirectory) child, out);
+            } else {
+                throw new UnsupportedOperationException("Backing files of " + child.getClass().getSimpleName()
+                        + " nodes are not supported: " + child.getRouteString());
+            }
+        }
+
+        out.putByte(LMSpaceSnapshot.TAG_END);
+    }
+
+    private void writeHeader(LMSpace space, long treeOffset, long treeLength) throws IOException {
+        byte[] name = space.name().getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer header = ByteBuffer.allocate(Block.BLOCK_SIZE);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putLong(space.getTotalSpace());
+        header.putInt((space.isConcurrent() ? LMSpaceSnapshot.FLAG_CONCURRENT : 0)
+                | (space.hasSortedDirectories() ? LMSpaceSnapshot.FLAG_SORTED_DIRECTORIES : 0));
+        header.putLong(treeOffset);
+        header.putLong(treeLength);
+        if (header.remaining() < Integer.BYTES + name.length)
+            throw new IllegalArgumentException("The name of the LMSpace is too long for its backing file");
+        header.putInt(name.length);
+        header.put(name);
+        header.clear();
+
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        channel.force(true);
+    }
+
+}
@@ -0,0 +1,386 @@
+package dynfs.dynlm;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableList;
+
+import dynfs.core.DynNode;
+import dynfs.core.DynRoute;
+import dynfs.core.ResolutionResult;
+import dynfs.core.store.DynSpaceLoader;
+
+// Persists an LMSpace as a base snapshot and a log of incremental checkpoints. Each
+// checkpoint appends only what changed since the previous one: the listings of changed
+// directories and the changed blocks of changed files. The space must be created with
+// LMSpaceOptions.trackChanges.
+//
+// Log format (big-endian):
+// - header: LOG_MAGIC, VERSION, and the size and modification time of the base
+// snapshot, identifying the snapshot the log applies to
+// - checkpoints, each TAG_CHECKPOINT, the length of its body (long), the body, and
+// LOG_MAGIC as a commit marker. The body is a sequence number (long), a listing for
+// each changed directory (TAG_DIRECTORY, route, listing) in order of depth, each
+// changed file (TAG_FILE, route, content), and TAG_END.
+//
+// A checkpoint that was not completely written, for example because of a crash, is
+// ignored on load, together with everything after it.
+public final class LMSpaceCheckpointer implements Closeable {
+
+    //
+    // Constant: Format
+
+    static final int LOG_MAGIC = 0x444E4643;
+    static final int VERSION = 2;
+
+    private static final byte TAG_CHECKPOINT = 3;
+
+    private static final int HEADER_SIZE = 2 * Integer.BYTES + 2 * Long.BYTES;
+    private static final int CHECKPOINT_PREFIX_SIZE = Byte.BYTES + Long.BYTES;
+
+    //
+    // Configuration: Space / Files
+
+    private final LMSpace space;
+    private final Path snapshotFile;
+    private final FileChannel log;
+
+    //
+    // State: Output
+
+    private final LMSpaceSnapshot.Output out;
+    private long sequence;
+
+    // Set if a checkpoint failed after draining the change set; the drained changes
+    // are then recovered by compacting
+    private boolean needsCompaction;
+
+    //
+    // Construction
+
+    private LMSpaceCheckpointer(LMSpace space, Path snapshotFile, FileChannel log) {
+        this.space = space;
+        this.snapshotFile = snapshotFile;
+        this.log = log;
+        this.out = new LMSpaceSnapshot.Output(log);
+    }
+
+    // Saves a base snapshot of space and begins a new checkpoint log
+    public static LMSpaceCheckpointer start(LMSpace space, Path snapshotFile, Path logFile) throws IOException {
+        if (space.getChanges() == null)
+            throw new IllegalArgumentException("The LMSpace does not track changes");
+
+        FileChannel log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            LMSpaceCheckpointer checkpointer = new LMSpaceCheckpointer(space, snapshotFile, log);
+            checkpointer.compact();
+            return checkpointer;
+        } catch (IOException | RuntimeException ex) {
+            log.close();
+            throw ex;
+        }
+    }
+
+    //
+    // Interface: Checkpoints
+
+    // Appends the changes since the last checkpoint to the log, returning the number of
+    // bytes appended
+    public synchronized long checkpoint() throws IOException {
+        space.throwIfClosed();
+
+        if (needsCompaction) {
+            compact();
+        }
+
+        try {
+            return checkpointImpl();
+        } catch (IOException | RuntimeException ex) {
+            out.discard();
+            needsCompaction = true;
+            throw ex;
+        }
+    }
+
+    private long checkpointImpl() throws IOException {
+        LMChangeSet changes = space.getChanges();
+        List<LMDirectory> dirs = changes.drainDirectories();
+        List<LMFile> files = changes.drainFiles();
+
+        // Parents are listed before their children, so that replay creates each
+        // directory before applying its own listing
+        dirs.sort(Comparator.comparingInt(dir -> dir.getRoute().getNameCount()));
+
+        long start = log.size();
+        log.position(start);
+
+        out.putByte(TAG_CHECKPOINT);
+        out.putLong(0);
+        out.putLong(++sequence);
+
+        for (LMDirectory dir : dirs) {
+            if (isLive(dir)) {
+                out.putByte(LMSpaceSnapshot.TAG_DIRECTORY);
+                out.putName(dir.getRouteString());
+                dir.writeCheckpointListing(out);
+            }
+        }
+        for (LMFile file : files) {
+            if (isLive(file)) {
+                out.putByte(LMSpaceSnapshot.TAG_FILE);
+                out.putName(file.getRouteString());
+                file.writeCheckpointContent(out);
+            }
+        }
+
+        out.putByte(LMSpaceSnapshot.TAG_END);
+        out.putInt(LOG_MAGIC);
+        out.flush();
+
+        long end = log.position();
+        ByteBuffer length = ByteBuffer.allocate(Long.BYTES);
+        length.putLong(0, end - Integer.BYTES - (start + CHECKPOINT_PREFIX_SIZE));
+        writeFully(log, length, start + Byte.BYTES);
+
+        log.force(false);
+
+        return end - start;
+    }
+
+    // Replaces the base snapshot with a snapshot of the current state of the space and
+    // empties the log
+    public synchronized void compact() throws IOException {
+        space.throwIfClosed();
+
+        // Changes made while the snapshot is written remain in the change set, and so
+        // are included in the next checkpoint
+        LMChangeSet changes = space.getChanges();
+        for (LMDirectory dir : changes.drainDirectories()) {
+            dir.clearChanged();
+        }
+        for (LMFile file : changes.drainFiles()) {
+            file.clearChanged();
+        }
+
+        LMSpaceSnapshot.save(space, snapshotFile);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(LOG_MAGIC);
+        header.putInt(VERSION);
+        header.putLong(Files.size(snapshotFile));
+        header.putLong(Files.getLastModifiedTime(snapshotFile).toMillis());
+        header.flip();
+
+        log.truncate(0);
+        writeFully(log, header, 0);
+        log.force(false);
+
+        sequence = 0;
+        needsCompaction = false;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        log.close();
+    }
+
+    //
+    // Support: Liveness
+
+    // A node that has been deleted since it changed is no longer reachable by its route
+    private boolean isLive(DynNode<LMSpace, ?> node) throws IOException {
+        ResolutionResult<LMSpace> resolution = space.getRootDirectory().resolve(node.getRoute(), false);
+        return resolution.isSuccess() && resolution.node() == node;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer src, long position) throws IOException {
+        while (src.hasRemaining()) {
+            position += channel.write(src, position);
+        }
+    }
+
+    //
+    // Interface: Load
+
+    // Loads the base snapshot and replays the complete checkpoints of the log. If the
+    // log does not apply to the snapshot, as after a crash during compact, the
+    // snapshot alone is loaded: it already includes the changes in the log.
+    public static LMSpace load(Path snapshotFile, Path logFile, LMSpaceOptions options) throws IOException {
+        LMSpace space = LMSpaceSnapshot.load(snapshotFile, options);
+        try {
+            replay(space, snapshotFile, logFile);
+        } catch (IOException | RuntimeException ex) {
+            space.close();
+            throw ex;
+        }
+
+        return space;
+    }
+
+    public static DynSpaceLoader<LMSpace> loader(Path snapshotFile, Path logFile) {
+        return () -> load(snapshotFile, logFile, null);
+    }
+
+    public static DynSpaceLoader<LMSpace> loader(Path snapshotFile, Path logFile, LMSpaceOptions options) {
+        return () -> load(snapshotFile, logFile, options);
+    }
+
+    private static void replay(LMSpace space, Path snapshotFile, Path logFile) throws IOException {
+        FileChannel log;
+        try {
+            log = FileChannel.open(logFile, StandardOpenOption.READ);
+        } catch (NoSuchFileException ex) {
+            return;
+        }
+
+        try {
+            int numCheckpoints = countCompleteCheckpoints(log, snapshotFile);
+
+            log.position(HEADER_SIZE);
+            LMSpaceSnapshot.Input in = new LMSpaceSnapshot.Input(log);
+            for (int i = 0; i < numCheckpoints; i++) {
+                in.getByte();
+                in.getLong();
+                in.getLong();
+                replayCheckpoint(space, in);
+                in.getInt();
+            }
+        } finally {
+            log.close();
+        }
+    }
+
+    // Returns the number of checkpoints preceding the first incomplete one, or 0 if the
+    // log does not apply to the snapshot
+    private static int countCompleteCheckpoints(FileChannel log, Path snapshotFile) throws IOException {
+        long size = log.size();
+        if (size < HEADER_SIZE)
+            return 0;
+
+        ByteBuffer header = readAt(log, 0, HEADER_SIZE);
+        if (header.getInt() != LOG_MAGIC)
+            throw new StreamCorruptedException("Not an LMSpace checkpoint log");
+        int version = header.getInt();
+        if (version != VERSION)
+            throw new StreamCorruptedException("Unsupported LMSpace checkpoint log version: " + version);
+
+        if (header.getLong() != Files.size(snapshotFile)
+                || header.getLong() != Files.getLastModifiedTime(snapshotFile).toMillis())
+            return 0;
+
+        int count = 0;
+        for (long pos = HEADER_SIZE; pos + CHECKPOINT_PREFIX_SIZE <= size; count++) {
+            ByteBuffer prefix = readAt(log, pos, CHECKPOINT_PREFIX_SIZE);
+            if (prefix.get() != TAG_CHECKPOINT)
+                break;
+
+            long length = prefix.getLong();
+            long commit = pos + CHECKPOINT_PREFIX_SIZE + length;
+            if (length <= 0 || commit + Integer.BYTES > size
+                    || readAt(log, commit, Integer.BYTES).getInt() != LOG_MAGIC)
+                break;
+
+            pos = commit + Integer.BYTES;
+        }
+
+        return count;
+    }
+
+    private static ByteBuffer readAt(FileChannel channel, long position, int len) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(len);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0)
+                break;
+        }
+        buf.flip();
+        return buf;
+    }
+
+    private static void replayCheckpoint(LMSpace space, LMSpaceSnapshot.Input in) throws IOException {
+        for (byte tag = in.getByte(); tag != LMSpaceSnapshot.TAG_END; tag = in.getByte()) {
+            DynNode<LMSpace, ?> node = resolveExisting(space, in.getName());
+            switch (tag) {
+                case LMSpaceSnapshot.TAG_DIRECTORY:
+                    if (!(node instanceof LMDirectory))
+                        throw new StreamCorruptedException("Checkpointed directory is not a directory: " + node);
+                    replayListing((LMDirectory) node, in);
+                    break;
+                case LMSpaceSnapshot.TAG_FILE:
+                    if (!(node instanceof LMFile))
+                        throw new StreamCorruptedException("Checkpointed file is not a file: " + node);
+                    ((LMFile) node).readCheckpointContent(in);
+                    break;
+                default:
+                    throw new StreamCorruptedException("Unrecognized record tag in LMSpace checkpoint: " + tag);
+            }
+        }
+    }
+
+    private static DynNode<LMSpace, ?> resolveExisting(LMSpace space, String route) throws IOException {
+        ResolutionResult<LMSpace> resolution = space.getRootDirectory().resolve(DynRoute.fromRouteNames(route),
+                false);
+        if (!resolution.isSuccess())
+            throw new StreamCorruptedException("Checkpointed node does not exist: " + route);
+
+        return resolution.node();
+    }
+
+    // Brings the children of dir in line with a listing written by
+    // LMDirectory.writeCheckpointListing
+    private static void replayListing(LMDirectory dir, LMSpaceSnapshot.Input in) throws IOException {
+        Set<String> listed = new HashSet<>();
+        for (byte type = in.getByte(); type != LMSpaceSnapshot.TAG_END; type = in.getByte()) {
+            if (type != LMSpaceSnapshot.TAG_DIRECTORY && !LMSpaceSnapshot.isFileTag(type))
+                throw new StreamCorruptedException("Unrecognized node tag in LMSpace checkpoint listing: " + type);
+
+            String name = in.getName();
+            listed.add(name);
+
+            // A child of another type, or a file sparse where the listed one is not or
+            // the other way around, is replaced
+            DynNode<LMSpace, ?> child = dir.resolveChildImpl(name);
+            byte childType = child instanceof LMFile ? LMSpaceSnapshot.fileTag((LMFile) child)
+                    : LMSpaceSnapshot.TAG_DIRECTORY;
+            if (child != null && childType != type) {
+                deleteRecursively(child);
+                child = null;
+            }
+
+            if (child == null) {
+                if (LMSpaceSnapshot.isFileTag(type)) {
+                    LMSpaceSnapshot.createFile(dir, name, type);
+                } else {
+                    dir.createDirectoryImpl(name);
+                }
+            }
+        }
+
+        for (DynNode<LMSpace, ?> child : ImmutableList.copyOf(dir)) {
+            if (!listed.contains(child.getName())) {
+                deleteRecursively(child);
+            }
+        }
+    }
+
+    private static void deleteRecursively(DynNode<LMSpace, ?> node) throws IOException {
+        if (node instanceof LMDirectory) {
+            for (DynNode<LMSpace, ?> child : ImmutableList.copyOf((LMDirectory) node)) {
+                deleteRecursively(child);
+            }
+        }
+        node.delete();
+    }
+
+}
@@ -0,0 +1,139 @@
+package dynfs.dynlm;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.ClosedFileSystemException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import dynfs.core.DynNode;
+
+// Compresses the cold blocks of an LMSpace: the blocks of its files neither read nor
+// written since the previous pass. A compressed block is held outside the blocks of
+// the space, and its own block is freed; it remains readable through its file, being
+// decompressed as it is read, and is given a block of its own again when written.
+// Blocks that compress poorly, and blocks shared between files, are left as they are.
+// The space must be created with LMSpaceOptions.compressColdBlocks.
+//
+// Passes are run by compress, or at a fixed interval by a background thread. As a pass
+// locks each file in turn, a background thread requires a concurrent space.
+public final class LMSpaceColdTier implements Closeable {
+
+    //
+    // Configuration: Space
+
+    private final LMSpace space;
+
+    //
+    // State: Codec
+
+    private final BlockCodec codec = new BlockCodec();
+
+    //
+    // State: Background Passes
+
+    // Null unless passes are run in the background
+    private final ScheduledExecutorService executor;
+
+    // The failure that ended the background passes, if any; reported by close
+    private volatile Exception failure;
+
+    //
+    // Construction
+
+    private LMSpaceColdTier(LMSpace space, ScheduledExecutorService executor) {
+        this.space = space;
+        this.executor = executor;
+    }
+
+    // Passes are run only by compress
+    public static LMSpaceColdTier start(LMSpace space) {
+        checkSpace(space);
+        return new LMSpaceColdTier(space, null);
+    }
+
+    // Passes are run every interval by a background thread, until the tier is closed;
+    // blocks are compressed once left untouched for a whole interval
+    public static LMSpaceColdTier start(LMSpace space, long interval, TimeUnit unit) {
+        checkSpace(space);
+        if (!space.isConcurrent())
+            throw new IllegalArgumentException("Background compression requires a concurrent LMSpace");
+        if (interval <= 0)
+            throw new IllegalArgumentException("interval must be positive");
+
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "LMSpaceColdTier-" + space.name());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        LMSpaceColdTier tier = new LMSpaceColdTier(space, executor);
+        executor.scheduleWithFixedDelay(tier::runScheduled, interval, interval, unit);
+        return tier;
+    }
+
+    private static void checkSpace(LMSpace space) {
+        if (space.getMemory().getCompressedArena() == null)
+            throw new IllegalArgumentException("The LMSpace does not compress cold blocks");
+    }
+
+    //
+    // Interface: Passes
+
+    // Compresses the blocks left untouched since the last pass, returning the number of
+    // blocks compressed
+    public synchronized int compress() throws IOException {
+        space.throwIfClosed();
+        return compressChildren(space.getRootDirectory());
+    }
+
+    private int compressChildren(LMDirectory dir) {
+        int numCompressed = 0;
+        for (DynNode<LMSpace, ?> child : dir) {
+            if (child instanceof LMFile) {
+                numCompressed += ((LMFile) child).compressColdBlocks(codec);
+            } else if (child instanceof LMDirectory) {
+                numCompressed += compressChildren((LMDirectory) child);
+            }
+        }
+        return numCompressed;
+    }
+
+    private void runScheduled() {
+        try {
+            compress();
+        } catch (ClosedFileSystemException ex) {
+            // The passes end with the space
+            executor.shutdown();
+        } catch (IOException | RuntimeException ex) {
+            failure = ex;
+            executor.shutdown();
+        }
+    }
+
+    //
+    // Interface Implementation: Close
+
+    // Stops the background passes, waiting for a pass in progress; throws if a
+    // background pass failed
+    @Override
+    public void close() throws IOException {
+        if (executor == null)
+            return;
+
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while stopping LMSpaceColdTier");
+        }
+
+        Exception failure = this.failure;
+        if (failure != null)
+            throw new IOException("A background pass of LMSpaceColdTier failed", failure);
+    }
+
+}
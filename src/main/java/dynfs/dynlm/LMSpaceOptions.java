@@ -0,0 +1,44 @@
+package dynfs.dynlm;
+
+import dynfs.dynlm.BlockMemory.PoolType;
+import dynfs.dynlm.BlockMemory.StorageType;
+
+public final class LMSpaceOptions {
+
+    //
+    // Configuration: Internal Data
+
+    public PoolType poolType = PoolType.LINKED;
+    public StorageType storageType = StorageType.HEAP;
+
+    // Return the storage of freed blocks to the system rather than retaining it for reuse
+    public boolean releaseOnFree = false;
+
+    // Permit concurrent access to distinct files and directories from multiple threads
+    public boolean concurrent = false;
+
+    // Keep directory children sorted by name, for ordered listing and prefix / range scans
+    public boolean sortedDirectories = false;
+
+    // Track the blocks and directories changed since the last checkpoint, for
+    // LMSpaceCheckpointer
+    public boolean trackChanges = false;
+
+    // Share identical blocks between files, fingerprinting each block as it is wholly
+    // written; shared blocks are copied before they are written
+    public boolean deduplicate = false;
+
+    // Track the blocks of each file read or written, so that blocks left untouched are
+    // compressed by LMSpaceColdTier; not supported by StorageType.MAPPED
+    public boolean compressColdBlocks = false;
+
+    //
+    // Construction: Factory
+
+    private LMSpaceOptions() {}
+
+    public static LMSpaceOptions newInstance() {
+        return new LMSpaceOptions();
+    }
+
+}
@@ -0,0 +1,372 @@
+package dynfs.dynlm;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import dynfs.core.DynNode;
+import dynfs.core.store.DynSpaceLoader;
+
+// Saves an LMSpace to, and restores an LMSpace from, a compact binary snapshot.
+//
+// Format (big-endian):
+// - header: MAGIC, VERSION, total space (long), option flags (int), space name
+// - the children of the root directory, in preorder: each is TAG_FILE, or
+// TAG_SPARSE_FILE for a file created sparse, name, size (long) and content, or
+// TAG_DIRECTORY, name and its children; every directory, including the root, is
+// terminated by TAG_END
+// - MAGIC again, as a trailer
+// Names are an int length followed by UTF-8 bytes. Content is a sequence of runs of
+// adjacent blocks, each its first block (int), number of blocks (int) and content,
+// terminated by a first block of -1; holes are not written, and are restored as holes.
+//
+// File content is written straight from, and read straight into, the storage of the
+// file's blocks. A file is held at its size while it is written; a snapshot is
+// consistent across files only if the space is not modified while it is saved.
+public final class LMSpaceSnapshot {
+
+    //
+    // Constant: Format
+
+    static final int MAGIC = 0x444E4653;
+    static final int VERSION = 2;
+
+    static final byte TAG_END = 0;
+    static final byte TAG_FILE = 1;
+    static final byte TAG_DIRECTORY = 2;
+    static final byte TAG_SPARSE_FILE = 3;
+
+    static final int FLAG_CONCURRENT = 1;
+    static final int FLAG_SORTED_DIRECTORIES = 2;
+
+    //
+    // Constant: Buffer Size
+
+    // Metadata and small files are staged in a buffer of this size, so that the
+    // channel sees large sequential transfers
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    //
+    // Construction: Disabled
+
+    private LMSpaceSnapshot() {}
+
+    //
+    // Package Support: File Tags
+
+    static byte fileTag(LMFile file) {
+        return file.isSparse() ? TAG_SPARSE_FILE : TAG_FILE;
+    }
+
+    static boolean isFileTag(byte tag) {
+        return tag == TAG_FILE || tag == TAG_SPARSE_FILE;
+    }
+
+    // Creates a file in dir as a file tagged with tag was created
+    static LMFile createFile(LMDirectory dir, String name, byte tag) throws IOException {
+        return (LMFile) (tag == TAG_SPARSE_FILE ? dir.createSparseFileImpl(name) : dir.createFileImpl(name));
+    }
+
+    //
+    // Interface: Save
+
+    // Writes the snapshot beside file and then moves it into place, so that an
+    // existing snapshot at file is replaced only by a complete one
+    public static void save(LMSpace space, Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            save(space, out);
+            out.force(false);
+        }
+
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static void save(LMSpace space, WritableByteChannel channel) throws IOException {
+        space.throwIfClosed();
+
+        Output out = new Output(channel);
+
+        out.putInt(MAGIC);
+        out.putInt(VERSION);
+        out.putLong(space.getTotalSpace());
+        out.putInt((space.isConcurrent() ? FLAG_CONCURRENT : 0)
+                | (space.hasSortedDirectories() ? FLAG_SORTED_DIRECTORIES : 0));
+        out.putName(space.name());
+
+        saveChildren(space.getRootDirectory(), out);
+
+        out.putInt(MAGIC);
+        out.flush();
+    }
+
+    private static void saveChildren(LMDirectory dir, Output out) throws IOException {
+        for (DynNode<LMSpace, ?> child : dir) {
+            if (child instanceof LMFile) {
+                out.putByte(fileTag((LMFile) child));
+                out.putName(child.getName());
+                ((LMFile) child).writeSnapshotContent(out);
+            } else if (child instanceof LMDirectory) {
+                out.putByte(TAG_DIRECTORY);
+                out.putName(child.getName());
+                saveChildren((LMDirectory) child, out);
+            } else {
+                throw new UnsupportedOperationException("Snapshots of " + child.getClass().getSimpleName()
+                        + " nodes are not supported: " + child.getRouteString());
+            }
+        }
+
+        out.putByte(TAG_END);
+    }
+
+    //
+    // Interface: Load
+
+    // Restores the space with the concurrency and directory options it was saved with
+    public static LMSpace load(Path file) throws IOException {
+        return load(file, null);
+    }
+
+    public static LMSpace load(Path file, LMSpaceOptions options) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            return load(in, options);
+        }
+    }
+
+    // If options is null, the concurrency and directory options recorded in the
+    // snapshot are used, with the default storage options
+    public static LMSpace load(ReadableByteChannel channel, LMSpaceOptions options) throws IOException {
+        Input in = new Input(channel);
+
+        if (in.getInt() != MAGIC)
+            throw new StreamCorruptedException("Not an LMSpace snapshot");
+        int version = in.getInt();
+        if (version != VERSION)
+            throw new StreamCorruptedException("Unsupported LMSpace snapshot version: " + version);
+
+        long totalSpace = in.getLong();
+        int flags = in.getInt();
+        String name = in.getName();
+
+        if (options == null) {
+            options = LMSpaceOptions.newInstance();
+            options.concurrent = (flags & FLAG_CONCURRENT) != 0;
+            options.sortedDirectories = (flags & FLAG_SORTED_DIRECTORIES) != 0;
+        }
+
+        LMSpace space = new LMSpace(name, totalSpace, options);
+        try {
+            loadChildren(space.getRootDirectory(), in);
+
+            if (in.getInt() != MAGIC)
+                throw new StreamCorruptedException("The LMSpace snapshot has no trailer");
+        } catch (IOException | RuntimeException ex) {
+            space.close();
+            throw ex;
+        }
+
+        return space;
+    }
+
+    private static void loadChildren(LMDirectory dir, Input in) throws IOException {
+        for (byte tag = in.getByte(); tag != TAG_END; tag = in.getByte()) {
+            String name = in.getName();
+            switch (tag) {
+                case TAG_FILE:
+                case TAG_SPARSE_FILE:
+                    LMFile file = createFile(dir, name, tag);
+                    file.readSnapshotContent(in, in.getLong());
+                    break;
+                case TAG_DIRECTORY:
+                    loadChildren((LMDirectory) dir.createDirectoryImpl(name), in);
+                    break;
+                default:
+                    throw new StreamCorruptedException("Unrecognized node tag in LMSpace snapshot: " + tag);
+            }
+        }
+    }
+
+    public static DynSpaceLoader<LMSpace> loader(Path file) {
+        return () -> load(file);
+    }
+
+    public static DynSpaceLoader<LMSpace> loader(Path file, LMSpaceOptions options) {
+        return () -> load(file, options);
+    }
+
+    //
+    // Support Structure: Buffered Output
+
+    static final class Output {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        Output(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        private void ensureRemaining(int n) throws IOException {
+            if (buf.remaining() < n) {
+                flush();
+            }
+        }
+
+        void putByte(byte v) throws IOException {
+            ensureRemaining(Byte.BYTES);
+            buf.put(v);
+        }
+
+        void putInt(int v) throws IOException {
+            ensureRemaining(Integer.BYTES);
+            buf.putInt(v);
+        }
+
+        void putLong(long v) throws IOException {
+            ensureRemaining(Long.BYTES);
+            buf.putLong(v);
+        }
+
+        void putName(String name) throws IOException {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            putContent(ByteBuffer.wrap(bytes));
+        }
+
+        // Writes the remaining bytes of each view; views larger than the buffer are
+        // written to the channel directly
+        void putContent(List<ByteBuffer> views) throws IOException {
+            for (ByteBuffer view : views) {
+                putContent(view);
+            }
+        }
+
+        private void putContent(ByteBuffer view) throws IOException {
+            if (view.remaining() <= buf.remaining()) {
+                buf.put(view);
+                return;
+            }
+
+            flush();
+            if (view.remaining() <= buf.remaining()) {
+                buf.put(view);
+            } else {
+                writeFully(view);
+            }
+        }
+
+        void flush() throws IOException {
+            buf.flip();
+            writeFully(buf);
+            buf.clear();
+        }
+
+        void discard() {
+            buf.clear();
+        }
+
+        private void writeFully(ByteBuffer src) throws IOException {
+            while (src.hasRemaining()) {
+                channel.write(src);
+            }
+        }
+    }
+
+    //
+    // Support Structure: Buffered Input
+
+    static final class Input {
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        Input(ReadableByteChannel channel) {
+            this.channel = channel;
+            buf.flip();
+        }
+
+        private void ensureAvailable(int n) throws IOException {
+            if (buf.remaining() >= n)
+                return;
+
+            buf.compact();
+            while (buf.position() < n) {
+                if (channel.read(buf) < 0)
+                    throw new EOFException("The LMSpace snapshot is truncated");
+            }
+            buf.flip();
+        }
+
+        byte getByte() throws IOException {
+            ensureAvailable(Byte.BYTES);
+            return buf.get();
+        }
+
+        int getInt() throws IOException {
+            ensureAvailable(Integer.BYTES);
+            return buf.getInt();
+        }
+
+        long getLong() throws IOException {
+            ensureAvailable(Long.BYTES);
+            return buf.getLong();
+        }
+
+        String getName() throws IOException {
+            int len = getInt();
+            if (len < 0 || len > BUFFER_SIZE)
+                throw new StreamCorruptedException("Invalid name length in LMSpace snapshot: " + len);
+
+            byte[] bytes = new byte[len];
+            getContent(ByteBuffer.wrap(bytes));
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        // Fills the remaining bytes of each view from the buffer; once the buffer is
+        // exhausted, views at least as large as the buffer are read into directly
+        void getContent(List<ByteBuffer> views) throws IOException {
+            for (ByteBuffer view : views) {
+                getContent(view);
+            }
+        }
+
+        private void getContent(ByteBuffer view) throws IOException {
+            while (view.hasRemaining()) {
+                if (!buf.hasRemaining()) {
+                    if (view.remaining() >= buf.capacity()) {
+                        readSome(view);
+                        continue;
+                    }
+
+                    buf.clear();
+                    try {
+                        readSome(buf);
+                    } finally {
+                        buf.flip();
+                    }
+                }
+
+                int n = Math.min(buf.remaining(), view.remaining());
+                int limit = buf.limit();
+                buf.limit(buf.position() + n);
+                view.put(buf);
+                buf.limit(limit);
+            }
+        }
+
+        private void readSome(ByteBuffer dst) throws IOException {
+            if (channel.read(dst) < 0)
+                throw new EOFException("The LMSpace snapshot is truncated");
+        }
+    }
+
+}
@@ -0,0 +1,628 @@
+package dynfs.dynlm;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.CopyOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.Lock;
+import java.util.zip.CRC32;
+
+import dynfs.core.DynNode;
+import dynfs.core.DynRoute;
+import dynfs.core.ResolutionResult;
+import dynfs.core.options.CopyOptions;
+import dynfs.core.store.DynSpaceLoader;
+
+// A write-ahead log of the updates to an LMSpace since its base snapshot. Every update
+// to the size or content of a file, including punched holes, and every creation,
+// deletion and move, is appended to the log before it returns. Appended records are
+// written to the log file in batches, and are forced to storage by sync, which channels
+// opened with SYNC or DSYNC invoke after every update. Concurrent syncs are grouped:
+// while one thread forces the log file, the records of the others accumulate and are
+// forced together by the next.
+//
+// Log format (big-endian):
+// - header: LOG_MAGIC, VERSION, and the size and modification time of the base
+// snapshot, identifying the snapshot the log applies to
+// - records, each the length of its body (int), the CRC-32 of its body (int), and the
+// body: an operation tag, a route, and the arguments of the operation
+//
+// A record that was not completely written, for example because of a crash, is
+// discarded on recovery, together with everything after it. Writes through mapped
+// buffers are not logged.
+public final class LMSpaceWriteAheadLog implements Closeable {
+
+    //
+    // Constant: Format
+
+    static final int LOG_MAGIC = 0x444E4657;
+    static final int VERSION = 1;
+
+    private static final byte OP_CREATE_FILE = 1;
+    private static final byte OP_CREATE_DIRECTORY = 2;
+    private static final byte OP_DELETE = 3;
+    private static final byte OP_SIZE = 4;
+    private static final byte OP_WRITE = 5;
+    private static final byte OP_CLONE = 6;
+    private static final byte OP_MOVE = 7;
+    private static final byte OP_PUNCH = 8;
+    private static final byte OP_CREATE_SPARSE_FILE = 9;
+
+    private static final int HEADER_SIZE = 2 * Integer.BYTES + 2 * Long.BYTES;
+    private static final int RECORD_PREFIX_SIZE = 2 * Integer.BYTES;
+
+    //
+    // Constant: Batch Size
+
+    // Pending records are written to the log file once they reach this size, even
+    // without a sync; larger writes are split into records of at most this size
+    private static final int BATCH_SIZE = 1 << 20;
+
+    //
+    // Configuration: Space / Files
+
+    private final LMSpace space;
+    private final Path snapshotFile;
+    private final FileChannel log;
+
+    //
+    // State: Records
+
+    // Guarded by the monitor of the log, as are the positions below
+    private ByteBuffer pending = ByteBuffer.allocate(BATCH_SIZE);
+    private ByteBuffer spare = ByteBuffer.allocate(BATCH_SIZE);
+    private final CRC32 crc = new CRC32();
+
+    // The ends, within the log file, of the records appended, written to the log file,
+    // and forced to storage
+    private long appendedEnd;
+    private long writtenEnd;
+    private long durableEnd;
+
+    // Counts the restarts of the log; the records of an earlier generation are included
+    // in the base snapshot, and need not be flushed
+    private long generation;
+
+    // Set while a thread writes a batch of records outside of the monitor
+    private boolean isFlushing;
+
+    private boolean isClosed;
+
+    // Set if a batch could not be written; the log is then unusable
+    private IOException failure;
+
+    //
+    // Construction
+
+    private LMSpaceWriteAheadLog(LMSpace space, Path snapshotFile, FileChannel log) {
+        this.space = space;
+        this.snapshotFile = snapshotFile;
+        this.log = log;
+    }
+
+    // Saves a base snapshot of space and begins a new log of its updates. Updates wait
+    // until the log is attached, so that each is either in the snapshot or logged.
+    public static LMSpaceWriteAheadLog attach(LMSpace space, Path snapshotFile, Path logFile) throws IOException {
+        space.throwIfClosed();
+
+        FileChannel log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        Lock snapshotLock = space.getSnapshotLock();
+        snapshotLock.lock();
+        try {
+            if (space.getWriteAheadLog() != null)
+                throw new IllegalStateException("The LMSpace already has a write-ahead log");
+
+            LMSpaceWriteAheadLog wal = new LMSpaceWriteAheadLog(space, snapshotFile, log);
+            LMSpaceSnapshot.save(space, snapshotFile);
+            wal.startLog();
+            space.setWriteAheadLog(wal);
+            return wal;
+        } catch (IOException | RuntimeException ex) {
+            log.close();
+            throw ex;
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    // Truncates the log file to a header for the current base snapshot
+    private void startLog() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(LOG_MAGIC);
+        header.putInt(VERSION);
+        header.putLong(Files.size(snapshotFile));
+        header.putLong(Files.getLastModifiedTime(snapshotFile).toMillis());
+        header.flip();
+
+        log.truncate(0);
+        writeFully(log, header, 0);
+        log.force(false);
+
+        resumeLog(HEADER_SIZE);
+    }
+
+    private void resumeLog(long end) throws IOException {
+        log.truncate(end);
+        appendedEnd = end;
+        writtenEnd = end;
+        durableEnd = end;
+        generation++;
+    }
+
+    //
+    // Interface: Durability
+
+    // Returns once every update logged before the call is durable
+    public void sync() throws IOException {
+        long end;
+        long generation;
+        synchronized (this) {
+            throwIfUnusable();
+            end = appendedEnd;
+            generation = this.generation;
+        }
+        flush(generation, end, true);
+    }
+
+    // Replaces the base snapshot with a snapshot of the current state of the space and
+    // empties the log. Updates wait until the log is emptied, so that none is appended
+    // to the log after the snapshot began and then discarded with it.
+    public void checkpoint() throws IOException {
+        Lock snapshotLock = space.getSnapshotLock();
+        snapshotLock.lock();
+        try {
+            sync();
+            LMSpaceSnapshot.save(space, snapshotFile);
+
+            synchronized (this) {
+                throwIfUnusable();
+                awaitFlush();
+                pending.clear();
+                startLog();
+            }
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (isClosed)
+                return;
+        }
+
+        try {
+            if (failure == null) {
+                sync();
+            }
+        } finally {
+            synchronized (this) {
+                isClosed = true;
+            }
+            space.setWriteAheadLog(null);
+            log.close();
+        }
+    }
+
+    private void throwIfUnusable() throws IOException {
+        if (isClosed)
+            throw new IOException("The write-ahead log is closed");
+        if (failure != null)
+            throw new IOException("The write-ahead log failed", failure);
+    }
+
+    //
+    // Support: Group Commit
+
+    // Writes the records appended before end, in the given generation of the log, to
+    // the log file, and forces them to storage if force. Only one thread writes at a
+    // time; the others wait, and those whose records were not included write the
+    // records that accumulated meanwhile.
+    private void flush(long generation, long end, boolean force) throws IOException {
+        while (true) {
+            ByteBuffer batch;
+            long batchEnd;
+            long batchPosition;
+            synchronized (this) {
+                throwIfUnusable();
+                if (this.generation != generation || (force ? durableEnd : writtenEnd) >= end)
+                    return;
+                if (isFlushing) {
+                    awaitFlush();
+                    continue;
+                }
+
+                isFlushing = true;
+                batch = pending;
+                pending = spare;
+                spare = null;
+                batchEnd = appendedEnd;
+                batchPosition = writtenEnd;
+            }
+
+            IOException error = null;
+            try {
+                batch.flip();
+                writeFully(log, batch, batchPosition);
+                if (force) {
+                    log.force(false);
+                }
+            } catch (IOException ex) {
+                error = ex;
+            }
+
+            synchronized (this) {
+                batch.clear();
+                spare = batch.capacity() > BATCH_SIZE ? ByteBuffer.allocate(BATCH_SIZE) : batch;
+
+                if (error == null) {
+                    writtenEnd = batchEnd;
+                    if (force) {
+                        durableEnd = batchEnd;
+                    }
+                } else if (failure == null) {
+                    failure = error;
+                }
+
+                isFlushing = false;
+                notifyAll();
+            }
+
+            if (error != null)
+                throw error;
+        }
+    }
+
+    // NOTE: Must be invoked while holding the monitor of the log
+    private void awaitFlush() throws IOException {
+        while (isFlushing) {
+            try {
+                wait();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the write-ahead log");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer src, long position) throws IOException {
+        while (src.hasRemaining()) {
+            position += channel.write(src, position);
+        }
+    }
+
+    //
+    // Package Support: Logging
+
+    // Structural updates are applied and logged while holding the monitor of the log,
+    // so that they are logged in the order they are applied. Updates to a file are
+    // logged while holding the lock of the file, and are not logged once the file has
+    // been deleted.
+
+    synchronized void logCreate(LMDirectory parent, String name, DynNode<LMSpace, ?> node) throws IOException {
+        byte op = node instanceof LMDirectory ? OP_CREATE_DIRECTORY
+                : ((LMFile) node).isSparse() ? OP_CREATE_SPARSE_FILE : OP_CREATE_FILE;
+        int start = beginRecord(op, parent.getRouteString(), nameSize(name));
+        putName(name);
+        endRecord(start);
+    }
+
+    synchronized void logDelete(LMDirectory parent, String name) throws IOException {
+        int start = beginRecord(OP_DELETE, parent.getRouteString(), nameSize(name));
+        putName(name);
+        endRecord(start);
+    }
+
+    synchronized void logMove(LMDirectory srcParent, String srcName, LMDirectory dstParent, String dstName)
+            throws IOException {
+        String dstRoute = dstParent.getRouteString();
+        int start = beginRecord(OP_MOVE, srcParent.getRouteString(),
+                nameSize(srcName) + nameSize(dstRoute) + nameSize(dstName));
+        putName(srcName);
+        putName(dstRoute);
+        putName(dstName);
+        endRecord(start);
+    }
+
+    synchronized void logSize(LMFile file, long size) throws IOException {
+        if (!isLinked(file))
+            return;
+
+        int start = beginRecord(OP_SIZE, file.getRouteString(), Long.BYTES);
+        pending.putLong(size);
+        endRecord(start);
+    }
+
+    synchronized void logPunch(LMFile file, long off, long len) throws IOException {
+        if (!isLinked(file))
+            return;
+
+        int start = beginRecord(OP_PUNCH, file.getRouteString(), 2 * Long.BYTES);
+        pending.putLong(off);
+        pending.putLong(len);
+        endRecord(start);
+    }
+
+    void logWrite(LMFile file, long off, ByteBuffer src) throws IOException {
+        long end;
+        long generation;
+        synchronized (this) {
+            if (!isLinked(file))
+                return;
+
+            ByteBuffer data = src.duplicate();
+            while (data.hasRemaining()) {
+                int len = Math.min(data.remaining(), BATCH_SIZE);
+                int start = beginRecord(OP_WRITE, file.getRouteString(), Long.BYTES + Integer.BYTES + len);
+                pending.putLong(off);
+                pending.putInt(len);
+
+                int limit = data.limit();
+                data.limit(data.position() + len);
+                pending.put(data);
+                data.limit(limit);
+
+                endRecord(start);
+                off += len;
+            }
+
+            if (pending.position() < BATCH_SIZE)
+                return;
+            end = appendedEnd;
+            generation = this.generation;
+        }
+
+        flush(generation, end, false);
+    }
+
+    // Returns false, logging nothing, if src has been deleted; the content of file must
+    // then be logged instead
+    synchronized boolean logClone(LMFile file, LMFile src) throws IOException {
+        if (!isLinked(file))
+            return true;
+        if (!isLinked(src))
+            return false;
+
+        String srcRoute = src.getRouteString();
+        int start = beginRecord(OP_CLONE, file.getRouteString(), nameSize(srcRoute));
+        putName(srcRoute);
+        endRecord(start);
+        return true;
+    }
+
+    private static boolean isLinked(LMFile file) throws IOException {
+        return ((LMDirectory) file.getParent()).resolveChildImpl(file.getName()) == file;
+    }
+
+    //
+    // Support: Record Encoding
+
+    private static int nameSize(String name) {
+        return Integer.BYTES + name.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    // Reserves the prefix of a record whose arguments take argsSize bytes, and writes
+    // its operation and route, returning the start of the record
+    private int beginRecord(byte op, String route, int argsSize) throws IOException {
+        throwIfUnusable();
+
+        int size = RECORD_PREFIX_SIZE + Byte.BYTES + nameSize(route) + argsSize;
+        if (pending.remaining() < size) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + size));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+
+        int start = pending.position();
+        pending.position(start + RECORD_PREFIX_SIZE);
+        pending.put(op);
+        putName(route);
+        return start;
+    }
+
+    private void endRecord(int start) {
+        int bodyStart = start + RECORD_PREFIX_SIZE;
+        int bodyLength = pending.position() - bodyStart;
+
+        crc.reset();
+        crc.update(pending.array(), pending.arrayOffset() + bodyStart, bodyLength);
+        pending.putInt(start, bodyLength);
+        pending.putInt(start + Integer.BYTES, (int) crc.getValue());
+
+        appendedEnd += RECORD_PREFIX_SIZE + bodyLength;
+    }
+
+    private void putName(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        pending.putInt(bytes.length);
+        pending.put(bytes);
+    }
+
+    private static String getName(ByteBuffer body) throws IOException {
+        int len = body.getInt();
+        if (len < 0 || len > body.remaining())
+            throw new StreamCorruptedException("Invalid name length in LMSpace write-ahead log: " + len);
+
+        String name = new String(body.array(), body.arrayOffset() + body.position(), len, StandardCharsets.UTF_8);
+        body.position(body.position() + len);
+        return name;
+    }
+
+    //
+    // Interface: Recovery
+
+    // Loads the base snapshot, applies the complete records of the log, and attaches
+    // the log to the space so that further updates are appended to it. If the log does
+    // not apply to the snapshot, as after a crash during checkpoint, the snapshot alone
+    // is loaded: it already includes the updates in the log.
+    public static LMSpace recover(Path snapshotFile, Path logFile, LMSpaceOptions options) throws IOException {
+        LMSpace space = LMSpaceSnapshot.load(snapshotFile, options);
+        FileChannel log = null;
+        try {
+            log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+
+            LMSpaceWriteAheadLog wal = new LMSpaceWriteAheadLog(space, snapshotFile, log);
+            long end = replay(space, snapshotFile, log);
+            if (end < 0) {
+                wal.startLog();
+            } else {
+                wal.resumeLog(end);
+            }
+
+            space.setWriteAheadLog(wal);
+        } catch (IOException | RuntimeException ex) {
+            if (log != null) {
+                log.close();
+            }
+            space.close();
+            throw ex;
+        }
+
+        return space;
+    }
+
+    public static DynSpaceLoader<LMSpace> loader(Path snapshotFile, Path logFile) {
+        return () -> recover(snapshotFile, logFile, null);
+    }
+
+    public static DynSpaceLoader<LMSpace> loader(Path snapshotFile, Path logFile, LMSpaceOptions options) {
+        return () -> recover(snapshotFile, logFile, options);
+    }
+
+    // Applies the complete records of the log to space, returning the end of the last
+    // of them, or -1 if the log does not apply to the snapshot
+    private static long replay(LMSpace space, Path snapshotFile, FileChannel log) throws IOException {
+        long size = log.size();
+        if (size < HEADER_SIZE)
+            return -1;
+
+        ByteBuffer header = readAt(log, 0, HEADER_SIZE);
+        if (header.getInt() != LOG_MAGIC)
+            throw new StreamCorruptedException("Not an LMSpace write-ahead log");
+        int version = header.getInt();
+        if (version != VERSION)
+            throw new StreamCorruptedException("Unsupported LMSpace write-ahead log version: " + version);
+
+        if (header.getLong() != Files.size(snapshotFile)
+                || header.getLong() != Files.getLastModifiedTime(snapshotFile).toMillis())
+            return -1;
+
+        CRC32 crc = new CRC32();
+        long pos = HEADER_SIZE;
+        while (pos + RECORD_PREFIX_SIZE <= size) {
+            ByteBuffer prefix = readAt(log, pos, RECORD_PREFIX_SIZE);
+            int length = prefix.getInt();
+            int checksum = prefix.getInt();
+            if (length <= 0 || pos + RECORD_PREFIX_SIZE + length > size)
+                break;
+
+            ByteBuffer body = readAt(log, pos + RECORD_PREFIX_SIZE, length);
+            crc.reset();
+            crc.update(body.array(), body.arrayOffset(), length);
+            if ((int) crc.getValue() != checksum)
+                break;
+
+            apply(space, body);
+            pos += RECORD_PREFIX_SIZE + length;
+        }
+
+        return pos;
+    }
+
+    private static ByteBuffer readAt(FileChannel channel, long position, int len) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(len);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0)
+                break;
+        }
+        buf.flip();
+        return buf;
+    }
+
+    private static void apply(LMSpace space, ByteBuffer body) throws IOException {
+        byte op = body.get();
+        String route = getName(body);
+        DynNode<LMSpace, ?> node = resolveExisting(space, route);
+
+        switch (op) {
+            case OP_CREATE_FILE:
+                toDirectory(node).createFileImpl(getName(body));
+                break;
+            case OP_CREATE_SPARSE_FILE:
+                toDirectory(node).createSparseFileImpl(getName(body));
+                break;
+            case OP_CREATE_DIRECTORY:
+                toDirectory(node).createDirectoryImpl(getName(body));
+                break;
+            case OP_DELETE: {
+                String name = getName(body);
+                DynNode<LMSpace, ?> child = toDirectory(node).resolveChildImpl(name);
+                if (child == null)
+                    throw new StreamCorruptedException("Logged node does not exist: " + route + "/" + name);
+                child.delete();
+                break;
+            }
+            case OP_SIZE:
+                toFile(node).writeSize(body.getLong());
+                break;
+            case OP_WRITE: {
+                long off = body.getLong();
+                int len = body.getInt();
+                body.limit(body.position() + len);
+                toFile(node).replayWrite(off, body);
+                break;
+            }
+            case OP_MOVE: {
+                String name = getName(body);
+                DynNode<LMSpace, ?> child = toDirectory(node).resolveChildImpl(name);
+                if (child == null)
+                    throw new StreamCorruptedException("Logged node does not exist: " + route + "/" + name);
+
+                LMDirectory dstParent = toDirectory(resolveExisting(space, getName(body)));
+                dstParent.move(child, getName(body), CopyOptions.parse(new CopyOption[0]));
+                break;
+            }
+            case OP_CLONE:
+                toFile(node).cloneFrom(toFile(resolveExisting(space, getName(body))));
+                break;
+            case OP_PUNCH:
+                toFile(node).punchHoleImpl(body.getLong(), body.getLong());
+                break;
+            default:
+                throw new StreamCorruptedException("Unrecognized operation in LMSpace write-ahead log: " + op);
+        }
+    }
+
+    private static DynNode<LMSpace, ?> resolveExisting(LMSpace space, String route) throws IOException {
+        ResolutionResult<LMSpace> resolution = space.getRootDirectory().resolve(DynRoute.fromRouteNames(route),
+                false);
+        if (!resolution.isSuccess())
+            throw new StreamCorruptedException("Logged node does not exist: " + route);
+
+        return resolution.node();
+    }
+
+    private static LMDirectory toDirectory(DynNode<LMSpace, ?> node) throws IOException {
+        if (!(node instanceof LMDirectory))
+            throw new StreamCorruptedException("Logged directory is not a directory: " + node);
+        return (LMDirectory) node;
+    }
+
+    private static LMFile toFile(DynNode<LMSpace, ?> node) throws IOException {
+        if (!(node instanceof LMFile))
+            throw new StreamCorruptedException("Logged file is not a file: " + node);
+        return (LMFile) node;
+    }
+
+}
@@ -0,0 +1,87 @@
+package dynfs.dynlm;
+
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+final class LinkedBlockPool<Owner> implements BlockPool<Owner> {
+
+    //
+    // Configuration: Pool Size
+
+    private final int size;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    //
+    // State: Block Indices
+
+    private final Map<Integer, Owner> reservedBlocks;
+
+    // Indices at or above nextUnused have never been reserved; released indices
+    // are handed out again first, so that indices never reserved are materialized
+    // only as the reserved blocks grow
+    private int nextUnused;
+    private final Deque<Integer> freeBlocks;
+
+    @Override
+    public int numReserved() {
+        return reservedBlocks.size();
+    }
+
+    //
+    // Construction
+
+    LinkedBlockPool(int size) {
+        this.size = size;
+
+        this.reservedBlocks = new HashMap<>();
+        this.nextUnused = 0;
+        this.freeBlocks = new LinkedList<>();
+    }
+
+    //
+    // Implementation: Block Index Reservation
+
+    @Override
+    public int reserve(Owner owner) {
+        Integer index = !freeBlocks.isEmpty() ? freeBlocks.removeFirst() : nextUnused++;
+        reservedBlocks.put(index, owner);
+        return index;
+    }
+
+    @Override
+    public void release(Owner owner, int index) {
+        reservedBlocks.remove(index);
+        freeBlocks.add(index);
+    }
+
+    @Override
+    public void reserveAt(Owner owner, int index) {
+        reservedBlocks.put(index, owner);
+        nextUnused = Math.max(nextUnused, index + 1);
+    }
+
+    // The indices below nextUnused that were not restored are free
+    @Override
+    public void restored() {
+        for (int index = 0; index < nextUnused; index++) {
+            if (!reservedBlocks.containsKey(index)) {
+                freeBlocks.add(index);
+            }
+        }
+    }
+
+    //
+    // Implementation: Query, Block Index Ownership
+
+    @Override
+    public Owner getOwner(int index) {
+        return reservedBlocks.get(index);
+    }
+
+}
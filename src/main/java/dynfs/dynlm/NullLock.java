@@ -0,0 +1,47 @@
+package dynfs.dynlm;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+// Stands in for a lock where no concurrent access is permitted
+final class NullLock implements Lock {
+
+    //
+    // Constant: Instance
+
+    static final NullLock INSTANCE = new NullLock();
+
+    //
+    // Construction
+
+    private NullLock() {}
+
+    //
+    // Implementation: Lock
+
+    @Override
+    public void lock() {}
+
+    @Override
+    public void lockInterruptibly() {}
+
+    @Override
+    public boolean tryLock() {
+        return true;
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) {
+        return true;
+    }
+
+    @Override
+    public void unlock() {}
+
+    @Override
+    public Condition newCondition() {
+        throw new UnsupportedOperationException("NullLock does not support conditions");
+    }
+
+}
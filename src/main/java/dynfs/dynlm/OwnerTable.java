@@ -0,0 +1,90 @@
+package dynfs.dynlm;
+
+import java.util.Arrays;
+
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.custom_hash.TObjectIntCustomHashMap;
+import gnu.trove.stack.TIntStack;
+import gnu.trove.stack.array.TIntArrayStack;
+import gnu.trove.strategy.IdentityHashingStrategy;
+
+final class OwnerTable<Owner> {
+
+    // Assigns small integer identifiers to owners so that per-block ownership can
+    // be recorded in primitive arrays. An identifier is retained for as long as its
+    // owner holds at least one block.
+
+    //
+    // Constant: Null Owner Identifier
+
+    static final int NO_OWNER = 0;
+
+    //
+    // State: Owner Identifiers
+
+    private final TObjectIntMap<Owner> ids;
+
+    private Object[] owners;
+    private int[] counts;
+
+    private final TIntStack freeIds;
+    private int nextId;
+
+    //
+    // Construction
+
+    OwnerTable() {
+        this.ids = new TObjectIntCustomHashMap<>(IdentityHashingStrategy.INSTANCE, 16, 0.5f, NO_OWNER);
+
+        this.owners = new Object[16];
+        this.counts = new int[16];
+
+        this.freeIds = new TIntArrayStack();
+        this.nextId = NO_OWNER + 1;
+    }
+
+    //
+    // Interface: Owner Identifier Lookup
+
+    int idOf(Owner owner) {
+        return ids.get(owner);
+    }
+
+    @SuppressWarnings("unchecked")
+    Owner ownerOf(int id) {
+        return (Owner) owners[id];
+    }
+
+    //
+    // Interface: Owner Reference Counting
+
+    int acquire(Owner owner) {
+        return acquire(owner, 1);
+    }
+
+    int acquire(Owner owner, int n) {
+        int id = ids.get(owner);
+        if (id == NO_OWNER) {
+            id = freeIds.size() > 0 ? freeIds.pop() : nextId++;
+            if (id >= owners.length) {
+                owners = Arrays.copyOf(owners, owners.length * 2);
+                counts = Arrays.copyOf(counts, counts.length * 2);
+            }
+
+            ids.put(owner, id);
+            owners[id] = owner;
+        }
+
+        counts[id] += n;
+        return id;
+    }
+
+    void release(int id) {
+        if (--counts[id] == 0) {
+            ids.remove(owners[id]);
+            owners[id] = null;
+            freeIds.push(id);
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+package dynfs.dynlm;
+
+import java.nio.ByteBuffer;
+
+// A slab of a single block that may only be read: the zeroes through which the holes
+// of every BlockTable are read, or the content of a compressed block. Such blocks are
+// replaced with blocks of their own before they are written, so any write to the slab
+// is an error.
+final class ReadOnlyBlockSlab extends BlockSlab {
+
+    //
+    // State: Slab Data
+
+    private final byte[] data;
+
+    //
+    // Construction
+
+    ReadOnlyBlockSlab(byte[] data) {
+        if (data.length != Block.BLOCK_SIZE)
+            throw new IllegalArgumentException("A read-only slab holds exactly one block");
+
+        this.data = data;
+    }
+
+    //
+    // Implementation: Capacity
+
+    @Override
+    int capacity() {
+        return data.length;
+    }
+
+    //
+    // Implementation: I/O
+
+    @Override
+    void read(int off, byte[] dst, int dstOff, int len) {
+        System.arraycopy(data, off, dst, dstOff, len);
+    }
+
+    @Override
+    void write(int off, byte[] src, int srcOff, int len) {
+        throw new IllegalStateException("A read-only block cannot be written");
+    }
+
+    @Override
+    void read(int off, ByteBuffer dst, int len) {
+        dst.put(data, off, len);
+    }
+
+    @Override
+    void write(int off, ByteBuffer src, int len) {
+        throw new IllegalStateException("A read-only block cannot be written");
+    }
+
+    @Override
+    ByteBuffer view(int off, int len) {
+        return ByteBuffer.wrap(data, off, len).asReadOnlyBuffer();
+    }
+
+    @Override
+    byte readByte(int off) {
+        return data[off];
+    }
+
+    @Override
+    void writeByte(int off, byte val) {
+        throw new IllegalStateException("A read-only block cannot be written");
+    }
+
+}
@@ -0,0 +1,161 @@
+package dynfs.dynlm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+final class StripedBlockPool<Owner> implements BlockPool<Owner> {
+
+    //
+    // Constant: Stripe Size
+
+    // Stripes are whole multiples of STRIPE_ALIGNMENT blocks
+    private static final int STRIPE_ALIGNMENT = 64;
+
+    //
+    // Configuration: Pool Size
+
+    private final int size;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    //
+    // State: Stripes
+
+    // Stripe i holds block indices [i * stripeSize, (i + 1) * stripeSize), and is
+    // guarded by its own monitor
+    private final int stripeSize;
+    private final List<BlockPool<Owner>> stripes;
+
+    // Blocks neither reserved nor claimed by an allocation in progress
+    private final AtomicInteger numUnclaimed;
+
+    @Override
+    public int numReserved() {
+        return size - numUnclaimed.get();
+    }
+
+    //
+    // Construction
+
+    StripedBlockPool(int size, int maxStripes, IntFunction<BlockPool<Owner>> newStripe) {
+        this.size = size;
+
+        int numAlignedBlocks = Math.max(1, (size + STRIPE_ALIGNMENT - 1) / STRIPE_ALIGNMENT);
+        int numStripes = Math.max(1, Math.min(maxStripes, numAlignedBlocks));
+        this.stripeSize = (numAlignedBlocks + numStripes - 1) / numStripes * STRIPE_ALIGNMENT;
+
+        // Stripes rounded up to whole alignments may cover the pool in fewer stripes
+        numStripes = (size + stripeSize - 1) / stripeSize;
+        this.stripes = new ArrayList<>(numStripes);
+        for (int i = 0; i < numStripes; i++) {
+            stripes.add(newStripe.apply(Math.min(stripeSize, size - i * stripeSize)));
+        }
+
+        this.numUnclaimed = new AtomicInteger(size);
+    }
+
+    //
+    // Support: Stripe Selection
+
+    // Threads begin their search at a stripe of their own, so that threads
+    // allocating at once rarely contend for a stripe
+    private int homeStripe() {
+        return (int) (Thread.currentThread().getId() % stripes.size());
+    }
+
+    //
+    // Implementation: Block Index Reservation
+
+    @Override
+    public boolean tryClaim(int count) {
+        for (;;) {
+            int unclaimed = numUnclaimed.get();
+            if (count > unclaimed)
+                return false;
+            if (numUnclaimed.compareAndSet(unclaimed, unclaimed - count))
+                return true;
+        }
+    }
+
+    @Override
+    public int reserve(Owner owner) {
+        return BlockPool.runStart(reserveRun(owner, 1));
+    }
+
+    // NOTE: Callers must first claim the reserved blocks through tryClaim
+    @Override
+    public long reserveRun(Owner owner, int maxLength) {
+        // A free block exists while the caller holds an unfulfilled claim
+        for (int s = homeStripe();; s = (s + 1 == stripes.size() ? 0 : s + 1)) {
+            BlockPool<Owner> stripe = stripes.get(s);
+            synchronized (stripe) {
+                if (stripe.numFree() > 0) {
+                    long run = stripe.reserveRun(owner, maxLength);
+                    return BlockPool.run(s * stripeSize + BlockPool.runStart(run), BlockPool.runLength(run));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void release(Owner owner, int index) {
+        BlockPool<Owner> stripe = stripes.get(index / stripeSize);
+        synchronized (stripe) {
+            stripe.release(owner, index % stripeSize);
+        }
+
+        numUnclaimed.incrementAndGet();
+    }
+
+    @Override
+    public void reserveAt(Owner owner, int index) {
+        BlockPool<Owner> stripe = stripes.get(index / stripeSize);
+        synchronized (stripe) {
+            stripe.reserveAt(owner, index % stripeSize);
+        }
+
+        numUnclaimed.decrementAndGet();
+    }
+
+    @Override
+    public void restored() {
+        for (BlockPool<Owner> stripe : stripes) {
+            synchronized (stripe) {
+                stripe.restored();
+            }
+        }
+    }
+
+    //
+    // Implementation: Query, Block Index Ownership
+
+    @Override
+    public Owner getOwner(int index) {
+        BlockPool<Owner> stripe = stripes.get(index / stripeSize);
+        synchronized (stripe) {
+            return stripe.getOwner(index % stripeSize);
+        }
+    }
+
+    @Override
+    public boolean isReserved(int index) {
+        BlockPool<Owner> stripe = stripes.get(index / stripeSize);
+        synchronized (stripe) {
+            return stripe.isReserved(index % stripeSize);
+        }
+    }
+
+    @Override
+    public boolean isReservedBy(int index, Owner owner) {
+        BlockPool<Owner> stripe = stripes.get(index / stripeSize);
+        synchronized (stripe) {
+            return stripe.isReservedBy(index % stripeSize, owner);
+        }
+    }
+
+}
@@ -1,6 +1,7 @@
 package dynfs.template;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 public abstract class BufferLike {
 
@@ -63,6 +64,18 @@ public abstract class BufferLike {
         uncheckedWrite(off, src, srcOff, len);
     }
 
+    // Reads dst.remaining() bytes into dst, advancing its position
+    public final void read(long off, ByteBuffer dst) throws IOException {
+        checkBufferInterval(off, dst.remaining());
+        uncheckedRead(off, dst);
+    }
+
+    // Writes src.remaining() bytes from src, advancing its position
+    public final void write(long off, ByteBuffer src) throws IOException {
+        checkBufferInterval(off, src.remaining());
+        uncheckedWrite(off, src);
+    }
+
     public final byte readByte(long off) throws IOException {
         checkBufferOffset(off);
         return uncheckedReadByte(off);
@@ -82,6 +95,33 @@ public abstract class BufferLike {
 
     protected abstract byte uncheckedReadByte(long off) throws IOException;
 
+    // Default implementations go through the buffer's backing array, or else
+    // stage through a temporary array; implementations should override both
+
+    protected void uncheckedRead(long off, ByteBuffer dst) throws IOException {
+        int len = dst.remaining();
+        if (dst.hasArray()) {
+            uncheckedRead(off, dst.array(), dst.arrayOffset() + dst.position(), len);
+            dst.position(dst.position() + len);
+        } else {
+            byte[] buf = new byte[len];
+            uncheckedRead(off, buf, 0, len);
+            dst.put(buf);
+        }
+    }
+
+    protected void uncheckedWrite(long off, ByteBuffer src) throws IOException {
+        int len = src.remaining();
+        if (src.hasArray()) {
+            uncheckedWrite(off, src.array(), src.arrayOffset() + src.position(), len);
+            src.position(src.position() + len);
+        } else {
+            byte[] buf = new byte[len];
+            src.get(buf);
+            uncheckedWrite(off, buf, 0, len);
+        }
+    }
+
     protected abstract void uncheckedWriteByte(long off, byte val) throws IOException;
 
 }
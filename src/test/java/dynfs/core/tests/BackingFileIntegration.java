@@ -0,0 +1,112 @@
+package dynfs.core.tests;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dynfs.core.DynFileSystem;
+import dynfs.core.DynRoute;
+import dynfs.core.DynSpaceType.Storage;
+import dynfs.core.base.TestBase;
+import dynfs.core.io.DirectoryIO;
+import dynfs.core.io.FileIO;
+import dynfs.dynlm.Block;
+import dynfs.dynlm.LMSpace;
+import dynfs.dynlm.LMSpaceBackingFile;
+
+public class BackingFileIntegration extends TestBase {
+
+    //
+    // Parameters
+
+    private static final String TEST_SYSTEM_DOMAIN = "test-domain-backing-file";
+    private static final long TEST_SYSTEM_TOTAL_SPACE = Block.sizeOfNBlocks(4096L);
+
+    //
+    // Test: Reopen
+
+    @Test
+    public void testReopen() throws IOException {
+        Random random = new Random(20);
+        byte[] large = new byte[Block.sizeOfNBlocks(700) + 5];
+        byte[] small = new byte[300];
+        random.nextBytes(large);
+        random.nextBytes(small);
+
+        DynRoute rA = rRoot().resolve("a");
+
+        Path file = Files.createTempFile("dynfs-backing", ".blocks");
+        try {
+            DynFileSystem<LMSpace> fs = provider().loadFileSystem(TEST_SYSTEM_DOMAIN,
+                    () -> LMSpaceBackingFile.create("backed", file, TEST_SYSTEM_TOTAL_SPACE, null));
+            try {
+                Assertions.assertEquals(Storage.FILE_SYSTEM, fs.getStore().getType().storage);
+
+                DirectoryIO.createDirectory(fs, rA);
+                FileIO.writeFileContent(fs, rA.resolve("freed"), 0, small);
+                FileIO.writeFileContent(fs, rA.resolve("large"), 0, large);
+                FileIO.writeFileContent(fs, rRoot().resolve("small"), 0, small);
+                fs.resolve(rA.resolve("freed")).testExistence().delete();
+            } finally {
+                fs.close();
+            }
+
+            fs = provider().loadFileSystem(TEST_SYSTEM_DOMAIN, LMSpaceBackingFile.loader(file));
+            try {
+                Assertions.assertEquals("backed", fs.getStore().name());
+                Assertions.assertArrayEquals(large, FileIO.readFileData(fs, rA.resolve("large"), 0, large.length));
+                Assertions.assertArrayEquals(small, FileIO.readFileData(fs, rRoot().resolve("small"), 0, small.length));
+                Assertions.assertFalse(fs.resolve(rA.resolve("freed")).exists());
+                Assertions.assertEquals(Block.sizeOfNBlocks(702L), fs.getStore().getAllocatedSpace());
+
+                // Blocks freed before the space was closed are reused, without
+                // disturbing the restored blocks
+                FileIO.writeFileContent(fs, rRoot().resolve("new"), 0, large);
+                Assertions.assertArrayEquals(small, FileIO.readFileData(fs, rRoot().resolve("small"), 0, small.length));
+            } finally {
+                fs.close();
+            }
+
+            fs = provider().loadFileSystem(TEST_SYSTEM_DOMAIN, LMSpaceBackingFile.loader(file));
+            try {
+                Assertions.assertArrayEquals(large, FileIO.readFileData(fs, rRoot().resolve("new"), 0, large.length));
+                Assertions.assertArrayEquals(large, FileIO.readFileData(fs, rA.resolve("large"), 0, large.length));
+            } finally {
+                fs.close();
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    //
+    // Test: Unclean Close
+
+    @Test
+    public void testUncleanClose() throws IOException {
+        Path file = Files.createTempFile("dynfs-backing", ".blocks");
+        Path copy = Files.createTempFile("dynfs-backing-copy", ".blocks");
+        try {
+            LMSpace space = LMSpaceBackingFile.create("backed", file, TEST_SYSTEM_TOTAL_SPACE, null);
+            try {
+                // A copy of the file of an open space is as a crash would leave it
+                Files.copy(file, copy, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                space.close();
+            }
+
+            Assertions.assertThrows(StreamCorruptedException.class, () -> LMSpaceBackingFile.open(copy));
+            LMSpaceBackingFile.open(file).close();
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(copy);
+        }
+    }
+
+}
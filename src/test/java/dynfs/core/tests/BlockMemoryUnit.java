@@ -0,0 +1,176 @@
+package dynfs.core.tests;
+
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import dynfs.dynlm.Block;
+import dynfs.dynlm.BlockMemory;
+import dynfs.dynlm.BlockMemory.PoolType;
+import dynfs.dynlm.BlockMemory.StorageType;
+import dynfs.dynlm.LMSpaceOptions;
+
+public class BlockMemoryUnit {
+
+    //
+    // Parameters
+
+    private static final int TEST_NUM_BLOCKS = 130;
+
+    //
+    // Support: BlockMemory Provision
+
+    private static final class SpaceRecord {
+        private long allocatedSpace = 0;
+    }
+
+    private static BlockMemory<Object> newMemory(PoolType poolType, SpaceRecord record) throws IOException {
+        return new BlockMemory<>(s -> record.allocatedSpace = s, Block.sizeOfNBlocks(TEST_NUM_BLOCKS), poolType);
+    }
+
+    private static List<Block<Object>> toList(Iterable<Block<Object>> blocks) {
+        List<Block<Object>> result = new ArrayList<>();
+        blocks.forEach(result::add);
+        return result;
+    }
+
+    //
+    // Test: Allocation / Free
+
+    @Test
+    public void testAllocateFree() throws IOException {
+        for (PoolType poolType : PoolType.values()) {
+            SpaceRecord record = new SpaceRecord();
+            BlockMemory<Object> memory = newMemory(poolType, record);
+
+            Object ownerA = new Object();
+            Object ownerB = new Object();
+
+            List<Block<Object>> blocksA = toList(memory.allocate(ownerA, 70));
+            List<Block<Object>> blocksB = toList(memory.allocate(ownerB, 60));
+            Assertions.assertEquals(Block.sizeOfNBlocks(TEST_NUM_BLOCKS), record.allocatedSpace);
+
+            Map<Block<Object>, Object> distinct = new IdentityHashMap<>();
+            blocksA.forEach(b -> distinct.put(b, ownerA));
+            blocksB.forEach(b -> distinct.put(b, ownerB));
+            Assertions.assertEquals(TEST_NUM_BLOCKS, distinct.size());
+            distinct.forEach((b, o) -> Assertions.assertSame(o, b.getOwner()));
+
+            Assertions.assertThrows(FileSystemException.class, () -> memory.allocate(ownerA, 1));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> memory.free(ownerB, blocksA));
+
+            memory.free(ownerA, blocksA.subList(0, 10));
+            Assertions.assertEquals(Block.sizeOfNBlocks(TEST_NUM_BLOCKS - 10), record.allocatedSpace);
+            blocksA.subList(0, 10).forEach(b -> Assertions.assertNull(b.getOwner()));
+
+            List<Block<Object>> reallocated = toList(memory.allocate(ownerB, 10));
+            Assertions.assertEquals(10, reallocated.size());
+            reallocated.forEach(b -> Assertions.assertSame(ownerB, b.getOwner()));
+
+            memory.free(ownerA, blocksA.subList(10, blocksA.size()));
+            memory.free(ownerB, blocksB);
+            memory.free(ownerB, reallocated);
+            Assertions.assertEquals(0, record.allocatedSpace);
+
+            Assertions.assertEquals(TEST_NUM_BLOCKS, toList(memory.allocate(ownerA, TEST_NUM_BLOCKS)).size());
+            Assertions.assertThrows(IllegalArgumentException.class,
+                    () -> memory.free(ownerB, ImmutableList.of(reallocated.get(0))));
+
+            memory.close();
+            Assertions.assertTrue(memory.isClosed());
+        }
+    }
+
+    //
+    // Test: Lazy Materialization
+
+    @Test
+    public void testLazyMaterialization() throws IOException {
+        for (boolean releaseOnFree : new boolean[] { false, true }) {
+            LMSpaceOptions options = LMSpaceOptions.newInstance();
+            options.poolType = PoolType.BITMAP;
+            options.storageType = StorageType.HEAP;
+            options.releaseOnFree = releaseOnFree;
+
+            // Large enough that eager materialization would be prohibitive
+            BlockMemory<Object> memory = new BlockMemory<>(s -> {}, Block.sizeOfNBlocks(1L << 24), options);
+            Assertions.assertEquals(0, memory.getMaterializedSpace());
+
+            Object owner = new Object();
+            List<Block<Object>> blocks = toList(memory.allocate(owner, 3));
+            long materialized = memory.getMaterializedSpace();
+            Assertions.assertTrue(materialized >= Block.sizeOfNBlocks(3));
+            Assertions.assertTrue(materialized < Block.sizeOfNBlocks(TEST_NUM_BLOCKS * 10));
+
+            memory.free(owner, blocks);
+            Assertions.assertEquals(releaseOnFree ? 0 : materialized, memory.getMaterializedSpace());
+
+            memory.close();
+            Assertions.assertEquals(0, memory.getMaterializedSpace());
+        }
+    }
+
+    @Test
+    public void testChurnReusesMaterialized() throws IOException {
+        for (PoolType poolType : PoolType.values()) {
+            LMSpaceOptions options = LMSpaceOptions.newInstance();
+            options.poolType = poolType;
+            options.storageType = StorageType.HEAP;
+
+            BlockMemory<Object> memory = new BlockMemory<>(s -> {}, Block.sizeOfNBlocks(1L << 16), options);
+            Object owner = new Object();
+
+            // Freed blocks are reused before blocks never reserved are materialized
+            memory.free(owner, memory.allocate(owner, TEST_NUM_BLOCKS));
+            long materialized = memory.getMaterializedSpace();
+            for (int i = 0; i < 100; i++) {
+                memory.free(owner, memory.allocate(owner, TEST_NUM_BLOCKS));
+            }
+            Assertions.assertEquals(materialized, memory.getMaterializedSpace(), poolType.name());
+
+            memory.close();
+        }
+    }
+
+    //
+    // Test: Fragmented Allocation
+
+    @Test
+    public void testFragmentedAllocation() throws IOException {
+        int numBlocks = 1 << 17;
+        LMSpaceOptions options = LMSpaceOptions.newInstance();
+        options.poolType = PoolType.BITMAP;
+        options.storageType = StorageType.HEAP;
+
+        BlockMemory<Object> memory = new BlockMemory<>(s -> {}, Block.sizeOfNBlocks(numBlocks), options);
+        Object owner = new Object();
+
+        // Every other block is free, so that each run reserved is of one block; the
+        // runs are taken in one sweep of the pool rather than a sweep per run
+        List<Block<Object>> blocks = toList(memory.allocate(owner, numBlocks));
+        List<Block<Object>> freed = new ArrayList<>();
+        for (int i = 0; i < numBlocks; i += 2) {
+            freed.add(blocks.get(i));
+        }
+        memory.free(owner, freed);
+
+        List<Block<Object>> reallocated = Assertions.assertTimeout(Duration.ofSeconds(10),
+                () -> toList(memory.allocate(owner, numBlocks / 2)));
+        Map<Block<Object>, Object> distinct = new IdentityHashMap<>();
+        reallocated.forEach(b -> distinct.put(b, owner));
+        Assertions.assertEquals(numBlocks / 2, distinct.size());
+        Assertions.assertThrows(FileSystemException.class, () -> memory.allocate(owner, 1));
+
+        memory.close();
+    }
+
+}
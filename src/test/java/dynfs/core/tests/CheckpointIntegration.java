@@ -0,0 +1,108 @@
+package dynfs.core.tests;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dynfs.core.DynFileSystem;
+import dynfs.core.DynRoute;
+import dynfs.core.base.TestBase;
+import dynfs.core.io.DirectoryIO;
+import dynfs.core.io.FileIO;
+import dynfs.core.util.SystemsUtil;
+import dynfs.dynlm.Block;
+import dynfs.dynlm.LMSpace;
+import dynfs.dynlm.LMSpaceCheckpointer;
+import dynfs.dynlm.LMSpaceOptions;
+
+public class CheckpointIntegration extends TestBase {
+
+    //
+    // Parameters
+
+    private static final String TEST_SYSTEM_DOMAIN = "test-domain-checkpoint";
+    private static final String TEST_LOADED_DOMAIN = "test-domain-checkpoint-loaded";
+    private static final int TEST_SYSTEM_TOTAL_SPACE = Block.sizeOfNBlocks(4096);
+
+    //
+    // Test: Incremental Checkpoints
+
+    @Test
+    public void testCheckpoints() throws IOException {
+        Random random = new Random(18);
+        byte[] large = new byte[Block.sizeOfNBlocks(1000)];
+        byte[] patch = new byte[Block.sizeOfNBlocks(1)];
+        byte[] small = new byte[100];
+        random.nextBytes(large);
+        random.nextBytes(patch);
+        random.nextBytes(small);
+
+        DynRoute rA = rRoot().resolve("a");
+        DynRoute rLarge = rA.resolve("large");
+
+        LMSpaceOptions options = LMSpaceOptions.newInstance();
+        options.trackChanges = true;
+
+        Path snapshot = Files.createTempFile("dynfs-checkpoint", ".bin");
+        Path log = Files.createTempFile("dynfs-checkpoint", ".log");
+        try {
+            long lastCheckpoint;
+            DynFileSystem<LMSpace> fs = SystemsUtil.openSystem(TEST_SYSTEM_DOMAIN, TEST_SYSTEM_TOTAL_SPACE, options);
+            try (LMSpaceCheckpointer checkpointer = LMSpaceCheckpointer.start(fs.getStore(), snapshot, log)) {
+                DirectoryIO.createDirectory(fs, rA);
+                FileIO.writeFileContent(fs, rLarge, 0, large);
+                FileIO.writeFileContent(fs, rRoot().resolve("doomed"), 0, small);
+                Assertions.assertTrue(checkpointer.checkpoint() > large.length);
+
+                // Only the changed block of the large file is appended
+                int off = Block.sizeOfNBlocks(500);
+                FileIO.writeFileContent(fs, rLarge, off, patch);
+                System.arraycopy(patch, 0, large, off, patch.length);
+                fs.resolve(rRoot().resolve("doomed")).testExistence().delete();
+                DirectoryIO.createDirectory(fs, rRoot().resolve("b"));
+                FileIO.writeFileContent(fs, rRoot().resolve("b").resolve("small"), 0, small);
+                lastCheckpoint = checkpointer.checkpoint();
+                Assertions.assertTrue(lastCheckpoint < 2 * patch.length + small.length + 1024);
+
+                // A checkpoint with no changes holds only its framing
+                Assertions.assertTrue(checkpointer.checkpoint() < 32);
+            } finally {
+                SystemsUtil.closeSystem(TEST_SYSTEM_DOMAIN);
+            }
+
+            DynFileSystem<LMSpace> loaded = provider().loadFileSystem(TEST_LOADED_DOMAIN,
+                    LMSpaceCheckpointer.loader(snapshot, log));
+            try {
+                Assertions.assertArrayEquals(large, FileIO.readFileData(loaded, rLarge, 0, large.length));
+                Assertions.assertArrayEquals(small,
+                        FileIO.readFileData(loaded, rRoot().resolve("b").resolve("small"), 0, small.length));
+                Assertions.assertFalse(loaded.resolve(rRoot().resolve("doomed")).exists());
+            } finally {
+                loaded.close();
+            }
+
+            // A torn checkpoint is ignored, together with everything after it
+            try (FileChannel ch = FileChannel.open(log, StandardOpenOption.WRITE)) {
+                ch.truncate(ch.size() - 1);
+            }
+
+            loaded = provider().loadFileSystem(TEST_LOADED_DOMAIN, LMSpaceCheckpointer.loader(snapshot, log));
+            try {
+                Assertions.assertArrayEquals(large, FileIO.readFileData(loaded, rLarge, 0, large.length));
+                Assertions.assertTrue(loaded.resolve(rRoot().resolve("b").resolve("small")).exists());
+            } finally {
+                loaded.close();
+            }
+        } finally {
+            Files.deleteIfExists(snapshot);
+            Files.deleteIfExists(log);
+        }
+    }
+
+}
@@ -0,0 +1,221 @@
+package dynfs.core.tests;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dynfs.core.DynFileSystem;
+import dynfs.core.DynRoute;
+import dynfs.core.base.TestBase;
+import dynfs.core.io.FileIO;
+import dynfs.core.util.SystemsUtil;
+import dynfs.dynlm.Block;
+import dynfs.dynlm.BlockMemory.StorageType;
+import dynfs.dynlm.LMSpace;
+import dynfs.dynlm.LMSpaceOptions;
+import dynfs.dynlm.LMSpaceWriteAheadLog;
+
+public class CloneIntegration extends TestBase {
+
+    //
+    // Parameters
+
+    private static final String TEST_SYSTEM_DOMAIN = "test-domain-clone";
+    private static final String TEST_OTHER_DOMAIN = "test-domain-clone-other";
+    private static final String TEST_LOADED_DOMAIN = "test-domain-clone-loaded";
+    private static final int TEST_SYSTEM_TOTAL_SPACE = Block.sizeOfNBlocks(4096);
+
+    //
+    // Test: Copy-on-Write
+
+    @Test
+    public void testCopyOnWrite() throws IOException {
+        Random random = new Random(21);
+        byte[] large = new byte[Block.sizeOfNBlocks(1000) + 5];
+        byte[] patch = new byte[Block.BLOCK_SIZE];
+        random.nextBytes(large);
+        random.nextBytes(patch);
+
+        DynRoute rA = rRoot().resolve("a");
+        DynRoute rB = rRoot().resolve("b");
+        int off = Block.sizeOfNBlocks(500) + 7;
+
+        for (StorageType storageType : StorageType.values()) {
+            LMSpaceOptions options = LMSpaceOptions.newInstance();
+            options.storageType = storageType;
+
+            DynFileSystem<LMSpace> fs = SystemsUtil.openSystem(TEST_SYSTEM_DOMAIN, TEST_SYSTEM_TOTAL_SPACE, options);
+            try {
+                Path root = fs.getRootDirectory();
+                FileIO.writeFileContent(fs, rA, 0, large);
+                long allocated = fs.getStore().getAllocatedSpace();
+
+                // The copy shares every block of the source
+                Files.copy(root.resolve("a"), root.resolve("b"));
+                Assertions.assertEquals(allocated, fs.getStore().getAllocatedSpace());
+                Assertions.assertArrayEquals(large, FileIO.readFileData(fs, rB, 0, large.length));
+
+                // A write spanning two blocks of the copy splits only those blocks
+                FileIO.writeFileContent(fs, rB, off, patch);
+                Assertions.assertEquals(allocated + Block.sizeOfNBlocks(2L), fs.getStore().getAllocatedSpace());
+                Assertions.assertArrayEquals(large, FileIO.readFileData(fs, rA, 0, large.length));
+
+                byte[] patched = large.clone();
+                System.arraycopy(patch, 0, patched, off, patch.length);
+                Assertions.assertArrayEquals(patched, FileIO.readFileData(fs, rB, 0, patched.length));
+
+                // Blocks remain allocated until every file sharing them has freed them
+                fs.resolve(rA).testExistence().delete();
+                Assertions.assertEquals(allocated, fs.getStore().getAllocatedSpace());
+                Assertions.assertArrayEquals(patched, FileIO.readFileData(fs, rB, 0, patched.length));
+
+                // A move within the space takes the blocks of its source with it
+                Files.move(root.resolve("b"), root.resolve("c"));
+                Assertions.assertFalse(fs.resolve(rB).exists());
+                Assertions.assertEquals(allocated, fs.getStore().getAllocatedSpace());
+                Assertions.assertArrayEquals(patched,
+                        FileIO.readFileData(fs, rRoot().resolve("c"), 0, patched.length));
+
+                fs.resolve(rRoot().resolve("c")).testExistence().delete();
+                Assertions.assertEquals(0, fs.getStore().getAllocatedSpace());
+            } finally {
+                SystemsUtil.closeSystem(TEST_SYSTEM_DOMAIN);
+            }
+        }
+    }
+
+    //
+    // Test: Copy-on-Write Under Concurrent Reads
+
+    @Test
+    public void testConcurrentCopyOnWrite() throws Exception {
+        int numBlocks = 512;
+        byte[] content = new byte[Block.sizeOfNBlocks(numBlocks)];
+        for (int i = 0; i < numBlocks; i++) {
+            Arrays.fill(content, Block.sizeOfNBlocks(i), Block.sizeOfNBlocks(i + 1), (byte) (i + 1));
+        }
+        byte[] filler = new byte[content.length];
+        Arrays.fill(filler, (byte) 0x55);
+
+        LMSpaceOptions options = LMSpaceOptions.newInstance();
+        options.concurrent = true;
+
+        DynFileSystem<LMSpace> fs = SystemsUtil.openSystem(TEST_SYSTEM_DOMAIN, TEST_SYSTEM_TOTAL_SPACE, options);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Path root = fs.getRootDirectory();
+            DynRoute rA = rRoot().resolve("a");
+            FileIO.writeFileContent(fs, rA, 0, content);
+
+            // Each round shares the blocks of a with a copy, replaces them by rewriting a,
+            // and frees them by deleting the copy, while other files take freed blocks.
+            // Readers of a must never see the blocks once they are freed.
+            Future<?> writer = executor.submit(() -> {
+                for (int round = 0; round < 200; round++) {
+                    Files.copy(root.resolve("a"), root.resolve("b"), StandardCopyOption.REPLACE_EXISTING);
+                    FileIO.writeFileContent(fs, rA, 0, content);
+                    Files.delete(root.resolve("b"));
+                }
+                return null;
+            });
+
+            List<Future<?>> others = new ArrayList<>();
+            others.add(executor.submit(() -> {
+                while (!writer.isDone()) {
+                    FileIO.writeFileContent(fs, rRoot().resolve("c"), 0, filler);
+                    Files.delete(root.resolve("c"));
+                }
+                return null;
+            }));
+            for (int r = 0; r < 2; r++) {
+                others.add(executor.submit(() -> {
+                    while (!writer.isDone()) {
+                        Assertions.assertArrayEquals(content, FileIO.readFileData(fs, rA, 0, content.length));
+                    }
+                    return null;
+                }));
+            }
+
+            writer.get();
+            for (Future<?> future : others) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+            SystemsUtil.closeSystem(TEST_SYSTEM_DOMAIN);
+        }
+    }
+
+    //
+    // Test: Copy Between Spaces
+
+    @Test
+    public void testCopyBetweenSpaces() throws IOException {
+        byte[] large = new byte[Block.sizeOfNBlocks(300) + 11];
+        new Random(21).nextBytes(large);
+
+        DynFileSystem<LMSpace> fs = SystemsUtil.openSystem(TEST_SYSTEM_DOMAIN, TEST_SYSTEM_TOTAL_SPACE);
+        DynFileSystem<LMSpace> other = SystemsUtil.openSystem(TEST_OTHER_DOMAIN, TEST_SYSTEM_TOTAL_SPACE);
+        try {
+            FileIO.writeFileContent(fs, rRoot().resolve("a"), 0, large);
+            Files.copy(fs.getRootDirectory().resolve("a"), other.getRootDirectory().resolve("a"));
+            Assertions.assertArrayEquals(large, FileIO.readFileData(other, rRoot().resolve("a"), 0, large.length));
+        } finally {
+            SystemsUtil.closeSystem(TEST_SYSTEM_DOMAIN);
+            SystemsUtil.closeSystem(TEST_OTHER_DOMAIN);
+        }
+    }
+
+    //
+    // Test: Write-Ahead Log Recovery
+
+    @Test
+    public void testRecovery() throws IOException {
+        byte[] content = new byte[Block.sizeOfNBlocks(10)];
+        new Random(21).nextBytes(content);
+
+        DynRoute rA = rRoot().resolve("a");
+        DynRoute rB = rRoot().resolve("b");
+
+        Path snapshot = Files.createTempFile("dynfs-clone", ".bin");
+        Path log = Files.createTempFile("dynfs-clone", ".log");
+        try {
+            DynFileSystem<LMSpace> fs = SystemsUtil.openSystem(TEST_SYSTEM_DOMAIN, TEST_SYSTEM_TOTAL_SPACE);
+            try {
+                Path root = fs.getRootDirectory();
+                fs.getStore().attachWriteAheadLog(snapshot, log);
+
+                FileIO.writeFileContent(fs, rA, 0, content);
+                Files.write(root.resolve("b"), new byte[] { 1 });
+                Files.copy(root.resolve("a"), root.resolve("b"), StandardCopyOption.REPLACE_EXISTING);
+                FileIO.writeFileContent(fs, rA, 0, new byte[] { 2 });
+            } finally {
+                SystemsUtil.closeSystem(TEST_SYSTEM_DOMAIN);
+            }
+
+            DynFileSystem<LMSpace> loaded = provider().loadFileSystem(TEST_LOADED_DOMAIN,
+                    LMSpaceWriteAheadLog.loader(snapshot, log));
+            try {
+                Assertions.assertArrayEquals(content, FileIO.readFileData(loaded, rB, 0, content.length));
+                Assertions.assertEquals(2, FileIO.readFileData(loaded, rA, 0, 1)[0]);
+            } finally {
+                loaded.close();
+            }
+        } finally {
+            Files.deleteIfExists(snapshot);
+            Files.deleteIfExists(log);
+        }
+    }
+
+}
@@ -0,0 +1,216 @@
+package dynfs.core.tests;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dynfs.core.DynFileSystem;
+import dynfs.core.DynPath;
+import dynfs.core.DynRoute;
+import dynfs.core.base.TestBase;
+import dynfs.core.io.FileIO;
+import dynfs.core.util.SystemsUtil;
+import dynfs.dynlm.Block;
+import dynfs.dynlm.BlockMemory.StorageType;
+import dynfs.dynlm.LMSpace;
+import dynfs.dynlm.LMSpaceColdTier;
+import dynfs.dynlm.LMSpaceOptions;
+
+public class ColdTierIntegration extends TestBase {
+
+    //
+    // Parameters
+
+    private static final String TEST_SYSTEM_DOMAIN = "test-domain-cold-tier";
+    private static final int TEST_SYSTEM_TOTAL_SPACE = Block.sizeOfNBlocks(4096);
+
+    private static final int NUM_READERS = 3;
+    private static final int NUM_CONCURRENT_BLOCKS = 32;
+    private static final int NUM_ROUNDS = 100000;
+
+    //
+    // Support: Content
+
+    // Repetitive records, which compress well, with a counter so that no two blocks are
+    // alike
+    private static byte[] records(int len) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; sb.length() < len; i++) {
+            sb.append("{\"id\": ").append(i).append(", \"state\": \"cold\", \"payload\": \"aaaaaaaa\"}\n");
+        }
+        return sb.substring(0, len).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    //
+    // Test: Compression
+
+    @Test
+    public void testCompressCold() throws IOException {
+        byte[] cold = records(Block.sizeOfNBlocks(100));
+        byte[] noise = new byte[Block.sizeOfNBlocks(10)];
+        new Random(25).nextBytes(noise);
+
+        DynRoute rA = rRoot().resolve("a");
+        DynRoute rB = rRoot().resolve("b");
+
+        for (StorageType storageType : new StorageType[] { StorageType.HEAP, StorageType.DIRECT }) {
+            LMSpaceOptions options = LMSpaceOptions.newInstance();
+            options.storageType = storageType;
+            options.compressColdBlocks = true;
+
+            DynFileSystem<LMSpace> fs = SystemsUtil.openSystem(TEST_SYSTEM_DOMAIN, TEST_SYSTEM_TOTAL_SPACE, options);
+            try (LMSpaceColdTier tier = LMSpaceColdTier.start(fs.getStore())) {
+                FileIO.writeFileContent(fs, rA, 0, cold);
+                FileIO.writeFileContent(fs, rB, 0, noise);
+
+                // Blocks written since the last pass are not cold
+                Assertions.assertEquals(0, tier.compress());
+                Assertions.assertEquals(100, tier.compress());
+
+                // Blocks that compress poorly are left as they are
+                Assertions.assertEquals(Block.sizeOfNBlocks(10L), fs.getStore().getAllocatedSpace());
+                long compressed = fs.getStore().getCompressedSpace();
+                Assertions.assertTrue(compressed > 0 && compressed < cold.length / 4, "compressed: " + compressed);
+
+                // Compressed blocks are read in place, and given blocks again when written
+                Assertions.assertArrayEquals(cold, FileIO.readFileData(fs, rA, 0, cold.length));
+                Assertions.assertEquals(Block.sizeOfNBlocks(10L), fs.getStore().getAllocatedSpace());
+
+                FileIO.writeFileContent(fs, rA, Block.sizeOfNBlocks(50L) + 3, new byte[] { 7 });
+                cold[Block.sizeOfNBlocks(50) + 3] = 7;
+                Assertions.assertEquals(Block.sizeOfNBlocks(11L), fs.getStore().getAllocatedSpace());
+                Assertions.assertArrayEquals(cold, FileIO.readFileData(fs, rA, 0, cold.length));
+
+                // A copy of a compressed file holds compressed blocks of its own
+                Assertions.assertEquals(0, tier.compress());
+                Assertions.assertEquals(1, tier.compress());
+                Files.copy(fs.getRootDirectory().resolve("a"), fs.getRootDirectory().resolve("c"));
+                fs.resolve(rA).testExistence().delete();
+                Assertions.assertArrayEquals(cold, FileIO.readFileData(fs, rRoot().resolve("c"), 0, cold.length));
+
+                fs.resolve(rRoot().resolve("c")).testExistence().delete();
+                Assertions.assertEquals(0, fs.getStore().getCompressedSpace());
+            } finally {
+                SystemsUtil.closeSystem(TEST_SYSTEM_DOMAIN);
+            }
+        }
+    }
+
+    //
+    // Test: Background Passes
+
+    @Test
+    public void testBackground() throws IOException, InterruptedException {
+        byte[] cold = records(Block.sizeOfNBlocks(20));
+
+        LMSpaceOptions options = LMSpaceOptions.newInstance();
+        options.concurrent = true;
+        options.compressColdBlocks = true;
+
+        DynFileSystem<LMSpace> fs = SystemsUtil.openSystem(TEST_SYSTEM_DOMAIN, TEST_SYSTEM_TOTAL_SPACE, options);
+        try {
+            FileIO.writeFileContent(fs, rRoot().resolve("a"), 0, cold);
+            LMSpaceColdTier tier = LMSpaceColdTier.start(fs.getStore(), 10, TimeUnit.MILLISECONDS);
+            try {
+                for (int i = 0; i < 500 && fs.getStore().getAllocatedSpace() != 0; i++) {
+                    Thread.sleep(10);
+                }
+            } finally {
+                tier.close();
+            }
+
+            Assertions.assertEquals(0, fs.getStore().getAllocatedSpace());
+            Assertions.assertArrayEquals(cold, FileIO.readFileData(fs, rRoot().resolve("a"), 0, cold.length));
+        } finally {
+            SystemsUtil.closeSystem(TEST_SYSTEM_DOMAIN);
+        }
+    }
+
+    //
+    // Test: Concurrent Reads / Writes
+
+    @Test
+    public void testConcurrentReadWrite() throws Exception {
+        byte[] cold = records(Block.sizeOfNBlocks(NUM_CONCURRENT_BLOCKS));
+        byte[] other = records(Block.sizeOfNBlocks(NUM_CONCURRENT_BLOCKS));
+
+        DynRoute rA = rRoot().resolve("a");
+        DynRoute rB = rRoot().resolve("b");
+
+        LMSpaceOptions options = LMSpaceOptions.newInstance();
+        options.concurrent = true;
+        options.compressColdBlocks = true;
+
+        DynFileSystem<LMSpace> fs = SystemsUtil.openSystem(TEST_SYSTEM_DOMAIN, TEST_SYSTEM_TOTAL_SPACE, options);
+        try (LMSpaceColdTier tier = LMSpaceColdTier.start(fs.getStore())) {
+            FileIO.writeFileContent(fs, rA, 0, cold);
+            FileIO.writeFileContent(fs, rB, 0, other);
+
+            // The writer rewrites blocks of the file with the content they hold, giving
+            // compressed blocks their blocks back while the readers decompress them;
+            // the other file takes the compressed slots the writer frees. Each touches
+            // one block at a time, so that most blocks remain cold.
+            ExecutorService executor = Executors.newFixedThreadPool(NUM_READERS + 1);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(25);
+                    try (FileChannel a = FileChannel.open(DynPath.newPath(fs, rA), StandardOpenOption.WRITE);
+                            FileChannel b = FileChannel.open(DynPath.newPath(fs, rB), StandardOpenOption.WRITE)) {
+                        for (int round = 0; round < NUM_ROUNDS; round++) {
+                            int off = Block.sizeOfNBlocks(random.nextInt(NUM_CONCURRENT_BLOCKS));
+                            a.write(ByteBuffer.wrap(cold, off, Block.BLOCK_SIZE), off);
+                            b.write(ByteBuffer.wrap(other, off, Block.BLOCK_SIZE), off);
+                        }
+                    }
+                    return null;
+                }));
+                for (int r = 0; r < NUM_READERS; r++) {
+                    int seed = r;
+                    futures.add(executor.submit(() -> {
+                        Random random = new Random(seed);
+                        ByteBuffer dst = ByteBuffer.allocate(Block.BLOCK_SIZE);
+                        try (FileChannel a = FileChannel.open(DynPath.newPath(fs, rA), StandardOpenOption.READ)) {
+                            for (int round = 0; round < NUM_ROUNDS; round++) {
+                                int off = Block.sizeOfNBlocks(random.nextInt(NUM_CONCURRENT_BLOCKS));
+                                dst.clear();
+                                a.read(dst, off);
+                                Assertions.assertEquals(ByteBuffer.wrap(cold, off, Block.BLOCK_SIZE), dst.flip());
+                            }
+                        }
+                        return null;
+                    }));
+                }
+
+                while (!futures.stream().allMatch(Future::isDone)) {
+                    tier.compress();
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+
+            Assertions.assertArrayEquals(cold, FileIO.readFileData(fs, rA, 0, cold.length));
+            Assertions.assertArrayEquals(other, FileIO.readFileData(fs, rB, 0, other.length));
+        } finally {
+            SystemsUtil.closeSystem(TEST_SYSTEM_DOMAIN);
+        }
+    }
+
+}
@@ -0,0 +1,168 @@
+package dynfs.core.tests;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dynfs.core.DynFileSystem;
+import dynfs.core.DynPath;
+import dynfs.core.DynRoute;
+import dynfs.core.base.TestBase;
+import dynfs.core.io.FileIO;
+import dynfs.core.util.SystemsUtil;
+import dynfs.dynlm.Block;
+import dynfs.dynlm.BlockMemory.PoolType;
+import dynfs.dynlm.LMSpace;
+import dynfs.dynlm.LMSpaceOptions;
+
+public class ConcurrentAccessIntegration extends TestBase {
+
+    //
+    // Parameters
+
+    private static final String TEST_SYSTEM_DOMAIN = "test-domain-concurrent";
+    private static final int TEST_SYSTEM_TOTAL_SPACE = Block.sizeOfNBlocks(2048);
+
+    private static final int NUM_THREADS = 8;
+    private static final int NUM_ROUNDS = 20;
+
+    //
+    // Support: System Provision
+
+    private interface SystemTest {
+        void run(DynFileSystem<LMSpace> fs, ExecutorService executor) throws Exception;
+    }
+
+    // Blocks released on free are dematerialized, and may be materialized again by
+    // another thread at once
+    private static void forEachPoolType(SystemTest test) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+        try {
+            for (PoolType poolType : PoolType.values()) {
+                for (boolean releaseOnFree : new boolean[] { false, true }) {
+                    LMSpaceOptions options = LMSpaceOptions.newInstance();
+                    options.poolType = poolType;
+                    options.concurrent = true;
+                    options.releaseOnFree = releaseOnFree;
+
+                    DynFileSystem<LMSpace> fs = SystemsUtil.openSystem(TEST_SYSTEM_DOMAIN, TEST_SYSTEM_TOTAL_SPACE,
+                            options);
+                    try {
+                        test.run(fs, executor);
+                    } finally {
+                        SystemsUtil.closeSystem(TEST_SYSTEM_DOMAIN);
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void awaitAll(List<Future<?>> futures) throws InterruptedException, ExecutionException {
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    //
+    // Test: Independent Files
+
+    @Test
+    public void testIndependentFiles() throws Exception {
+        forEachPoolType((fs, executor) -> {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < NUM_THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(thread);
+                    DynRoute route = rRoot().resolve("file-" + thread + ".bin");
+
+                    for (int round = 0; round < NUM_ROUNDS; round++) {
+                        byte[] data = new byte[Block.BLOCK_SIZE * (1 + random.nextInt(24)) + random.nextInt(100)];
+                        random.nextBytes(data);
+
+                        FileIO.writeFileContent(fs, route, 0, data);
+                        Assertions.assertArrayEquals(data, FileIO.readFileData(fs, route, 0, data.length));
+
+                        // Shrink the file so that blocks are returned to the pool between rounds
+                        try (FileChannel ch = FileChannel.open(DynPath.newPath(fs, route),
+                                StandardOpenOption.WRITE)) {
+                            ch.truncate(random.nextInt(data.length));
+                        }
+                    }
+
+                    return null;
+                }));
+            }
+            awaitAll(futures);
+
+            long expectedSpace = 0;
+            for (int t = 0; t < NUM_THREADS; t++) {
+                try (FileChannel ch = FileChannel.open(DynPath.newPath(fs, rRoot().resolve("file-" + t + ".bin")),
+                        StandardOpenOption.READ)) {
+                    expectedSpace += Block.sizeOfNBlocks(Block.numBlocks(ch.size()));
+                }
+            }
+            Assertions.assertEquals(expectedSpace, fs.getStore().getAllocatedSpace());
+        });
+    }
+
+    //
+    // Test: Shared File
+
+    @Test
+    public void testConcurrentAppend() throws Exception {
+        forEachPoolType((fs, executor) -> {
+            DynRoute route = rRoot().resolve("shared.bin");
+            int recordSize = 1000;
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < NUM_THREADS; t++) {
+                byte tag = (byte) (t + 1);
+                futures.add(executor.submit(() -> {
+                    byte[] record = new byte[recordSize];
+                    Arrays.fill(record, tag);
+
+                    try (FileChannel ch = FileChannel.open(DynPath.newPath(fs, route), StandardOpenOption.CREATE,
+                            StandardOpenOption.APPEND)) {
+                        for (int round = 0; round < NUM_ROUNDS; round++) {
+                            ch.write(ByteBuffer.wrap(record));
+                        }
+                    }
+
+                    return null;
+                }));
+            }
+            awaitAll(futures);
+
+            // Every record is intact, and each writer's records all arrived
+            byte[] data = FileIO.readFileData(fs, route, 0, NUM_THREADS * NUM_ROUNDS * recordSize + 1);
+            Assertions.assertEquals(NUM_THREADS * NUM_ROUNDS * recordSize, data.length);
+
+            int[] counts = new int[NUM_THREADS + 1];
+            for (int r = 0; r < data.length; r += recordSize) {
+                for (int i = 1; i < recordSize; i++) {
+                    Assertions.assertEquals(data[r], data[r + i]);
+                }
+                counts[data[r]]++;
+            }
+            for (int t = 1; t <= NUM_THREADS; t++) {
+                Assertions.assertEquals(NUM_ROUNDS, counts[t]);
+            }
+        });
+    }
+
+}
@@ -0,0 +1,140 @@
+package dynfs.core.tests;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dynfs.core.DynFileSystem;
+import dynfs.core.DynRoute;
+import dynfs.core.DynSpaceAttributeView;
+import dynfs.core.base.TestBase;
+import dynfs.core.io.FileIO;
+import dynfs.core.util.SystemsUtil;
+import dynfs.dynlm.Block;
+import dynfs.dynlm.BlockMemory.StorageType;
+import dynfs.dynlm.LMSpace;
+import dynfs.dynlm.LMSpaceOptions;
+
+public class DedupIntegration extends TestBase {
+
+    //
+    // Parameters
+
+    private static final String TEST_SYSTEM_DOMAIN = "test-domain-dedup";
+    private static final int TEST_SYSTEM_TOTAL_SPACE = Block.sizeOfNBlocks(4096);
+
+    //
+    // Test: Deduplication
+
+    @Test
+    public void testDedup() throws IOException {
+        Random random = new Random(24);
+        byte[] content = new byte[Block.sizeOfNBlocks(100)];
+        random.nextBytes(content);
+
+        DynRoute rA = rRoot().resolve("a");
+        DynRoute rB = rRoot().resolve("b");
+
+        for (StorageType storageType : StorageType.values()) {
+            LMSpaceOptions options = LMSpaceOptions.newInstance();
+            options.storageType = storageType;
+            options.deduplicate = true;
+
+            DynFileSystem<LMSpace> fs = SystemsUtil.openSystem(TEST_SYSTEM_DOMAIN, TEST_SYSTEM_TOTAL_SPACE, options);
+            try {
+                DynSpaceAttributeView view = fs.getStore().getFileStoreAttributeView(DynSpaceAttributeView.class);
+                FileIO.writeFileContent(fs, rA, 0, content);
+                Assertions.assertEquals(1.0, view.dedupRatio());
+
+                // A file written with the same content, block for block, takes no storage
+                FileIO.writeFileContent(fs, rB, 0, content);
+                Assertions.assertEquals(Block.sizeOfNBlocks(100L), fs.getStore().getAllocatedSpace());
+                Assertions.assertEquals(2.0, view.dedupRatio());
+                Assertions.assertEquals(2.0, fs.getStore().getAttribute("dedupRatio"));
+
+                // A write to a shared block copies it first
+                FileIO.writeFileContent(fs, rB, Block.sizeOfNBlocks(10L) + 1, new byte[] { 5 });
+                Assertions.assertEquals(Block.sizeOfNBlocks(101L), fs.getStore().getAllocatedSpace());
+                Assertions.assertArrayEquals(content, FileIO.readFileData(fs, rA, 0, content.length));
+
+                byte[] patched = content.clone();
+                patched[Block.sizeOfNBlocks(10) + 1] = 5;
+                Assertions.assertArrayEquals(patched, FileIO.readFileData(fs, rB, 0, patched.length));
+
+                // Blocks are released once no file holds them
+                fs.resolve(rA).testExistence().delete();
+                Assertions.assertEquals(Block.sizeOfNBlocks(100L), fs.getStore().getAllocatedSpace());
+                Assertions.assertArrayEquals(patched, FileIO.readFileData(fs, rB, 0, patched.length));
+
+                fs.resolve(rB).testExistence().delete();
+                Assertions.assertEquals(0, fs.getStore().getAllocatedSpace());
+                Assertions.assertEquals(1.0, view.dedupRatio());
+            } finally {
+                SystemsUtil.closeSystem(TEST_SYSTEM_DOMAIN);
+            }
+        }
+    }
+
+    //
+    // Test: Partial Blocks
+
+    @Test
+    public void testPartialBlocks() throws IOException {
+        byte[] content = new byte[Block.sizeOfNBlocks(3)];
+        new Random(24).nextBytes(content);
+
+        LMSpaceOptions options = LMSpaceOptions.newInstance();
+        options.deduplicate = true;
+
+        DynFileSystem<LMSpace> fs = SystemsUtil.openSystem(TEST_SYSTEM_DOMAIN, TEST_SYSTEM_TOTAL_SPACE, options);
+        try {
+            // Only blocks wholly written are shared
+            FileIO.writeFileContent(fs, rRoot().resolve("a"), 0, content);
+            FileIO.writeFileContent(fs, rRoot().resolve("b"), 1, content);
+            Assertions.assertEquals(Block.sizeOfNBlocks(7L), fs.getStore().getAllocatedSpace());
+            Assertions.assertEquals(1.0, fs.getStore().getDedupRatio());
+        } finally {
+            SystemsUtil.closeSystem(TEST_SYSTEM_DOMAIN);
+        }
+    }
+
+    //
+    // Test: Overwrites
+
+    @Test
+    public void testOverwriteInPlace() throws IOException {
+        Random random = new Random(24);
+        byte[] content = new byte[Block.sizeOfNBlocks(16)];
+        random.nextBytes(content);
+
+        DynRoute rA = rRoot().resolve("a");
+
+        LMSpaceOptions options = LMSpaceOptions.newInstance();
+        options.deduplicate = true;
+
+        // The file fills the space, so that no block could be copied
+        DynFileSystem<LMSpace> fs = SystemsUtil.openSystem(TEST_SYSTEM_DOMAIN, content.length, options);
+        try {
+            FileIO.writeFileContent(fs, rA, 0, content);
+
+            // A block held by one file alone is written in place, though it is indexed
+            byte[] patch = new byte[Block.BLOCK_SIZE];
+            for (int i = 0; i < 10; i++) {
+                random.nextBytes(patch);
+                FileIO.writeFileContent(fs, rA, Block.sizeOfNBlocks(3L), patch);
+                System.arraycopy(patch, 0, content, Block.sizeOfNBlocks(3), patch.length);
+
+                FileIO.writeFileContent(fs, rA, 7, new byte[] { (byte) i });
+                content[7] = (byte) i;
+            }
+            Assertions.assertEquals(content.length, fs.getStore().getAllocatedSpace());
+            Assertions.assertEquals(1.0, fs.getStore().getDedupRatio());
+            Assertions.assertArrayEquals(content, FileIO.readFileData(fs, rA, 0, content.length));
+        } finally {
+            SystemsUtil.closeSystem(TEST_SYSTEM_DOMAIN);
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+package dynfs.core.tests;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.Lists;
+
+import dynfs.core.DynDirectory;
+import dynfs.core.DynFileSystem;
+import dynfs.core.DynNode;
+import dynfs.core.DynPath;
+import dynfs.core.base.TestBase;
+import dynfs.core.util.SystemsUtil;
+import dynfs.dynlm.Block;
+import dynfs.dynlm.LMSpace;
+import dynfs.dynlm.LMSpaceOptions;
+
+public class DirectoryIndexIntegration extends TestBase {
+
+    //
+    // Parameters
+
+    private static final String TEST_SYSTEM_DOMAIN = "test-domain-index";
+    private static final int TEST_SYSTEM_TOTAL_SPACE = Block.sizeOfNBlocks(16);
+
+    private static final int NUM_ENTRIES = 300;
+
+    //
+    // Support: System Provision
+
+    private interface SystemTest {
+        void run(DynFileSystem<LMSpace> fs) throws IOException;
+    }
+
+    private static void forEachConfiguration(SystemTest test) throws IOException {
+        for (boolean sorted : new boolean[] { false, true }) {
+            for (boolean concurrent : new boolean[] { false, true }) {
+                LMSpaceOptions options = LMSpaceOptions.newInstance();
+                options.sortedDirectories = sorted;
+                options.concurrent = concurrent;
+
+                DynFileSystem<LMSpace> fs = SystemsUtil.openSystem(TEST_SYSTEM_DOMAIN, TEST_SYSTEM_TOTAL_SPACE,
+                        options);
+                try {
+                    test.run(fs);
+                } finally {
+                    SystemsUtil.closeSystem(TEST_SYSTEM_DOMAIN);
+                }
+            }
+        }
+    }
+
+    private static String entryName(int i) {
+        return String.format("part-%04d", i);
+    }
+
+    private static List<String> names(Iterator<DynNode<LMSpace, ?>> nodes) {
+        List<String> names = new ArrayList<>();
+        nodes.forEachRemaining(node -> names.add(node.getName()));
+        return names;
+    }
+
+    private static List<String> list(DirectoryStream<Path> stream) throws IOException {
+        try {
+            List<String> names = new ArrayList<>();
+            for (Path path : stream) {
+                names.add(((DynPath) path).route().getFileName());
+            }
+            return names;
+        } finally {
+            stream.close();
+        }
+    }
+
+    private static List<String> sorted(List<String> names) {
+        return names.stream().sorted().collect(Collectors.toList());
+    }
+
+    //
+    // Test: Ordered / Prefix / Range Iteration
+
+    @Test
+    public void testPrefixRange() throws IOException {
+        forEachConfiguration(fs -> {
+            DynDirectory<LMSpace, ?> root = fs.getStore().getRootDirectory();
+            List<String> expected = IntStream.range(0, NUM_ENTRIES).mapToObj(DirectoryIndexIntegration::entryName)
+                    .collect(Collectors.toList());
+            for (String name : Lists.reverse(expected)) {
+                Files.createFile(fs.getPath("/" + name));
+            }
+            Files.createFile(fs.getPath("/other"));
+
+            List<String> all = names(root.iterator());
+            Assertions.assertEquals(NUM_ENTRIES + 1, all.size());
+            Assertions.assertEquals(root.isOrdered(), all.equals(sorted(all)));
+
+            List<String> prefixed = expected.subList(120, 130);
+            Assertions.assertEquals(prefixed, sorted(names(root.iterator("part-012"))));
+            Assertions.assertEquals(expected.subList(50, 75),
+                    sorted(names(root.iterator(entryName(50), entryName(75)))));
+            Assertions.assertTrue(names(root.iterator("zzz")).isEmpty());
+
+            // Glob pushdown
+            Assertions.assertEquals(prefixed,
+                    sorted(list(provider().newDirectoryStream(fs.getPath("/"), "part-012*"))));
+            Assertions.assertEquals(expected.subList(7, 8),
+                    list(provider().newDirectoryStream(fs.getPath("/"), entryName(7))));
+            Assertions.assertEquals(NUM_ENTRIES + 1, list(provider().newDirectoryStream(fs.getPath("/"), "*")).size());
+            Assertions.assertEquals(expected.subList(100, 110), sorted(list(provider().newDirectoryStream(
+                    fs.getPath("/"), "part-010{0,1,2,3,4,5,6,7,8,9}"))));
+
+            // Matcher-backed filters
+            Assertions.assertEquals(prefixed,
+                    sorted(list(Files.newDirectoryStream(fs.getPath("/"), fs.getPathMatcher("glob:part-012*")))));
+            Assertions.assertEquals(expected.subList(0, 10),
+                    sorted(list(Files.newDirectoryStream(fs.getPath("/"), fs.getPathMatcher("regex:part-000\\d")))));
+            Assertions.assertEquals(prefixed, sorted(list(Files.newDirectoryStream(fs.getPath("/"), "part-012*"))));
+        });
+    }
+
+}
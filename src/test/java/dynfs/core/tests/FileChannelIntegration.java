@@ -0,0 +1,250 @@
+package dynfs.core.tests;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dynfs.core.DynFileSystem;
+import dynfs.core.DynPath;
+import dynfs.core.DynRoute;
+import dynfs.core.base.TestBase;
+import dynfs.core.io.FileIO;
+import dynfs.core.util.SystemsUtil;
+import dynfs.dynlm.Block;
+import dynfs.dynlm.BlockMemory.PoolType;
+import dynfs.dynlm.BlockMemory.StorageType;
+import dynfs.dynlm.LMSpace;
+import dynfs.dynlm.LMSpaceOptions;
+
+public class FileChannelIntegration extends TestBase {
+
+    //
+    // Parameters
+
+    private static final String TEST_SYSTEM_DOMAIN = "test-domain-channel";
+    private static final int TEST_SYSTEM_TOTAL_SPACE = Block.sizeOfNBlocks(200);
+
+    private static final long SEED = 0xc4a77e1;
+
+    //
+    // Support: System Provision
+
+    private interface SystemTest {
+        void run(DynFileSystem<LMSpace> fs) throws IOException;
+    }
+
+    private static void withSystem(StorageType storageType, SystemTest test) throws IOException {
+        withSystem(storageType, false, test);
+    }
+
+    private static void withSystem(StorageType storageType, boolean concurrent, SystemTest test) throws IOException {
+        LMSpaceOptions options = LMSpaceOptions.newInstance();
+        options.poolType = PoolType.BITMAP;
+        options.storageType = storageType;
+        options.concurrent = concurrent;
+
+        DynFileSystem<LMSpace> fs = SystemsUtil.openSystem(TEST_SYSTEM_DOMAIN, TEST_SYSTEM_TOTAL_SPACE, options);
+        try {
+            test.run(fs);
+        } finally {
+            SystemsUtil.closeSystem(TEST_SYSTEM_DOMAIN);
+        }
+    }
+
+    private static FileChannel open(DynFileSystem<LMSpace> fs, DynRoute route) throws IOException {
+        return FileChannel.open(DynPath.newPath(fs, route), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    private static byte[] randomBytes(Random random, int len) {
+        byte[] data = new byte[len];
+        random.nextBytes(data);
+        return data;
+    }
+
+    //
+    // Test: Positional and Vectored I/O
+
+    @Test
+    public void testPositionalVectoredIO() throws IOException {
+        withSystem(StorageType.HEAP, fs -> {
+            Random random = new Random(SEED);
+            DynRoute rA = rRoot().resolve("a.bin");
+
+            byte[] head = randomBytes(random, Block.BLOCK_SIZE + 5);
+            byte[] tail = randomBytes(random, 2 * Block.BLOCK_SIZE - 9);
+
+            try (FileChannel ch = open(fs, rA)) {
+                Assertions.assertEquals(head.length + tail.length,
+                        ch.write(new ByteBuffer[] { ByteBuffer.wrap(head), ByteBuffer.wrap(tail) }));
+                Assertions.assertEquals(head.length + tail.length, ch.position());
+                Assertions.assertEquals(head.length + tail.length, ch.size());
+
+                // Positional I/O leaves the channel position unchanged
+                ByteBuffer dst = ByteBuffer.allocate(tail.length);
+                Assertions.assertEquals(tail.length, ch.read(dst, head.length));
+                Assertions.assertArrayEquals(tail, dst.array());
+                Assertions.assertEquals(head.length + tail.length, ch.position());
+
+                Assertions.assertEquals(3, ch.write(ByteBuffer.wrap(new byte[] { 1, 2, 3 }), 1));
+                head[1] = 1;
+                head[2] = 2;
+                head[3] = 3;
+
+                ByteBuffer dstHead = ByteBuffer.allocate(head.length);
+                ByteBuffer dstTail = ByteBuffer.allocate(tail.length + 10);
+                ch.position(0);
+                Assertions.assertEquals(head.length + tail.length, ch.read(new ByteBuffer[] { dstHead, dstTail }));
+                Assertions.assertArrayEquals(head, dstHead.array());
+                Assertions.assertEquals(tail.length, dstTail.position());
+                Assertions.assertEquals(-1, ch.read(new ByteBuffer[] { dstTail }));
+
+                // Positional writes beyond the end of the file zero-fill the gap
+                ch.write(ByteBuffer.wrap(new byte[] { 7 }), ch.size() + 10);
+                ByteBuffer gap = ByteBuffer.allocate(11);
+                ch.read(gap, head.length + tail.length);
+                Assertions.assertArrayEquals(new byte[] { 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 7 }, gap.array());
+            }
+        });
+    }
+
+    //
+    // Test: Transfer Between DynFiles
+
+    @Test
+    public void testTransferTo() throws IOException {
+        for (StorageType storageType : StorageType.values()) {
+            withSystem(storageType, fs -> {
+                Random random = new Random(SEED);
+                DynRoute rA = rRoot().resolve("a.bin");
+                DynRoute rB = rRoot().resolve("b.bin");
+
+                byte[] data = randomBytes(random, Block.sizeOfNBlocks(20) + 77);
+                FileIO.writeFileContent(fs, rA, 0, data);
+                FileIO.writeFileContent(fs, rB, 0, new byte[] { 9 });
+
+                int off = Block.BLOCK_SIZE / 2;
+                int count = Block.sizeOfNBlocks(15);
+                try (FileChannel src = open(fs, rA); FileChannel dst = open(fs, rB)) {
+                    dst.position(1);
+                    Assertions.assertEquals(count, src.transferTo(off, count, dst));
+                    Assertions.assertEquals(1 + count, dst.position());
+                    Assertions.assertEquals(0, src.position());
+
+                    src.position(data.length - 10);
+                    Assertions.assertEquals(10, dst.transferFrom(src, dst.size(), 100));
+                    Assertions.assertEquals(data.length, src.position());
+                }
+
+                byte[] expected = new byte[1 + count + 10];
+                expected[0] = 9;
+                System.arraycopy(data, off, expected, 1, count);
+                System.arraycopy(data, data.length - 10, expected, 1 + count, 10);
+                Assertions.assertArrayEquals(expected, FileIO.readFileData(fs, rB, 0, expected.length + 1));
+            });
+        }
+    }
+
+    @Test
+    public void testTransferWithinFile() throws IOException {
+        for (boolean concurrent : new boolean[] { false, true }) {
+            withSystem(StorageType.HEAP, concurrent, fs -> {
+                Random random = new Random(SEED);
+                DynRoute rA = rRoot().resolve("a.bin");
+
+                byte[] data = randomBytes(random, Block.BLOCK_SIZE);
+                FileIO.writeFileContent(fs, rA, 0, data);
+
+                // The target range lies beyond the end of the file, in holes that must
+                // be given blocks while the source is read
+                try (FileChannel src = open(fs, rA); FileChannel dst = open(fs, rA)) {
+                    dst.position(data.length);
+                    Assertions.assertEquals(data.length, Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10),
+                            () -> src.transferTo(0, data.length, dst)));
+                }
+
+                byte[] expected = new byte[2 * data.length];
+                System.arraycopy(data, 0, expected, 0, data.length);
+                System.arraycopy(data, 0, expected, data.length, data.length);
+                Assertions.assertArrayEquals(expected, FileIO.readFileData(fs, rA, 0, expected.length + 1));
+            });
+        }
+    }
+
+    //
+    // Test: Mapping
+
+    @Test
+    public void testMap() throws IOException {
+        withSystem(StorageType.DIRECT, fs -> {
+            Random random = new Random(SEED);
+            DynRoute rA = rRoot().resolve("a.bin");
+
+            byte[] data = randomBytes(random, Block.sizeOfNBlocks(8));
+            FileIO.writeFileContent(fs, rA, 0, data);
+
+            try (FileChannel ch = open(fs, rA)) {
+                MappedByteBuffer mapping = ch.map(MapMode.READ_WRITE, 100, Block.sizeOfNBlocks(6));
+                Assertions.assertEquals(Block.sizeOfNBlocks(6), mapping.remaining());
+                Assertions.assertEquals(data[100 + 5000], mapping.get(5000));
+
+                // Writes through the mapping are visible through the channel, and vice versa
+                mapping.put(0, (byte) ~data[100]);
+                ByteBuffer dst = ByteBuffer.allocate(1);
+                ch.read(dst, 100);
+                Assertions.assertEquals((byte) ~data[100], dst.get(0));
+
+                ch.write(ByteBuffer.wrap(new byte[] { 42 }), 101);
+                Assertions.assertEquals(42, mapping.get(1));
+
+                MappedByteBuffer copy = ch.map(MapMode.PRIVATE, 0, 10);
+                copy.put(0, (byte) ~copy.get(0));
+                dst.clear();
+                ch.read(dst, 0);
+                Assertions.assertEquals(data[0], dst.get(0));
+
+                Assertions.assertTrue(ch.map(MapMode.READ_ONLY, 0, 10).isReadOnly());
+            }
+        });
+
+        withSystem(StorageType.DIRECT, fs -> {
+            Random random = new Random(SEED);
+            DynRoute rA = rRoot().resolve("a.bin");
+            DynRoute rB = rRoot().resolve("b.bin");
+
+            FileIO.writeFileContent(fs, rA, 0, randomBytes(random, Block.sizeOfNBlocks(2)));
+
+            try (FileChannel ch = open(fs, rA)) {
+                MappedByteBuffer mapping = ch.map(MapMode.READ_WRITE, 0, Block.sizeOfNBlocks(2));
+                ch.truncate(0);
+
+                // The mapped blocks are kept from other files once truncated away, so
+                // that writes through the mapping cannot reach them
+                byte[] data = randomBytes(random, TEST_SYSTEM_TOTAL_SPACE - Block.sizeOfNBlocks(2));
+                FileIO.writeFileContent(fs, rB, 0, data);
+                while (mapping.hasRemaining()) {
+                    mapping.put((byte) 0x5a);
+                }
+                Assertions.assertArrayEquals(data, FileIO.readFileData(fs, rB, 0, data.length));
+            }
+        });
+
+        withSystem(StorageType.HEAP, fs -> {
+            DynRoute rA = rRoot().resolve("a.bin");
+            FileIO.writeFileContent(fs, rA, 0, new byte[10]);
+
+            try (FileChannel ch = open(fs, rA)) {
+                Assertions.assertThrows(UnsupportedOperationException.class, () -> ch.map(MapMode.READ_ONLY, 0, 10));
+            }
+        });
+    }
+
+}
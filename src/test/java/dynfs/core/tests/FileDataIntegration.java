@@ -0,0 +1,214 @@
+package dynfs.core.tests;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+import dynfs.core.DynFileSystem;
+import dynfs.core.DynPath;
+import dynfs.core.DynRoute;
+import dynfs.core.base.TestBase;
+import dynfs.core.io.FileIO;
+import dynfs.core.util.SystemsUtil;
+import dynfs.dynlm.Block;
+import dynfs.dynlm.BlockMemory.PoolType;
+import dynfs.dynlm.BlockMemory.StorageType;
+import dynfs.dynlm.LMSpace;
+import dynfs.dynlm.LMSpaceOptions;
+
+public class FileDataIntegration extends TestBase {
+
+    //
+    // Parameters
+
+    private static final String TEST_SYSTEM_DOMAIN = "test-domain-data";
+    private static final int TEST_SYSTEM_TOTAL_SPACE = Block.sizeOfNBlocks(600);
+
+    private static final long SEED = 0x5eed;
+
+    //
+    // Support: System Provision
+
+    private interface SystemTest {
+        void run(DynFileSystem<LMSpace> fs) throws IOException;
+    }
+
+    private static void forEachConfiguration(SystemTest test) throws IOException {
+        for (PoolType poolType : PoolType.values()) {
+            for (StorageType storageType : StorageType.values()) {
+                LMSpaceOptions options = LMSpaceOptions.newInstance();
+                options.poolType = poolType;
+                options.storageType = storageType;
+
+                DynFileSystem<LMSpace> fs = SystemsUtil.openSystem(TEST_SYSTEM_DOMAIN, TEST_SYSTEM_TOTAL_SPACE,
+                        options);
+                try {
+                    test.run(fs);
+                } finally {
+                    SystemsUtil.closeSystem(TEST_SYSTEM_DOMAIN);
+                }
+            }
+        }
+    }
+
+    private static byte[] randomBytes(Random random, int len) {
+        byte[] data = new byte[len];
+        random.nextBytes(data);
+        return data;
+    }
+
+    //
+    // Test: Multi-Block Round Trip
+
+    @Test
+    public void testMultiBlockRoundTrip() throws IOException {
+        forEachConfiguration(fs -> {
+            Random random = new Random(SEED);
+
+            DynRoute rA = rRoot().resolve("a.bin");
+            DynRoute rB = rRoot().resolve("b.bin");
+
+            // Interleaved appends fragment the block pool
+            byte[] dataA = randomBytes(random, Block.sizeOfNBlocks(40) + 123);
+            byte[] dataB = randomBytes(random, Block.sizeOfNBlocks(25) + 7);
+            int chunk = Block.BLOCK_SIZE * 3 + 17;
+            for (int off = 0; off < Math.max(dataA.length, dataB.length); off += chunk) {
+                if (off < dataA.length) {
+                    FileIO.writeFileContent(fs, rA, off, slice(dataA, off, chunk));
+                }
+                if (off < dataB.length) {
+                    FileIO.writeFileContent(fs, rB, off, slice(dataB, off, chunk));
+                }
+            }
+
+            Assertions.assertArrayEquals(dataA, FileIO.readFileData(fs, rA, 0, dataA.length + 1));
+            Assertions.assertArrayEquals(dataB, FileIO.readFileData(fs, rB, 0, dataB.length + 1));
+
+            // Unaligned reads spanning several blocks
+            for (int i = 0; i < 32; i++) {
+                int off = random.nextInt(dataA.length);
+                int len = random.nextInt(dataA.length - off);
+                Assertions.assertArrayEquals(slice(dataA, off, len), FileIO.readFileData(fs, rA, off, len));
+            }
+
+            // Unaligned overwrite spanning several blocks
+            byte[] patch = randomBytes(random, Block.sizeOfNBlocks(5) + 99);
+            int patchOff = Block.BLOCK_SIZE * 7 - 50;
+            FileIO.writeFileContent(fs, rA, patchOff, patch);
+            System.arraycopy(patch, 0, dataA, patchOff, patch.length);
+            Assertions.assertArrayEquals(dataA, FileIO.readFileData(fs, rA, 0, dataA.length + 1));
+        });
+    }
+
+    //
+    // Test: ByteBuffer Transfer
+
+    @Test
+    public void testByteBufferTransfer() throws IOException {
+        forEachConfiguration(fs -> {
+            Random random = new Random(SEED);
+
+            DynRoute rA = rRoot().resolve("a.bin");
+            byte[] data = randomBytes(random, Block.sizeOfNBlocks(9) + 321);
+
+            try (SeekableByteChannel ch = provider().newByteChannel(DynPath.newPath(fs, rA),
+                    ImmutableSet.of(StandardOpenOption.WRITE, StandardOpenOption.READ, StandardOpenOption.CREATE))) {
+                // Direct source buffer
+                ByteBuffer src = ByteBuffer.allocateDirect(data.length);
+                src.put(data);
+                src.flip();
+                Assertions.assertEquals(data.length, ch.write(src));
+                Assertions.assertFalse(src.hasRemaining());
+
+                // Heap destination slice with a nonzero array offset, larger than the remainder
+                int off = Block.BLOCK_SIZE - 11;
+                ByteBuffer backing = ByteBuffer.allocate(data.length + 64);
+                backing.position(32);
+                ByteBuffer dst = backing.slice();
+                ch.position(off);
+                Assertions.assertEquals(data.length - off, ch.read(dst));
+                Assertions.assertEquals(data.length - off, dst.position());
+                Assertions.assertEquals(dst.capacity(), dst.limit());
+                Assertions.assertEquals(-1, ch.read(dst));
+
+                byte[] result = new byte[data.length - off];
+                System.arraycopy(backing.array(), 32, result, 0, result.length);
+                Assertions.assertArrayEquals(slice(data, off, result.length), result);
+            }
+        });
+    }
+
+    //
+    // Test: Truncate / Regrow
+
+    @Test
+    public void testTruncateRegrow() throws IOException {
+        forEachConfiguration(fs -> {
+            Random random = new Random(SEED);
+            LMSpace store = fs.getStore();
+
+            DynRoute rA = rRoot().resolve("a.bin");
+            byte[] data = randomBytes(random, Block.sizeOfNBlocks(550));
+            FileIO.writeFileContent(fs, rA, 0, data);
+            Assertions.assertEquals(Block.sizeOfNBlocks(550), store.getAllocatedSpace());
+
+            int truncatedSize = Block.sizeOfNBlocks(2) + 1;
+            try (SeekableByteChannel ch = provider().newByteChannel(DynPath.newPath(fs, rA),
+                    ImmutableSet.of(StandardOpenOption.WRITE))) {
+                ch.truncate(truncatedSize);
+                Assertions.assertEquals(truncatedSize, ch.size());
+            }
+            Assertions.assertEquals(Block.sizeOfNBlocks(3), store.getAllocatedSpace());
+
+            byte[] tail = randomBytes(random, Block.sizeOfNBlocks(10));
+            FileIO.writeFileContent(fs, rA, truncatedSize, tail);
+
+            byte[] expected = new byte[truncatedSize + tail.length];
+            System.arraycopy(data, 0, expected, 0, truncatedSize);
+            System.arraycopy(tail, 0, expected, truncatedSize, tail.length);
+            Assertions.assertArrayEquals(expected, FileIO.readFileData(fs, rA, 0, expected.length + 1));
+        });
+    }
+
+    //
+    // Test: Space Beyond 2 GiB
+
+    @Test
+    public void testLargeSpace() throws IOException {
+        long totalSpace = Block.sizeOfNBlocks(1L << 22);
+
+        LMSpaceOptions options = LMSpaceOptions.newInstance();
+        options.poolType = PoolType.BITMAP;
+
+        DynFileSystem<LMSpace> fs = SystemsUtil.openSystem(TEST_SYSTEM_DOMAIN, totalSpace, options);
+        try {
+            LMSpace store = fs.getStore();
+            Assertions.assertEquals(totalSpace, store.getTotalSpace());
+            Assertions.assertEquals(0, store.getAllocatedSpace());
+
+            byte[] data = randomBytes(new Random(SEED), Block.sizeOfNBlocks(3) + 1);
+            DynRoute rA = rRoot().resolve("a.bin");
+            FileIO.writeFileContent(fs, rA, 0, data);
+
+            Assertions.assertArrayEquals(data, FileIO.readFileData(fs, rA, 0, data.length));
+            Assertions.assertEquals(Block.sizeOfNBlocks(4), store.getAllocatedSpace());
+            Assertions.assertEquals(totalSpace - Block.sizeOfNBlocks(4), store.getUnallocatedSpace());
+        } finally {
+            SystemsUtil.closeSystem(TEST_SYSTEM_DOMAIN);
+        }
+    }
+
+    private static byte[] slice(byte[] data, int off, int len) {
+        byte[] result = new byte[Math.min(len, data.length - off)];
+        System.arraycopy(data, off, result, 0, result.length);
+        return result;
+    }
+
+}
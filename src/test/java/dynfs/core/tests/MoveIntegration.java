@@ -0,0 +1,141 @@
+package dynfs.core.tests;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dynfs.core.DynFileSystem;
+import dynfs.core.DynNode;
+import dynfs.core.DynRoute;
+import dynfs.core.base.TestBase;
+import dynfs.core.io.FileIO;
+import dynfs.core.util.SystemsUtil;
+import dynfs.dynlm.Block;
+import dynfs.dynlm.LMSpace;
+import dynfs.dynlm.LMSpaceCheckpointer;
+import dynfs.dynlm.LMSpaceOptions;
+import dynfs.dynlm.LMSpaceWriteAheadLog;
+
+public class MoveIntegration extends TestBase {
+
+    //
+    // Parameters
+
+    private static final String TEST_SYSTEM_DOMAIN = "test-domain-move";
+    private static final String TEST_LOADED_DOMAIN = "test-domain-move-loaded";
+    private static final int TEST_SYSTEM_TOTAL_SPACE = Block.sizeOfNBlocks(4096);
+
+    //
+    // Test: Relinking
+
+    @Test
+    public void testMoveSubtree() throws IOException {
+        DynFileSystem<LMSpace> fs = SystemsUtil.openSystem(TEST_SYSTEM_DOMAIN, TEST_SYSTEM_TOTAL_SPACE);
+        try {
+            Path root = fs.getRootDirectory();
+            Path a = Files.createDirectory(Files.createDirectory(root.resolve("a")).resolve("b"));
+            Files.write(a.resolve("file"), new byte[] { 1, 2, 3 });
+            Files.createDirectory(root.resolve("x"));
+
+            DynRoute rOld = rRoot().resolve("a").resolve("b").resolve("file");
+            DynNode<LMSpace, ?> file = fs.resolve(rOld).testExistence();
+            DynNode<LMSpace, ?> dir = fs.resolve(rRoot().resolve("a")).testExistence();
+            long allocated = fs.getStore().getAllocatedSpace();
+
+            try (SeekableByteChannel ch = Files.newByteChannel(a.resolve("file"), StandardOpenOption.WRITE)) {
+                Files.move(root.resolve("a"), root.resolve("x").resolve("y"), StandardCopyOption.ATOMIC_MOVE);
+
+                // The nodes themselves are moved, and remain open
+                ch.position(3).write(ByteBuffer.wrap(new byte[] { 4 }));
+            }
+
+            DynRoute rNew = rRoot().resolve("x").resolve("y").resolve("b").resolve("file");
+            Assertions.assertFalse(fs.resolve(rOld).exists());
+            Assertions.assertFalse(fs.resolve(rRoot().resolve("a")).exists());
+            Assertions.assertSame(dir, fs.resolve(rRoot().resolve("x").resolve("y")).testExistence());
+            Assertions.assertSame(file, fs.resolve(rNew).testExistence());
+            Assertions.assertEquals("/x/y/b/file", file.getRouteString());
+            Assertions.assertArrayEquals(new byte[] { 1, 2, 3, 4 }, FileIO.readFileData(fs, rNew, 0, 4));
+            Assertions.assertEquals(allocated, fs.getStore().getAllocatedSpace());
+
+            // A directory cannot be moved beneath itself
+            Path y = root.resolve("x").resolve("y");
+            Assertions.assertThrows(FileSystemException.class, () -> Files.move(y, y.resolve("b").resolve("z")));
+
+            // An existing target is replaced only if requested
+            Files.write(root.resolve("other"), new byte[] { 5 });
+            Path moved = y.resolve("b").resolve("file");
+            Assertions.assertThrows(FileAlreadyExistsException.class, () -> Files.move(moved, root.resolve("other")));
+            Files.move(moved, root.resolve("other"), StandardCopyOption.REPLACE_EXISTING);
+            Assertions.assertArrayEquals(new byte[] { 1, 2, 3, 4 },
+                    FileIO.readFileData(fs, rRoot().resolve("other"), 0, 4));
+            Assertions.assertFalse(fs.resolve(rNew).exists());
+        } finally {
+            SystemsUtil.closeSystem(TEST_SYSTEM_DOMAIN);
+        }
+    }
+
+    //
+    // Test: Recovery
+
+    @Test
+    public void testRecovery() throws IOException {
+        DynRoute rFile = rRoot().resolve("y").resolve("b").resolve("file");
+
+        LMSpaceOptions options = LMSpaceOptions.newInstance();
+        options.trackChanges = true;
+
+        Path snapshot = Files.createTempFile("dynfs-move", ".bin");
+        Path log = Files.createTempFile("dynfs-move", ".log");
+        Path walSnapshot = Files.createTempFile("dynfs-move-wal", ".bin");
+        Path walLog = Files.createTempFile("dynfs-move-wal", ".log");
+        try {
+            DynFileSystem<LMSpace> fs = SystemsUtil.openSystem(TEST_SYSTEM_DOMAIN, TEST_SYSTEM_TOTAL_SPACE, options);
+            try (LMSpaceCheckpointer checkpointer = LMSpaceCheckpointer.start(fs.getStore(), snapshot, log)) {
+                Path root = fs.getRootDirectory();
+                Path a = Files.createDirectory(Files.createDirectory(root.resolve("a")).resolve("b"));
+                Files.write(a.resolve("file"), new byte[] { 1, 2, 3 });
+                checkpointer.checkpoint();
+
+                fs.getStore().attachWriteAheadLog(walSnapshot, walLog);
+                Files.move(root.resolve("a"), root.resolve("y"));
+                FileIO.writeFileContent(fs, rFile, 3, new byte[] { 4 });
+                checkpointer.checkpoint();
+            } finally {
+                SystemsUtil.closeSystem(TEST_SYSTEM_DOMAIN);
+            }
+
+            DynFileSystem<LMSpace> loaded = provider().loadFileSystem(TEST_LOADED_DOMAIN,
+                    LMSpaceCheckpointer.loader(snapshot, log));
+            try {
+                Assertions.assertFalse(loaded.resolve(rRoot().resolve("a")).exists());
+                Assertions.assertArrayEquals(new byte[] { 1, 2, 3, 4 }, FileIO.readFileData(loaded, rFile, 0, 4));
+            } finally {
+                loaded.close();
+            }
+
+            loaded = provider().loadFileSystem(TEST_LOADED_DOMAIN, LMSpaceWriteAheadLog.loader(walSnapshot, walLog));
+            try {
+                Assertions.assertFalse(loaded.resolve(rRoot().resolve("a")).exists());
+                Assertions.assertArrayEquals(new byte[] { 1, 2, 3, 4 }, FileIO.readFileData(loaded, rFile, 0, 4));
+            } finally {
+                loaded.close();
+            }
+        } finally {
+            Files.deleteIfExists(snapshot);
+            Files.deleteIfExists(log);
+            Files.deleteIfExists(walSnapshot);
+            Files.deleteIfExists(walLog);
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package dynfs.core.tests;
+
+import java.nio.file.PathMatcher;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dynfs.core.DynPath;
+import dynfs.core.DynPathMatcher;
+import dynfs.core.base.SystemBase;
+
+public class PathMatcherUnit extends SystemBase {
+
+    //
+    // Support: Matching
+
+    private boolean matches(String syntaxAndPattern, String route) {
+        PathMatcher matcher = fs().getPathMatcher(syntaxAndPattern);
+        return matcher.matches(fs().getPath(route));
+    }
+
+    //
+    // Test: Glob Syntax
+
+    @Test
+    public void testGlob() {
+        Assertions.assertTrue(matches("glob:*.parquet", "part-0001.parquet"));
+        Assertions.assertFalse(matches("glob:*.parquet", "part-0001.parquet.crc"));
+        Assertions.assertFalse(matches("glob:*.parquet", "data/part-0001.parquet"));
+
+        Assertions.assertTrue(matches("glob:part-00?1", "part-0071"));
+        Assertions.assertTrue(matches("glob:part-[0-4]*", "part-3"));
+        Assertions.assertFalse(matches("glob:part-[!0-4]*", "part-3"));
+        Assertions.assertTrue(matches("glob:*.{csv,json}", "a.json"));
+        Assertions.assertFalse(matches("glob:*.{csv,json}", "a.xml"));
+        Assertions.assertTrue(matches("glob:\\*", "*"));
+        Assertions.assertFalse(matches("glob:\\*", "a"));
+
+        // Multi-name patterns
+        Assertions.assertTrue(matches("glob:/data/*/part-*", "/data/2020/part-1"));
+        Assertions.assertFalse(matches("glob:/data/*/part-*", "/data/2020/01/part-1"));
+        Assertions.assertTrue(matches("glob:/data/**", "/data/2020/01/part-1"));
+
+        Assertions.assertThrows(PatternSyntaxException.class, () -> DynPath.getPathMatcher("glob:[a"));
+        Assertions.assertThrows(PatternSyntaxException.class, () -> DynPath.getPathMatcher("glob:{a,b"));
+    }
+
+    @Test
+    public void testNamePrefix() {
+        Assertions.assertEquals("part-", DynPathMatcher.compile("glob:part-*.parquet").namePrefix());
+        Assertions.assertEquals("a*b", DynPathMatcher.compile("glob:a\\*b").namePrefix());
+        Assertions.assertEquals("", DynPathMatcher.compile("glob:{a,b}*").namePrefix());
+        Assertions.assertNull(DynPathMatcher.compile("glob:a/*").namePrefix());
+        Assertions.assertNull(DynPathMatcher.compile("regex:a.*").namePrefix());
+    }
+
+    //
+    // Test: Regex Syntax
+
+    @Test
+    public void testRegex() {
+        Assertions.assertTrue(matches("regex:part-\\d{4}", "part-0001"));
+        Assertions.assertFalse(matches("regex:part-\\d{4}", "part-01"));
+        Assertions.assertTrue(matches("REGEX:/a/.*", "/a/b/c"));
+
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> DynPath.getPathMatcher("xpath:a"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> DynPath.getPathMatcher("a"));
+    }
+
+}
@@ -0,0 +1,72 @@
+package dynfs.core.tests;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dynfs.core.DynFileSystem;
+import dynfs.core.DynPath;
+import dynfs.core.DynRoute;
+import dynfs.core.DynSpaceAttributeView;
+import dynfs.core.base.TestBase;
+import dynfs.core.io.DirectoryIO;
+import dynfs.core.io.FileIO;
+import dynfs.core.util.SystemsUtil;
+import dynfs.dynlm.Block;
+import dynfs.dynlm.LMSpace;
+
+public class ResolutionCacheIntegration extends TestBase {
+
+    //
+    // Parameters
+
+    private static final String TEST_SYSTEM_DOMAIN = "test-domain-resolution";
+    private static final int TEST_SYSTEM_TOTAL_SPACE = Block.sizeOfNBlocks(16);
+
+    //
+    // Test: Hits, Negative Entries and Invalidation
+
+    @Test
+    public void testInvalidation() throws IOException {
+        DynFileSystem<LMSpace> fs = SystemsUtil.openSystem(TEST_SYSTEM_DOMAIN, TEST_SYSTEM_TOTAL_SPACE);
+        try {
+            DynSpaceAttributeView view = fs.getStore().getFileStoreAttributeView(DynSpaceAttributeView.class);
+
+            DynRoute rA = rRoot().resolve("a");
+            DynRoute rAB = rA.resolve("b");
+            DynRoute rABC = rAB.resolve("c.txt");
+
+            DirectoryIO.createDirectory(fs, rA);
+            DirectoryIO.createDirectory(fs, rAB);
+
+            // Repeated resolution is served from the cache
+            Assertions.assertFalse(fs.resolve(rABC).exists());
+            long hits = view.resolutionCacheHits();
+            Assertions.assertFalse(fs.resolve(rABC).exists());
+            Assertions.assertEquals(hits + 1, view.resolutionCacheHits());
+            Assertions.assertEquals(hits + 1, fs.getStore().getAttribute("resolutionCacheHits"));
+
+            // Creation invalidates the negative entry
+            FileIO.writeFileContent(fs, rABC, 0, new byte[] { 1 });
+            Assertions.assertTrue(fs.resolve(rABC).exists());
+            Assertions.assertTrue(fs.resolve(rABC).exists());
+
+            // Deletion invalidates the entries beneath the deleted node
+            Files.delete(DynPath.newPath(fs, rABC));
+            Files.delete(DynPath.newPath(fs, rAB));
+            Assertions.assertFalse(fs.resolve(rAB).exists());
+            Assertions.assertFalse(fs.resolve(rABC).exists());
+            Assertions.assertTrue(fs.resolve(rA).exists());
+
+            // Routes with special names bypass the cache
+            long misses = view.resolutionCacheMisses();
+            Assertions.assertTrue(fs.resolve(rA.resolve("..").resolve("a")).exists());
+            Assertions.assertEquals(misses, view.resolutionCacheMisses());
+        } finally {
+            SystemsUtil.closeSystem(TEST_SYSTEM_DOMAIN);
+        }
+    }
+
+}
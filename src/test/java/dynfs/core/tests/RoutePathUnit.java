@@ -1,9 +1,97 @@
 package dynfs.core.tests;
 
+import java.io.IOException;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dynfs.core.DynDirectory;
+import dynfs.core.DynNode;
+import dynfs.core.DynRoute;
 import dynfs.core.base.SystemBase;
+import dynfs.dynlm.LMSpace;
 
 public class RoutePathUnit extends SystemBase {
 
-    // TODO: Implement tests
+    //
+    // Test: Construction / Equality
+
+    @Test
+    public void testEquality() {
+        DynRoute r = DynRoute.fromRouteNames("/foo//bar/", "baz");
+        Assertions.assertEquals("/foo/bar/baz", r.toString());
+        Assertions.assertEquals(3, r.getNameCount());
+        Assertions.assertEquals("bar", r.getName(1));
+
+        DynRoute other = rRoot().resolve("foo").resolve("bar/baz");
+        Assertions.assertEquals(r, other);
+        Assertions.assertEquals(r.hashCode(), other.hashCode());
+        Assertions.assertEquals(0, r.compareTo(other));
+
+        Assertions.assertNotEquals(r, DynRoute.fromRouteNames("foo/bar/baz"));
+        Assertions.assertNotEquals(r, r.getParent());
+        Assertions.assertEquals("", DynRoute.fromRouteNames("").toString());
+        Assertions.assertEquals("/", rRoot().toString());
+    }
+
+    //
+    // Test: Derivation
+
+    @Test
+    public void testDerivation() {
+        DynRoute r = DynRoute.fromRouteNames("/a/b/c/d");
+
+        Assertions.assertEquals(DynRoute.fromRouteNames("/a/b/c"), r.getParent());
+        Assertions.assertEquals(DynRoute.fromRouteNames("b/c"), r.subroute(1, 3));
+        Assertions.assertEquals(DynRoute.fromRouteNames("d"), r.getFileNameRoute());
+        Assertions.assertEquals(rRoot(), r.getRoot());
+        Assertions.assertEquals(rRoot(), r.subroute(0, 0));
+
+        Assertions.assertTrue(r.startsWith(r.getParent().getParent()));
+        Assertions.assertTrue(r.startsWith("/a/b"));
+        Assertions.assertFalse(r.startsWith("/a/bc"));
+        Assertions.assertTrue(r.endsWith("c/d"));
+        Assertions.assertFalse(r.endsWith("/c/d"));
+
+        // A route derived from a prefix does not see names beyond the prefix
+        DynRoute sibling = r.getParent().resolve("e");
+        Assertions.assertEquals("/a/b/c/e", sibling.toString());
+        Assertions.assertEquals("/a/b/c/d", r.toString());
+
+        Assertions.assertTrue(r.getParent().compareTo(r) < 0);
+        Assertions.assertTrue(r.compareTo(sibling) < 0);
+    }
+
+    //
+    // Test: Normalization / Relativization
+
+    @Test
+    public void testNormalizeRelativize() {
+        DynRoute r = DynRoute.fromRouteNames("/a/./b/../c");
+        Assertions.assertEquals(DynRoute.fromRouteNames("/a/c"), r.normalize());
+
+        DynRoute plain = DynRoute.fromRouteNames("/a/c");
+        Assertions.assertSame(plain, plain.normalize());
+
+        Assertions.assertEquals(DynRoute.fromRouteNames("../d/e"),
+                DynRoute.fromRouteNames("/a/b/c").relativize(DynRoute.fromRouteNames("/a/b/d/e")));
+    }
+
+    //
+    // Test: Canonical Node Routes
+
+    @Test
+    public void testNodeRoute() throws IOException {
+        DynDirectory<LMSpace, ?> dir = nRoot().createDirectory("a").createDirectory("b");
+        DynNode<LMSpace, ?> file = dir.createFile("c.txt");
+
+        Assertions.assertEquals(DynRoute.fromRouteNames("/a/b/c.txt"), file.getRoute());
+        Assertions.assertEquals("/a/b/c.txt", file.getRouteString());
+        Assertions.assertEquals(rRoot(), nRoot().getRoute());
+
+        // Routes are computed once and reused
+        Assertions.assertSame(file.getRoute(), file.getRoute());
+        Assertions.assertSame(file.getRouteString(), file.getRouteString());
+    }
 
 }
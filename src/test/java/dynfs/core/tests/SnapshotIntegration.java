@@ -0,0 +1,110 @@
+package dynfs.core.tests;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dynfs.core.DynFileSystem;
+import dynfs.core.DynRoute;
+import dynfs.core.base.TestBase;
+import dynfs.core.io.DirectoryIO;
+import dynfs.core.io.FileIO;
+import dynfs.core.util.SystemsUtil;
+import dynfs.dynlm.Block;
+import dynfs.dynlm.LMSpace;
+import dynfs.dynlm.LMSpaceOptions;
+import dynfs.dynlm.LMSpaceSnapshot;
+
+public class SnapshotIntegration extends TestBase {
+
+    //
+    // Parameters
+
+    private static final String TEST_SYSTEM_DOMAIN = "test-domain-snapshot";
+    private static final String TEST_LOADED_DOMAIN = "test-domain-snapshot-loaded";
+    private static final int TEST_SYSTEM_TOTAL_SPACE = Block.sizeOfNBlocks(4096);
+
+    //
+    // Test: Save / Load Round Trip
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Random random = new Random(17);
+        byte[] small = new byte[100];
+        byte[] large = new byte[Block.sizeOfNBlocks(600) + 123];
+        random.nextBytes(small);
+        random.nextBytes(large);
+
+        DynRoute rA = rRoot().resolve("a");
+        DynRoute rAB = rA.resolve("b");
+
+        LMSpaceOptions options = LMSpaceOptions.newInstance();
+        options.sortedDirectories = true;
+
+        Path snapshot = Files.createTempFile("dynfs-snapshot", ".bin");
+        try {
+            DynFileSystem<LMSpace> fs = SystemsUtil.openSystem(TEST_SYSTEM_DOMAIN, TEST_SYSTEM_TOTAL_SPACE, options);
+            try {
+                DirectoryIO.createDirectory(fs, rA);
+                DirectoryIO.createDirectory(fs, rAB);
+                DirectoryIO.createDirectory(fs, rRoot().resolve("empty"));
+                FileIO.writeFileContent(fs, rA.resolve("small"), 0, small);
+                FileIO.writeFileContent(fs, rAB.resolve("large"), 0, large);
+                FileIO.writeFileContent(fs, rRoot().resolve("zero"), 0, new byte[0]);
+
+                fs.getStore().saveSnapshot(snapshot);
+            } finally {
+                SystemsUtil.closeSystem(TEST_SYSTEM_DOMAIN);
+            }
+
+            DynFileSystem<LMSpace> loaded = provider().loadFileSystem(TEST_LOADED_DOMAIN,
+                    LMSpaceSnapshot.loader(snapshot));
+            try {
+                Assertions.assertEquals(TEST_SYSTEM_TOTAL_SPACE, loaded.getStore().getTotalSpace());
+                Assertions.assertTrue(loaded.getStore().getRootDirectory().isOrdered());
+
+                Assertions.assertArrayEquals(small, FileIO.readFileData(loaded, rA.resolve("small"), 0, small.length));
+                Assertions.assertArrayEquals(large, FileIO.readFileData(loaded, rAB.resolve("large"), 0, large.length));
+                Assertions.assertEquals(0, loaded.resolve(rRoot().resolve("zero")).testExistence().readSize());
+                Assertions.assertTrue(loaded.resolve(rRoot().resolve("empty")).testExistence().isDirectory());
+            } finally {
+                loaded.close();
+            }
+        } finally {
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    //
+    // Test: Truncated Snapshot
+
+    @Test
+    public void testTruncated() throws IOException {
+        Path snapshot = Files.createTempFile("dynfs-snapshot", ".bin");
+        try {
+            DynFileSystem<LMSpace> fs = SystemsUtil.openSystem(TEST_SYSTEM_DOMAIN, TEST_SYSTEM_TOTAL_SPACE);
+            try {
+                FileIO.writeFileContent(fs, rRoot().resolve("data"), 0, new byte[Block.sizeOfNBlocks(3)]);
+                fs.getStore().saveSnapshot(snapshot);
+            } finally {
+                SystemsUtil.closeSystem(TEST_SYSTEM_DOMAIN);
+            }
+
+            try (FileChannel ch = FileChannel.open(snapshot, StandardOpenOption.WRITE)) {
+                ch.truncate(ch.size() - 10);
+            }
+
+            Assertions.assertThrows(EOFException.class, () -> LMSpaceSnapshot.load(snapshot));
+        } finally {
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+}
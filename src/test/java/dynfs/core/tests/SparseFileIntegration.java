@@ -0,0 +1,222 @@
+package dynfs.core.tests;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dynfs.core.DynFile;
+import dynfs.core.DynFileSystem;
+import dynfs.core.DynRoute;
+import dynfs.core.base.TestBase;
+import dynfs.core.io.FileIO;
+import dynfs.core.util.SystemsUtil;
+import dynfs.dynlm.Block;
+import dynfs.dynlm.LMSpace;
+import dynfs.dynlm.LMSpaceCheckpointer;
+import dynfs.dynlm.LMSpaceOptions;
+import dynfs.dynlm.LMSpaceSnapshot;
+import dynfs.dynlm.LMSpaceWriteAheadLog;
+
+public class SparseFileIntegration extends TestBase {
+
+    //
+    // Parameters
+
+    private static final String TEST_SYSTEM_DOMAIN = "test-domain-sparse";
+    private static final String TEST_LOADED_DOMAIN = "test-domain-sparse-loaded";
+    private static final int TEST_SYSTEM_TOTAL_SPACE = Block.sizeOfNBlocks(4096);
+
+    //
+    // Test: Sparse Creation
+
+    @Test
+    public void testSparseWrite() throws IOException {
+        long far = Block.sizeOfNBlocks(100000L) + 3;
+
+        DynFileSystem<LMSpace> fs = SystemsUtil.openSystem(TEST_SYSTEM_DOMAIN, TEST_SYSTEM_TOTAL_SPACE);
+        try {
+            Path file = fs.getRootDirectory().resolve("sparse");
+            try (SeekableByteChannel ch = Files.newByteChannel(file, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE, StandardOpenOption.SPARSE)) {
+                ch.position(far).write(ByteBuffer.wrap(new byte[] { 1, 2 }));
+            }
+
+            // The gap takes no storage, though it is larger than the space
+            DynRoute rFile = rRoot().resolve("sparse");
+            Assertions.assertEquals(far + 2, ((DynFile<LMSpace, ?>) fs.resolve(rFile).testExistence()).readSize());
+            Assertions.assertEquals(Block.BLOCK_SIZE, fs.getStore().getAllocatedSpace());
+
+            Assertions.assertArrayEquals(new byte[] { 0, 0, 0, 1, 2 }, FileIO.readFileData(fs, rFile, far - 3, 5));
+            Assertions.assertArrayEquals(new byte[Block.BLOCK_SIZE],
+                    FileIO.readFileData(fs, rFile, Block.sizeOfNBlocks(500L), Block.BLOCK_SIZE));
+        } finally {
+            SystemsUtil.closeSystem(TEST_SYSTEM_DOMAIN);
+        }
+    }
+
+    //
+    // Test: Hole Punching
+
+    @Test
+    public void testPunchHole() throws IOException {
+        byte[] content = new byte[Block.sizeOfNBlocks(10)];
+        new Random(23).nextBytes(content);
+
+        DynRoute rFile = rRoot().resolve("file");
+        long off = Block.sizeOfNBlocks(2L) + 100;
+        long len = Block.sizeOfNBlocks(5L);
+
+        DynFileSystem<LMSpace> fs = SystemsUtil.openSystem(TEST_SYSTEM_DOMAIN, TEST_SYSTEM_TOTAL_SPACE);
+        try {
+            FileIO.writeFileContent(fs, rFile, 0, content);
+            DynFile<LMSpace, ?> file = (DynFile<LMSpace, ?>) fs.resolve(rFile).testExistence();
+
+            // Only the four blocks wholly within the range are freed
+            file.punchHole(off, len);
+            Assertions.assertEquals(content.length, file.readSize());
+            Assertions.assertEquals(Block.sizeOfNBlocks(6L), fs.getStore().getAllocatedSpace());
+
+            byte[] punched = content.clone();
+            for (int i = (int) off; i < off + len; i++) {
+                punched[i] = 0;
+            }
+            Assertions.assertArrayEquals(punched, FileIO.readFileData(fs, rFile, 0, punched.length));
+
+            // A hole is given a block again once written
+            FileIO.writeFileContent(fs, rFile, Block.sizeOfNBlocks(4L), new byte[] { 9 });
+            punched[Block.sizeOfNBlocks(4)] = 9;
+            Assertions.assertEquals(Block.sizeOfNBlocks(7L), fs.getStore().getAllocatedSpace());
+            Assertions.assertArrayEquals(punched, FileIO.readFileData(fs, rFile, 0, punched.length));
+
+            // A range beyond the end of the file is limited to it
+            file.punchHole(0, Long.MAX_VALUE);
+            Assertions.assertEquals(0, fs.getStore().getAllocatedSpace());
+            Assertions.assertArrayEquals(new byte[content.length], FileIO.readFileData(fs, rFile, 0, content.length));
+        } finally {
+            SystemsUtil.closeSystem(TEST_SYSTEM_DOMAIN);
+        }
+    }
+
+    //
+    // Test: Write-Ahead Log Recovery
+
+    @Test
+    public void testRecovery() throws IOException {
+        byte[] content = new byte[Block.sizeOfNBlocks(4)];
+        new Random(23).nextBytes(content);
+
+        DynRoute rFile = rRoot().resolve("file");
+
+        Path snapshot = Files.createTempFile("dynfs-sparse", ".bin");
+        Path log = Files.createTempFile("dynfs-sparse", ".log");
+        try {
+            DynFileSystem<LMSpace> fs = SystemsUtil.openSystem(TEST_SYSTEM_DOMAIN, TEST_SYSTEM_TOTAL_SPACE);
+            try {
+                fs.getStore().attachWriteAheadLog(snapshot, log);
+                FileIO.writeFileContent(fs, rFile, 0, content);
+                ((DynFile<LMSpace, ?>) fs.resolve(rFile).testExistence()).punchHole(1, Block.BLOCK_SIZE);
+            } finally {
+                SystemsUtil.closeSystem(TEST_SYSTEM_DOMAIN);
+            }
+
+            byte[] punched = content.clone();
+            for (int i = 1; i <= Block.BLOCK_SIZE; i++) {
+                punched[i] = 0;
+            }
+
+            DynFileSystem<LMSpace> loaded = provider().loadFileSystem(TEST_LOADED_DOMAIN,
+                    LMSpaceWriteAheadLog.loader(snapshot, log));
+            try {
+                Assertions.assertArrayEquals(punched, FileIO.readFileData(loaded, rFile, 0, punched.length));
+            } finally {
+                loaded.close();
+            }
+        } finally {
+            Files.deleteIfExists(snapshot);
+            Files.deleteIfExists(log);
+        }
+    }
+
+    //
+    // Test: Snapshot / Checkpoint
+
+    @Test
+    public void testSnapshotCheckpoint() throws IOException {
+        long far = (1L << 30) - 2;
+        byte[] content = new byte[Block.sizeOfNBlocks(4)];
+        new Random(23).nextBytes(content);
+
+        DynRoute rSparse = rRoot().resolve("sparse");
+        DynRoute rDense = rRoot().resolve("dense");
+
+        LMSpaceOptions options = LMSpaceOptions.newInstance();
+        options.trackChanges = true;
+
+        Path snapshot = Files.createTempFile("dynfs-sparse", ".bin");
+        Path log = Files.createTempFile("dynfs-sparse", ".log");
+        try {
+            long allocatedSpace;
+            DynFileSystem<LMSpace> fs = SystemsUtil.openSystem(TEST_SYSTEM_DOMAIN, TEST_SYSTEM_TOTAL_SPACE, options);
+            try {
+                writeSparse(fs, "sparse", far);
+                FileIO.writeFileContent(fs, rDense, 0, content);
+
+                // Holes, in a file far larger than the space, are not written out
+                LMSpaceSnapshot.save(fs.getStore(), snapshot);
+                Assertions.assertTrue(Files.size(snapshot) < 2 * content.length);
+
+                try (LMSpaceCheckpointer checkpointer = LMSpaceCheckpointer.start(fs.getStore(), snapshot, log)) {
+                    writeSparse(fs, "later", far);
+                    ((DynFile<LMSpace, ?>) fs.resolve(rDense).testExistence()).punchHole(Block.BLOCK_SIZE,
+                            Block.sizeOfNBlocks(2L));
+                    Assertions.assertTrue(checkpointer.checkpoint() < 2 * content.length);
+                }
+                allocatedSpace = fs.getStore().getAllocatedSpace();
+            } finally {
+                SystemsUtil.closeSystem(TEST_SYSTEM_DOMAIN);
+            }
+
+            byte[] punched = content.clone();
+            Arrays.fill(punched, Block.BLOCK_SIZE, Block.sizeOfNBlocks(3), (byte) 0);
+
+            DynFileSystem<LMSpace> loaded = provider().loadFileSystem(TEST_LOADED_DOMAIN,
+                    LMSpaceCheckpointer.loader(snapshot, log));
+            try {
+                // Holes are restored as holes, and files created sparse remain sparse
+                Assertions.assertEquals(allocatedSpace, loaded.getStore().getAllocatedSpace());
+                for (String name : new String[] { "sparse", "later" }) {
+                    DynRoute rFile = rRoot().resolve(name);
+                    Assertions.assertEquals(far + 2,
+                            ((DynFile<LMSpace, ?>) loaded.resolve(rFile).testExistence()).readSize());
+                    Assertions.assertArrayEquals(new byte[] { 0, 1, 2 }, FileIO.readFileData(loaded, rFile, far - 1, 3));
+                }
+                Assertions.assertArrayEquals(punched, FileIO.readFileData(loaded, rDense, 0, punched.length));
+
+                FileIO.writeFileContent(loaded, rSparse, 2 * far, new byte[] { 3 });
+                Assertions.assertEquals(allocatedSpace + Block.BLOCK_SIZE, loaded.getStore().getAllocatedSpace());
+            } finally {
+                loaded.close();
+            }
+        } finally {
+            Files.deleteIfExists(snapshot);
+            Files.deleteIfExists(log);
+        }
+    }
+
+    private static void writeSparse(DynFileSystem<LMSpace> fs, String name, long off) throws IOException {
+        Path file = fs.getRootDirectory().resolve(name);
+        try (SeekableByteChannel ch = Files.newByteChannel(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE, StandardOpenOption.SPARSE)) {
+            ch.position(off).write(ByteBuffer.wrap(new byte[] { 1, 2 }));
+        }
+    }
+
+}
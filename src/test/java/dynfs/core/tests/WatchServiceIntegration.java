@@ -0,0 +1,121 @@
+package dynfs.core.tests;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dynfs.core.DynPath;
+import dynfs.core.base.SystemBase;
+
+public class WatchServiceIntegration extends SystemBase {
+
+    //
+    // Support: Event Inspection
+
+    private static void assertEvent(WatchEvent<?> event, WatchEvent.Kind<?> kind, String name, int count) {
+        Assertions.assertEquals(kind, event.kind());
+        Assertions.assertEquals(name, ((DynPath) event.context()).route().toString());
+        Assertions.assertEquals(count, event.count());
+    }
+
+    //
+    // Test: Create / Modify / Delete
+
+    @Test
+    public void testEvents() throws IOException, InterruptedException {
+        Path dir = Files.createDirectory(pRoot().resolve("watched"));
+
+        try (WatchService watcher = fs().newWatchService()) {
+            WatchKey key = dir.register(watcher, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+            Assertions.assertEquals(dir, key.watchable());
+            Assertions.assertNull(watcher.poll());
+
+            Path file = dir.resolve("a.txt");
+            try (SeekableByteChannel ch = Files.newByteChannel(file, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE)) {
+                for (int i = 0; i < 10; i++) {
+                    ch.write(ByteBuffer.wrap(new byte[] { (byte) i }));
+                }
+            }
+            Files.delete(file);
+
+            Assertions.assertSame(key, watcher.poll(1, TimeUnit.SECONDS));
+            List<WatchEvent<?>> events = key.pollEvents();
+            Assertions.assertEquals(3, events.size());
+            assertEvent(events.get(0), ENTRY_CREATE, "a.txt", 1);
+            assertEvent(events.get(1), ENTRY_MODIFY, "a.txt", 10);
+            assertEvent(events.get(2), ENTRY_DELETE, "a.txt", 1);
+
+            // The key is not queued again until it is reset
+            Files.createDirectory(dir.resolve("b"));
+            Assertions.assertNull(watcher.poll());
+            Assertions.assertTrue(key.reset());
+            Assertions.assertSame(key, watcher.take());
+            assertEvent(key.pollEvents().get(0), ENTRY_CREATE, "b", 1);
+            Assertions.assertTrue(key.reset());
+
+            // Re-registration updates the kinds of the existing key
+            Assertions.assertSame(key, dir.register(watcher, ENTRY_DELETE));
+            Files.createDirectory(dir.resolve("c"));
+            Assertions.assertNull(watcher.poll());
+
+            key.cancel();
+            Assertions.assertFalse(key.isValid());
+            Assertions.assertFalse(key.reset());
+        }
+    }
+
+    //
+    // Test: Overflow / Invalidation / Close
+
+    @Test
+    public void testOverflowAndInvalidation() throws IOException, InterruptedException {
+        Path dir = Files.createDirectory(pRoot().resolve("watched"));
+
+        WatchService watcher = fs().newWatchService();
+        WatchKey key = dir.register(watcher, ENTRY_CREATE);
+
+        int numEvents = 600;
+        for (int i = 0; i < numEvents; i++) {
+            Files.createDirectory(dir.resolve("d" + i));
+        }
+
+        Assertions.assertSame(key, watcher.take());
+        List<WatchEvent<?>> events = key.pollEvents();
+        WatchEvent<?> last = events.get(events.size() - 1);
+        Assertions.assertEquals(OVERFLOW, last.kind());
+        Assertions.assertEquals(numEvents, events.size() - 1 + last.count());
+        Assertions.assertTrue(key.reset());
+
+        // Deleting the watched directory cancels and signals the key
+        for (int i = 0; i < numEvents; i++) {
+            Files.delete(dir.resolve("d" + i));
+        }
+        Files.delete(dir);
+
+        Assertions.assertSame(key, watcher.take());
+        Assertions.assertFalse(key.isValid());
+
+        watcher.close();
+        Assertions.assertThrows(ClosedWatchServiceException.class, () -> watcher.poll());
+        Assertions.assertThrows(ClosedWatchServiceException.class, () -> pRoot().register(watcher, ENTRY_CREATE));
+    }
+
+}
@@ -0,0 +1,257 @@
+package dynfs.core.tests;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dynfs.core.DynFileSystem;
+import dynfs.core.DynRoute;
+import dynfs.core.base.TestBase;
+import dynfs.core.io.FileIO;
+import dynfs.core.util.SystemsUtil;
+import dynfs.dynlm.Block;
+import dynfs.dynlm.LMSpace;
+import dynfs.dynlm.LMSpaceOptions;
+import dynfs.dynlm.LMSpaceWriteAheadLog;
+
+public class WriteAheadLogIntegration extends TestBase {
+
+    //
+    // Parameters
+
+    private static final String TEST_SYSTEM_DOMAIN = "test-domain-wal";
+    private static final String TEST_LOADED_DOMAIN = "test-domain-wal-loaded";
+    private static final int TEST_SYSTEM_TOTAL_SPACE = Block.sizeOfNBlocks(4096);
+
+    private static final int NUM_WRITERS = 4;
+    private static final int NUM_WRITES = 50;
+    private static final int WRITE_SIZE = 1000;
+    private static final int NUM_PASSES = 20;
+
+    //
+    // Test: SYNC Writes / Recovery
+
+    @Test
+    public void testRecovery() throws Exception {
+        byte[][] contents = new byte[NUM_WRITERS][NUM_WRITES * WRITE_SIZE];
+        Random random = new Random(19);
+        for (byte[] content : contents) {
+            random.nextBytes(content);
+        }
+
+        LMSpaceOptions options = LMSpaceOptions.newInstance();
+        options.concurrent = true;
+
+        Path snapshot = Files.createTempFile("dynfs-wal", ".bin");
+        Path log = Files.createTempFile("dynfs-wal", ".log");
+        Path crashedSnapshot = Files.createTempFile("dynfs-wal-crashed", ".bin");
+        Path crashedLog = Files.createTempFile("dynfs-wal-crashed", ".log");
+        try {
+            DynFileSystem<LMSpace> fs = SystemsUtil.openSystem(TEST_SYSTEM_DOMAIN, TEST_SYSTEM_TOTAL_SPACE, options);
+            try {
+                Path root = fs.getRootDirectory();
+                Files.write(root.resolve("before"), new byte[] { 1, 2, 3 });
+                fs.getStore().attachWriteAheadLog(snapshot, log);
+
+                Path dir = Files.createDirectory(root.resolve("dir"));
+                Files.delete(root.resolve("before"));
+
+                // Each writer waits for every write to become durable
+                ExecutorService executor = Executors.newFixedThreadPool(NUM_WRITERS);
+                try {
+                    List<Future<?>> futures = new ArrayList<>();
+                    for (int w = 0; w < NUM_WRITERS; w++) {
+                        byte[] content = contents[w];
+                        Path file = dir.resolve("file" + w);
+                        futures.add(executor.submit(() -> {
+                            try (SeekableByteChannel ch = Files.newByteChannel(file, StandardOpenOption.CREATE_NEW,
+                                    StandardOpenOption.WRITE, StandardOpenOption.DSYNC)) {
+                                for (int i = 0; i < NUM_WRITES; i++) {
+                                    ch.write(ByteBuffer.wrap(content, i * WRITE_SIZE, WRITE_SIZE));
+                                }
+                            }
+                            return null;
+                        }));
+                    }
+                    for (Future<?> future : futures) {
+                        future.get();
+                    }
+                } finally {
+                    executor.shutdown();
+                }
+
+                try (SeekableByteChannel ch = Files.newByteChannel(dir.resolve("file0"), StandardOpenOption.WRITE,
+                        StandardOpenOption.SYNC)) {
+                    ch.truncate(WRITE_SIZE);
+                }
+
+                // The durable state is captured as a crash would leave it
+                Files.copy(snapshot, crashedSnapshot, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.COPY_ATTRIBUTES);
+                Files.copy(log, crashedLog, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                SystemsUtil.closeSystem(TEST_SYSTEM_DOMAIN);
+            }
+
+            DynRoute rDir = rRoot().resolve("dir");
+            DynFileSystem<LMSpace> loaded = provider().loadFileSystem(TEST_LOADED_DOMAIN,
+                    LMSpaceWriteAheadLog.loader(crashedSnapshot, crashedLog));
+            try {
+                Assertions.assertFalse(loaded.resolve(rRoot().resolve("before")).exists());
+                Assertions.assertArrayEquals(Arrays.copyOf(contents[0], WRITE_SIZE),
+                        FileIO.readFileData(loaded, rDir.resolve("file0"), 0, WRITE_SIZE));
+                Assertions.assertEquals(WRITE_SIZE, loaded.resolve(rDir.resolve("file0")).testExistence().readSize());
+                for (int w = 1; w < NUM_WRITERS; w++) {
+                    Assertions.assertArrayEquals(contents[w],
+                            FileIO.readFileData(loaded, rDir.resolve("file" + w), 0, contents[w].length));
+                }
+
+                // The recovered space continues the log
+                Assertions.assertNotNull(loaded.getStore().getWriteAheadLog());
+                FileIO.writeFileContent(loaded, rRoot().resolve("after"), 0, new byte[] { 4, 5 });
+            } finally {
+                loaded.close();
+            }
+
+            loaded = provider().loadFileSystem(TEST_LOADED_DOMAIN,
+                    LMSpaceWriteAheadLog.loader(crashedSnapshot, crashedLog));
+            try {
+                Assertions.assertArrayEquals(new byte[] { 4, 5 },
+                        FileIO.readFileData(loaded, rRoot().resolve("after"), 0, 2));
+            } finally {
+                loaded.close();
+            }
+        } finally {
+            Files.deleteIfExists(snapshot);
+            Files.deleteIfExists(log);
+            Files.deleteIfExists(crashedSnapshot);
+            Files.deleteIfExists(crashedLog);
+        }
+    }
+
+    //
+    // Test: Attach / Checkpoint During Writes
+
+    @Test
+    public void testCheckpointDuringWrites() throws Exception {
+        byte[][] contents = new byte[NUM_WRITERS][NUM_WRITES * WRITE_SIZE];
+        Random random = new Random(23);
+        for (byte[] content : contents) {
+            random.nextBytes(content);
+        }
+
+        LMSpaceOptions options = LMSpaceOptions.newInstance();
+        options.concurrent = true;
+
+        Path snapshot = Files.createTempFile("dynfs-wal", ".bin");
+        Path log = Files.createTempFile("dynfs-wal", ".log");
+        try {
+            DynFileSystem<LMSpace> fs = SystemsUtil.openSystem(TEST_SYSTEM_DOMAIN, TEST_SYSTEM_TOTAL_SPACE, options);
+            try {
+                Path root = fs.getRootDirectory();
+
+                // The log is attached and checkpointed while the writers run; no update
+                // may fall between a snapshot and its log
+                ExecutorService executor = Executors.newFixedThreadPool(NUM_WRITERS);
+                try {
+                    List<Future<?>> futures = new ArrayList<>();
+                    for (int w = 0; w < NUM_WRITERS; w++) {
+                        byte[] content = contents[w];
+                        Path file = root.resolve("file" + w);
+                        futures.add(executor.submit(() -> {
+                            try (SeekableByteChannel ch = Files.newByteChannel(file, StandardOpenOption.CREATE_NEW,
+                                    StandardOpenOption.WRITE)) {
+                                for (int pass = 0; pass < NUM_PASSES; pass++) {
+                                    ch.position(0);
+                                    for (int i = 0; i < NUM_WRITES; i++) {
+                                        ch.write(ByteBuffer.wrap(content, i * WRITE_SIZE, WRITE_SIZE));
+                                    }
+                                }
+                            }
+                            return null;
+                        }));
+                    }
+
+                    LMSpaceWriteAheadLog wal = fs.getStore().attachWriteAheadLog(snapshot, log);
+                    while (!futures.stream().allMatch(Future::isDone)) {
+                        wal.checkpoint();
+                    }
+                    for (Future<?> future : futures) {
+                        future.get();
+                    }
+                } finally {
+                    executor.shutdown();
+                }
+            } finally {
+                SystemsUtil.closeSystem(TEST_SYSTEM_DOMAIN);
+            }
+
+            DynFileSystem<LMSpace> loaded = provider().loadFileSystem(TEST_LOADED_DOMAIN,
+                    LMSpaceWriteAheadLog.loader(snapshot, log));
+            try {
+                for (int w = 0; w < NUM_WRITERS; w++) {
+                    Assertions.assertArrayEquals(contents[w],
+                            FileIO.readFileData(loaded, rRoot().resolve("file" + w), 0, contents[w].length + 1));
+                }
+            } finally {
+                loaded.close();
+            }
+        } finally {
+            Files.deleteIfExists(snapshot);
+            Files.deleteIfExists(log);
+        }
+    }
+
+    //
+    // Test: Torn Record
+
+    @Test
+    public void testTornRecord() throws IOException {
+        Path snapshot = Files.createTempFile("dynfs-wal", ".bin");
+        Path log = Files.createTempFile("dynfs-wal", ".log");
+        try {
+            DynFileSystem<LMSpace> fs = SystemsUtil.openSystem(TEST_SYSTEM_DOMAIN, TEST_SYSTEM_TOTAL_SPACE);
+            try {
+                fs.getStore().attachWriteAheadLog(snapshot, log);
+                FileIO.writeFileContent(fs, rRoot().resolve("a"), 0, new byte[] { 1 });
+                FileIO.writeFileContent(fs, rRoot().resolve("a"), 1, new byte[] { 2 });
+            } finally {
+                SystemsUtil.closeSystem(TEST_SYSTEM_DOMAIN);
+            }
+
+            // The last record, writing the second byte, is torn
+            try (FileChannel ch = FileChannel.open(log, StandardOpenOption.WRITE)) {
+                ch.truncate(ch.size() - 1);
+            }
+
+            DynFileSystem<LMSpace> loaded = provider().loadFileSystem(TEST_LOADED_DOMAIN,
+                    LMSpaceWriteAheadLog.loader(snapshot, log));
+            try {
+                DynRoute rA = rRoot().resolve("a");
+                Assertions.assertEquals(2, loaded.resolve(rA).testExistence().readSize());
+                Assertions.assertArrayEquals(new byte[] { 1, 0 }, FileIO.readFileData(loaded, rA, 0, 2));
+            } finally {
+                loaded.close();
+            }
+        } finally {
+            Files.deleteIfExists(snapshot);
+            Files.deleteIfExists(log);
+        }
+    }
+
+}
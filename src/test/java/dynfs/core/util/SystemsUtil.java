@@ -13,6 +13,7 @@ import com.google.common.collect.ImmutableSet;
 import dynfs.core.DynFileSystem;
 import dynfs.core.store.DynSpaceFactory;
 import dynfs.dynlm.LMSpace;
+import dynfs.dynlm.LMSpaceOptions;
 
 public final class SystemsUtil {
 
@@ -62,11 +63,15 @@ public final class SystemsUtil {
     //
     // DynFileSystem Creation / Access / Destruction
 
-    public static DynFileSystem<LMSpace> openSystem(String domain, int totalSpace) {
+    public static DynFileSystem<LMSpace> openSystem(String domain, long totalSpace) {
+        return openSystem(domain, totalSpace, LMSpaceOptions.newInstance());
+    }
+
+    public static DynFileSystem<LMSpace> openSystem(String domain, long totalSpace, LMSpaceOptions options) {
         checkExistsDynFileSystem(domain, false);
 
         try {
-            DynFileSystem<LMSpace> fs = newDynFileSystem(domain, totalSpace);
+            DynFileSystem<LMSpace> fs = newDynFileSystem(domain, totalSpace, options);
             systems.put(domain, fs);
 
             return fs;
@@ -94,9 +99,9 @@ public final class SystemsUtil {
         }
     }
 
-    private static DynFileSystem<LMSpace> newDynFileSystem(String domain, int totalSpace) {
+    private static DynFileSystem<LMSpace> newDynFileSystem(String domain, long totalSpace, LMSpaceOptions options) {
         String fsName = String.format("[DynFileSystem: %s (Test)]", domain);
-        DynSpaceFactory<LMSpace> fac = env -> new LMSpace(fsName, totalSpace);
+        DynSpaceFactory<LMSpace> fac = env -> new LMSpace(fsName, totalSpace, options);
         try {
             DynFileSystem<LMSpace> fs = ProviderUtil.provider().newFileSystem(domain, fac, null);
             return fs;